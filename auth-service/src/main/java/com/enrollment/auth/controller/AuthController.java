@@ -4,11 +4,14 @@ import com.enrollment.auth.dto.AuthRequest;
 import com.enrollment.auth.dto.AuthResponse;
 import com.enrollment.auth.dto.RegisterRequest;
 import com.enrollment.auth.dto.PasswordChangeRequest;
+import com.enrollment.auth.dto.ProfileUpdateRequest;
 import com.enrollment.auth.model.User;
 import com.enrollment.auth.repository.UserRepository;
 import com.enrollment.auth.service.AuthService;
+import com.enrollment.auth.service.PasswordHasher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -45,6 +48,8 @@ public class AuthController {
             AuthResponse response = authService.register(request);
             log.info("Successfully registered user: {}", request.getEmail());
             return ResponseEntity.ok(response);
+        } catch (PasswordHasher.HashingRejectedException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             log.error("Registration failed for email: {}, error: {}", request.getEmail(), e.getMessage(), e);
             Map<String, String> response = new HashMap<>();
@@ -75,6 +80,8 @@ public class AuthController {
             AuthResponse response = authService.login(request);
             log.info("Successfully logged in user: {}", request.getEmail());
             return ResponseEntity.ok(response);
+        } catch (PasswordHasher.HashingRejectedException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             log.error("Login failed for email: {}, error: {}", request.getEmail(), e.getMessage(), e);
             Map<String, String> response = new HashMap<>();
@@ -220,6 +227,8 @@ public class AuthController {
             
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("message", "Invalid or expired token"));
+        } catch (PasswordHasher.HashingRejectedException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                     .body(Map.of("message", e.getMessage()));
@@ -230,6 +239,37 @@ public class AuthController {
         }
     }
     
+    /**
+     * Updates the signed-in user's first and last name.
+     */
+    @PutMapping("/profile")
+    public ResponseEntity<?> updateProfile(@Valid @RequestBody ProfileUpdateRequest request,
+                                         @RequestHeader("Authorization") String token) {
+        try {
+            if (token != null && token.startsWith("Bearer ")) {
+                token = token.substring(7);
+
+                byte[] keyBytes = Decoders.BASE64.decode(secret);
+                var key = Keys.hmacShaKeyFor(keyBytes);
+
+                Claims claims = Jwts.parserBuilder()
+                    .setSigningKey(key)
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+
+                User user = authService.updateProfile(claims.getSubject(), request);
+                return ResponseEntity.ok(new UserDTO(user));
+            }
+
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("message", "Invalid or expired token"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
     /**
      * Re-authenticates user for sensitive operations.
      * Implements requirement 2.1.13.
@@ -271,6 +311,8 @@ public class AuthController {
             
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("message", "Invalid or expired token"));
+        } catch (PasswordHasher.HashingRejectedException e) {
+            return busy(e);
         } catch (Exception e) {
             log.error("Error during reauthentication", e);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -278,6 +320,15 @@ public class AuthController {
         }
     }
     
+    /**
+     * Password hashing is saturated; the client should retry later rather than treat this as a bad request.
+     */
+    private ResponseEntity<?> busy(PasswordHasher.HashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("message", e.getMessage()));
+    }
+
     private String getClientIP(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
@@ -0,0 +1,53 @@
+package com.enrollment.auth.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+import java.time.Instant;
+
+/**
+ * A security audit event (requirements 2.4.5 - 2.4.7).
+ *
+ * Events are stored in one collection per month ({@code security_events_yyyy_MM}), so old
+ * months can be archived or dropped as a whole. Fields that do not apply to the event type
+ * are null.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SecurityEvent {
+
+    public enum Type {
+        AUTH_SUCCESS,
+        AUTH_FAILURE,
+        ACCOUNT_LOCKOUT,
+        VALIDATION_FAILURE,
+        ACCESS_DENIED,
+        PASSWORD_CHANGE,
+        PASSWORD_CHANGE_FAILURE,
+        SECURITY_QUESTION_UPDATE
+    }
+
+    @Id
+    private String id;
+
+    private Type type;
+    private Instant occurredAt;
+
+    private String email;
+    private String ipAddress;
+    private String reason;
+    private Integer attempts;
+
+    // Validation failures
+    private String endpoint;
+    private String field;
+
+    // Access control failures
+    private String resource;
+    private String action;
+}
@@ -0,0 +1,279 @@
+package com.enrollment.auth.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-replica cache of accounts known to have no failed login attempts and no lock, so the
+ * common login (unlocked account, right password) does not have to ask Redis.
+ *
+ * Every failed attempt, on any replica, increments a lockout epoch in Redis and publishes
+ * "epoch:email" on a channel in the same script; each replica evicts that email as soon as the
+ * message arrives. Lost messages are caught in two ways: a message whose epoch skips a number
+ * clears the whole cache, and the epoch is read every sync interval. An epoch ahead of the
+ * messages seen usually just means their messages are still on the way, so the cache is only
+ * cleared if they have not arrived within a grace period; an epoch behind them means Redis was
+ * reset and clears the cache right away. The cache is only trusted while subscribed
+ * and while those reads succeed, so when Redis cannot be reached every check goes to Redis
+ * (and fails closed there). The subscription is (re)started by the sync, so auth-service
+ * still starts while Redis is down.
+ */
+@Component
+@Slf4j
+public class AccountLockoutNearCache implements MessageListener {
+
+    static final String CHANNEL = "account_lockout:events";
+    static final String EPOCH_KEY = "account_lockout:epoch";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer subscription;
+    private final Clock clock;
+    private final long ttlMillis;
+    private final long maxSyncAgeMillis;
+    private final long epochGraceMillis;
+    private final int maxSize;
+    // Email -> time it was found unlocked; access ordered so the least recently used goes first
+    private final Map<String, Long> unlocked;
+
+    // Guarded by unlocked
+    private long lastEpoch = -1;
+    // Epoch read from Redis that the messages have yet to catch up with, and when it was read
+    private long awaitedEpoch = -1;
+    private long awaitedSince;
+    private long generation;
+    private volatile long lastSyncAt;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter clears;
+
+    @Autowired
+    public AccountLockoutNearCache(RedisTemplate<String, String> redisTemplate,
+                                   RedisConnectionFactory connectionFactory,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${auth.lockout-cache.ttl:PT5M}") Duration ttl,
+                                   @Value("${auth.lockout-cache.sync-interval:PT1S}") Duration syncInterval,
+                                   @Value("${auth.lockout-cache.max-size:100000}") int maxSize,
+                                   @Value("${auth.lockout-cache.epoch-grace:PT2S}") Duration epochGrace) {
+        this(redisTemplate, new RedisMessageListenerContainer(), meterRegistry, ttl, syncInterval, maxSize, epochGrace, Clock.systemUTC());
+        subscription.setConnectionFactory(connectionFactory);
+        subscription.afterPropertiesSet();
+    }
+
+    AccountLockoutNearCache(RedisTemplate<String, String> redisTemplate,
+                            RedisMessageListenerContainer subscription,
+                            MeterRegistry meterRegistry,
+                            Duration ttl,
+                            Duration syncInterval,
+                            int maxSize,
+                            Duration epochGrace,
+                            Clock clock) {
+        this.redisTemplate = redisTemplate;
+        this.subscription = subscription;
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        // One missed sync is tolerated, two are not
+        this.maxSyncAgeMillis = 2 * syncInterval.toMillis();
+        this.maxSize = maxSize;
+        this.epochGraceMillis = epochGrace.toMillis();
+        this.unlocked = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > AccountLockoutNearCache.this.maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("auth.lockout.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("auth.lockout.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.clears = Counter.builder("auth.lockout.cache.clears").register(meterRegistry);
+        Gauge.builder("auth.lockout.cache.size", this, AccountLockoutNearCache::size).register(meterRegistry);
+
+        subscription.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Whether the account is known, without asking Redis, to have no failed attempts and no lock.
+     */
+    public boolean isKnownUnlocked(String email) {
+        if (inSync()) {
+            long now = clock.millis();
+            synchronized (unlocked) {
+                Long cachedAt = unlocked.get(email);
+                if (cachedAt != null && now - cachedAt < ttlMillis) {
+                    hits.increment();
+                    return true;
+                }
+                if (cachedAt != null) {
+                    unlocked.remove(email);
+                }
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * Token to take before reading the lockout state from Redis and to pass to
+     * {@link #putUnlocked}, so a read that raced with an invalidation is not cached.
+     */
+    public long generation() {
+        synchronized (unlocked) {
+            return generation;
+        }
+    }
+
+    /**
+     * Remembers that Redis reported no failed attempts and no lock for the account, unless any
+     * invalidation arrived since {@code generation} was taken.
+     */
+    public void putUnlocked(String email, long generation) {
+        if (!inSync()) {
+            return;
+        }
+        synchronized (unlocked) {
+            if (this.generation == generation) {
+                unlocked.put(email, clock.millis());
+            }
+        }
+    }
+
+    public void invalidate(String email) {
+        synchronized (unlocked) {
+            generation++;
+            unlocked.remove(email);
+        }
+    }
+
+    /**
+     * A failed attempt was recorded on some replica.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        long epoch;
+        try {
+            epoch = Long.parseLong(body.substring(0, Math.max(separator, 0)));
+        } catch (NumberFormatException e) {
+            log.warn("Unreadable lockout event '{}', clearing the lockout cache", body);
+            clear();
+            return;
+        }
+        String email = body.substring(separator + 1);
+        synchronized (unlocked) {
+            generation++;
+            if (lastEpoch >= 0 && epoch > lastEpoch + 1) {
+                // Events in between were missed
+                clearLocked();
+            } else {
+                unlocked.remove(email);
+            }
+            lastEpoch = Math.max(lastEpoch, epoch);
+        }
+    }
+
+    /**
+     * Makes sure the event subscription is up, then compares the epoch in Redis with the events
+     * received. The cache is cleared if Redis went back (it was reset), or if the events have not
+     * caught up with an epoch read from Redis within the grace period (they were missed).
+     */
+    @Scheduled(fixedDelayString = "${auth.lockout-cache.sync-interval:PT1S}")
+    public void sync() {
+        long epoch;
+        long seenBeforeRead;
+        try {
+            if (!subscription.isListening()) {
+                // A failed subscribe leaves the container running but not listening
+                subscription.stop();
+                subscription.start();
+                if (!subscription.isListening()) {
+                    throw new IllegalStateException("not subscribed to " + CHANNEL);
+                }
+            }
+            synchronized (unlocked) {
+                seenBeforeRead = lastEpoch;
+            }
+            String value = redisTemplate.opsForValue().get(EPOCH_KEY);
+            epoch = value == null ? 0 : Long.parseLong(value);
+        } catch (Exception e) {
+            log.warn("Unable to sync the lockout cache, bypassing it: {}", e.getMessage());
+            lastSyncAt = 0;
+            clear();
+            return;
+        }
+        long now = clock.millis();
+        synchronized (unlocked) {
+            // Events that arrive during the read may be newer than what it returned; only events
+            // seen before the read tell that Redis went back
+            if (lastEpoch < 0 || epoch < seenBeforeRead) {
+                // First read, or Redis was reset
+                generation++;
+                clearLocked();
+                lastEpoch = epoch;
+                awaitedEpoch = -1;
+            } else if (awaitedEpoch >= 0 && lastEpoch < awaitedEpoch && now - awaitedSince >= epochGraceMillis) {
+                log.warn("Lockout events up to epoch {} did not arrive, clearing the lockout cache", awaitedEpoch);
+                generation++;
+                clearLocked();
+                lastEpoch = Math.max(lastEpoch, awaitedEpoch);
+                awaitedEpoch = -1;
+            }
+            if (awaitedEpoch >= 0 && lastEpoch >= awaitedEpoch) {
+                awaitedEpoch = -1;
+            }
+            if (awaitedEpoch < 0 && epoch > lastEpoch) {
+                awaitedEpoch = epoch;
+                awaitedSince = now;
+            }
+        }
+        lastSyncAt = now;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscription.stop();
+    }
+
+    public int size() {
+        synchronized (unlocked) {
+            return unlocked.size();
+        }
+    }
+
+    private boolean inSync() {
+        return clock.millis() - lastSyncAt <= maxSyncAgeMillis;
+    }
+
+    private void clear() {
+        synchronized (unlocked) {
+            generation++;
+            clearLocked();
+        }
+    }
+
+    private void clearLocked() {
+        if (!unlocked.isEmpty()) {
+            clears.increment();
+            unlocked.clear();
+        }
+    }
+}
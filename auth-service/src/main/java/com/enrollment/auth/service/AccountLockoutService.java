@@ -3,10 +3,12 @@ package com.enrollment.auth.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service for managing account lockout mechanism.
@@ -14,6 +16,11 @@ import java.time.LocalDateTime;
  * 
  * Uses Redis for fast, distributed tracking of failed attempts.
  * Accounts are locked for 15 minutes after 5 failed attempts.
+ *
+ * Checking and recording are Lua scripts, so each is a single atomic round trip that returns
+ * the whole lockout state. A lock is a key whose Redis TTL is the time left on the lock.
+ * Accounts without failed attempts are remembered in {@link AccountLockoutNearCache}, so
+ * logging in to them does not touch Redis.
  */
 @Service
 @RequiredArgsConstructor
@@ -21,44 +28,81 @@ import java.time.LocalDateTime;
 public class AccountLockoutService {
     
     private final RedisTemplate<String, String> redisTemplate;
+    private final AccountLockoutNearCache nearCache;
     
     // Maximum failed attempts before lockout
     private static final int MAX_ATTEMPTS = 5;
     // Lockout duration to discourage brute force attacks
-    private static final long LOCKOUT_DURATION_MINUTES = 15;
+    private static final Duration LOCKOUT_DURATION = Duration.ofMinutes(15);
     // Redis key prefixes for organization
     private static final String ATTEMPT_KEY_PREFIX = "login_attempt:";
     private static final String LOCKOUT_KEY_PREFIX = "account_locked:";
-    
+
+    /**
+     * KEYS: attempt counter, lock. ARGV: lockout duration in ms.
+     * Returns the attempt count and the lock's remaining time in ms (negative when not locked).
+     */
+    static final RedisScript<List<Long>> CHECK_SCRIPT = script("""
+        local attempts = tonumber(redis.call('GET', KEYS[1]) or '0') or 0
+        local ttl = redis.call('PTTL', KEYS[2])
+        if ttl == -1 then
+            -- A lock without an expiry would never be lifted
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            ttl = tonumber(ARGV[1])
+        end
+        return {attempts, ttl}
+        """);
+
+    /**
+     * KEYS: attempt counter, lock, lockout epoch. ARGV: lockout duration in ms, max attempts,
+     * event channel, email.
+     * Counts the attempt, locks the account once the max is reached, tells every replica to
+     * evict the account from its near-cache and returns the new state.
+     */
+    static final RedisScript<List<Long>> RECORD_SCRIPT = script("""
+        local attempts = redis.call('INCR', KEYS[1])
+        redis.call('PEXPIRE', KEYS[1], ARGV[1])
+        if attempts >= tonumber(ARGV[2]) then
+            redis.call('SET', KEYS[2], attempts, 'PX', ARGV[1])
+        end
+        local epoch = redis.call('INCR', KEYS[3])
+        redis.call('PUBLISH', ARGV[3], epoch .. ':' .. ARGV[4])
+        return {attempts, redis.call('PTTL', KEYS[2])}
+        """);
+
+    /**
+     * Failed attempts and lock status of an account.
+     *
+     * @param failedAttempts failed attempts within the attempt window
+     * @param lockedForMillis time left on the lock, zero or negative when not locked
+     */
+    public record LockoutState(int failedAttempts, long lockedForMillis) {
+
+        public boolean locked() {
+            return lockedForMillis > 0;
+        }
+    }
+
     /**
      * Records a failed login attempt for the given email.
      * Increments the attempt counter and locks the account if max attempts reached.
      * 
      * @param email The email of the account that failed to login
+     * @return the lockout state after this attempt
+     * @throws RuntimeException if Redis is unavailable
      */
-    public void recordFailedAttempt(String email) {
+    public LockoutState recordFailedAttempt(String email) {
+        // Evict here first; the other replicas are told by the script
+        nearCache.invalidate(email);
         try {
-            String attemptKey = ATTEMPT_KEY_PREFIX + email;
-            String lockoutKey = LOCKOUT_KEY_PREFIX + email;
-            
-            // Increment failed attempts counter in Redis
-            Long attempts = redisTemplate.opsForValue().increment(attemptKey);
-            
-            if (attempts == null) {
-                attempts = 1L;
-            }
-            
-            log.info("Failed login attempt {} for email: {}", attempts, email);
-            
-            // Set expiration for attempt counter (reset after 15 minutes if not locked)
-            redisTemplate.expire(attemptKey, Duration.ofMinutes(LOCKOUT_DURATION_MINUTES));
-            
-            // Lock account if max attempts reached
-            if (attempts >= MAX_ATTEMPTS) {
-                log.warn("Account locked due to {} failed attempts for email: {}", attempts, email);
-                redisTemplate.opsForValue().set(lockoutKey, LocalDateTime.now().toString(), 
-                    Duration.ofMinutes(LOCKOUT_DURATION_MINUTES));
+            LockoutState state = run(RECORD_SCRIPT, keys(email, AccountLockoutNearCache.EPOCH_KEY),
+                String.valueOf(LOCKOUT_DURATION.toMillis()), String.valueOf(MAX_ATTEMPTS),
+                AccountLockoutNearCache.CHANNEL, email);
+            log.info("Failed login attempt {} for email: {}", state.failedAttempts(), email);
+            if (state.failedAttempts() >= MAX_ATTEMPTS) {
+                log.warn("Account locked due to {} failed attempts for email: {}", state.failedAttempts(), email);
             }
+            return state;
         } catch (Exception e) {
             // Fail closed - maintain security even if Redis is unavailable
             log.error("Critical: Unable to record failed login attempt for {}. Redis unavailable.", email, e);
@@ -68,18 +112,20 @@ public class AccountLockoutService {
     
     /**
      * Resets failed login attempts for a user after successful login.
-     * Clears both the attempt counter and any lockout status.
+     * Clears both the attempt counter and any lockout status in one DEL.
      * 
      * @param email The email of the account to reset
      */
     public void resetFailedAttempts(String email) {
+        if (nearCache.isKnownUnlocked(email)) {
+            // Nothing to reset
+            return;
+        }
         try {
-            String attemptKey = ATTEMPT_KEY_PREFIX + email;
-            String lockoutKey = LOCKOUT_KEY_PREFIX + email;
-            
+            long generation = nearCache.generation();
             // Clear both attempts and lockout status
-            redisTemplate.delete(attemptKey);
-            redisTemplate.delete(lockoutKey);
+            redisTemplate.delete(keys(email));
+            nearCache.putUnlocked(email, generation);
             
             log.info("Reset failed login attempts for email: {}", email);
         } catch (Exception e) {
@@ -88,6 +134,24 @@ public class AccountLockoutService {
             // Don't throw - this is called after successful authentication
         }
     }
+
+    /**
+     * Reads the failed attempts and lock status of an account.
+     * Fails closed - if Redis is unavailable, the check fails rather than letting the login through.
+     *
+     * @param email The email to check
+     * @return the current lockout state
+     * @throws RuntimeException if Redis is unavailable
+     */
+    public LockoutState checkLockout(String email) {
+        try {
+            return run(CHECK_SCRIPT, keys(email), String.valueOf(LOCKOUT_DURATION.toMillis()));
+        } catch (Exception e) {
+            // Fail closed - assume locked if Redis is unavailable
+            log.error("Critical: Unable to check account lock status for {}. Redis unavailable.", email, e);
+            throw new RuntimeException("Service temporarily unavailable");
+        }
+    }
     
     /**
      * Checks if an account is currently locked due to failed attempts.
@@ -98,35 +162,15 @@ public class AccountLockoutService {
      * @throws RuntimeException if Redis is unavailable
      */
     public boolean isAccountLocked(String email) {
-        try {
-            String lockoutKey = LOCKOUT_KEY_PREFIX + email;
-            String lockTime = redisTemplate.opsForValue().get(lockoutKey);
-            
-            if (lockTime != null) {
-                // Verify the lock is still valid
-                try {
-                    LocalDateTime lockDateTime = LocalDateTime.parse(lockTime);
-                    LocalDateTime unlockTime = lockDateTime.plusMinutes(LOCKOUT_DURATION_MINUTES);
-                    
-                    if (LocalDateTime.now().isBefore(unlockTime)) {
-                        return true;
-                    } else {
-                        // Lock expired, clean it up
-                        redisTemplate.delete(lockoutKey);
-                        return false;
-                    }
-                } catch (Exception e) {
-                    // If we can't parse the lock time, assume locked
-                    log.error("Invalid lock time format for {}: {}", email, lockTime);
-                    return true;
-                }
-            }
+        if (nearCache.isKnownUnlocked(email)) {
             return false;
-        } catch (Exception e) {
-            // Fail closed - assume locked if Redis is unavailable
-            log.error("Critical: Unable to check account lock status for {}. Redis unavailable.", email, e);
-            throw new RuntimeException("Service temporarily unavailable");
         }
+        long generation = nearCache.generation();
+        LockoutState state = checkLockout(email);
+        if (state.failedAttempts() == 0 && !state.locked()) {
+            nearCache.putUnlocked(email, generation);
+        }
+        return state.locked();
     }
     
     /**
@@ -148,4 +192,23 @@ public class AccountLockoutService {
             return 0;
         }
     }
-}
\ No newline at end of file
+
+    private static List<String> keys(String email, String... more) {
+        List<String> keys = new ArrayList<>(List.of(ATTEMPT_KEY_PREFIX + email, LOCKOUT_KEY_PREFIX + email));
+        keys.addAll(List.of(more));
+        return keys;
+    }
+
+    private LockoutState run(RedisScript<List<Long>> script, List<String> keys, Object... args) {
+        List<Long> reply = redisTemplate.execute(script, keys, args);
+        if (reply == null || reply.size() < 2) {
+            throw new IllegalStateException("Unexpected lockout script reply: " + reply);
+        }
+        return new LockoutState(reply.get(0).intValue(), reply.get(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<Long>> script(String source) {
+        return RedisScript.of(source, (Class<List<Long>>) (Class<?>) List.class);
+    }
+}
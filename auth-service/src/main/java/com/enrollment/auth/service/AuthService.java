@@ -4,12 +4,12 @@ import com.enrollment.auth.dto.AuthRequest;
 import com.enrollment.auth.dto.AuthResponse;
 import com.enrollment.auth.dto.RegisterRequest;
 import com.enrollment.auth.dto.PasswordChangeRequest;
+import com.enrollment.auth.dto.ProfileUpdateRequest;
 import com.enrollment.auth.model.User;
 import com.enrollment.auth.repository.UserRepository;
 import com.enrollment.auth.config.SecurityQuestions;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -42,9 +42,10 @@ import java.util.ArrayList;
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final AccountLockoutService lockoutService;
     private final SecurityEventLogger securityLogger;
+    private final UserProfileChangeNotifier profileChangeNotifier;
     
     @Value("${jwt.secret}")
     private String secret;
@@ -99,7 +100,7 @@ public class AuthService {
 
             // Create new user
             log.info("Creating new user with email: {}", request.getEmail());
-            String encodedPassword = passwordEncoder.encode(request.getPassword());
+            String encodedPassword = passwordHasher.encode(request.getPassword());
             
             // Initialize password history with the first password
             List<String> passwordHistory = new ArrayList<>();
@@ -113,7 +114,7 @@ public class AuthService {
                 .role(role)
                 .securityQuestion(request.getSecurityQuestion())
                 .securityAnswer(request.getSecurityAnswer() != null ? 
-                    passwordEncoder.encode(request.getSecurityAnswer()) : null)
+                    passwordHasher.encode(request.getSecurityAnswer()) : null)
                 .passwordHistory(passwordHistory)
                 .passwordChangedAt(LocalDateTime.now())
                 .failedLoginAttempts(0)
@@ -136,6 +137,8 @@ public class AuthService {
                 .lastName(user.getLastName())
                 .role(user.getRole())
                 .build();
+        } catch (PasswordHasher.HashingRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error during registration for email {}: {}", request.getEmail(), e.getMessage(), e);
             throw new RuntimeException("Error during registration: " + e.getMessage());
@@ -178,14 +181,14 @@ public class AuthService {
                 });
 
             // Verify password
-            if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+            if (!passwordHasher.matches(request.getPassword(), user.getPassword())) {
                 log.error("Invalid password for user: {}", request.getEmail());
-                lockoutService.recordFailedAttempt(request.getEmail());
+                AccountLockoutService.LockoutState lockout = lockoutService.recordFailedAttempt(request.getEmail());
                 securityLogger.logAuthenticationFailure(request.getEmail(), 
                     request.getIpAddress(), "Invalid password");
                 
                 // Log lockout if this was the 5th attempt
-                if (lockoutService.getFailedAttempts(request.getEmail()) >= 5) {
+                if (lockout.failedAttempts() >= 5) {
                     securityLogger.logAccountLockout(request.getEmail(), 5);
                 }
                 
@@ -274,7 +277,7 @@ public class AuthService {
             .orElseThrow(() -> new RuntimeException("User not found"));
         
         // Verify current password
-        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+        if (!passwordHasher.matches(request.getCurrentPassword(), user.getPassword())) {
             log.error("Invalid current password for password change attempt: {}", email);
             securityLogger.logPasswordChangeFailure(email, "Invalid current password");
             throw new RuntimeException("Invalid current password");
@@ -290,19 +293,17 @@ public class AuthService {
             }
         }
         
-        // Check password history (requirement 2.1.10)
-        String encodedNewPassword = passwordEncoder.encode(request.getNewPassword());
-        if (user.getPasswordHistory() != null) {
-            for (String oldPassword : user.getPasswordHistory()) {
-                if (passwordEncoder.matches(request.getNewPassword(), oldPassword)) {
-                    log.warn("Password reuse attempted for user: {}", email);
-                    securityLogger.logPasswordChangeFailure(email, "Password reuse");
-                    throw new RuntimeException("Password has been used recently. Please choose a different password");
-                }
-            }
+        // Check password history (requirement 2.1.10). The entries are checked in parallel and a
+        // reused password is refused as soon as one matches, before paying for the new hash.
+        if (user.getPasswordHistory() != null
+                && passwordHasher.matchesAny(request.getNewPassword(), user.getPasswordHistory())) {
+            log.warn("Password reuse attempted for user: {}", email);
+            securityLogger.logPasswordChangeFailure(email, "Password reuse");
+            throw new RuntimeException("Password has been used recently. Please choose a different password");
         }
-        
+
         // Update password and history
+        String encodedNewPassword = passwordHasher.encode(request.getNewPassword());
         user.setPassword(encodedNewPassword);
         
         // Maintain password history (keep last 5)
@@ -321,6 +322,34 @@ public class AuthService {
         securityLogger.logPasswordChange(email);
     }
     
+    /**
+     * Updates the user's name. Courses taught by the user keep a copy of the name,
+     * so course-service is notified of the change.
+     *
+     * @param email User email
+     * @param request New first and last name
+     * @return the updated user
+     * @throws RuntimeException if the user does not exist
+     */
+    public User updateProfile(String email, ProfileUpdateRequest request) {
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        boolean changed = !request.getFirstName().equals(user.getFirstName())
+            || !request.getLastName().equals(user.getLastName());
+        if (!changed) {
+            return user;
+        }
+
+        user.setFirstName(request.getFirstName());
+        user.setLastName(request.getLastName());
+        user = userRepository.save(user);
+        log.info("Profile updated for user: {}", email);
+
+        profileChangeNotifier.userProfileChanged(user);
+        return user;
+    }
+
     /**
      * Verifies user password for re-authentication.
      * 
@@ -330,7 +359,7 @@ public class AuthService {
      */
     public boolean verifyPassword(String email, String password) {
         return userRepository.findByEmail(email)
-            .map(user -> passwordEncoder.matches(password, user.getPassword()))
+            .map(user -> passwordHasher.matches(password, user.getPassword()))
             .orElse(false);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.enrollment.auth.service;
+
+import com.enrollment.auth.config.RequestDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password hashing (BCrypt encode and match) on a small dedicated pool instead of on the
+ * request thread.
+ *
+ * Hashing is deliberately slow and CPU bound, so a burst of logins can otherwise take every
+ * request thread and every core, and even cheap lookups stop answering. The pool has a thread
+ * per spare core and a bounded queue. Callers that do not fit in the queue, or whose hash has
+ * not finished within the max wait, are rejected immediately with a retry-after hint.
+ */
+@Service
+@Slf4j
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final long maxWaitMillis;
+    // Exponentially weighted average of how long one hash takes
+    private volatile double averageHashMillis = 100;
+
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          MeterRegistry meterRegistry,
+                          @Value("${auth.password-hashing.threads:0}") int threads,
+                          @Value("${auth.password-hashing.queue-capacity:32}") int queueCapacity,
+                          @Value("${auth.password-hashing.max-wait:2s}") Duration maxWait) {
+        this.passwordEncoder = passwordEncoder;
+        // Leave one core for request handling unless a thread count is configured
+        this.threads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.maxWaitMillis = maxWait.toMillis();
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.password_hashing.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.password_hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        this.encodeTimer = Timer.builder("auth.password_hashing.duration").tag("operation", "encode")
+            .publishPercentileHistogram().register(meterRegistry);
+        this.matchTimer = Timer.builder("auth.password_hashing.duration").tag("operation", "match")
+            .publishPercentileHistogram().register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("auth.password_hashing.queue.wait").publishPercentileHistogram().register(meterRegistry);
+        this.rejected = Counter.builder("auth.password_hashing.rejected").register(meterRegistry);
+    }
+
+    /**
+     * @throws HashingRejectedException if the pool is saturated
+     */
+    public String encode(String rawPassword) {
+        return run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * @throws HashingRejectedException if the pool is saturated
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(matchTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Whether {@code rawPassword} matches any of {@code encodedPasswords}. The matches run in
+     * parallel on the pool and the answer is returned as soon as one of them matches; hashes
+     * still waiting in the queue are then cancelled.
+     *
+     * @throws HashingRejectedException if the pool is saturated
+     */
+    public boolean matchesAny(String rawPassword, List<String> encodedPasswords) {
+        if (encodedPasswords.isEmpty()) {
+            return false;
+        }
+        CompletionService<Boolean> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Boolean>> futures = new ArrayList<>(encodedPasswords.size());
+        try {
+            for (String encodedPassword : encodedPasswords) {
+                futures.add(completion.submit(timed(matchTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword))));
+            }
+        } catch (RejectedExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw reject("queue is full");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis());
+        try {
+            for (int remaining = futures.size(); remaining > 0; remaining--) {
+                Future<Boolean> done = completion.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw reject("hash did not finish in time");
+                }
+                if (result(done)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("caller was interrupted");
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private <T> T run(Timer hashTimer, Callable<T> hash) {
+        Future<T> future;
+        try {
+            future = executor.submit(timed(hashTimer, hash));
+        } catch (RejectedExecutionException e) {
+            throw reject("queue is full");
+        }
+
+        try {
+            return future.get(waitMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw reject("hash did not finish in time");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw reject("caller was interrupted");
+        } catch (ExecutionException e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Wraps a hash so that its queue wait and run time are recorded.
+     */
+    private <T> Callable<T> timed(Timer hashTimer, Callable<T> hash) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long started = System.nanoTime();
+            queueWaitTimer.record(started - submitted, TimeUnit.NANOSECONDS);
+            try {
+                return hash.call();
+            } finally {
+                long hashNanos = System.nanoTime() - started;
+                hashTimer.record(hashNanos, TimeUnit.NANOSECONDS);
+                averageHashMillis = 0.8 * averageHashMillis + 0.2 * TimeUnit.NANOSECONDS.toMillis(hashNanos);
+            }
+        };
+    }
+
+    private long waitMillis() {
+        // Never wait longer than the caller is still willing to
+        return Math.min(maxWaitMillis, RequestDeadline.remainingMillis());
+    }
+
+    private static <T> T result(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw failure(e);
+        }
+    }
+
+    private static RuntimeException failure(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new RuntimeException("Password hashing failed: " + e.getCause().getMessage(), e.getCause());
+    }
+
+    private HashingRejectedException reject(String reason) {
+        rejected.increment();
+        int queued = executor.getQueue().size();
+        log.warn("Password hashing is saturated ({}), {} hash(es) queued", reason, queued);
+        return new HashingRejectedException(retryAfterSeconds(queued));
+    }
+
+    long retryAfterSeconds(int queued) {
+        double batches = Math.ceil((double) (queued + 1) / threads);
+        return Math.max(1, (long) Math.ceil(batches * averageHashMillis / 1000.0));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Getter
+    public static class HashingRejectedException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public HashingRejectedException(long retryAfterSeconds) {
+            super("The service is busy. Please retry in " + retryAfterSeconds + " second(s).");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
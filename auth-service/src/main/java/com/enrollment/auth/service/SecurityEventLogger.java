@@ -1,11 +1,39 @@
 package com.enrollment.auth.service;
 
-import lombok.RequiredArgsConstructor;
+import com.enrollment.auth.model.SecurityEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service for logging security events.
@@ -13,77 +41,268 @@ import java.time.format.DateTimeFormatter;
  * - 2.4.5: Log all input validation failures
  * - 2.4.6: Log all authentication attempts
  * - 2.4.7: Log all access control failures
- * 
+ *
  * Uses structured logging format for easy parsing and monitoring.
+ *
+ * Events are put in a bounded buffer, which never blocks the caller. A background writer drains
+ * the buffer in batches, writes the log line of each event, which is the record of every event,
+ * and inserts the events into a MongoDB collection per month so they can be queried by account
+ * and time. When the buffer is full the event is counted as dropped and the caller writes a single
+ * warning naming it instead. An insert that fails or takes longer than the store timeout makes
+ * the writer skip MongoDB for a while, so a slow database only costs stored copies, never log lines.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class SecurityEventLogger {
-    
+
+    static final String COLLECTION_PREFIX = "security_events_";
+
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-    
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM").withZone(ZoneOffset.UTC);
+
+    private final MongoTemplate mongoTemplate;
+    private final BlockingQueue<SecurityEvent> buffer;
+    private final int batchSize;
+    private final long storeTimeoutMillis;
+    private final long storeRetryAfterMillis;
+    private final ExecutorService storeExecutor;
+    private final Set<String> indexedCollections = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private volatile long storeSkippedUntil;
+    private Thread writer;
+
+    private final Counter dropped;
+    private final Counter stored;
+    private final Counter storeFailures;
+    private final Timer batchTimer;
+
+    public SecurityEventLogger(MongoTemplate mongoTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${auth.security-events.buffer-size:10000}") int bufferSize,
+                               @Value("${auth.security-events.batch-size:500}") int batchSize,
+                               @Value("${auth.security-events.store-timeout:2s}") Duration storeTimeout,
+                               @Value("${auth.security-events.store-retry-after:30s}") Duration storeRetryAfter) {
+        this.mongoTemplate = mongoTemplate;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.batchSize = batchSize;
+        this.storeTimeoutMillis = storeTimeout.toMillis();
+        this.storeRetryAfterMillis = storeRetryAfter.toMillis();
+        this.storeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "security-event-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("auth.security_events.buffer.depth", buffer, BlockingQueue::size).register(meterRegistry);
+        this.dropped = Counter.builder("auth.security_events.dropped").register(meterRegistry);
+        this.stored = Counter.builder("auth.security_events.stored").register(meterRegistry);
+        this.storeFailures = Counter.builder("auth.security_events.store.failures").register(meterRegistry);
+        this.batchTimer = Timer.builder("auth.security_events.store.batch").publishPercentileHistogram().register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "security-event-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Lets the writer finish what is still buffered before it stops.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } else {
+            drain();
+        }
+        storeExecutor.shutdownNow();
+    }
+
     /**
      * Logs successful authentication attempts.
      */
     public void logAuthenticationSuccess(String email, String ipAddress) {
-        log.info("SECURITY_EVENT type=AUTH_SUCCESS email={} ip={} timestamp={} status=SUCCESS", 
-            email, ipAddress, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        publish(event(SecurityEvent.Type.AUTH_SUCCESS).email(email).ipAddress(ipAddress));
     }
-    
+
     /**
      * Logs failed authentication attempts.
      */
     public void logAuthenticationFailure(String email, String ipAddress, String reason) {
-        log.warn("SECURITY_EVENT type=AUTH_FAILURE email={} ip={} timestamp={} status=FAILED reason={}", 
-            email, ipAddress, LocalDateTime.now().format(TIMESTAMP_FORMAT), reason);
+        publish(event(SecurityEvent.Type.AUTH_FAILURE).email(email).ipAddress(ipAddress).reason(reason));
     }
-    
+
     /**
      * Logs account lockout events.
      */
     public void logAccountLockout(String email, int attempts) {
-        log.warn("SECURITY_EVENT type=ACCOUNT_LOCKOUT email={} attempts={} timestamp={} status=LOCKED", 
-            email, attempts, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        publish(event(SecurityEvent.Type.ACCOUNT_LOCKOUT).email(email).attempts(attempts));
     }
-    
+
     /**
      * Logs validation failures.
      */
     public void logValidationFailure(String endpoint, String field, String error) {
-        log.error("SECURITY_EVENT type=VALIDATION_FAILURE endpoint={} field={} error={} timestamp={}", 
-            endpoint, field, error, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        publish(event(SecurityEvent.Type.VALIDATION_FAILURE).endpoint(endpoint).field(field).reason(error));
     }
-    
+
     /**
      * Logs access control failures.
      */
     public void logAccessControlFailure(String email, String resource, String action) {
-        log.error("SECURITY_EVENT type=ACCESS_DENIED email={} resource={} action={} timestamp={}", 
-            email, resource, action, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        publish(event(SecurityEvent.Type.ACCESS_DENIED).email(email).resource(resource).action(action));
     }
-    
+
     /**
      * Logs password change events.
      */
     public void logPasswordChange(String email) {
-        log.info("SECURITY_EVENT type=PASSWORD_CHANGE email={} timestamp={} status=SUCCESS", 
-            email, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        publish(event(SecurityEvent.Type.PASSWORD_CHANGE).email(email));
     }
-    
+
     /**
      * Logs password change failures.
      */
     public void logPasswordChangeFailure(String email, String reason) {
-        log.warn("SECURITY_EVENT type=PASSWORD_CHANGE_FAILURE email={} reason={} timestamp={}", 
-            email, reason, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        publish(event(SecurityEvent.Type.PASSWORD_CHANGE_FAILURE).email(email).reason(reason));
     }
-    
+
     /**
      * Logs security question updates.
      */
     public void logSecurityQuestionUpdate(String email) {
-        log.info("SECURITY_EVENT type=SECURITY_QUESTION_UPDATE email={} timestamp={}", 
-            email, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        publish(event(SecurityEvent.Type.SECURITY_QUESTION_UPDATE).email(email));
+    }
+
+    /**
+     * Writes out everything buffered so far on the calling thread.
+     *
+     * @return the number of events written
+     */
+    int drain() {
+        int written = 0;
+        List<SecurityEvent> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            written += batch.size();
+            batch.clear();
+        }
+        return written;
+    }
+
+    private static SecurityEvent.SecurityEventBuilder event(SecurityEvent.Type type) {
+        return SecurityEvent.builder().type(type).occurredAt(Instant.now());
+    }
+
+    private void publish(SecurityEvent.SecurityEventBuilder builder) {
+        SecurityEvent event = builder.build();
+        if (!buffer.offer(event)) {
+            dropped.increment();
+            log.warn("SECURITY_EVENT_DROPPED type={} email={} occurredAt={}: event buffer is full, event not logged in full or stored",
+                event.getType(), event.getEmail(), event.getOccurredAt());
+        }
+    }
+
+    private void writeLoop() {
+        List<SecurityEvent> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                SecurityEvent first = buffer.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Whatever else arrived meanwhile goes into the same batch
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Security event writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<SecurityEvent> batch) {
+        batch.forEach(this::logLine);
+
+        Map<String, List<SecurityEvent>> byCollection = new LinkedHashMap<>();
+        for (SecurityEvent event : batch) {
+            byCollection.computeIfAbsent(collection(event.getOccurredAt()), name -> new ArrayList<>()).add(event);
+        }
+        byCollection.forEach((collection, events) -> {
+            if (System.currentTimeMillis() < storeSkippedUntil) {
+                storeFailures.increment(events.size());
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                store(collection, events);
+                stored.increment(events.size());
+            } catch (Exception e) {
+                indexedCollections.remove(collection);
+                storeFailures.increment(events.size());
+                storeSkippedUntil = System.currentTimeMillis() + storeRetryAfterMillis;
+                // The log lines are still the record of these events
+                log.error("Unable to store {} security event(s) in {}, not storing events for the next {} ms: {}",
+                    events.size(), collection, storeRetryAfterMillis, e.getMessage());
+            } finally {
+                batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    /**
+     * Runs the insert on its own thread so the writer can give up on it after the store timeout.
+     */
+    private void store(String collection, List<SecurityEvent> events) throws Exception {
+        Future<?> insert = storeExecutor.submit(() -> {
+            if (indexedCollections.add(collection)) {
+                mongoTemplate.indexOps(collection).ensureIndex(new Index().on("email", Sort.Direction.ASC).on("occurredAt", Sort.Direction.DESC));
+                mongoTemplate.indexOps(collection).ensureIndex(new Index().on("type", Sort.Direction.ASC).on("occurredAt", Sort.Direction.DESC));
+            }
+            mongoTemplate.insert(events, collection);
+        });
+        try {
+            insert.get(storeTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            insert.cancel(true);
+            throw new TimeoutException("insert did not finish within " + storeTimeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    static String collection(Instant occurredAt) {
+        return COLLECTION_PREFIX + BUCKET_FORMAT.format(occurredAt);
+    }
+
+    private void logLine(SecurityEvent event) {
+        String timestamp = LocalDateTime.ofInstant(event.getOccurredAt(), ZoneId.systemDefault()).format(TIMESTAMP_FORMAT);
+        switch (event.getType()) {
+            case AUTH_SUCCESS -> log.info("SECURITY_EVENT type=AUTH_SUCCESS email={} ip={} timestamp={} status=SUCCESS",
+                event.getEmail(), event.getIpAddress(), timestamp);
+            case AUTH_FAILURE -> log.warn("SECURITY_EVENT type=AUTH_FAILURE email={} ip={} timestamp={} status=FAILED reason={}",
+                event.getEmail(), event.getIpAddress(), timestamp, event.getReason());
+            case ACCOUNT_LOCKOUT -> log.warn("SECURITY_EVENT type=ACCOUNT_LOCKOUT email={} attempts={} timestamp={} status=LOCKED",
+                event.getEmail(), event.getAttempts(), timestamp);
+            case VALIDATION_FAILURE -> log.error("SECURITY_EVENT type=VALIDATION_FAILURE endpoint={} field={} error={} timestamp={}",
+                event.getEndpoint(), event.getField(), event.getReason(), timestamp);
+            case ACCESS_DENIED -> log.error("SECURITY_EVENT type=ACCESS_DENIED email={} resource={} action={} timestamp={}",
+                event.getEmail(), event.getResource(), event.getAction(), timestamp);
+            case PASSWORD_CHANGE -> log.info("SECURITY_EVENT type=PASSWORD_CHANGE email={} timestamp={} status=SUCCESS",
+                event.getEmail(), timestamp);
+            case PASSWORD_CHANGE_FAILURE -> log.warn("SECURITY_EVENT type=PASSWORD_CHANGE_FAILURE email={} reason={} timestamp={}",
+                event.getEmail(), event.getReason(), timestamp);
+            case SECURITY_QUESTION_UPDATE -> log.info("SECURITY_EVENT type=SECURITY_QUESTION_UPDATE email={} timestamp={}",
+                event.getEmail(), timestamp);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.enrollment.auth.service;
+
+import com.enrollment.auth.model.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells course-service when an instructor's name or email changes, so the instructor snapshot
+ * stored on their courses can be updated in bulk.
+ *
+ * Notifications are sent in the background and retried a few times. Course-service also
+ * reconciles its snapshots with auth-service periodically, so a notification that is lost
+ * for good only delays the change.
+ */
+@Service
+@Slf4j
+public class UserProfileChangeNotifier {
+
+    private static final long[] RETRY_DELAYS_SECONDS = {0, 2, 10, 60};
+
+    private final RestTemplate restTemplate;
+    private final String courseServiceUrl;
+    private final String secret;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "profile-change-notifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserProfileChangeNotifier(@Qualifier("loadBalancedRestTemplate") RestTemplate restTemplate,
+                                     @Value("${auth.profile-notifications.course-service-url:http://course-service}") String courseServiceUrl,
+                                     @Value("${jwt.secret}") String secret) {
+        this.restTemplate = restTemplate;
+        this.courseServiceUrl = courseServiceUrl;
+        this.secret = secret;
+    }
+
+    /**
+     * Queues a notification for the user's new profile. Students teach no courses and are skipped.
+     */
+    public void userProfileChanged(User user) {
+        if (user.getRole() == null || "student".equalsIgnoreCase(user.getRole())) {
+            return;
+        }
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("id", user.getId());
+        profile.put("firstName", user.getFirstName());
+        profile.put("lastName", user.getLastName());
+        profile.put("email", user.getEmail());
+        profile.put("role", user.getRole());
+        schedule(user.getId(), profile, 0);
+    }
+
+    private void schedule(String userId, Map<String, Object> profile, int attempt) {
+        executor.schedule(() -> send(userId, profile, attempt), RETRY_DELAYS_SECONDS[attempt], TimeUnit.SECONDS);
+    }
+
+    void send(String userId, Map<String, Object> profile, int attempt) {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setBearerAuth(serviceToken());
+            restTemplate.exchange(courseServiceUrl + "/api/courses/instructors/{id}", HttpMethod.PUT,
+                    new HttpEntity<>(profile, headers), Map.class, userId);
+            log.info("Notified course-service of profile change for user {}", userId);
+        } catch (Exception e) {
+            if (attempt + 1 < RETRY_DELAYS_SECONDS.length) {
+                log.warn("Profile change notification for user {} failed (attempt {}), retrying: {}", userId, attempt + 1, e.getMessage());
+                schedule(userId, profile, attempt + 1);
+            } else {
+                log.error("Giving up on profile change notification for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    // Short-lived token identifying auth-service itself to course-service
+    private String serviceToken() {
+        return Jwts.builder()
+                .setClaims(Map.of("roles", List.of("SERVICE")))
+                .setSubject("auth-service")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
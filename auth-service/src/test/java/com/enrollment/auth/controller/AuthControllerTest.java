@@ -7,6 +7,7 @@ import com.enrollment.auth.dto.RegisterRequest;
 import com.enrollment.auth.model.User;
 import com.enrollment.auth.repository.UserRepository;
 import com.enrollment.auth.service.AuthService;
+import com.enrollment.auth.service.PasswordHasher;
 import com.enrollment.auth.service.SecurityEventLogger;
 import com.enrollment.auth.security.JwtAuthenticationFilter;
 import com.enrollment.auth.security.CustomUserDetailsService;
@@ -178,6 +179,20 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.message").value("Invalid username and/or password"));
     }
 
+    @Test
+    @DisplayName("Should return 503 with Retry-After when password hashing is saturated")
+    void shouldReturnServiceUnavailableWhenHashingSaturated() throws Exception {
+        when(authService.login(any(AuthRequest.class)))
+                .thenThrow(new PasswordHasher.HashingRejectedException(3));
+
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validAuthRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.message").value("The service is busy. Please retry in 3 second(s)."));
+    }
+
     @Test
     @DisplayName("Should reject login with missing credentials")
     void shouldRejectLoginWithMissingCredentials() throws Exception {
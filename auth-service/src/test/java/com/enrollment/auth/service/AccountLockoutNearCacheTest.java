@@ -0,0 +1,234 @@
+package com.enrollment.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for AccountLockoutNearCache.
+ * Verifies that lockout events evict accounts and that missed events or an unreachable Redis stop the cache from being trusted.
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountLockoutNearCacheTest {
+
+    private static final String EMAIL = "test@example.com";
+    private static final String OTHER_EMAIL = "other@example.com";
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private RedisMessageListenerContainer subscription;
+
+    private MutableClock clock;
+    private AccountLockoutNearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        nearCache = new AccountLockoutNearCache(redisTemplate, subscription, new SimpleMeterRegistry(),
+            Duration.ofMinutes(5), Duration.ofSeconds(1), 100, Duration.ofSeconds(1), clock);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(subscription.isListening()).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("Should only trust cached accounts after the lockout epoch has been read")
+    void shouldOnlyTrustCacheAfterSync() {
+        // Arrange
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+        assertFalse(nearCache.isKnownUnlocked(EMAIL));
+
+        // Act
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("4");
+        nearCache.sync();
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+
+        // Assert
+        assertTrue(nearCache.isKnownUnlocked(EMAIL));
+        clock.advance(Duration.ofMinutes(6));
+        nearCache.sync();
+        assertFalse(nearCache.isKnownUnlocked(EMAIL), "Entries expire after the TTL");
+    }
+
+    @Test
+    @DisplayName("Should evict an account on its lockout event and not cache a read that raced with it")
+    void shouldEvictOnEvent() {
+        // Arrange
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("4");
+        nearCache.sync();
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+        nearCache.putUnlocked(OTHER_EMAIL, nearCache.generation());
+        long beforeRead = nearCache.generation();
+
+        // Act
+        nearCache.onMessage(event("5:" + EMAIL), null);
+        nearCache.putUnlocked(EMAIL, beforeRead);
+
+        // Assert
+        assertFalse(nearCache.isKnownUnlocked(EMAIL));
+        assertTrue(nearCache.isKnownUnlocked(OTHER_EMAIL));
+    }
+
+    @Test
+    @DisplayName("Should clear everything when events were missed")
+    void shouldClearWhenEventsWereMissed() {
+        // Arrange
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("4");
+        nearCache.sync();
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+        nearCache.putUnlocked(OTHER_EMAIL, nearCache.generation());
+
+        // Act: event 5 never arrived
+        nearCache.onMessage(event("6:" + EMAIL), null);
+
+        // Assert
+        assertEquals(0, nearCache.size());
+
+        // The epoch moved on and no event arrived within the grace period
+        nearCache.putUnlocked(OTHER_EMAIL, nearCache.generation());
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("7");
+        nearCache.sync();
+        assertTrue(nearCache.isKnownUnlocked(OTHER_EMAIL));
+        clock.advance(Duration.ofSeconds(1));
+        nearCache.sync();
+        assertFalse(nearCache.isKnownUnlocked(OTHER_EMAIL));
+    }
+
+    @Test
+    @DisplayName("Should keep the cache while the events of a newer epoch are still on the way")
+    void shouldKeepCacheWhileEventsAreInFlight() {
+        // Arrange
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("4");
+        nearCache.sync();
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+        nearCache.putUnlocked(OTHER_EMAIL, nearCache.generation());
+
+        // Act: the epoch is read before the event for 5 is delivered
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("5");
+        nearCache.sync();
+        nearCache.onMessage(event("5:" + EMAIL), null);
+        clock.advance(Duration.ofSeconds(1));
+        nearCache.sync();
+
+        // Assert
+        assertFalse(nearCache.isKnownUnlocked(EMAIL));
+        assertTrue(nearCache.isKnownUnlocked(OTHER_EMAIL));
+    }
+
+    @Test
+    @DisplayName("Should clear everything right away when the epoch goes back")
+    void shouldClearWhenRedisWasReset() {
+        // Arrange
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("4");
+        nearCache.sync();
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+
+        // Act
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn(null);
+        nearCache.sync();
+
+        // Assert
+        assertEquals(0, nearCache.size());
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+        nearCache.onMessage(event("1:" + OTHER_EMAIL), null);
+        assertTrue(nearCache.isKnownUnlocked(EMAIL), "Events of the new epoch count from the reset");
+    }
+
+    @Test
+    @DisplayName("Should bypass the cache when the lockout epoch cannot be read")
+    void shouldBypassWhenRedisIsUnreachable() {
+        // Arrange
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("4");
+        nearCache.sync();
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+
+        // Act
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenThrow(new RuntimeException("Redis connection failed"));
+        nearCache.sync();
+
+        // Assert
+        assertFalse(nearCache.isKnownUnlocked(EMAIL));
+        assertEquals(0, nearCache.size());
+    }
+
+    @Test
+    @DisplayName("Should stop trusting the cache when syncs stop running")
+    void shouldStopTrustingCacheWithoutSyncs() {
+        // Arrange
+        when(valueOperations.get(AccountLockoutNearCache.EPOCH_KEY)).thenReturn("4");
+        nearCache.sync();
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+
+        // Act
+        clock.advance(Duration.ofSeconds(3));
+
+        // Assert
+        assertFalse(nearCache.isKnownUnlocked(EMAIL));
+    }
+
+    @Test
+    @DisplayName("Should bypass the cache until the event subscription is up")
+    void shouldBypassUntilSubscribed() {
+        // Arrange
+        when(subscription.isListening()).thenReturn(false);
+
+        // Act
+        nearCache.sync();
+        nearCache.putUnlocked(EMAIL, nearCache.generation());
+
+        // Assert
+        assertFalse(nearCache.isKnownUnlocked(EMAIL));
+        verify(subscription).start();
+        verifyNoInteractions(valueOperations);
+    }
+
+    private DefaultMessage event(String body) {
+        return new DefaultMessage(AccountLockoutNearCache.CHANNEL.getBytes(StandardCharsets.UTF_8),
+            body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.enrollment.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The lockout scripts against a real Redis: counting, locking, lock expiry and reset.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AccountLockoutServiceRedisTest {
+
+    private static final String EMAIL = "student@example.com";
+    private static final String ATTEMPT_KEY = "login_attempt:" + EMAIL;
+    private static final String LOCKOUT_KEY = "account_locked:" + EMAIL;
+
+    @Container
+    static GenericContainer<?> redisContainer = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+    private AccountLockoutNearCache nearCache;
+    private AccountLockoutService lockoutService;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(redisContainer.getHost(), redisContainer.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.getConnectionFactory().getConnection().serverCommands().flushAll();
+
+        nearCache = new AccountLockoutNearCache(redis, connectionFactory, new SimpleMeterRegistry(),
+                Duration.ofMinutes(5), Duration.ofMinutes(1), 1000, Duration.ofSeconds(2));
+        nearCache.sync();
+        lockoutService = new AccountLockoutService(redis, nearCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        nearCache.shutdown();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    @DisplayName("Should lock the account on the fifth failed attempt, for 15 minutes")
+    void shouldLockOnFifthAttempt() {
+        // Act
+        AccountLockoutService.LockoutState fourth = null;
+        for (int i = 0; i < 4; i++) {
+            fourth = lockoutService.recordFailedAttempt(EMAIL);
+        }
+        AccountLockoutService.LockoutState fifth = lockoutService.recordFailedAttempt(EMAIL);
+
+        // Assert
+        assertEquals(4, fourth.failedAttempts());
+        assertFalse(fourth.locked());
+        assertEquals(5, fifth.failedAttempts());
+        assertTrue(fifth.locked());
+        assertTrue(fifth.lockedForMillis() > TimeUnit.MINUTES.toMillis(14));
+
+        AccountLockoutService.LockoutState checked = lockoutService.checkLockout(EMAIL);
+        assertEquals(5, checked.failedAttempts());
+        assertTrue(checked.locked());
+        assertTrue(lockoutService.isAccountLocked(EMAIL));
+        assertEquals("5", redis.opsForValue().get(AccountLockoutNearCache.EPOCH_KEY));
+    }
+
+    @Test
+    @DisplayName("Should unlock the account once Redis expires the lock")
+    void shouldUnlockWhenLockExpires() throws InterruptedException {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            lockoutService.recordFailedAttempt(EMAIL);
+        }
+        assertTrue(redis.getExpire(LOCKOUT_KEY, TimeUnit.MILLISECONDS) > TimeUnit.MINUTES.toMillis(14));
+        assertTrue(redis.getExpire(ATTEMPT_KEY, TimeUnit.MILLISECONDS) > TimeUnit.MINUTES.toMillis(14));
+
+        // Act - let both keys run out instead of waiting 15 minutes
+        redis.expire(LOCKOUT_KEY, Duration.ofMillis(100));
+        redis.expire(ATTEMPT_KEY, Duration.ofMillis(100));
+        Thread.sleep(300);
+
+        // Assert
+        AccountLockoutService.LockoutState state = lockoutService.checkLockout(EMAIL);
+        assertEquals(0, state.failedAttempts());
+        assertFalse(state.locked());
+        assertFalse(lockoutService.isAccountLocked(EMAIL));
+    }
+
+    @Test
+    @DisplayName("Should give a lock left without an expiry the lockout duration")
+    void shouldExpireLockWithoutTtl() {
+        // Arrange
+        redis.opsForValue().set(LOCKOUT_KEY, "5");
+
+        // Act
+        AccountLockoutService.LockoutState state = lockoutService.checkLockout(EMAIL);
+
+        // Assert
+        assertTrue(state.locked());
+        assertTrue(redis.getExpire(LOCKOUT_KEY, TimeUnit.MILLISECONDS) > TimeUnit.MINUTES.toMillis(14));
+    }
+
+    @Test
+    @DisplayName("Should clear attempts and lock on reset")
+    void shouldResetAttemptsAndLock() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            lockoutService.recordFailedAttempt(EMAIL);
+        }
+
+        // Act
+        lockoutService.resetFailedAttempts(EMAIL);
+
+        // Assert
+        assertFalse(redis.hasKey(ATTEMPT_KEY));
+        assertFalse(redis.hasKey(LOCKOUT_KEY));
+        AccountLockoutService.LockoutState state = lockoutService.checkLockout(EMAIL);
+        assertEquals(0, state.failedAttempts());
+        assertFalse(state.locked());
+        assertFalse(lockoutService.isAccountLocked(EMAIL));
+    }
+}
@@ -6,11 +6,11 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -30,93 +30,112 @@ class AccountLockoutServiceTest {
     @Mock
     private ValueOperations<String, String> valueOperations;
 
+    @Mock
+    private AccountLockoutNearCache nearCache;
+
     private AccountLockoutService lockoutService;
 
     private static final String TEST_EMAIL = "test@example.com";
     private static final String ATTEMPT_KEY = "login_attempt:test@example.com";
     private static final String LOCKOUT_KEY = "account_locked:test@example.com";
+    private static final List<String> KEYS = List.of(ATTEMPT_KEY, LOCKOUT_KEY);
+    private static final String LOCKOUT_MILLIS = "900000";
 
     @BeforeEach
     void setUp() {
-        lockoutService = new AccountLockoutService(redisTemplate);
+        lockoutService = new AccountLockoutService(redisTemplate, nearCache);
     }
 
     @Test
-    @DisplayName("Should track failed login attempts")
+    @DisplayName("Should track failed login attempts in one script call")
     void shouldTrackFailedAttempts() {
-        // Setup for this test
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        
         // First attempt
-        when(valueOperations.increment(ATTEMPT_KEY)).thenReturn(1L);
+        whenRecorded(TEST_EMAIL).thenReturn(List.of(1L, -2L));
         
-        lockoutService.recordFailedAttempt(TEST_EMAIL);
+        AccountLockoutService.LockoutState state = lockoutService.recordFailedAttempt(TEST_EMAIL);
         
-        verify(valueOperations).increment(ATTEMPT_KEY);
-        verify(redisTemplate).expire(ATTEMPT_KEY, Duration.ofMinutes(15));
-        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+        assertEquals(1, state.failedAttempts());
+        assertFalse(state.locked());
+        verify(redisTemplate).execute(AccountLockoutService.RECORD_SCRIPT, recordKeys(TEST_EMAIL), LOCKOUT_MILLIS, "5",
+            AccountLockoutNearCache.CHANNEL, TEST_EMAIL);
+        verify(nearCache).invalidate(TEST_EMAIL);
+        verifyNoMoreInteractions(redisTemplate);
     }
 
     @Test
     @DisplayName("Should lock account after 5 failed attempts")
     void shouldLockAccountAfterFiveFailedAttempts() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        
-        // Fifth attempt triggers lockout
-        when(valueOperations.increment(ATTEMPT_KEY)).thenReturn(5L);
-        
-        lockoutService.recordFailedAttempt(TEST_EMAIL);
+        // Fifth attempt triggers lockout; the script returns the lock's TTL
+        whenRecorded(TEST_EMAIL).thenReturn(List.of(5L, 900000L));
         
-        verify(valueOperations).increment(ATTEMPT_KEY);
-        verify(valueOperations).set(eq(LOCKOUT_KEY), anyString(), eq(Duration.ofMinutes(15)));
-    }
-
-    @Test
-    @DisplayName("Should maintain lockout even after more than 5 attempts")
-    void shouldMaintainLockoutAfterMoreAttempts() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        AccountLockoutService.LockoutState state = lockoutService.recordFailedAttempt(TEST_EMAIL);
         
-        // Sixth attempt
-        when(valueOperations.increment(ATTEMPT_KEY)).thenReturn(6L);
-        
-        lockoutService.recordFailedAttempt(TEST_EMAIL);
-        
-        verify(valueOperations).increment(ATTEMPT_KEY);
-        verify(valueOperations).set(eq(LOCKOUT_KEY), anyString(), eq(Duration.ofMinutes(15)));
+        assertEquals(5, state.failedAttempts());
+        assertTrue(state.locked());
+        assertEquals(900000L, state.lockedForMillis());
     }
 
     @Test
-    @DisplayName("Should correctly identify locked accounts")
+    @DisplayName("Should correctly identify locked accounts from the lock TTL")
     void shouldIdentifyLockedAccounts() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        
-        // Account is locked with valid time
-        LocalDateTime lockTime = LocalDateTime.now();
-        when(valueOperations.get(LOCKOUT_KEY)).thenReturn(lockTime.toString());
+        // Account is locked with time left
+        whenChecked().thenReturn(List.of(5L, 600000L));
         
         assertTrue(lockoutService.isAccountLocked(TEST_EMAIL));
         
-        // Account is locked with expired time
-        LocalDateTime expiredLockTime = LocalDateTime.now().minusMinutes(20);
-        when(valueOperations.get(LOCKOUT_KEY)).thenReturn(expiredLockTime.toString());
+        // Lock key has expired (PTTL of a missing key)
+        whenChecked().thenReturn(List.of(0L, -2L));
         
         assertFalse(lockoutService.isAccountLocked(TEST_EMAIL));
-        verify(redisTemplate).delete(LOCKOUT_KEY); // Should clean up expired lock
         
-        // Account is not locked
-        when(valueOperations.get(LOCKOUT_KEY)).thenReturn(null);
+        // Attempts recorded but not locked
+        whenChecked().thenReturn(List.of(3L, -2L));
         
+        AccountLockoutService.LockoutState state = lockoutService.checkLockout(TEST_EMAIL);
+        assertEquals(3, state.failedAttempts());
+        assertFalse(state.locked());
+        verify(redisTemplate, never()).opsForValue();
+    }
+
+    @Test
+    @DisplayName("Should answer from the near-cache and only cache accounts without failed attempts")
+    void shouldUseNearCacheForAccountsWithoutFailedAttempts() {
+        // Known unlocked on this replica: Redis is not asked
+        when(nearCache.isKnownUnlocked(TEST_EMAIL)).thenReturn(true);
+
+        assertFalse(lockoutService.isAccountLocked(TEST_EMAIL));
+        lockoutService.resetFailedAttempts(TEST_EMAIL);
+        verifyNoInteractions(redisTemplate);
+
+        // Not cached: the Redis answer is cached only when there are no failed attempts
+        when(nearCache.isKnownUnlocked(TEST_EMAIL)).thenReturn(false);
+        when(nearCache.generation()).thenReturn(7L);
+        whenChecked().thenReturn(List.of(0L, -2L));
+
         assertFalse(lockoutService.isAccountLocked(TEST_EMAIL));
+        verify(nearCache).putUnlocked(TEST_EMAIL, 7L);
+
+        whenChecked().thenReturn(List.of(2L, -2L));
+
+        assertFalse(lockoutService.isAccountLocked(TEST_EMAIL));
+        verify(nearCache, times(1)).putUnlocked(anyString(), anyLong());
     }
 
     @Test
-    @DisplayName("Should reset failed attempts on successful login")
+    @DisplayName("Should reset failed attempts on successful login with a single delete")
     void shouldResetFailedAttempts() {
-        // No mocking needed for this test
         lockoutService.resetFailedAttempts(TEST_EMAIL);
         
-        verify(redisTemplate).delete(ATTEMPT_KEY);
-        verify(redisTemplate).delete(LOCKOUT_KEY);
+        verify(redisTemplate).delete(KEYS);
+        verifyNoMoreInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("Should not fail a successful login when the reset cannot reach Redis")
+    void shouldIgnoreResetFailures() {
+        when(redisTemplate.delete(KEYS)).thenThrow(new RuntimeException("Redis connection failed"));
+        
+        assertDoesNotThrow(() -> lockoutService.resetFailedAttempts(TEST_EMAIL));
     }
 
     @Test
@@ -148,53 +167,23 @@ class AccountLockoutServiceTest {
     @Test
     @DisplayName("Should handle multiple users independently")
     void shouldHandleMultipleUsersIndependently() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        
         String user1 = "user1@example.com";
         String user2 = "user2@example.com";
         
         // User 1 has 3 attempts
-        when(valueOperations.increment("login_attempt:" + user1)).thenReturn(3L);
+        whenRecorded(user1).thenReturn(List.of(3L, -2L));
         // User 2 has 5 attempts (should lock)
-        when(valueOperations.increment("login_attempt:" + user2)).thenReturn(5L);
-        
-        lockoutService.recordFailedAttempt(user1);
-        lockoutService.recordFailedAttempt(user2);
-        
-        // Verify user1 not locked
-        verify(valueOperations, never()).set(eq("account_locked:" + user1), anyString(), any(Duration.class));
-        
-        // Verify user2 is locked
-        verify(valueOperations).set(eq("account_locked:" + user2), anyString(), eq(Duration.ofMinutes(15)));
-    }
-
-    @Test
-    @DisplayName("Should set correct expiration times")
-    void shouldSetCorrectExpirationTimes() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        
-        // Test attempt expiration
-        when(valueOperations.increment(ATTEMPT_KEY)).thenReturn(1L);
-        
-        lockoutService.recordFailedAttempt(TEST_EMAIL);
-        
-        verify(redisTemplate).expire(ATTEMPT_KEY, Duration.ofMinutes(15));
+        whenRecorded(user2).thenReturn(List.of(5L, 900000L));
         
-        // Test lockout expiration
-        when(valueOperations.increment(ATTEMPT_KEY)).thenReturn(5L);
-        
-        lockoutService.recordFailedAttempt(TEST_EMAIL);
-        
-        verify(valueOperations).set(eq(LOCKOUT_KEY), anyString(), eq(Duration.ofMinutes(15)));
+        assertFalse(lockoutService.recordFailedAttempt(user1).locked());
+        assertTrue(lockoutService.recordFailedAttempt(user2).locked());
     }
 
     @Test
     @DisplayName("Should handle Redis exceptions with fail-closed approach")
     void shouldHandleRedisExceptionsWithFailClosed() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        
         // Simulate Redis connection failure for recordFailedAttempt
-        when(valueOperations.increment(ATTEMPT_KEY)).thenThrow(new RuntimeException("Redis connection failed"));
+        whenRecorded(TEST_EMAIL).thenThrow(new RuntimeException("Redis connection failed"));
         
         // Should throw exception (fail closed)
         RuntimeException exception = assertThrows(RuntimeException.class, 
@@ -202,31 +191,43 @@ class AccountLockoutServiceTest {
         assertEquals("Service temporarily unavailable", exception.getMessage());
         
         // For isAccountLocked, should throw exception on error (fail closed)
-        when(valueOperations.get(LOCKOUT_KEY)).thenThrow(new RuntimeException("Redis connection failed"));
+        whenChecked().thenThrow(new RuntimeException("Redis connection failed"));
         
         exception = assertThrows(RuntimeException.class, 
             () -> lockoutService.isAccountLocked(TEST_EMAIL));
         assertEquals("Service temporarily unavailable", exception.getMessage());
+
+        // A reply that is not the lockout state also fails closed
+        whenChecked().thenReturn(null);
+
+        assertThrows(RuntimeException.class, () -> lockoutService.isAccountLocked(TEST_EMAIL));
     }
 
     @Test
     @DisplayName("Should track attempts from 1 to 5 correctly")
     void shouldTrackAttemptsProgressively() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        
         // Simulate progressive failed attempts
         for (int i = 1; i <= 5; i++) {
-            when(valueOperations.increment(ATTEMPT_KEY)).thenReturn((long) i);
+            whenRecorded(TEST_EMAIL).thenReturn(List.of((long) i, i < 5 ? -2L : 900000L));
             
-            lockoutService.recordFailedAttempt(TEST_EMAIL);
+            AccountLockoutService.LockoutState state = lockoutService.recordFailedAttempt(TEST_EMAIL);
             
-            if (i < 5) {
-                // Before 5 attempts, should not lock
-                verify(valueOperations, never()).set(eq(LOCKOUT_KEY), anyString(), any(Duration.class));
-            } else {
-                // At 5 attempts, should lock
-                verify(valueOperations).set(eq(LOCKOUT_KEY), anyString(), eq(Duration.ofMinutes(15)));
-            }
+            assertEquals(i, state.failedAttempts());
+            // Only the fifth attempt locks the account
+            assertEquals(i == 5, state.locked());
         }
     }
-}
\ No newline at end of file
+
+    private OngoingStubbing<List<Long>> whenRecorded(String email) {
+        return when(redisTemplate.execute(eq(AccountLockoutService.RECORD_SCRIPT), eq(recordKeys(email)), eq(LOCKOUT_MILLIS), eq("5"),
+            eq(AccountLockoutNearCache.CHANNEL), eq(email)));
+    }
+
+    private List<String> recordKeys(String email) {
+        return List.of("login_attempt:" + email, "account_locked:" + email, "account_lockout:epoch");
+    }
+
+    private OngoingStubbing<List<Long>> whenChecked() {
+        return when(redisTemplate.execute(eq(AccountLockoutService.CHECK_SCRIPT), eq(KEYS), eq(LOCKOUT_MILLIS)));
+    }
+}
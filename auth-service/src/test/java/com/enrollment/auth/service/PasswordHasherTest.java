@@ -0,0 +1,173 @@
+package com.enrollment.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PasswordHasher.
+ * Verifies that hashes run off the request thread and that callers are rejected quickly once the pool is saturated.
+ */
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hasher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should encode and match passwords on the hashing pool and record hash latency")
+    void shouldEncodeAndMatch() {
+        // Arrange
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(4), meterRegistry, 2, 4, Duration.ofSeconds(5));
+
+        // Act
+        String encoded = hasher.encode("Secret123!");
+
+        // Assert
+        assertTrue(hasher.matches("Secret123!", encoded));
+        assertFalse(hasher.matches("Wrong123!", encoded));
+        assertEquals(1, meterRegistry.get("auth.password_hashing.duration").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("auth.password_hashing.duration").tag("operation", "match").timer().count());
+        assertEquals(3, meterRegistry.get("auth.password_hashing.queue.wait").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should reject immediately when the hashing queue is full")
+    void shouldRejectWhenQueueIsFull() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        hasher = new PasswordHasher(blockingEncoder(started), meterRegistry, 1, 1, Duration.ofSeconds(30));
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hasher.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hasher.encode("second"));
+        waitForQueueDepth(1);
+
+        // Act
+        long began = System.nanoTime();
+        PasswordHasher.HashingRejectedException exception = assertThrows(PasswordHasher.HashingRejectedException.class,
+            () -> hasher.encode("third"));
+
+        // Assert
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began) < 1000);
+        assertTrue(exception.getRetryAfterSeconds() >= 1);
+        assertEquals(1, meterRegistry.get("auth.password_hashing.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("hash:first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash:second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should reject a caller whose hash does not finish within the max wait")
+    void shouldRejectAfterMaxWait() {
+        // Arrange
+        hasher = new PasswordHasher(blockingEncoder(new CountDownLatch(1)), meterRegistry, 1, 4, Duration.ofMillis(50));
+
+        // Act & Assert
+        assertThrows(PasswordHasher.HashingRejectedException.class, () -> hasher.matches("password", "hash:password"));
+        assertEquals(1, meterRegistry.get("auth.password_hashing.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should return as soon as one history entry matches without waiting for the others")
+    void shouldShortCircuitOnFirstHistoryMatch() {
+        // Arrange
+        PasswordEncoder encoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return "hash:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                if (encodedPassword.equals("hash:" + rawPassword)) {
+                    return true;
+                }
+                // Non-matching entries never finish on their own
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+        };
+        hasher = new PasswordHasher(encoder, meterRegistry, 3, 8, Duration.ofSeconds(30));
+
+        // Act
+        long began = System.nanoTime();
+        boolean reused = hasher.matchesAny("Secret123!", List.of("hash:old1", "hash:old2", "hash:Secret123!", "hash:old3"));
+
+        // Assert
+        assertTrue(reused);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began) < 5000);
+    }
+
+    @Test
+    @DisplayName("Should check every history entry when none matches")
+    void shouldCheckEveryHistoryEntryWhenNoneMatches() {
+        // Arrange
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        List<String> history = List.of(encoder.encode("Old1!"), encoder.encode("Old2!"), encoder.encode("Old3!"));
+        hasher = new PasswordHasher(encoder, meterRegistry, 2, 8, Duration.ofSeconds(5));
+
+        // Act & Assert
+        assertFalse(hasher.matchesAny("Secret123!", history));
+        assertTrue(hasher.matchesAny("Old3!", history));
+        assertFalse(hasher.matchesAny("Secret123!", List.of()));
+        assertEquals(0, meterRegistry.get("auth.password_hashing.rejected").counter().count());
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("auth.password_hashing.queue.depth").gauge().value() < depth) {
+            assertTrue(System.nanoTime() < deadline, "Hash was never queued");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * An encoder whose hashes do not finish until the test releases them.
+     */
+    private PasswordEncoder blockingEncoder(CountDownLatch started) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                await();
+                return "hash:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                await();
+                return encodedPassword.equals("hash:" + rawPassword);
+            }
+
+            private void await() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.enrollment.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the worst case of the password history check in changePassword (a new password that
+ * matches none of the five remembered ones) done the old way, one hash after another on the
+ * request thread, with the parallel check on the hashing pool. Uses the production BCrypt
+ * strength. Run with {@code mvn test -Dtest=PasswordHistoryBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PasswordHistoryBenchmarkTest {
+
+    private static final int HISTORY = 5;
+    private static final int ROUNDS = 20;
+
+    @Test
+    @DisplayName("Benchmark worst-case password history check latency")
+    void benchmarkHistoryCheck() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+        List<String> history = new ArrayList<>();
+        for (int i = 0; i < HISTORY; i++) {
+            history.add(encoder.encode("OldPassword" + i + "!"));
+        }
+        PasswordHasher hasher = new PasswordHasher(encoder, new SimpleMeterRegistry(), 0, 32, Duration.ofSeconds(30));
+        try {
+            long[] sequential = new long[ROUNDS];
+            long[] parallel = new long[ROUNDS];
+            for (int round = 0; round < ROUNDS; round++) {
+                String newPassword = "NewPassword" + round + "!";
+
+                long began = System.nanoTime();
+                encoder.encode(newPassword);
+                for (String old : history) {
+                    assertFalse(encoder.matches(newPassword, old));
+                }
+                sequential[round] = System.nanoTime() - began;
+
+                began = System.nanoTime();
+                assertFalse(hasher.matchesAny(newPassword, history));
+                hasher.encode(newPassword);
+                parallel[round] = System.nanoTime() - began;
+            }
+
+            System.out.printf("Password history check, worst case over %d rounds on %d core(s): "
+                    + "sequential median %.0f ms, max %.0f ms; parallel median %.0f ms, max %.0f ms%n",
+                ROUNDS, Runtime.getRuntime().availableProcessors(),
+                median(sequential), max(sequential), median(parallel), max(parallel));
+        } finally {
+            hasher.shutdown();
+        }
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+
+    private static double max(long[] nanos) {
+        return Arrays.stream(nanos).max().orElse(0) / 1e6;
+    }
+}
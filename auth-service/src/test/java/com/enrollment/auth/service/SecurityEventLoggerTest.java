@@ -1,5 +1,7 @@
 package com.enrollment.auth.service;
 
+import com.enrollment.auth.model.SecurityEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -7,11 +9,20 @@ import ch.qos.logback.core.read.ListAppender;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.mockito.ArgumentCaptor;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 /**
  * Tests for SecurityEventLogger to ensure compliance with security requirements.
@@ -25,10 +36,16 @@ class SecurityEventLoggerTest {
     private SecurityEventLogger securityLogger;
     private ListAppender<ILoggingEvent> listAppender;
     private Logger logger;
+    private MongoTemplate mongoTemplate;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
-        securityLogger = new SecurityEventLogger();
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.indexOps(anyString())).thenReturn(mock(IndexOperations.class));
+        meterRegistry = new SimpleMeterRegistry();
+        // The writer thread is not started; tests drain the buffer themselves
+        securityLogger = new SecurityEventLogger(mongoTemplate, meterRegistry, 100, 10, Duration.ofMillis(200), Duration.ofSeconds(30));
         
         // Setup log capture
         logger = (Logger) LoggerFactory.getLogger(SecurityEventLogger.class);
@@ -45,6 +62,7 @@ class SecurityEventLoggerTest {
         
         securityLogger.logAuthenticationSuccess(email, ipAddress);
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(1, logsList.size());
         
@@ -67,6 +85,7 @@ class SecurityEventLoggerTest {
         
         securityLogger.logAuthenticationFailure(email, ipAddress, reason);
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(1, logsList.size());
         
@@ -88,6 +107,7 @@ class SecurityEventLoggerTest {
         
         securityLogger.logAccountLockout(email, attempts);
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(1, logsList.size());
         
@@ -109,6 +129,7 @@ class SecurityEventLoggerTest {
         
         securityLogger.logValidationFailure(endpoint, field, error);
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(1, logsList.size());
         
@@ -130,6 +151,7 @@ class SecurityEventLoggerTest {
         
         securityLogger.logAccessControlFailure(email, resource, action);
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(1, logsList.size());
         
@@ -149,6 +171,7 @@ class SecurityEventLoggerTest {
         
         securityLogger.logPasswordChange(email);
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(1, logsList.size());
         
@@ -168,6 +191,7 @@ class SecurityEventLoggerTest {
         
         securityLogger.logPasswordChangeFailure(email, reason);
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(1, logsList.size());
         
@@ -186,6 +210,7 @@ class SecurityEventLoggerTest {
         
         securityLogger.logSecurityQuestionUpdate(email);
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(1, logsList.size());
         
@@ -202,6 +227,7 @@ class SecurityEventLoggerTest {
         securityLogger.logAuthenticationSuccess("test@example.com", "127.0.0.1");
         securityLogger.logPasswordChange("test@example.com");
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(2, logsList.size());
         
@@ -222,6 +248,7 @@ class SecurityEventLoggerTest {
         securityLogger.logAccountLockout("user3@example.com", 5);
         securityLogger.logValidationFailure("/api/register", "email", "Invalid format");
         
+        securityLogger.drain();
         List<ILoggingEvent> logsList = listAppender.list;
         assertEquals(4, logsList.size());
         
@@ -231,4 +258,99 @@ class SecurityEventLoggerTest {
         assertTrue(logsList.stream().anyMatch(e -> e.getFormattedMessage().contains("type=ACCOUNT_LOCKOUT")));
         assertTrue(logsList.stream().anyMatch(e -> e.getFormattedMessage().contains("type=VALIDATION_FAILURE")));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should store buffered events in batches in the collection of their month")
+    void shouldStoreEventsInMonthlyCollection() {
+        // Arrange
+        securityLogger.logAuthenticationFailure("user1@example.com", "192.168.1.1", "Invalid password");
+        securityLogger.logAccountLockout("user1@example.com", 5);
+
+        // Act
+        int written = securityLogger.drain();
+
+        // Assert
+        assertEquals(2, written);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<SecurityEvent>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insert(batch.capture(), eq(SecurityEventLogger.collection(Instant.now())));
+        assertEquals(List.of(SecurityEvent.Type.AUTH_FAILURE, SecurityEvent.Type.ACCOUNT_LOCKOUT),
+            batch.getValue().stream().map(SecurityEvent::getType).toList());
+        assertEquals(2.0, meterRegistry.get("auth.security_events.stored").counter().count());
+        assertEquals("security_events_2024_02", SecurityEventLogger.collection(Instant.parse("2024-02-29T23:59:59Z")));
+    }
+
+    @Test
+    @DisplayName("Should write the log line from the writer, not when the event is published")
+    void shouldLogFromWriter() {
+        securityLogger.logAuthenticationFailure("test@example.com", "192.168.1.1", "Invalid password");
+
+        assertTrue(listAppender.list.isEmpty());
+        verifyNoInteractions(mongoTemplate);
+
+        securityLogger.drain();
+        assertEquals(1, listAppender.list.size());
+        assertTrue(listAppender.list.get(0).getFormattedMessage().contains("type=AUTH_FAILURE"));
+    }
+
+    @Test
+    @DisplayName("Should write a single warning for each event dropped because the buffer is full")
+    void shouldDropEventsWhenBufferIsFull() {
+        // Arrange
+        for (int i = 0; i < 100; i++) {
+            securityLogger.logAuthenticationSuccess("user" + i + "@example.com", "192.168.1.1");
+        }
+
+        // Act
+        securityLogger.logAuthenticationFailure("late@example.com", "192.168.1.1", "Invalid password");
+        securityLogger.logAccountLockout("late@example.com", 5);
+
+        // Assert
+        assertEquals(2.0, meterRegistry.get("auth.security_events.dropped").counter().count());
+        assertEquals(2, listAppender.list.size());
+        assertTrue(listAppender.list.stream().allMatch(e -> e.getLevel() == Level.WARN
+            && e.getFormattedMessage().contains("SECURITY_EVENT_DROPPED")
+            && e.getFormattedMessage().contains("email=late@example.com")));
+        assertEquals(100, securityLogger.drain());
+        assertEquals(102, listAppender.list.size());
+    }
+
+    @Test
+    @DisplayName("Should keep the log lines and count the failure when events cannot be stored")
+    void shouldSurviveStoreFailure() {
+        // Arrange
+        when(mongoTemplate.insert(anyCollection(), anyString())).thenThrow(new RuntimeException("Mongo unavailable"));
+        securityLogger.logAuthenticationSuccess("test@example.com", "192.168.1.1");
+
+        // Act
+        int written = assertDoesNotThrow(() -> securityLogger.drain());
+
+        // Assert
+        assertEquals(1, written);
+        assertTrue(listAppender.list.stream().anyMatch(e -> e.getFormattedMessage().contains("type=AUTH_SUCCESS")));
+        assertEquals(1.0, meterRegistry.get("auth.security_events.store.failures").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should give up on a slow insert and skip MongoDB for a while")
+    void shouldSkipStoreAfterSlowInsert() {
+        // Arrange
+        when(mongoTemplate.insert(anyCollection(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return invocation.getArgument(0);
+        });
+        securityLogger.logAuthenticationSuccess("test@example.com", "192.168.1.1");
+        securityLogger.drain();
+
+        // Act
+        securityLogger.logAuthenticationFailure("test@example.com", "192.168.1.1", "Invalid password");
+        long start = System.nanoTime();
+        securityLogger.drain();
+
+        // Assert
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        verify(mongoTemplate, times(1)).insert(anyCollection(), anyString());
+        assertEquals(2.0, meterRegistry.get("auth.security_events.store.failures").counter().count());
+        assertTrue(listAppender.list.stream().anyMatch(e -> e.getFormattedMessage().contains("type=AUTH_FAILURE")));
+    }
+}
@@ -0,0 +1,115 @@
+package com.enrollment.auth.service;
+
+import com.enrollment.auth.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for UserProfileChangeNotifier.
+ * Verifies that instructor profile changes are pushed to course-service with a service token.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserProfileChangeNotifierTest {
+
+    private static final String SECRET = "QE5jUmZValhuMnI1dTh4L0E/RChHK0tiUGRTZ1ZrWXA=";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private UserProfileChangeNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        notifier = new UserProfileChangeNotifier(restTemplate, "http://course-service", SECRET);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notifier.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should send the new profile to course-service with a service token")
+    @SuppressWarnings("unchecked")
+    void shouldSendProfileWithServiceToken() {
+        // Act
+        notifier.userProfileChanged(instructor());
+
+        // Assert
+        ArgumentCaptor<HttpEntity<Map<String, Object>>> request = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, timeout(2000)).exchange(eq("http://course-service/api/courses/instructors/{id}"),
+                eq(HttpMethod.PUT), request.capture(), eq(Map.class), eq("user1"));
+        assertEquals("Grace", request.getValue().getBody().get("firstName"));
+        assertEquals("grace@test.com", request.getValue().getBody().get("email"));
+
+        String token = request.getValue().getHeaders().getFirst(HttpHeaders.AUTHORIZATION).substring(7);
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        assertEquals(List.of("SERVICE"), claims.get("roles", List.class));
+    }
+
+    @Test
+    @DisplayName("Should retry a notification that could not be delivered")
+    void shouldRetryFailedNotification() {
+        // Arrange
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(Map.class), anyString()))
+                .thenThrow(new ResourceAccessException("Connection refused"))
+                .thenReturn(null);
+
+        // Act
+        notifier.userProfileChanged(instructor());
+
+        // Assert - the first retry follows after two seconds
+        verify(restTemplate, timeout(5000).times(2))
+                .exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(Map.class), eq("user1"));
+    }
+
+    @Test
+    @DisplayName("Should not notify course-service about students")
+    void shouldSkipStudents() {
+        // Arrange
+        User student = instructor();
+        student.setRole("student");
+
+        // Act
+        notifier.userProfileChanged(student);
+
+        // Assert
+        verify(restTemplate, after(300).never()).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(Map.class), anyString());
+    }
+
+    private User instructor() {
+        return User.builder()
+                .id("user1")
+                .email("grace@test.com")
+                .firstName("Grace")
+                .lastName("Hopper")
+                .role("instructor")
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.enrollment.course.config;
+
+import feign.RequestInterceptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FeignConfig {
+
+    @Bean
+    public RequestInterceptor deadlineInterceptor() {
+        return requestTemplate -> {
+            if (!RequestDeadline.isSet()) {
+                return;
+            }
+            // Don't start a call the original caller will no longer wait for
+            RequestDeadline.check(requestTemplate.method() + " " + requestTemplate.path());
+            requestTemplate.header(RequestDeadline.HEADER, String.valueOf(RequestDeadline.remainingMillis()));
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.enrollment.course.config;
+
+import com.enrollment.course.model.AppliedSeatOperation;
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CourseTombstone;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the course documents once the application has started.
+ *
+ * The catalog filters and sort orders each have a compound index, so catalog pages are read
+ * as index range scans instead of collection scans. Creating an index that already exists is a no-op.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "course.indexes.create-on-startup", havingValue = "true", matchIfMissing = true)
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Course.class, CourseTombstone.class, AppliedSeatOperation.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        try {
+            for (Class<?> documentType : INDEXED_DOCUMENTS) {
+                IndexOperations indexOps = mongoTemplate.indexOps(documentType);
+                resolver.resolveIndexFor(documentType).forEach(index -> {
+                    try {
+                        indexOps.ensureIndex(index);
+                    } catch (DataAccessResourceFailureException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        // Most likely duplicate course codes blocking the unique index; they have to be cleaned up by hand
+                        log.error("Could not create index {} on {}: {}", index.getIndexOptions().get("name"),
+                                mongoTemplate.getCollectionName(documentType), e.getMessage());
+                    }
+                });
+            }
+            log.info("Ensured indexes for {} collection(s)", INDEXED_DOCUMENTS.size());
+        } catch (DataAccessResourceFailureException e) {
+            log.error("MongoDB is unavailable, indexes were not created: {}", e.getMessage());
+        }
+    }
+}
@@ -1,13 +1,36 @@
 package com.enrollment.course.controller;
 
+import com.enrollment.course.model.CatalogChanges;
 import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CoursePage;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.model.CourseQuery;
+import com.enrollment.course.model.CourseSearchHit;
+import com.enrollment.course.model.Instructor;
+import com.enrollment.course.model.SeatOperation;
+import com.enrollment.course.model.SeatOperationResult;
+import com.enrollment.course.service.CatalogResponseCache;
+import com.enrollment.course.service.CourseBulkTransfer;
 import com.enrollment.course.service.CourseService;
+import com.enrollment.course.service.SeatAvailabilityStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/courses")
@@ -15,15 +38,65 @@ import java.util.List;
 public class CourseController {
 
     private final CourseService courseService;
+    private final CatalogResponseCache catalogResponseCache;
+    private final SeatAvailabilityStream seatAvailabilityStream;
+    private final CourseBulkTransfer courseBulkTransfer;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * The full catalog, tagged with the catalog version. A client that sends the tag back in
+     * If-None-Match gets a 304 without the catalog being read while nothing has changed.
+     */
     @GetMapping
-    public ResponseEntity<List<Course>> getAllCourses() {
-        return ResponseEntity.ok(courseService.getAllCourses());
+    public ResponseEntity<byte[]> getAllCourses(WebRequest request) {
+        return catalogView("all", request, courseService::getAllCourses);
     }
 
     @GetMapping("/open")
-    public ResponseEntity<List<Course>> getOpenCourses() {
-        return ResponseEntity.ok(courseService.getOpenCourses());
+    public ResponseEntity<byte[]> getOpenCourses(WebRequest request) {
+        return catalogView("open", request, courseService::getOpenCourses);
+    }
+
+    /**
+     * Server-sent events with the seat counts of courses as they change. The first event holds
+     * every course; after that each "seats" event lists only the courses that changed.
+     */
+    @GetMapping(path = "/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeatAvailability() {
+        return seatAvailabilityStream.subscribe();
+    }
+
+    /**
+     * Courses changed and deleted since the given catalog version, for incremental sync.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<CatalogChanges> getCatalogChanges(@RequestParam(defaultValue = "0") long since,
+                                                            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(courseService.getCatalogChanges(since, limit));
+    }
+
+    /**
+     * Filterable, sorted catalog page, e.g.
+     * {@code /api/courses/catalog?status=open&day=Monday&sort=title&limit=20}.
+     * Pass the returned nextCursor as {@code cursor} to get the following page.
+     */
+    @GetMapping("/catalog")
+    public ResponseEntity<?> getCatalogPage(CourseQuery query) {
+        try {
+            CoursePage page = courseService.getCatalogPage(query);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Search-as-you-type over code, title and description, e.g. {@code /api/courses/search?q=intro comp}.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<CourseSearchHit>> searchCourses(@RequestParam(defaultValue = "") String q,
+                                                               @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(courseService.searchCourses(q, limit));
     }
 
     @GetMapping("/{id}")
@@ -33,6 +106,11 @@ public class CourseController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<Course>> getCoursesByIds(@RequestBody List<String> ids) {
+        return ResponseEntity.ok(courseService.getCoursesByIds(ids));
+    }
+
     @GetMapping("/code/{code}")
     public ResponseEntity<Course> getCourseByCode(@PathVariable String code) {
         return courseService.getCourseByCode(code)
@@ -40,6 +118,42 @@ public class CourseController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Creates or updates (by code) every course in an NDJSON or CSV body and reports the rows
+     * that were rejected. The body is read as a stream, so files of any size can be imported.
+     */
+    @PostMapping(path = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importCourses(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                           InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(courseBulkTransfer.importCourses(body, CourseBulkTransfer.Format.of(contentType)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Streams the whole catalog as NDJSON or CSV, in code order.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('FACULTY') or hasRole('Faculty') or hasRole('INSTRUCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportCourses(@RequestParam(defaultValue = "ndjson") String format) {
+        CourseBulkTransfer.Format exportFormat;
+        try {
+            exportFormat = CourseBulkTransfer.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(output -> objectMapper.writeValue(output, Map.of("error", e.getMessage())));
+        }
+        StreamingResponseBody body = output -> courseBulkTransfer.exportCourses(output, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.mediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"courses." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('FACULTY') or hasRole('Faculty') or hasRole('INSTRUCTOR') or hasRole('ADMIN')")
     public ResponseEntity<Course> createCourse(@RequestBody Course course) {
@@ -56,6 +170,23 @@ public class CourseController {
         }
     }
 
+    /**
+     * Partial update: only the fields present in the body are changed, seat counts never are.
+     */
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasRole('FACULTY') or hasRole('Faculty') or hasRole('INSTRUCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<?> patchCourse(@PathVariable String id, @RequestBody CoursePatch patch) {
+        try {
+            return ResponseEntity.ok(courseService.patchCourse(id, patch));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteCourse(@PathVariable String id) {
@@ -80,4 +211,56 @@ public class CourseController {
             return ResponseEntity.badRequest().build();
         }
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/seats/reserve")
+    @PreAuthorize("hasRole('SERVICE') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> reserveSeats(@RequestBody Map<String, Integer> seatsByCourse) {
+        return ResponseEntity.ok(courseService.reserveSeats(seatsByCourse));
+    }
+
+    @PostMapping("/seats/release")
+    @PreAuthorize("hasRole('SERVICE') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> releaseSeats(@RequestBody Map<String, Integer> seatsByCourse) {
+        return ResponseEntity.ok(courseService.releaseSeats(seatsByCourse));
+    }
+
+    @PostMapping("/seats/apply")
+    @PreAuthorize("hasRole('SERVICE') or hasRole('ADMIN')")
+    public ResponseEntity<List<SeatOperationResult>> applySeatOperations(@RequestBody List<SeatOperation> operations) {
+        return ResponseEntity.ok(courseService.applySeatOperations(operations));
+    }
+
+    /**
+     * Profile change notification from auth-service: refreshes the instructor snapshot on the instructor's courses.
+     */
+    @PutMapping("/instructors/{instructorId}")
+    @PreAuthorize("hasRole('SERVICE') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> applyInstructorProfileChange(@PathVariable String instructorId,
+                                                                          @RequestBody Instructor instructor) {
+        instructor.setId(instructorId);
+        return ResponseEntity.ok(Map.of("updated", courseService.applyInstructorProfileChange(instructor)));
+    }
+
+    @PostMapping("/instructor-directory/refresh")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> refreshInstructorDirectory() {
+        courseService.refreshInstructorDirectory();
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Serves a catalog view from the pre-serialized response cache, keyed by the catalog version.
+     */
+    private ResponseEntity<byte[]> catalogView(String view, WebRequest request, Supplier<List<Course>> loader) {
+        long version = courseService.getCatalogVersion();
+        String etag = "\"catalog-" + version + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(catalogResponseCache.get(view, version, loader));
+    }
+}
@@ -0,0 +1,39 @@
+package com.enrollment.course.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Records a seat operation delivered by enrollment-service, so a retry of it is recognised and
+ * not applied a second time. Kept for {@link #RETENTION}, which must outlast every retry of an
+ * operation: enrollment-service keeps retrying a seat change until course-service answers.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "applied_seat_operations")
+public class AppliedSeatOperation {
+
+    public static final String RETENTION = "7d";
+    public static final Duration RETENTION_PERIOD = Duration.ofDays(7);
+
+    // Operation id
+    @Id
+    private String id;
+
+    private String courseId;
+
+    // False while the operation is claimed but its seat update is not confirmed yet
+    private boolean applied;
+
+    // When the operation was claimed, and once applied, when it was applied
+    @Indexed(name = "applied_at_ttl_idx", expireAfter = RETENTION)
+    private Date appliedAt;
+}
@@ -0,0 +1,19 @@
+package com.enrollment.course.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChanges {
+    // Pass as since on the next call
+    private long version;
+    private List<Course> courses;
+    private List<String> deleted;
+    // More changes are waiting beyond this version
+    private boolean hasMore;
+}
@@ -1,12 +1,29 @@
 package com.enrollment.course.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
 
+import java.util.List;
+
 @Data
 @Document(collection = "courses")
+@CompoundIndexes({
+    // Catalog filters followed by the sort key, so every catalog page is an index range scan
+    @CompoundIndex(name = "status_code_idx", def = "{'status': 1, 'code': 1}"),
+    @CompoundIndex(name = "status_title_idx", def = "{'status': 1, 'title': 1, '_id': 1}"),
+    @CompoundIndex(name = "status_credits_idx", def = "{'status': 1, 'credits': 1, '_id': 1}"),
+    @CompoundIndex(name = "instructor_code_idx", def = "{'instructorId': 1, 'code': 1}"),
+    @CompoundIndex(name = "schedule_days_code_idx", def = "{'schedule.days': 1, 'code': 1}"),
+    @CompoundIndex(name = "title_idx", def = "{'title': 1, '_id': 1}"),
+    @CompoundIndex(name = "credits_idx", def = "{'credits': 1, '_id': 1}"),
+    // Only courses with seat changes not yet stamped with a catalog version have the field
+    @CompoundIndex(name = "seats_changed_idx", def = "{'seatsChanged': 1}", sparse = true)
+})
 public class Course {
     @Id
     private String id;
@@ -22,5 +39,15 @@ public class Course {
     private Schedule schedule;
     private String status;
     private String instructorId;
+
+    // Catalog version of the last change to this course, see CourseService#getCatalogChanges
+    @Indexed(name = "catalog_version_idx")
+    private Long catalogVersion;
+
+    // Snapshot of the instructor's name and email, kept up to date when the instructor's profile changes
     private Instructor instructor;
+
+    // Seat operations applied to this course whose record in applied_seat_operations is not confirmed yet
+    @JsonIgnore
+    private List<String> pendingSeatOperations;
 } 
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.enrollment.course.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CourseImportReport {
+    private int received;
+    private int inserted;
+    private int updated;
+    private int rejected;
+    // The first rejected rows, see errorsTruncated
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // Line of the file the row starts on
+        private long line;
+        private String code;
+        private String message;
+    }
+}
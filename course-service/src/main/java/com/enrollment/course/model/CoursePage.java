@@ -0,0 +1,16 @@
+package com.enrollment.course.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoursePage {
+    private List<Course> items;
+    // Null on the last page
+    private String nextCursor;
+}
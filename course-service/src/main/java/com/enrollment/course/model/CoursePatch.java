@@ -0,0 +1,25 @@
+package com.enrollment.course.model;
+
+import lombok.Data;
+
+/**
+ * Partial course update: only the fields that are set are changed. Seat counts are not part of
+ * it, they are only changed by enrollments.
+ */
+@Data
+public class CoursePatch {
+    private String code;
+    private String title;
+    private String description;
+    private Integer credits;
+    // Cannot be lower than the number of students already enrolled
+    private Integer capacity;
+    private Schedule schedule;
+    private String status;
+    private String instructorId;
+
+    public boolean isEmpty() {
+        return code == null && title == null && description == null && credits == null
+            && capacity == null && schedule == null && status == null && instructorId == null;
+    }
+}
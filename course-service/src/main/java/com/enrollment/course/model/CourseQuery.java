@@ -0,0 +1,23 @@
+package com.enrollment.course.model;
+
+import lombok.Data;
+
+/**
+ * Filters, sort order and page position of a catalog query. All filters are optional.
+ */
+@Data
+public class CourseQuery {
+    private String status;
+    private Integer credits;
+    private String instructorId;
+    // Day of the week as stored in the course schedule, e.g. "Monday"
+    private String day;
+    private String codePrefix;
+
+    // One of code, title or credits
+    private String sort = "code";
+    private String direction = "asc";
+    private Integer limit;
+    // Opaque position returned as nextCursor by the previous page
+    private String cursor;
+}
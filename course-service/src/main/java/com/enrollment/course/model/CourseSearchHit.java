@@ -0,0 +1,16 @@
+package com.enrollment.course.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseSearchHit {
+    private String id;
+    private String code;
+    private String title;
+    private Integer credits;
+    private double score;
+}
@@ -0,0 +1,28 @@
+package com.enrollment.course.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Records a deleted course, so the catalog changes feed can report the deletion.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "course_tombstones")
+public class CourseTombstone {
+    // Id of the deleted course
+    @Id
+    private String id;
+
+    @Indexed(name = "catalog_version_idx")
+    private Long catalogVersion;
+
+    private Date deletedAt;
+}
@@ -0,0 +1,31 @@
+package com.enrollment.course.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Seat counts of one course as pushed on the seat stream.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeatAvailability {
+    public static final String DELETED = "deleted";
+
+    private String courseId;
+    private Integer enrolled;
+    private Integer capacity;
+    // open, closed, or deleted when the course was removed
+    private String status;
+
+    public static SeatAvailability of(Course course) {
+        return new SeatAvailability(course.getId(), course.getEnrolled(), course.getCapacity(), course.getStatus());
+    }
+
+    public static SeatAvailability deleted(String courseId) {
+        return new SeatAvailability(courseId, null, null, DELETED);
+    }
+}
@@ -0,0 +1,18 @@
+package com.enrollment.course.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A seat change requested by enrollment-service: {@code delta} is +1 to take a seat and -1 to give one back.
+ * The operation id makes retries idempotent.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatOperation {
+    private String operationId;
+    private String courseId;
+    private int delta;
+}
@@ -0,0 +1,21 @@
+package com.enrollment.course.model;
+
+import lombok.Data;
+
+@Data
+public class SeatOperationResult {
+    // "applied", "duplicate" (applied by an earlier attempt) or "rejected"
+    private String status;
+    private String operationId;
+    private String error;
+    private Course course;
+
+    public static SeatOperationResult of(SeatOperation operation, String status, Course course, String error) {
+        SeatOperationResult result = new SeatOperationResult();
+        result.setOperationId(operation.getOperationId());
+        result.setStatus(status);
+        result.setCourse(course);
+        result.setError(error);
+        return result;
+    }
+}
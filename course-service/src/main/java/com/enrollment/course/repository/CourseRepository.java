@@ -1,15 +1,40 @@
 package com.enrollment.course.repository;
 
 import com.enrollment.course.model.Course;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CourseRepository extends MongoRepository<Course, String> {
+public interface CourseRepository extends MongoRepository<Course, String>, CourseRepositoryCustom {
+
+    // Reads that serve clients leave out the ids of seat operations still being applied
+    String WITHOUT_SEAT_OPERATIONS = "{ 'pendingSeatOperations': 0 }";
+
+    @Query(value = "{}", fields = WITHOUT_SEAT_OPERATIONS)
+    List<Course> findAllCourses();
+    @Query(value = "{ '_id': ?0 }", fields = WITHOUT_SEAT_OPERATIONS)
+    Optional<Course> findCourseById(String id);
+    @Query(fields = WITHOUT_SEAT_OPERATIONS)
     Optional<Course> findByCode(String code);
     List<Course> findByInstructorId(String instructorId);
+    @Query(fields = WITHOUT_SEAT_OPERATIONS)
     List<Course> findByStatus(String status);
+    @Query(fields = WITHOUT_SEAT_OPERATIONS)
+    List<Course> findByIdIn(Collection<String> ids);
+    @Query(fields = WITHOUT_SEAT_OPERATIONS)
+    List<Course> findByCatalogVersionBetween(Range<Long> versions, Pageable pageable);
+    @Query(fields = WITHOUT_SEAT_OPERATIONS)
+    List<Course> findByCatalogVersion(Long catalogVersion);
+    List<Course> findByCodeIn(Collection<String> codes);
+    // Read through a cursor, in code order, for exports
+    @Query(fields = WITHOUT_SEAT_OPERATIONS)
+    Stream<Course> streamAllByOrderByCodeAsc();
 } 
\ No newline at end of file
@@ -0,0 +1,177 @@
+package com.enrollment.course.repository;
+
+import com.enrollment.course.model.AppliedSeatOperation;
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.model.CourseQuery;
+import com.enrollment.course.model.Instructor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface CourseRepositoryCustom {
+
+    /**
+     * Atomically takes one seat if {@code enrolled < capacity}, closing the course when it becomes full.
+     * The course is flagged for {@link #stampSeatChanges(long)} instead of taking a catalog version.
+     * Returns the updated course, or empty if the course does not exist or has no seat left.
+     */
+    Optional<Course> reserveSeat(String id);
+
+    /**
+     * Atomically gives back one seat if {@code enrolled > 0}, reopening the course when a seat frees up.
+     * Returns the updated course, or empty if the course does not exist or has no enrolled seats.
+     */
+    Optional<Course> releaseSeat(String id);
+
+    /**
+     * Takes ({@code delta} 1) or gives back ({@code delta} -1) one seat like {@link #reserveSeat} and
+     * {@link #releaseSeat}, at most once per operation id. The operation id is claimed in the
+     * applied seat operations before the seat update and confirmed after it; the seat update itself
+     * marks the course with the operation, so a retry after a crash in between can tell whether the
+     * seat was taken. Returns DUPLICATE for an operation applied before, and IN_PROGRESS while another
+     * delivery of it holds the claim.
+     */
+    SeatOperationOutcome applySeatOperation(String id, String operationId, int delta);
+
+    /**
+     * The seat operations applied since {@code since}, as recorded by {@link #applySeatOperation} or
+     * {@link #saveSeatCounts}.
+     */
+    List<AppliedSeatOperation> findAppliedSeatOperations(Date since);
+
+    /**
+     * Atomically takes up to {@code count} seats, as many as are left, closing the course when it becomes full.
+     * Returns the course as it was before the update, or empty if the course does not exist or has no seat left.
+     */
+    Optional<Course> reserveSeats(String id, int count);
+
+    /**
+     * Atomically gives back up to {@code count} seats without going below zero, reopening the course if seats free up.
+     * Returns the course as it was before the update, or empty if the course does not exist or has no enrolled seats.
+     */
+    Optional<Course> releaseSeats(String id, int count);
+
+    /**
+     * Sets only the fields given in the patch (plus the instructor snapshot if the instructor
+     * changes) with a single update, leaving the seat counts alone. A new capacity is only set if
+     * it is not below the current enrolled count, and then reopens or closes an open or closed
+     * course to match, unless the patch sets the status itself. Returns the updated course, or
+     * empty if the course does not exist or the capacity is too low.
+     */
+    Optional<Course> patchCourse(String id, CoursePatch patch, Instructor instructor, long catalogVersion);
+
+    /**
+     * Replaces an existing course with the given one in a single update: every field is set from
+     * it, or removed if it has none, except the ids of seat operations still being applied, which
+     * clients never see or send and which must survive the edit. Returns the updated course, or empty if the
+     * course does not exist.
+     */
+    Optional<Course> replaceCourse(Course course);
+
+    /**
+     * Inserts or updates courses by code with one bulk write, setting the fields given for each
+     * course in the same way as {@link #patchCourse}. New courses start with no one enrolled and,
+     * unless a status is given, open. {@code instructors} holds the instructor snapshots by id.
+     * A course that fails (e.g. a capacity below its enrolled count) does not stop the others.
+     */
+    UpsertResult upsertCourses(List<CoursePatch> courses, Map<String, Instructor> instructors, long catalogVersion);
+
+    /**
+     * Replaces the instructor snapshot on every course taught by the given instructor, whether the
+     * course refers to the instructor by id or by email, or already carries a snapshot with that id.
+     * Returns the number of courses changed.
+     */
+    long updateInstructorSnapshot(Instructor instructor, long catalogVersion);
+
+    /**
+     * Sets the instructor snapshot on the courses whose instructorId is {@code instructorId}
+     * and whose snapshot is missing or different. Returns the number of courses changed.
+     */
+    long setInstructorSnapshot(String instructorId, Instructor instructor, long catalogVersion);
+
+    /**
+     * Tells whether any course whose instructorId is {@code instructorId} has a snapshot that is
+     * missing or different from the given one, i.e. whether {@link #setInstructorSnapshot} would
+     * change anything.
+     */
+    boolean hasStaleInstructorSnapshot(String instructorId, Instructor instructor);
+
+    /**
+     * Stamps courses saved without a catalog version (e.g. seeded data) with the given version.
+     */
+    long setMissingCatalogVersion(long catalogVersion);
+
+    /**
+     * Takes the next catalog version for a change that is about to be written and records it as
+     * in flight until {@link #endCatalogChange(long)}.
+     */
+    long beginCatalogChange();
+
+    void endCatalogChange(long catalogVersion);
+
+    /**
+     * The highest catalog version up to which every change has been written: the latest version,
+     * or just below the oldest change still in flight. In-flight changes older than
+     * {@link CourseRepositoryImpl#CATALOG_CHANGE_LEASE} are considered abandoned.
+     */
+    long stableCatalogVersion();
+
+    /**
+     * Whether a seat change has been made since the last {@link #stampSeatChanges(long)}.
+     */
+    boolean hasUnstampedSeatChanges();
+
+    /**
+     * Stamps the courses whose seats changed since the last call with the given catalog version.
+     * Returns the number of courses stamped.
+     */
+    long stampSeatChanges(long catalogVersion);
+
+    /**
+     * Writes the seat counts held by the seat ledger back to the courses, stamping each with the
+     * given catalog version, and records the seat operations applied since the last write.
+     * Courses that no longer exist are skipped.
+     */
+    void saveSeatCounts(List<SeatCount> counts, long catalogVersion);
+
+    List<String> findDistinctInstructorIds();
+
+    /**
+     * Returns up to {@code limit} courses matching the query's filters, ordered by its sort field
+     * and then id, starting right after {@code after} (or from the beginning if null).
+     * The query's sort and direction must already be validated.
+     */
+    List<Course> findCatalogPage(CourseQuery query, CatalogPosition after, int limit);
+
+    /**
+     * Sort value and id of the last course of a catalog page.
+     */
+    record CatalogPosition(Object value, String id) {
+    }
+
+    /**
+     * Seat state of a course as held by the seat ledger, with the ids of the seat operations it
+     * applied since its state was last written.
+     */
+    record SeatCount(String courseId, int enrolled, String status, List<String> appliedSeatOperations) {
+    }
+
+    enum SeatOperationStatus { APPLIED, DUPLICATE, IN_PROGRESS, NO_SEATS }
+
+    /**
+     * Result of {@link #applySeatOperation}: the course after the change for APPLIED and as it is
+     * now for DUPLICATE, null otherwise.
+     */
+    record SeatOperationOutcome(SeatOperationStatus status, Course course) {
+    }
+
+    /**
+     * Outcome of {@link #upsertCourses}: the number of courses inserted and updated, and the
+     * error of each course that failed by its position in the list.
+     */
+    record UpsertResult(int inserted, int updated, Map<Integer, String> errors) {
+    }
+}
@@ -0,0 +1,519 @@
+package com.enrollment.course.repository;
+
+import com.enrollment.course.model.AppliedSeatOperation;
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.model.CourseQuery;
+import com.enrollment.course.model.Instructor;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Seat counting is done with single conditional findAndModify operations so that concurrent
+ * enroll/drop requests can neither lose updates nor overbook a course. Seat changes only flag the
+ * course (see {@link #stampSeatChanges}), so they never touch the catalog counter; every other
+ * update stamps the course with the catalog version of the change.
+ */
+@RequiredArgsConstructor
+public class CourseRepositoryImpl implements CourseRepositoryCustom {
+
+    private static final Document ENROLLED = new Document("$ifNull", List.of("$enrolled", 0));
+    private static final Document STATUS = new Document("$ifNull", List.of("$status", "open"));
+    private static final int DUPLICATE_KEY = 11000;
+    static final String PENDING_SEAT_OPERATIONS = "pendingSeatOperations";
+    // Longer than any request may run (see deadline.max-timeout), so only a claim whose delivery has given up is taken over
+    static final Duration SEAT_OPERATION_CLAIM = Duration.ofSeconds(60);
+    // Set by seat changes until they are stamped with a catalog version, see Course's seats_changed_idx
+    static final String SEATS_CHANGED = "seatsChanged";
+    static final String CATALOG_COUNTERS = "catalog_counters";
+    static final String CATALOG_COUNTER_ID = "courses";
+    // Longer than any request may run (see deadline.max-timeout)
+    static final Duration CATALOG_CHANGE_LEASE = Duration.ofSeconds(60);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Course> reserveSeat(String id) {
+        return Optional.ofNullable(updateSeat(id, 1, null));
+    }
+
+    @Override
+    public Optional<Course> releaseSeat(String id) {
+        return Optional.ofNullable(updateSeat(id, -1, null));
+    }
+
+    @Override
+    public SeatOperationOutcome applySeatOperation(String id, String operationId, int delta) {
+        if (!claimSeatOperation(id, operationId)) {
+            AppliedSeatOperation claimed = mongoTemplate.findById(operationId, AppliedSeatOperation.class);
+            if ((claimed != null && claimed.isApplied()) || confirmIfApplied(id, operationId)) {
+                return new SeatOperationOutcome(SeatOperationStatus.DUPLICATE, findCourse(id));
+            }
+            if (claimed == null || !takeOverClaim(claimed)) {
+                return new SeatOperationOutcome(SeatOperationStatus.IN_PROGRESS, null);
+            }
+        }
+
+        Course updated = updateSeat(id, delta, operationId);
+        if (updated == null) {
+            // A delivery whose claim was taken over may still have applied it in the meantime
+            if (confirmIfApplied(id, operationId)) {
+                return new SeatOperationOutcome(SeatOperationStatus.DUPLICATE, findCourse(id));
+            }
+            // Not applied, so a retry is judged afresh
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(operationId).and("applied").is(false)), AppliedSeatOperation.class);
+            return new SeatOperationOutcome(SeatOperationStatus.NO_SEATS, null);
+        }
+        confirm(id, operationId);
+        return new SeatOperationOutcome(SeatOperationStatus.APPLIED, updated);
+    }
+
+    @Override
+    public List<AppliedSeatOperation> findAppliedSeatOperations(Date since) {
+        return mongoTemplate.find(new Query(Criteria.where("applied").is(true).and("appliedAt").gte(since)), AppliedSeatOperation.class);
+    }
+
+    /**
+     * Takes or gives back one seat with a single conditional update. With an operation id the
+     * course must not carry it as pending already, and is marked with it in the same write.
+     */
+    private Course updateSeat(String id, int delta, String operationId) {
+        Query query;
+        AggregationUpdate update = AggregationUpdate.update();
+        if (delta > 0) {
+            query = withoutSeatOperations(new Query(Criteria.where("_id").is(id)))
+                .addCriteria(Criteria.expr(() -> new Document("$lt", List.of(ENROLLED, "$capacity"))));
+            update.set("enrolled").toValue(new Document("$add", List.of(ENROLLED, 1)))
+                .set("status").toValue(new Document("$cond", List.of(
+                    new Document("$gte", List.of("$enrolled", "$capacity")), "closed", "$status")));
+        } else {
+            query = withoutSeatOperations(new Query(Criteria.where("_id").is(id).and("enrolled").gt(0)));
+            update.set("enrolled").toValue(new Document("$subtract", List.of("$enrolled", 1)))
+                .set("status").toValue(new Document("$cond", List.of(
+                    new Document("$lt", List.of("$enrolled", "$capacity")), "open", "$status")));
+        }
+        update.set(SEATS_CHANGED).toValue(true);
+        if (operationId != null) {
+            query.addCriteria(Criteria.where(PENDING_SEAT_OPERATIONS).ne(operationId));
+            update.set(PENDING_SEAT_OPERATIONS).toValue(new Document("$concatArrays", List.of(
+                new Document("$ifNull", List.of("$" + PENDING_SEAT_OPERATIONS, List.of())),
+                List.of(new Document("$literal", operationId)))));
+        }
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Course.class);
+    }
+
+    private boolean claimSeatOperation(String courseId, String operationId) {
+        try {
+            mongoTemplate.insert(new AppliedSeatOperation(operationId, courseId, false, new Date()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Takes over a claim whose delivery has given up without applying the operation: a claim is
+     * only this old if the request holding it ended (see {@link #SEAT_OPERATION_CLAIM}).
+     */
+    private boolean takeOverClaim(AppliedSeatOperation claimed) {
+        if (claimed.getAppliedAt().getTime() > System.currentTimeMillis() - SEAT_OPERATION_CLAIM.toMillis()) {
+            return false;
+        }
+        Query query = new Query(Criteria.where("_id").is(claimed.getId()).and("applied").is(false).and("appliedAt").is(claimed.getAppliedAt()));
+        return mongoTemplate.updateFirst(query, new Update().set("appliedAt", new Date()), AppliedSeatOperation.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * Confirms an operation whose seat update went through but was not confirmed, e.g. because
+     * its delivery crashed right after it.
+     */
+    private boolean confirmIfApplied(String id, String operationId) {
+        if (!mongoTemplate.exists(new Query(Criteria.where("_id").is(id).and(PENDING_SEAT_OPERATIONS).is(operationId)), Course.class)) {
+            return false;
+        }
+        confirm(id, operationId);
+        return true;
+    }
+
+    private void confirm(String id, String operationId) {
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(operationId)),
+            new Update().set("courseId", id).set("applied", true).set("appliedAt", new Date()), AppliedSeatOperation.class);
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id)),
+            new Update().pull(PENDING_SEAT_OPERATIONS, operationId), Course.class);
+    }
+
+    private Course findCourse(String id) {
+        return mongoTemplate.findOne(withoutSeatOperations(new Query(Criteria.where("_id").is(id))), Course.class);
+    }
+
+    @Override
+    public Optional<Course> reserveSeats(String id, int count) {
+        Query query = new Query(Criteria.where("_id").is(id))
+            .addCriteria(Criteria.expr(() -> new Document("$lt", List.of(ENROLLED, "$capacity"))));
+
+        AggregationUpdate update = AggregationUpdate.update()
+            .set("enrolled").toValue(new Document("$min", List.of(new Document("$add", List.of(ENROLLED, count)), "$capacity")))
+            .set("status").toValue(new Document("$cond", List.of(
+                new Document("$gte", List.of("$enrolled", "$capacity")), "closed", "$status")))
+            .set(SEATS_CHANGED).toValue(true);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+            query, update, FindAndModifyOptions.options().returnNew(false), Course.class));
+    }
+
+    @Override
+    public Optional<Course> releaseSeats(String id, int count) {
+        Query query = new Query(Criteria.where("_id").is(id).and("enrolled").gt(0));
+
+        AggregationUpdate update = AggregationUpdate.update()
+            .set("enrolled").toValue(new Document("$max", List.of(new Document("$subtract", List.of("$enrolled", count)), 0)))
+            .set("status").toValue(new Document("$cond", List.of(
+                new Document("$lt", List.of("$enrolled", "$capacity")), "open", "$status")))
+            .set(SEATS_CHANGED).toValue(true);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+            query, update, FindAndModifyOptions.options().returnNew(false), Course.class));
+    }
+
+    @Override
+    public Optional<Course> patchCourse(String id, CoursePatch patch, Instructor instructor, long catalogVersion) {
+        Query query = withoutSeatOperations(new Query(Criteria.where("_id").is(id)));
+        if (patch.getCapacity() != null) {
+            query.addCriteria(capacityNotBelowEnrolled(patch.getCapacity()));
+        }
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+            query, patchUpdate(patch, instructor, catalogVersion), FindAndModifyOptions.options().returnNew(true), Course.class));
+    }
+
+    @Override
+    public Optional<Course> replaceCourse(Course course) {
+        Document fields = new Document();
+        mongoTemplate.getConverter().write(course, fields);
+
+        Update update = new Update();
+        mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(Course.class)
+            .doWithProperties((PropertyHandler<MongoPersistentProperty>) property -> {
+                String field = property.getFieldName();
+                if (property.isIdProperty() || PENDING_SEAT_OPERATIONS.equals(field)) {
+                    return;
+                }
+                if (fields.get(field) != null) {
+                    update.set(field, fields.get(field));
+                } else {
+                    update.unset(field);
+                }
+            });
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(withoutSeatOperations(new Query(Criteria.where("_id").is(course.getId()))),
+            update, FindAndModifyOptions.options().returnNew(true), Course.class));
+    }
+
+    /**
+     * An existing course whose enrolled count is above the new capacity fails the capacity
+     * condition, so the upsert tries to insert a second course with the same code, which the
+     * unique code index rejects.
+     */
+    @Override
+    public UpsertResult upsertCourses(List<CoursePatch> courses, Map<String, Instructor> instructors, long catalogVersion) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Course.class);
+        for (CoursePatch course : courses) {
+            Query query = new Query(Criteria.where("code").is(course.getCode()));
+            if (course.getCapacity() != null) {
+                query.addCriteria(capacityNotBelowEnrolled(course.getCapacity()));
+            }
+            AggregationUpdate update = patchUpdate(course, instructors.get(course.getInstructorId()), catalogVersion);
+            // New courses start empty and open
+            update.set("enrolled").toValue(ENROLLED);
+            if (course.getStatus() == null && course.getCapacity() == null) {
+                update.set("status").toValue(STATUS);
+            }
+            bulk.upsert(query, update);
+        }
+
+        try {
+            BulkWriteResult result = bulk.execute();
+            return new UpsertResult(result.getUpserts().size(), result.getMatchedCount(), Map.of());
+        } catch (BulkOperationException e) {
+            Map<Integer, String> errors = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(), error.getCode() == DUPLICATE_KEY
+                    ? duplicateCodeReason(courses.get(error.getIndex()))
+                    : error.getMessage());
+            }
+            return new UpsertResult(e.getResult().getUpserts().size(), e.getResult().getMatchedCount(), errors);
+        }
+    }
+
+    /**
+     * The code index rejects an upsert either because the existing course failed the capacity
+     * condition, or because another write inserted a course with the same code in the meantime.
+     */
+    private String duplicateCodeReason(CoursePatch course) {
+        Query query = new Query(Criteria.where("code").is(course.getCode()));
+        query.fields().include("enrolled");
+        Course existing = mongoTemplate.findOne(query, Course.class);
+        int enrolled = existing == null || existing.getEnrolled() == null ? 0 : existing.getEnrolled();
+        if (existing != null && course.getCapacity() != null && enrolled > course.getCapacity()) {
+            return "Course capacity cannot be lower than the " + enrolled + " students enrolled";
+        }
+        return "Course " + course.getCode() + " was changed by another write at the same time, import it again";
+    }
+
+    private Criteria capacityNotBelowEnrolled(int capacity) {
+        return Criteria.expr(() -> new Document("$lte", List.of(ENROLLED, capacity)));
+    }
+
+    /**
+     * Sets the fields given in the patch. A new capacity reopens or closes an open or closed
+     * course to match, unless the patch sets the status itself.
+     */
+    private AggregationUpdate patchUpdate(CoursePatch patch, Instructor instructor, long catalogVersion) {
+        AggregationUpdate update = AggregationUpdate.update();
+        // Values are passed as literals so that strings starting with $ are not read as field paths
+        setLiteral(update, "code", patch.getCode());
+        setLiteral(update, "title", patch.getTitle());
+        setLiteral(update, "description", patch.getDescription());
+        setLiteral(update, "credits", patch.getCredits());
+        setLiteral(update, "schedule", patch.getSchedule());
+        setLiteral(update, "instructorId", patch.getInstructorId());
+        if (patch.getInstructorId() != null) {
+            // Cleared if the new instructor is not known (yet)
+            update.set("instructor").toValue(new Document("$literal",
+                instructor == null ? null : mongoTemplate.getConverter().convertToMongoType(instructor)));
+        }
+        if (patch.getCapacity() != null) {
+            update.set("capacity").toValue(patch.getCapacity());
+        }
+        if (patch.getStatus() != null) {
+            setLiteral(update, "status", patch.getStatus());
+        } else if (patch.getCapacity() != null) {
+            update.set("status").toValue(new Document("$cond", List.of(
+                new Document("$in", List.of(STATUS, List.of("open", "closed"))),
+                new Document("$cond", List.of(new Document("$gte", List.of(ENROLLED, patch.getCapacity())), "closed", "open")),
+                STATUS)));
+        }
+        update.set("catalogVersion").toValue(catalogVersion);
+        return update;
+    }
+
+    private void setLiteral(AggregationUpdate update, String field, Object value) {
+        if (value != null) {
+            update.set(field).toValue(new Document("$literal", mongoTemplate.getConverter().convertToMongoType(value)));
+        }
+    }
+
+    @Override
+    public long updateInstructorSnapshot(Instructor instructor, long catalogVersion) {
+        List<Object> references = new ArrayList<>();
+        references.add(instructor.getId());
+        if (instructor.getEmail() != null) {
+            references.add(instructor.getEmail());
+        }
+        Query query = new Query(new Criteria().orOperator(
+            Criteria.where("instructorId").in(references),
+            Criteria.where("instructor.id").is(instructor.getId())));
+
+        Update update = new Update().set("instructor", instructor).set("catalogVersion", catalogVersion);
+        return mongoTemplate.updateMulti(query, update, Course.class).getModifiedCount();
+    }
+
+    @Override
+    public long setInstructorSnapshot(String instructorId, Instructor instructor, long catalogVersion) {
+        Update update = new Update().set("instructor", instructor).set("catalogVersion", catalogVersion);
+        return mongoTemplate.updateMulti(staleInstructorSnapshot(instructorId, instructor), update, Course.class).getModifiedCount();
+    }
+
+    @Override
+    public boolean hasStaleInstructorSnapshot(String instructorId, Instructor instructor) {
+        return mongoTemplate.exists(staleInstructorSnapshot(instructorId, instructor), Course.class);
+    }
+
+    private Query staleInstructorSnapshot(String instructorId, Instructor instructor) {
+        Object snapshot = mongoTemplate.getConverter().convertToMongoType(instructor);
+        return new Query(Criteria.where("instructorId").is(instructorId).and("instructor").ne(snapshot));
+    }
+
+    @Override
+    public long setMissingCatalogVersion(long catalogVersion) {
+        return mongoTemplate.updateMulti(new Query(Criteria.where("catalogVersion").exists(false)),
+            new Update().set("catalogVersion", catalogVersion), Course.class).getModifiedCount();
+    }
+
+    /**
+     * The counter document holds the latest version and the versions still being written. Taking
+     * a version also drops in-flight entries older than the lease, left behind by crashed instances.
+     */
+    @Override
+    public long beginCatalogChange() {
+        Query query = new Query(Criteria.where("_id").is(CATALOG_COUNTER_ID));
+        AggregationUpdate update = AggregationUpdate.update()
+            .set("version").toValue(new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L)))
+            .set("inFlight").toValue(new Document("$concatArrays", List.of(
+                new Document("$filter", new Document("input", new Document("$ifNull", List.of("$inFlight", List.of())))
+                    .append("cond", new Document("$gt", List.of("$$this.startedAt",
+                        new Document("$subtract", List.of("$$NOW", CATALOG_CHANGE_LEASE.toMillis())))))),
+                List.of(new Document("version", "$version").append("startedAt", "$$NOW")))));
+
+        Document counter = mongoTemplate.findAndModify(query, update,
+            FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, CATALOG_COUNTERS);
+        return ((Number) counter.get("version")).longValue();
+    }
+
+    @Override
+    public void endCatalogChange(long catalogVersion) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(CATALOG_COUNTER_ID)),
+            new Update().pull("inFlight", new Document("version", catalogVersion)), CATALOG_COUNTERS);
+    }
+
+    /**
+     * Worked out by the server, so the lease is measured against the same clock that started it.
+     */
+    @Override
+    public long stableCatalogVersion() {
+        Document inFlight = new Document("$filter", new Document("input", new Document("$ifNull", List.of("$inFlight", List.of())))
+            .append("cond", new Document("$gt", List.of("$$this.startedAt",
+                new Document("$subtract", List.of("$$NOW", CATALOG_CHANGE_LEASE.toMillis()))))));
+        // $min skips the null it gets for an empty in-flight list
+        Document stable = new Document("$min", List.of("$version",
+            new Document("$min", new Document("$map", new Document("input", inFlight)
+                .append("in", new Document("$subtract", List.of("$$this.version", 1L)))))));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("_id").is(CATALOG_COUNTER_ID)),
+            context -> new Document("$project", new Document("stable", stable)));
+        Document counter = mongoTemplate.aggregate(aggregation, CATALOG_COUNTERS, Document.class).getUniqueMappedResult();
+        return counter == null ? 0 : ((Number) counter.get("stable")).longValue();
+    }
+
+    @Override
+    public boolean hasUnstampedSeatChanges() {
+        return mongoTemplate.exists(new Query(Criteria.where(SEATS_CHANGED).is(true)), Course.class);
+    }
+
+    /**
+     * A seat change made while this runs sets the flag again and is stamped by the next run.
+     */
+    @Override
+    public long stampSeatChanges(long catalogVersion) {
+        return mongoTemplate.updateMulti(new Query(Criteria.where(SEATS_CHANGED).is(true)),
+            new Update().set("catalogVersion", catalogVersion).unset(SEATS_CHANGED), Course.class).getModifiedCount();
+    }
+
+    @Override
+    public void saveSeatCounts(List<SeatCount> counts, long catalogVersion) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Course.class);
+        BulkOperations applied = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AppliedSeatOperation.class);
+        boolean anyApplied = false;
+        Date now = new Date();
+        for (SeatCount count : counts) {
+            bulk.updateOne(new Query(Criteria.where("_id").is(count.courseId())), new Update()
+                .set("enrolled", count.enrolled())
+                .set("status", count.status())
+                .set("catalogVersion", catalogVersion));
+            for (String operationId : count.appliedSeatOperations()) {
+                applied.upsert(new Query(Criteria.where("_id").is(operationId)),
+                    new Update().set("courseId", count.courseId()).set("applied", true).set("appliedAt", now));
+                anyApplied = true;
+            }
+        }
+        // Operations first: once the counts are written the log entries holding them are deleted
+        if (anyApplied) {
+            applied.execute();
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public List<String> findDistinctInstructorIds() {
+        return mongoTemplate.findDistinct(new Query(Criteria.where("instructorId").ne(null)), "instructorId", Course.class, String.class);
+    }
+
+    @Override
+    public List<Course> findCatalogPage(CourseQuery query, CatalogPosition after, int limit) {
+        List<Criteria> filters = new ArrayList<>();
+        if (query.getStatus() != null) {
+            filters.add(Criteria.where("status").is(query.getStatus()));
+        }
+        if (query.getCredits() != null) {
+            filters.add(Criteria.where("credits").is(query.getCredits()));
+        }
+        if (query.getInstructorId() != null) {
+            filters.add(Criteria.where("instructorId").is(query.getInstructorId()));
+        }
+        if (query.getDay() != null) {
+            filters.add(Criteria.where("schedule.days").is(query.getDay()));
+        }
+        if (query.getCodePrefix() != null) {
+            // Anchored and case sensitive, so the code index is used for the prefix range
+            filters.add(Criteria.where("code").regex("^" + Pattern.quote(query.getCodePrefix())));
+        }
+
+        String field = query.getSort();
+        boolean descending = "desc".equalsIgnoreCase(query.getDirection());
+        if (after != null) {
+            filters.add(after(field, descending, after));
+        }
+
+        Query find = new Query();
+        if (!filters.isEmpty()) {
+            find.addCriteria(new Criteria().andOperator(filters));
+        }
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        find.with(Sort.by(direction, field).and(Sort.by(direction, "_id"))).limit(limit);
+        return mongoTemplate.find(withoutSeatOperations(find), Course.class);
+    }
+
+    /**
+     * Keyset condition for the courses that sort after {@code position}. Missing values sort
+     * before everything else in MongoDB, so they come first ascending and last descending.
+     */
+    private Criteria after(String field, boolean descending, CatalogPosition position) {
+        if (position.value() == null) {
+            Criteria sameValueLaterId = new Criteria().andOperator(
+                Criteria.where(field).is(null),
+                descending ? Criteria.where("_id").lt(position.id()) : Criteria.where("_id").gt(position.id()));
+            return descending ? sameValueLaterId : new Criteria().orOperator(sameValueLaterId, Criteria.where(field).ne(null));
+        }
+
+        Criteria sameValueLaterId = new Criteria().andOperator(
+            Criteria.where(field).is(position.value()),
+            descending ? Criteria.where("_id").lt(position.id()) : Criteria.where("_id").gt(position.id()));
+        if (descending) {
+            return new Criteria().orOperator(Criteria.where(field).lt(position.value()), sameValueLaterId, Criteria.where(field).is(null));
+        }
+        return new Criteria().orOperator(Criteria.where(field).gt(position.value()), sameValueLaterId);
+    }
+
+    private static Query withoutSeatOperations(Query query) {
+        query.fields().exclude(PENDING_SEAT_OPERATIONS);
+        return query;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.enrollment.course.repository;
+
+import com.enrollment.course.model.CourseTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CourseTombstoneRepository extends MongoRepository<CourseTombstone, String> {
+    List<CourseTombstone> findByCatalogVersionBetween(Range<Long> versions, Pageable pageable);
+    List<CourseTombstone> findByCatalogVersion(Long catalogVersion);
+}
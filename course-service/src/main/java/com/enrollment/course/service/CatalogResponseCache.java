@@ -0,0 +1,271 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.config.RequestDeadline;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache of catalog views (e.g. all courses, open courses) as ready-to-send JSON bytes.
+ *
+ * Entries are keyed by the catalog version, which every course write and seat change moves
+ * forward, so a write invalidates every replica's copy without any messaging: the next request
+ * simply asks for the new version. L1 keeps the latest version of each view in this process;
+ * L2 is Redis, shared by all replicas, and likewise holds one entry per view with its version,
+ * which only a newer version replaces. A miss is rebuilt once per process (concurrent requests
+ * wait for that rebuild) and, through a short Redis lock, normally once across replicas.
+ * When Redis is unavailable the cache keeps working with L1 only.
+ */
+@Component
+@Slf4j
+public class CatalogResponseCache {
+
+    static final String KEY_PREFIX = "course:catalog:";
+
+    // Replaces the view unless Redis already holds the same or a newer version of it
+    static final RedisScript<Long> PUT_SCRIPT = RedisScript.of("""
+        local current = tonumber(redis.call('HGET', KEYS[1], 'version'))
+        if current and current >= tonumber(ARGV[1]) then
+            return 0
+        end
+        redis.call('HSET', KEYS[1], 'version', ARGV[1], 'json', ARGV[2])
+        redis.call('PEXPIRE', KEYS[1], ARGV[3])
+        return 1
+        """, Long.class);
+
+    private final ObjectMapper objectMapper;
+    private final RedisTemplate<String, byte[]> redis;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final long lockWaitMillis;
+    private final long l2RetryAfterMillis;
+
+    private final Map<String, Entry> l1 = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<byte[]>> rebuilds = new ConcurrentHashMap<>();
+    private volatile long l2SkippedUntil;
+
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public CatalogResponseCache(ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                @Value("${course.catalog-cache.l2.enabled:true}") boolean l2Enabled,
+                                @Value("${course.catalog-cache.ttl:10m}") Duration ttl,
+                                @Value("${course.catalog-cache.lock-timeout:5s}") Duration lockTimeout,
+                                @Value("${course.catalog-cache.lock-wait:1s}") Duration lockWait,
+                                @Value("${course.catalog-cache.l2.retry-after:30s}") Duration l2RetryAfter) {
+        this.objectMapper = objectMapper;
+        RedisConnectionFactory connectionFactory = l2Enabled ? redisConnectionFactory.getIfAvailable() : null;
+        this.redis = connectionFactory == null ? null : bytesTemplate(connectionFactory);
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.lockWaitMillis = lockWait.toMillis();
+        this.l2RetryAfterMillis = l2RetryAfter.toMillis();
+
+        this.l1Hits = Counter.builder("course.catalog_cache.requests").tag("result", "l1_hit").register(meterRegistry);
+        this.l2Hits = Counter.builder("course.catalog_cache.requests").tag("result", "l2_hit").register(meterRegistry);
+        this.misses = Counter.builder("course.catalog_cache.requests").tag("result", "miss").register(meterRegistry);
+        this.coalesced = Counter.builder("course.catalog_cache.requests").tag("result", "coalesced").register(meterRegistry);
+    }
+
+    /**
+     * Returns the JSON of the view at the given catalog version, serializing what {@code loader}
+     * returns if no tier has it.
+     */
+    public byte[] get(String view, long version, Supplier<?> loader) {
+        Entry entry = l1.get(view);
+        if (entry != null && entry.version() == version) {
+            l1Hits.increment();
+            return entry.json();
+        }
+
+        String key = view + ":" + version;
+        CompletableFuture<byte[]> rebuild = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = rebuilds.putIfAbsent(key, rebuild);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            byte[] json = load(view, version, loader);
+            // A slower rebuild of an older version must not replace a newer one
+            l1.merge(view, new Entry(version, json), (current, fresh) -> fresh.version() >= current.version() ? fresh : current);
+            rebuild.complete(json);
+            return json;
+        } catch (RuntimeException e) {
+            rebuild.completeExceptionally(e);
+            throw e;
+        } finally {
+            rebuilds.remove(key, rebuild);
+        }
+    }
+
+    private byte[] load(String view, long version, Supplier<?> loader) {
+        String key = KEY_PREFIX + view;
+        byte[] shared = l2Get(key, version);
+        if (shared != null) {
+            l2Hits.increment();
+            return shared;
+        }
+
+        String lock = key + ":" + version + ":lock";
+        boolean locked = l2Lock(lock);
+        if (!locked && redisAvailable()) {
+            // Another replica is rebuilding this view; its result usually shows up in Redis shortly
+            long waitUntil = System.currentTimeMillis() + Math.min(lockWaitMillis, RequestDeadline.remainingMillis());
+            while (System.currentTimeMillis() < waitUntil && !Thread.currentThread().isInterrupted()) {
+                sleep(25);
+                shared = l2Get(key, version);
+                if (shared != null) {
+                    l2Hits.increment();
+                    return shared;
+                }
+            }
+        }
+
+        misses.increment();
+        try {
+            byte[] json = serialize(loader.get());
+            l2Put(key, version, json);
+            return json;
+        } finally {
+            if (locked) {
+                l2Unlock(lock);
+            }
+        }
+    }
+
+    private byte[] await(CompletableFuture<byte[]> running) {
+        try {
+            return running.get(RequestDeadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            RequestDeadline.check("waiting for the course catalog to be rebuilt");
+            throw new IllegalStateException("Timed out waiting for the course catalog");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the course catalog");
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the course catalog", e);
+        }
+    }
+
+    private boolean redisAvailable() {
+        return redis != null && System.currentTimeMillis() >= l2SkippedUntil;
+    }
+
+    /**
+     * The view's JSON if Redis holds exactly the requested version of it.
+     */
+    private byte[] l2Get(String key, long version) {
+        if (!redisAvailable()) {
+            return null;
+        }
+        try {
+            HashOperations<String, String, byte[]> hash = redis.opsForHash();
+            List<byte[]> entry = hash.multiGet(key, List.of("version", "json"));
+            if (entry.get(0) == null || entry.get(1) == null
+                    || Long.parseLong(new String(entry.get(0), StandardCharsets.UTF_8)) != version) {
+                return null;
+            }
+            return entry.get(1);
+        } catch (Exception e) {
+            l2Failed(e);
+            return null;
+        }
+    }
+
+    private void l2Put(String key, long version, byte[] json) {
+        if (!redisAvailable()) {
+            return;
+        }
+        try {
+            redis.execute(PUT_SCRIPT, List.of(key), String.valueOf(version).getBytes(StandardCharsets.UTF_8), json,
+                String.valueOf(ttl.toMillis()).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            l2Failed(e);
+        }
+    }
+
+    private boolean l2Lock(String lock) {
+        if (!redisAvailable()) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(lock, new byte[0], lockTimeout));
+        } catch (Exception e) {
+            l2Failed(e);
+            return false;
+        }
+    }
+
+    private void l2Unlock(String lock) {
+        try {
+            redis.delete(lock);
+        } catch (Exception e) {
+            // The lock expires on its own
+            l2Failed(e);
+        }
+    }
+
+    private void l2Failed(Exception e) {
+        l2SkippedUntil = System.currentTimeMillis() + l2RetryAfterMillis;
+        log.warn("Redis catalog cache unavailable, using the in-process cache only for {} ms: {}", l2RetryAfterMillis, e.getMessage());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RedisTemplate<String, byte[]> bytesTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    private record Entry(long version, byte[] json) {
+    }
+}
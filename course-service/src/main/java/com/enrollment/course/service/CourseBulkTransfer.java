@@ -0,0 +1,245 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CourseImportReport;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseRepositoryCustom.UpsertResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import and export of the course catalog as NDJSON (one course object per line) or CSV.
+ *
+ * Imports are read row by row and written in batches of upserts keyed on the course code, so
+ * memory use does not grow with the size of the file. Rows that cannot be read or fail
+ * validation are reported by line and skipped; the other rows are still imported. Exports are
+ * streamed from a MongoDB cursor.
+ */
+@Component
+@Slf4j
+public class CourseBulkTransfer {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the name or media type is not a supported format
+         */
+        public static Format of(String nameOrMediaType) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(nameOrMediaType)
+                        || (nameOrMediaType != null && nameOrMediaType.toLowerCase().startsWith(format.mediaType))) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported format: " + nameOrMediaType + ", use ndjson or csv");
+        }
+    }
+
+    private final CourseService courseService;
+    private final CourseRepository courseRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader courseReader;
+    private final int batchSize;
+
+    public CourseBulkTransfer(CourseService courseService,
+                              CourseRepository courseRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${course.import.batch-size:500}") int batchSize) {
+        this.courseService = courseService;
+        this.courseRepository = courseRepository;
+        this.objectMapper = objectMapper;
+        // Exported courses carry fields that are not imported (id, enrolled, instructor snapshot)
+        this.courseReader = objectMapper.readerFor(CoursePatch.class).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the courses in {@code input}. Existing courses (by code) are updated with the values
+     * given in their row, new courses are created. Seat counts are never imported.
+     *
+     * @throws IllegalArgumentException if the CSV header is invalid
+     */
+    public CourseImportReport importCourses(InputStream input, Format format) throws IOException {
+        CourseImportReport report = new CourseImportReport();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Batch batch = new Batch(report);
+
+        if (format == Format.CSV) {
+            CourseCsv.Parser parser = new CourseCsv.Parser(reader);
+            List<String> header = parser.next();
+            if (header == null) {
+                return report;
+            }
+            Map<String, Integer> columns = CourseCsv.header(header);
+            while (true) {
+                List<String> values;
+                try {
+                    values = parser.next();
+                } catch (IllegalArgumentException e) {
+                    // The rest of the file cannot be split into rows any more
+                    report.setReceived(report.getReceived() + 1);
+                    reject(report, parser.rowLine(), null, e.getMessage());
+                    break;
+                }
+                if (values == null) {
+                    break;
+                }
+                if (values.size() == 1 && values.get(0).isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(parser.rowLine(), CourseCsv.course(columns, values));
+                } catch (IllegalArgumentException e) {
+                    report.setReceived(report.getReceived() + 1);
+                    reject(report, parser.rowLine(), null, e.getMessage());
+                }
+            }
+        } else {
+            long line = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(line, courseReader.readValue(text));
+                } catch (JsonProcessingException e) {
+                    report.setReceived(report.getReceived() + 1);
+                    reject(report, line, null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        batch.flush();
+
+        log.info("Imported courses: {} received, {} inserted, {} updated, {} rejected",
+            report.getReceived(), report.getInserted(), report.getUpdated(), report.getRejected());
+        return report;
+    }
+
+    /**
+     * Writes every course, in code order, to {@code output}.
+     */
+    public void exportCourses(OutputStream output, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            CourseCsv.writeHeader(writer);
+        }
+        try (Stream<Course> courses = courseRepository.streamAllByOrderByCodeAsc()) {
+            Iterator<Course> iterator = courses.iterator();
+            while (iterator.hasNext()) {
+                Course course = iterator.next();
+                if (format == Format.CSV) {
+                    CourseCsv.write(writer, course);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(course));
+                    writer.write('\n');
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    static String validate(CoursePatch course) {
+        if (course.getCode() == null || course.getCode().trim().isEmpty()) {
+            return "Course code is required";
+        }
+        if (course.getCapacity() != null && course.getCapacity() < 0) {
+            return "Course capacity cannot be negative";
+        }
+        if (course.getCredits() != null && course.getCredits() < 0) {
+            return "Course credits cannot be negative";
+        }
+        return null;
+    }
+
+    private void reject(CourseImportReport report, long line, String code, String message) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new CourseImportReport.RowError(line, code, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    /**
+     * Valid rows waiting to be written, with the lines they came from.
+     */
+    private class Batch {
+        private final CourseImportReport report;
+        private final List<CoursePatch> courses = new ArrayList<>(batchSize);
+        private final List<Long> lines = new ArrayList<>(batchSize);
+
+        Batch(CourseImportReport report) {
+            this.report = report;
+        }
+
+        void add(long line, CoursePatch course) {
+            report.setReceived(report.getReceived() + 1);
+            String error = validate(course);
+            if (error != null) {
+                reject(report, line, course.getCode(), error);
+                return;
+            }
+            course.setCode(course.getCode().trim());
+            courses.add(course);
+            lines.add(line);
+            if (courses.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (courses.isEmpty()) {
+                return;
+            }
+            UpsertResult result = courseService.importCourses(List.copyOf(courses));
+            report.setInserted(report.getInserted() + result.inserted());
+            report.setUpdated(report.getUpdated() + result.updated());
+            result.errors().forEach((index, message) -> reject(report, lines.get(index), courses.get(index).getCode(), message));
+            courses.clear();
+            lines.clear();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.model.Schedule;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV form of the course catalog (RFC 4180: comma separated, values with commas, quotes or line
+ * breaks in double quotes). Schedule days are separated by semicolons. The enrolled column is
+ * written on export and ignored on import, so an export can be imported again as is.
+ */
+final class CourseCsv {
+
+    static final List<String> COLUMNS = List.of(
+        "code", "title", "description", "credits", "capacity", "enrolled", "status",
+        "instructorId", "days", "startTime", "endTime", "room");
+
+    private CourseCsv() {
+    }
+
+    static void writeHeader(Writer writer) throws IOException {
+        writeRow(writer, COLUMNS);
+    }
+
+    static void write(Writer writer, Course course) throws IOException {
+        Schedule schedule = course.getSchedule() == null ? new Schedule() : course.getSchedule();
+        writeRow(writer, Arrays.asList(
+            course.getCode(), course.getTitle(), course.getDescription(),
+            text(course.getCredits()), text(course.getCapacity()), text(course.getEnrolled()), course.getStatus(),
+            course.getInstructorId(), schedule.getDays() == null ? null : String.join(";", schedule.getDays()),
+            schedule.getStartTime(), schedule.getEndTime(), schedule.getRoom()));
+    }
+
+    /**
+     * Maps header names to column positions.
+     *
+     * @throws IllegalArgumentException if a column is unknown or the code column is missing
+     */
+    static Map<String, Integer> header(List<String> names) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim();
+            if (!COLUMNS.contains(name)) {
+                throw new IllegalArgumentException("Unknown CSV column: " + name);
+            }
+            columns.put(name, i);
+        }
+        if (!columns.containsKey("code")) {
+            throw new IllegalArgumentException("CSV header must contain a code column");
+        }
+        return columns;
+    }
+
+    /**
+     * The course described by a row. Empty values are left unset.
+     *
+     * @throws IllegalArgumentException if a number column does not hold a number
+     */
+    static CoursePatch course(Map<String, Integer> columns, List<String> values) {
+        CoursePatch course = new CoursePatch();
+        course.setCode(value(columns, values, "code"));
+        course.setTitle(value(columns, values, "title"));
+        course.setDescription(value(columns, values, "description"));
+        course.setCredits(number(columns, values, "credits"));
+        course.setCapacity(number(columns, values, "capacity"));
+        course.setStatus(value(columns, values, "status"));
+        course.setInstructorId(value(columns, values, "instructorId"));
+
+        String days = value(columns, values, "days");
+        String startTime = value(columns, values, "startTime");
+        String endTime = value(columns, values, "endTime");
+        String room = value(columns, values, "room");
+        if (days != null || startTime != null || endTime != null || room != null) {
+            Schedule schedule = new Schedule();
+            schedule.setDays(days == null ? null : Arrays.stream(days.split(";")).map(String::trim).filter(day -> !day.isEmpty()).toList());
+            schedule.setStartTime(startTime);
+            schedule.setEndTime(endTime);
+            schedule.setRoom(room);
+            course.setSchedule(schedule);
+        }
+        return course;
+    }
+
+    private static String value(Map<String, Integer> columns, List<String> values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size() || values.get(index).isBlank()) {
+            return null;
+        }
+        return values.get(index).trim();
+    }
+
+    private static Integer number(Map<String, Integer> columns, List<String> values, String column) {
+        String value = value(columns, values, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " must be a whole number, got '" + value + "'");
+        }
+    }
+
+    private static String text(Integer value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static void writeRow(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Reads one row at a time, so the size of the file does not matter.
+     */
+    static final class Parser {
+
+        private final Reader reader;
+        private long line = 1;
+        private long rowLine;
+
+        Parser(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * The next row's values, or null at the end of the input.
+         *
+         * @throws IllegalArgumentException if a quoted value is not closed before the end of the input
+         */
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            rowLine = line;
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Quoted value starting on line " + rowLine + " is never closed");
+                    }
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c != '"') {
+                            // Closing quote; look at the character after it as unquoted text
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    value.append((char) c);
+                } else if (c == '"' && value.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    values.add(value.toString());
+                    return values;
+                } else if (c != '\r') {
+                    value.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+
+        /**
+         * Line the last row returned by {@link #next()} starts on.
+         */
+        long rowLine() {
+            return rowLine;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CourseSearchHit;
+import com.enrollment.course.repository.CourseRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over course code, title and description.
+ *
+ * Every query term matches the indexed words it is a prefix of, so "intro comp" finds
+ * "Introduction to Computer Science" while the user is still typing. A course must match all
+ * terms; it is ranked by where the terms matched (code before title before description) and
+ * whether they matched a whole word. Searches never touch MongoDB: the index is loaded once at
+ * startup, kept up to date by the course writes of this instance and rebuilt periodically to
+ * pick up writes made by other instances.
+ *
+ * Searches read an immutable snapshot of the index without locking. A write builds the next
+ * snapshot from shallow copies and only copies the posting lists of the words it touches, once
+ * per snapshot; a batch of courses goes into a single new snapshot.
+ */
+@Component
+@Slf4j
+public class CourseSearchIndex {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern LETTER_DIGIT_BOUNDARY = Pattern.compile("(?<=\\p{L})(?=\\p{N})|(?<=\\p{N})(?=\\p{L})");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "for", "in", "of", "on", "the", "to", "with");
+
+    static final double CODE_WEIGHT = 5;
+    static final double TITLE_WEIGHT = 3;
+    static final double DESCRIPTION_WEIGHT = 1;
+    // A term that is only the prefix of a word counts for less than a whole-word match
+    static final double PREFIX_FACTOR = 0.5;
+
+    private final CourseRepository courseRepository;
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot = new Snapshot(new TreeMap<>(), new HashMap<>(), false);
+
+    public CourseSearchIndex(CourseRepository courseRepository, MeterRegistry meterRegistry) {
+        this.courseRepository = courseRepository;
+        Gauge.builder("course.search_index.size", this, CourseSearchIndex::size).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${course.search.rebuild-interval:PT10M}", fixedDelayString = "${course.search.rebuild-interval:PT10M}")
+    public void rebuild() {
+        // Holding the write lock while loading keeps a concurrent index() from being overwritten
+        synchronized (writeLock) {
+            try {
+                Snapshot rebuilt = new Snapshot(new TreeMap<>(), new HashMap<>(), false);
+                for (Course course : courseRepository.findAllCourses()) {
+                    rebuilt.add(course);
+                }
+                snapshot = rebuilt;
+                log.info("Indexed {} course(s) for search", rebuilt.documents.size());
+            } catch (Exception e) {
+                log.error("Could not rebuild the course search index, keeping the current one: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds the course to the index, replacing what was indexed for it before.
+     */
+    public void index(Course course) {
+        index(course == null ? List.of() : List.of(course));
+    }
+
+    /**
+     * Adds the courses to the index with one copy of it, however many there are.
+     */
+    public void index(List<Course> courses) {
+        List<Course> indexable = courses.stream().filter(course -> course != null && course.getId() != null).toList();
+        if (indexable.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Snapshot next = snapshot.copy();
+            for (Course course : indexable) {
+                next.remove(course.getId());
+                next.add(course);
+            }
+            snapshot = next;
+        }
+    }
+
+    public void remove(String courseId) {
+        synchronized (writeLock) {
+            if (snapshot.documents.containsKey(courseId)) {
+                Snapshot next = snapshot.copy();
+                next.remove(courseId);
+                snapshot = next;
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} courses matching every term of the query, best match first.
+     */
+    public List<CourseSearchHit> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query, false)));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+
+        Map<String, Double> scores = null;
+        for (String term : terms) {
+            Map<String, Double> termScores = new HashMap<>();
+            for (Map.Entry<String, Map<String, Double>> word : current.words.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                double factor = word.getKey().equals(term) ? 1 : PREFIX_FACTOR;
+                word.getValue().forEach((courseId, weight) -> termScores.merge(courseId, weight * factor, Math::max));
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((courseId, score) -> score + termScores.get(courseId));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        return scores.entrySet().stream()
+                .map(entry -> {
+                    Document document = current.documents.get(entry.getKey());
+                    return new CourseSearchHit(document.id, document.code, document.title, document.credits, entry.getValue());
+                })
+                .sorted(Comparator.comparingDouble(CourseSearchHit::getScore).reversed()
+                        .thenComparing(hit -> hit.getCode() == null ? "" : hit.getCode()))
+                .limit(limit)
+                .toList();
+    }
+
+    public int size() {
+        return snapshot.documents.size();
+    }
+
+    /**
+     * Lower-cases, strips accents and splits on anything that is not a letter or digit. Codes
+     * such as "CS101" are also split into "cs" and "101". Stop words are only dropped from
+     * indexed text, so a query consisting of "in" still autocompletes "introduction".
+     */
+    static List<String> tokenize(String text, boolean dropStopWords) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase();
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(normalized)) {
+            if (token.isEmpty() || (dropStopWords && STOP_WORDS.contains(token))) {
+                continue;
+            }
+            tokens.add(token);
+            String[] parts = LETTER_DIGIT_BOUNDARY.split(token);
+            if (parts.length > 1 && dropStopWords) {
+                tokens.addAll(List.of(parts));
+            }
+        }
+        return tokens;
+    }
+
+    private record Document(String id, String code, String title, Integer credits, Set<String> words) {
+    }
+
+    private static class Snapshot {
+        // word -> course id -> best field weight of the word in that course
+        private final TreeMap<String, Map<String, Double>> words;
+        private final Map<String, Document> documents;
+        // Posting lists are shared with the snapshot this one was copied from, except those of these words
+        private final boolean sharedPostings;
+        private final Set<String> copiedPostings = new HashSet<>();
+
+        Snapshot(TreeMap<String, Map<String, Double>> words, Map<String, Document> documents, boolean sharedPostings) {
+            this.words = words;
+            this.documents = documents;
+            this.sharedPostings = sharedPostings;
+        }
+
+        Snapshot copy() {
+            return new Snapshot(new TreeMap<>(words), new HashMap<>(documents), true);
+        }
+
+        void add(Course course) {
+            Map<String, Double> weights = new HashMap<>();
+            tokenize(course.getDescription(), true).forEach(word -> weights.merge(word, DESCRIPTION_WEIGHT, Math::max));
+            tokenize(course.getTitle(), true).forEach(word -> weights.merge(word, TITLE_WEIGHT, Math::max));
+            tokenize(course.getCode(), true).forEach(word -> weights.merge(word, CODE_WEIGHT, Math::max));
+
+            weights.forEach((word, weight) -> words.compute(word, (key, postings) -> {
+                Map<String, Double> updated = writable(word, postings);
+                updated.put(course.getId(), weight);
+                return updated;
+            }));
+            documents.put(course.getId(), new Document(course.getId(), course.getCode(), course.getTitle(),
+                    course.getCredits(), weights.keySet()));
+        }
+
+        /**
+         * The posting list of the word that this snapshot may change, copied on first use if it is shared.
+         */
+        private Map<String, Double> writable(String word, Map<String, Double> postings) {
+            boolean firstUse = sharedPostings && copiedPostings.add(word);
+            if (postings == null) {
+                return new HashMap<>();
+            }
+            return firstUse ? new HashMap<>(postings) : postings;
+        }
+
+        void remove(String courseId) {
+            Document document = documents.remove(courseId);
+            if (document == null) {
+                return;
+            }
+            for (String word : document.words) {
+                words.computeIfPresent(word, (key, postings) -> {
+                    Map<String, Double> updated = writable(word, postings);
+                    updated.remove(courseId);
+                    return updated.isEmpty() ? null : updated;
+                });
+            }
+        }
+    }
+}
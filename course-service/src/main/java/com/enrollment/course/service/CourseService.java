@@ -1,107 +1,367 @@
 package com.enrollment.course.service;
 
-import com.enrollment.course.client.AuthClient;
+import com.enrollment.course.config.RequestDeadline;
+import com.enrollment.course.model.CatalogChanges;
 import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CoursePage;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.model.CourseQuery;
+import com.enrollment.course.model.CourseSearchHit;
+import com.enrollment.course.model.CourseTombstone;
 import com.enrollment.course.model.Instructor;
+import com.enrollment.course.model.SeatOperation;
+import com.enrollment.course.model.SeatOperationResult;
 import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseRepositoryCustom.CatalogPosition;
+import com.enrollment.course.repository.CourseRepositoryCustom.SeatOperationOutcome;
+import com.enrollment.course.repository.CourseRepositoryCustom.SeatOperationStatus;
+import com.enrollment.course.repository.CourseRepositoryCustom.UpsertResult;
+import com.enrollment.course.repository.CourseTombstoneRepository;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CourseService {
 
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int DEFAULT_SEARCH_RESULTS = 10;
+    static final int MAX_SEARCH_RESULTS = 50;
+    static final int DEFAULT_CHANGES_LIMIT = 500;
+    static final int MAX_CHANGES_LIMIT = 1000;
+    private static final Set<String> SORT_FIELDS = Set.of("code", "title", "credits");
+
     private final CourseRepository courseRepository;
-    private final AuthClient authClient;
+    private final InstructorDirectory instructorDirectory;
+    private final CourseSearchIndex courseSearchIndex;
+    private final CourseTombstoneRepository courseTombstoneRepository;
+    // Only present in seat ledger mode, which then owns the seat counts
+    private final ObjectProvider<SeatLedger> seatLedger;
 
     @CircuitBreaker(name = "basic")
     public List<Course> getAllCourses() {
-        List<Course> courses = courseRepository.findAll();
-        return courses.stream()
-            .map(this::populateInstructorDetails)
-            .collect(Collectors.toList());
+        return withInstructorSnapshots(courseRepository.findAllCourses());
     }
 
     @CircuitBreaker(name = "basic")
     public List<Course> getOpenCourses() {
-        List<Course> courses = courseRepository.findByStatus("open");
-        return courses.stream()
-            .map(this::populateInstructorDetails)
-            .collect(Collectors.toList());
+        return withInstructorSnapshots(courseRepository.findByStatus("open"));
     }
 
     @CircuitBreaker(name = "basic")
     public Optional<Course> getCourseById(String id) {
-        return courseRepository.findById(id)
-            .map(this::populateInstructorDetails);
+        return courseRepository.findCourseById(id)
+            .map(this::withInstructorSnapshot);
+    }
+
+    @CircuitBreaker(name = "basic")
+    public List<Course> getCoursesByIds(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<String> distinctIds = ids.stream()
+            .filter(id -> id != null && !id.isBlank())
+            .distinct()
+            .collect(Collectors.toList());
+        if (distinctIds.isEmpty()) {
+            return List.of();
+        }
+        return withInstructorSnapshots(courseRepository.findByIdIn(distinctIds));
     }
 
     @CircuitBreaker(name = "basic")
     public Optional<Course> getCourseByCode(String code) {
         return courseRepository.findByCode(code)
-            .map(this::populateInstructorDetails);
+            .map(this::withInstructorSnapshot);
+    }
+
+    /**
+     * One page of the catalog. Pages are keyset paginated: the cursor holds the sort value and id
+     * of the previous page's last course, so every page is a bounded index range scan no matter
+     * how deep the caller pages, and instructor snapshots are only resolved for that page.
+     *
+     * @throws IllegalArgumentException for an unknown sort field or direction, or a cursor that
+     *                                  was not issued for the same sort order
+     */
+    @CircuitBreaker(name = "basic")
+    public CoursePage getCatalogPage(CourseQuery query) {
+        String sort = query.getSort() == null ? "code" : query.getSort();
+        String direction = query.getDirection() == null ? "asc" : query.getDirection().toLowerCase();
+        if (!SORT_FIELDS.contains(sort)) {
+            throw new IllegalArgumentException("Unsupported sort field: " + sort);
+        }
+        if (!direction.equals("asc") && !direction.equals("desc")) {
+            throw new IllegalArgumentException("Unsupported sort direction: " + query.getDirection());
+        }
+        query.setSort(sort);
+        query.setDirection(direction);
+        int limit = query.getLimit() == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(query.getLimit(), MAX_PAGE_SIZE));
+        CatalogPosition after = query.getCursor() == null || query.getCursor().isBlank()
+            ? null : decodeCursor(query.getCursor(), sort, direction);
+
+        // One extra course tells whether there is a next page
+        List<Course> courses = courseRepository.findCatalogPage(query, after, limit + 1);
+        String nextCursor = null;
+        if (courses.size() > limit) {
+            courses = new ArrayList<>(courses.subList(0, limit));
+            nextCursor = encodeCursor(courses.get(limit - 1), sort, direction);
+        }
+        return new CoursePage(withInstructorSnapshots(courses), nextCursor);
+    }
+
+    private static String encodeCursor(Course last, String sort, String direction) {
+        Object value = switch (sort) {
+            case "title" -> last.getTitle();
+            case "credits" -> last.getCredits();
+            default -> last.getCode();
+        };
+        String encodedValue = value == null ? "n" : (value instanceof Integer ? "i" : "s") + value;
+        String cursor = sort + "|" + direction + "|" + last.getId() + "|" + encodedValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
     }
 
-    private Course populateInstructorDetails(Course course) {
+    private static CatalogPosition decodeCursor(String cursor, String sort, String direction) {
+        String[] parts;
         try {
-            if (course.getInstructorId() != null) {
-                System.out.println("Fetching instructor details for course " + course.getCode() + " with instructorId: " + course.getInstructorId());
-                
-                try {
-                    // First try to get instructor by ID
-                    Instructor instructor = authClient.getInstructor(course.getInstructorId());
-                    
-                    if (instructor != null && instructor.getFirstName() != null && instructor.getLastName() != null) {
-                        System.out.println("Successfully fetched instructor by ID: " + instructor.getFirstName() + " " + instructor.getLastName());
-                        course.setInstructor(instructor);
-                        return course;
-                    }
-                } catch (Exception e) {
-                    System.out.println("Failed to fetch instructor by ID: " + e.getMessage());
-                }
-                
-                // If not found by ID, try to find in the list of all instructors
-                System.out.println("Instructor not found by ID, trying to find in all instructors list");
-                List<Instructor> instructors = authClient.getInstructors();
-                if (instructors != null) {
-                    System.out.println("Found " + instructors.size() + " instructors");
-                    for (Instructor i : instructors) {
-                        System.out.println("Checking instructor: " + i.getFirstName() + " " + i.getLastName() + 
-                                         " (ID: " + i.getId() + ", Email: " + i.getEmail() + ")");
-                        
-                        // Try multiple ways to match the instructor
-                        boolean idMatch = i.getId() != null && i.getId().equals(course.getInstructorId());
-                        boolean emailMatch = i.getEmail() != null && i.getEmail().equals(course.getInstructorId());
-                        boolean nameMatch = i.getFirstName() != null && i.getLastName() != null && 
-                                         (i.getFirstName() + " " + i.getLastName()).equals(course.getInstructorId());
-                        
-                        if (idMatch || emailMatch || nameMatch) {
-                            System.out.println("Found matching instructor: " + i.getFirstName() + " " + i.getLastName() + 
-                                             " (matched by: " + (idMatch ? "ID" : emailMatch ? "email" : "name") + ")");
-                            course.setInstructor(i);
-                            return course;
-                        }
-                    }
-                }
-                
-                System.err.println("Could not find instructor details for course " + course.getCode() + 
-                    " with instructorId: " + course.getInstructorId());
-            } else {
-                System.err.println("No instructorId found for course " + course.getCode());
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || parts[3].isEmpty() || !parts[0].equals(sort) || !parts[1].equals(direction)) {
+            throw new IllegalArgumentException("Invalid cursor for sort " + sort + " " + direction);
+        }
+        String value = parts[3].substring(1);
+        try {
+            return switch (parts[3].charAt(0)) {
+                case 'n' -> new CatalogPosition(null, parts[2]);
+                case 'i' -> new CatalogPosition(Integer.valueOf(value), parts[2]);
+                case 's' -> new CatalogPosition(value, parts[2]);
+                default -> throw new IllegalArgumentException("Invalid cursor");
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Version of the catalog as readers currently see it. Every change to a course (including
+     * instructor snapshots) and every deletion gets a new, higher version; seat count changes get
+     * theirs from {@link #stampSeatChanges()} shortly after they are made.
+     */
+    @CircuitBreaker(name = "basic")
+    public long getCatalogVersion() {
+        return courseRepository.stableCatalogVersion();
+    }
+
+    /**
+     * Courses changed and deleted after version {@code since}, oldest change first. A client keeps
+     * its copy of the catalog in sync by passing the returned version as {@code since} next time,
+     * right away while {@code hasMore} is set. Only changes up to the stable version are reported,
+     * so a change still being written under a lower version is not skipped.
+     */
+    @CircuitBreaker(name = "basic")
+    public CatalogChanges getCatalogChanges(long since, Integer limit) {
+        int size = limit == null ? DEFAULT_CHANGES_LIMIT : Math.max(1, Math.min(limit, MAX_CHANGES_LIMIT));
+        long stable = courseRepository.stableCatalogVersion();
+        if (since >= stable) {
+            return new CatalogChanges(Math.max(since, stable), List.of(), List.of(), false);
+        }
+
+        Range<Long> versions = Range.leftOpen(since, stable);
+        PageRequest page = PageRequest.of(0, size + 1, Sort.by("catalogVersion"));
+        List<Course> courses = courseRepository.findByCatalogVersionBetween(versions, page);
+        List<CourseTombstone> tombstones = courseTombstoneRepository.findByCatalogVersionBetween(versions, page);
+        if (courses.size() + tombstones.size() <= size) {
+            return new CatalogChanges(stable, withInstructorSnapshots(courses),
+                tombstones.stream().map(CourseTombstone::getId).toList(), false);
+        }
+
+        // Cut the page between two versions, so a version is never reported half
+        List<Long> changeVersions = new ArrayList<>();
+        courses.forEach(course -> changeVersions.add(course.getCatalogVersion()));
+        tombstones.forEach(tombstone -> changeVersions.add(tombstone.getCatalogVersion()));
+        Collections.sort(changeVersions);
+        long firstLeftOut = changeVersions.get(size);
+        long upTo = firstLeftOut - 1;
+        if (upTo <= since) {
+            // A single change touched more courses than fit in a page
+            upTo = firstLeftOut;
+            courses = courseRepository.findByCatalogVersion(firstLeftOut);
+            tombstones = courseTombstoneRepository.findByCatalogVersion(firstLeftOut);
+        }
+        long last = upTo;
+        return new CatalogChanges(upTo,
+            withInstructorSnapshots(courses.stream().filter(course -> course.getCatalogVersion() <= last).toList()),
+            tombstones.stream().filter(tombstone -> tombstone.getCatalogVersion() <= last).map(CourseTombstone::getId).toList(),
+            true);
+    }
+
+    /**
+     * Courses written before catalog versions existed, or seeded directly into the database, get a version at startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void versionUnversionedCourses() {
+        try {
+            long stamped = withCatalogVersion(courseRepository::setMissingCatalogVersion);
+            if (stamped > 0) {
+                System.out.println("Assigned a catalog version to " + stamped + " course(s)");
+            }
+        } catch (Exception e) {
+            System.err.println("Could not assign catalog versions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Seat changes do not take a catalog version of their own, which would put every enroll and
+     * drop behind the one catalog counter document. Instead the courses they flag are stamped here
+     * with one version for all of them, so they show up in the changes feed (and move the catalog
+     * version) within this interval.
+     */
+    @Scheduled(fixedDelayString = "${course.catalog-version.seat-stamp-interval:PT0.25S}")
+    public void stampSeatChanges() {
+        try {
+            if (courseRepository.hasUnstampedSeatChanges()) {
+                withCatalogVersion(courseRepository::stampSeatChanges);
             }
         } catch (Exception e) {
-            System.err.println("Error fetching instructor details for course " + course.getCode() + ": " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Could not stamp seat changes with a catalog version: " + e.getMessage());
         }
+    }
+
+    /**
+     * Runs a change under a fresh catalog version, which counts as in flight until the change is written.
+     */
+    private <T> T withCatalogVersion(LongFunction<T> change) {
+        long version = courseRepository.beginCatalogChange();
+        try {
+            return change.apply(version);
+        } finally {
+            try {
+                courseRepository.endCatalogChange(version);
+            } catch (Exception e) {
+                // The in-flight entry expires after its lease
+                System.err.println("Could not complete catalog version " + version + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Course withInstructorSnapshot(Course course) {
+        withInstructorSnapshots(List.of(course));
         return course;
     }
 
+    /**
+     * Courses carry a snapshot of their instructor, so reads normally need no call to auth-service.
+     * Courses saved before snapshots existed (or while auth-service was down) get theirs from the
+     * instructor directory here, and it is stored so the next read finds it.
+     */
+    private List<Course> withInstructorSnapshots(List<Course> courses) {
+        Map<String, Optional<Instructor>> resolved = new HashMap<>();
+        for (Course course : courses) {
+            if (course.getInstructor() != null || course.getInstructorId() == null) {
+                continue;
+            }
+            // The caller has given up on this request, so stop resolving instructors for it
+            RequestDeadline.check("fetching instructor details for course " + course.getCode());
+            Optional<Instructor> instructor = resolved.computeIfAbsent(course.getInstructorId(), instructorId -> {
+                Optional<Instructor> found = instructorDirectory.find(instructorId);
+                found.ifPresent(snapshot -> withCatalogVersion(version -> courseRepository.setInstructorSnapshot(instructorId, snapshot, version)));
+                return found;
+            });
+            if (instructor.isPresent()) {
+                course.setInstructor(instructor.get());
+            } else {
+                System.err.println("Could not find instructor details for course " + course.getCode() +
+                    " with instructorId: " + course.getInstructorId());
+            }
+        }
+        return courses;
+    }
+
+    /**
+     * Applies a profile change announced by auth-service to every course the instructor teaches.
+     */
+    public long applyInstructorProfileChange(Instructor instructor) {
+        if (instructor == null || instructor.getId() == null) {
+            throw new IllegalArgumentException("Instructor id is required");
+        }
+        long updated = withCatalogVersion(version -> courseRepository.updateInstructorSnapshot(instructor, version));
+        instructorDirectory.invalidate();
+        System.out.println("Updated instructor snapshot of " + instructor.getId() + " on " + updated + " course(s)");
+        return updated;
+    }
+
+    /**
+     * Safety net for missed profile change notifications: compares the stored snapshots with the
+     * instructor directory and fixes the ones that differ. All fixes of a run share one catalog
+     * version, and a run that finds nothing to fix takes none, so the catalog ETag only changes
+     * when a snapshot actually did.
+     */
+    @Scheduled(fixedDelayString = "${course.instructor-snapshots.sync-interval:PT15M}",
+               initialDelayString = "${course.instructor-snapshots.sync-interval:PT15M}")
+    public void syncInstructorSnapshots() {
+        try {
+            Map<String, Instructor> stale = new LinkedHashMap<>();
+            for (String instructorId : courseRepository.findDistinctInstructorIds()) {
+                instructorDirectory.find(instructorId)
+                    .filter(instructor -> courseRepository.hasStaleInstructorSnapshot(instructorId, instructor))
+                    .ifPresent(instructor -> stale.put(instructorId, instructor));
+            }
+            if (stale.isEmpty()) {
+                return;
+            }
+            long updated = withCatalogVersion(version -> {
+                long changed = 0;
+                for (Map.Entry<String, Instructor> entry : stale.entrySet()) {
+                    changed += courseRepository.setInstructorSnapshot(entry.getKey(), entry.getValue(), version);
+                }
+                return changed;
+            });
+            if (updated > 0) {
+                System.out.println("Refreshed stale instructor snapshots on " + updated + " course(s)");
+            }
+        } catch (Exception e) {
+            System.err.println("Instructor snapshot sync failed: " + e.getMessage());
+        }
+    }
+
+    private void attachInstructorSnapshot(Course course) {
+        course.setInstructor(course.getInstructorId() == null
+            ? null
+            : instructorDirectory.find(course.getInstructorId()).orElse(null));
+    }
+
+    /**
+     * Drops the cached instructor directory so changed instructor details are picked up on the next read.
+     */
+    public void refreshInstructorDirectory() {
+        instructorDirectory.invalidate();
+    }
+
     @CircuitBreaker(name = "basic")
     public Course createCourse(Course course) {
         if (course == null) {
@@ -120,53 +380,307 @@ public class CourseService {
         
         course.setEnrolled(0);
         course.setStatus("open");
-        return courseRepository.save(course);
+        attachInstructorSnapshot(course);
+        Course saved = withCatalogVersion(version -> {
+            course.setCatalogVersion(version);
+            return courseRepository.save(course);
+        });
+        seatLedger.ifAvailable(ledger -> ledger.track(saved));
+        courseSearchIndex.index(saved);
+        return saved;
     }
 
     @CircuitBreaker(name = "basic")
     public Course updateCourse(String id, Course course) {
         if (courseRepository.existsById(id)) {
             course.setId(id);
-            return courseRepository.save(course);
+            attachInstructorSnapshot(course);
+            SeatLedger ledger = seatLedger.getIfAvailable();
+            if (ledger != null) {
+                ledger.current(id).ifPresent(current -> course.setEnrolled(current.getEnrolled()));
+            }
+            // Replaced field by field, so the record of applied seat operations is kept
+            Course saved = withCatalogVersion(version -> {
+                course.setCatalogVersion(version);
+                return courseRepository.replaceCourse(course);
+            }).orElseThrow(() -> new RuntimeException("Course not found"));
+            if (ledger != null) {
+                ledger.track(saved);
+            }
+            courseSearchIndex.index(saved);
+            return saved;
         }
         throw new RuntimeException("Course not found");
     }
 
+    /**
+     * Changes only the fields set in the patch with a single targeted update, so an edit never
+     * overwrites seat counts that enrollments changed in the meantime.
+     */
+    @CircuitBreaker(name = "basic")
+    public Course patchCourse(String id, CoursePatch patch) {
+        if (patch == null || patch.isEmpty()) {
+            throw new IllegalArgumentException("No course fields to update");
+        }
+        if (patch.getCode() != null && patch.getCode().trim().isEmpty()) {
+            throw new IllegalArgumentException("Course code cannot be empty");
+        }
+        if (patch.getCapacity() != null && patch.getCapacity() < 0) {
+            throw new IllegalArgumentException("Course capacity cannot be negative");
+        }
+
+        SeatLedger ledger = seatLedger.getIfAvailable();
+        if (ledger != null && patch.getCapacity() != null) {
+            // The ledger holds the current enrolled count, the stored one may be behind
+            ledger.current(id).filter(current -> current.getEnrolled() > patch.getCapacity())
+                .ifPresent(current -> {
+                    throw new IllegalStateException("Course capacity cannot be lower than the " + current.getEnrolled() + " students enrolled");
+                });
+        }
+        Instructor instructor = patch.getInstructorId() == null ? null : instructorDirectory.find(patch.getInstructorId()).orElse(null);
+
+        Optional<Course> patched;
+        try {
+            patched = withCatalogVersion(version -> courseRepository.patchCourse(id, patch, instructor, version));
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Course code " + patch.getCode() + " is already in use");
+        }
+        if (patched.isEmpty()) {
+            Course existing = courseRepository.findById(id).orElseThrow(() -> new RuntimeException("Course not found"));
+            throw new IllegalStateException("Course capacity cannot be lower than the " + enrolledOf(existing) + " students enrolled");
+        }
+
+        Course saved = patched.get();
+        if (ledger != null) {
+            ledger.track(saved);
+            saved = ledger.current(id).orElse(saved);
+        }
+        courseSearchIndex.index(saved);
+        return saved;
+    }
+
+    /**
+     * Inserts or updates a batch of courses by code with one bulk write under one catalog version.
+     * Seat counts of existing courses are left alone. The courses must already be validated.
+     * In ledger mode a capacity below the ledger's enrolled count is rejected before the write,
+     * as in {@link #patchCourse}. Errors are keyed by the course's position in {@code courses}.
+     */
+    @CircuitBreaker(name = "basic")
+    public UpsertResult importCourses(List<CoursePatch> courses) {
+        Map<String, Instructor> instructors = new HashMap<>();
+        for (CoursePatch course : courses) {
+            String instructorId = course.getInstructorId();
+            if (instructorId != null && !instructors.containsKey(instructorId)) {
+                instructorDirectory.find(instructorId).ifPresent(instructor -> instructors.put(instructorId, instructor));
+            }
+        }
+
+        SeatLedger ledger = seatLedger.getIfAvailable();
+        Map<Integer, String> errors = new HashMap<>();
+        if (ledger != null) {
+            // The ledger holds the current enrolled counts, the stored ones may be behind
+            Map<String, Course> existing = new HashMap<>();
+            courseRepository.findByCodeIn(courses.stream().filter(course -> course.getCapacity() != null).map(CoursePatch::getCode).toList())
+                .forEach(course -> existing.put(course.getCode(), course));
+            for (int i = 0; i < courses.size(); i++) {
+                CoursePatch course = courses.get(i);
+                Course stored = existing.get(course.getCode());
+                int index = i;
+                if (stored != null) {
+                    ledger.current(stored.getId()).filter(current -> current.getEnrolled() > course.getCapacity())
+                        .ifPresent(current -> errors.put(index, "Course capacity cannot be lower than the " + current.getEnrolled() + " students enrolled"));
+                }
+            }
+        }
+        List<CoursePatch> accepted = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < courses.size(); i++) {
+            if (!errors.containsKey(i)) {
+                accepted.add(courses.get(i));
+                positions.add(i);
+            }
+        }
+        UpsertResult written = accepted.isEmpty() ? new UpsertResult(0, 0, Map.of())
+            : withCatalogVersion(version -> courseRepository.upsertCourses(accepted, instructors, version));
+        written.errors().forEach((index, message) -> errors.put(positions.get(index), message));
+        UpsertResult result = new UpsertResult(written.inserted(), written.updated(), errors);
+
+        List<Course> saved = courseRepository.findByCodeIn(courses.stream().map(CoursePatch::getCode).toList());
+        if (ledger != null) {
+            saved.forEach(ledger::track);
+        }
+        courseSearchIndex.index(saved);
+        return result;
+    }
+
     @CircuitBreaker(name = "basic")
     public void deleteCourse(String id) {
-        courseRepository.deleteById(id);
+        withCatalogVersion(version -> {
+            courseRepository.deleteById(id);
+            return courseTombstoneRepository.save(new CourseTombstone(id, version, new Date()));
+        });
+        seatLedger.ifAvailable(ledger -> ledger.untrack(id));
+        courseSearchIndex.remove(id);
     }
 
+    /**
+     * Full-text search over code, title and description, answered from the in-memory index.
+     */
+    public List<CourseSearchHit> searchCourses(String query, Integer limit) {
+        int size = limit == null ? DEFAULT_SEARCH_RESULTS : Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        return courseSearchIndex.search(query, size);
+    }
+
+    /**
+     * Takes a seat with a single conditional update, so concurrent requests cannot overbook the course.
+     */
     @CircuitBreaker(name = "basic")
     public Course incrementEnrollment(String id) {
-        Course course = courseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Course not found"));
-        
-        if (course.getEnrolled() >= course.getCapacity()) {
-            throw new RuntimeException("Course is full");
+        SeatLedger ledger = seatLedger.getIfAvailable();
+        if (ledger != null) {
+            return ledgerCourse(ledger.reserve(id, null, 1), "Course is full");
         }
-        
-        course.setEnrolled(course.getEnrolled() + 1);
-        if (course.getEnrolled() >= course.getCapacity()) {
-            course.setStatus("closed");
+        Optional<Course> updated = courseRepository.reserveSeat(id);
+        if (updated.isPresent()) {
+            return updated.get();
         }
-        
-        return courseRepository.save(course);
+        if (!courseRepository.existsById(id)) {
+            throw new RuntimeException("Course not found");
+        }
+        throw new RuntimeException("Course is full");
     }
 
-    @Transactional
+    /**
+     * Releases a seat with a single conditional update, so concurrent drops cannot lose updates.
+     */
     public Course decrementEnrollment(String id) {
-        Course course = courseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Course not found"));
-        
-        if (course.getEnrolled() <= 0) {
-            throw new RuntimeException("Cannot decrement enrollment below zero");
+        SeatLedger ledger = seatLedger.getIfAvailable();
+        if (ledger != null) {
+            return ledgerCourse(ledger.release(id, null, 1), "Cannot decrement enrollment below zero");
         }
-        
-        course.setEnrolled(course.getEnrolled() - 1);
-        if (course.getEnrolled() < course.getCapacity()) {
-            course.setStatus("open");
+        Optional<Course> updated = courseRepository.releaseSeat(id);
+        if (updated.isPresent()) {
+            return updated.get();
+        }
+        if (!courseRepository.existsById(id)) {
+            throw new RuntimeException("Course not found");
+        }
+        throw new RuntimeException("Cannot decrement enrollment below zero");
+    }
+
+    /**
+     * Reserves seats for a batch of enrollments with one conditional update per course.
+     * Each course grants as many of the requested seats as it has left; unknown and full
+     * courses grant none. Returns the number of seats granted per course.
+     */
+    public Map<String, Integer> reserveSeats(Map<String, Integer> requested) {
+        SeatLedger ledger = seatLedger.getIfAvailable();
+        Map<String, Integer> granted = new LinkedHashMap<>();
+        requested.forEach((id, count) -> {
+            if (count == null || count <= 0) {
+                granted.put(id, 0);
+                return;
+            }
+            if (ledger != null) {
+                granted.put(id, ledger.reserve(id, null, count).seats());
+                return;
+            }
+            int seats = courseRepository.reserveSeats(id, count)
+                .map(before -> Math.min(count, before.getCapacity() - enrolledOf(before)))
+                .orElse(0);
+            granted.put(id, Math.max(seats, 0));
+        });
+        return granted;
+    }
+
+    /**
+     * Gives back seats for a batch of enrollments with one conditional update per course.
+     * Returns the number of seats actually released per course.
+     */
+    public Map<String, Integer> releaseSeats(Map<String, Integer> released) {
+        SeatLedger ledger = seatLedger.getIfAvailable();
+        Map<String, Integer> result = new LinkedHashMap<>();
+        released.forEach((id, count) -> {
+            if (count == null || count <= 0) {
+                result.put(id, 0);
+                return;
+            }
+            if (ledger != null) {
+                result.put(id, ledger.release(id, null, count).seats());
+                return;
+            }
+            result.put(id, courseRepository.releaseSeats(id, count)
+                .map(before -> Math.min(count, enrolledOf(before)))
+                .orElse(0));
+        });
+        return result;
+    }
+
+    /**
+     * Applies seat operations delivered by enrollment-service's outbox. Each operation is applied
+     * at most once: a retry of an operation the course already applied is reported as a duplicate.
+     * An operation another delivery is applying right now gets no result, so the outbox retries it.
+     */
+    public List<SeatOperationResult> applySeatOperations(List<SeatOperation> operations) {
+        List<SeatOperationResult> results = new ArrayList<>();
+        for (SeatOperation operation : operations) {
+            SeatOperationResult result = applySeatOperation(operation);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private SeatOperationResult applySeatOperation(SeatOperation operation) {
+        String id = operation.getCourseId();
+        if (operation.getOperationId() == null || (operation.getDelta() != 1 && operation.getDelta() != -1)) {
+            return SeatOperationResult.of(operation, "rejected", null, "Invalid seat operation");
+        }
+        SeatLedger ledger = seatLedger.getIfAvailable();
+        if (ledger != null) {
+            return applyToLedger(ledger, operation);
+        }
+
+        SeatOperationOutcome outcome = courseRepository.applySeatOperation(id, operation.getOperationId(), operation.getDelta());
+        if (outcome.status() == SeatOperationStatus.APPLIED) {
+            return SeatOperationResult.of(operation, "applied", outcome.course(), null);
         }
-        return courseRepository.save(course);
+        if (outcome.status() == SeatOperationStatus.DUPLICATE) {
+            return SeatOperationResult.of(operation, "duplicate", outcome.course(), null);
+        }
+        if (outcome.status() == SeatOperationStatus.IN_PROGRESS) {
+            return null;
+        }
+        if (!courseRepository.existsById(id)) {
+            return SeatOperationResult.of(operation, "rejected", null, "Course not found");
+        }
+        return SeatOperationResult.of(operation, "rejected", null,
+            operation.getDelta() > 0 ? "Course is full" : "Cannot decrement enrollment below zero");
+    }
+
+    private SeatOperationResult applyToLedger(SeatLedger ledger, SeatOperation operation) {
+        SeatLedger.Outcome outcome = operation.getDelta() > 0
+            ? ledger.reserve(operation.getCourseId(), operation.getOperationId(), 1)
+            : ledger.release(operation.getCourseId(), operation.getOperationId(), 1);
+        return switch (outcome.status()) {
+            case APPLIED -> SeatOperationResult.of(operation, "applied", outcome.course(), null);
+            case DUPLICATE -> SeatOperationResult.of(operation, "duplicate", outcome.course(), null);
+            case NOT_FOUND -> SeatOperationResult.of(operation, "rejected", null, "Course not found");
+            case NO_SEATS -> SeatOperationResult.of(operation, "rejected", null,
+                operation.getDelta() > 0 ? "Course is full" : "Cannot decrement enrollment below zero");
+        };
+    }
+
+    private Course ledgerCourse(SeatLedger.Outcome outcome, String noSeatsMessage) {
+        return switch (outcome.status()) {
+            case APPLIED -> outcome.course();
+            case NOT_FOUND -> throw new RuntimeException("Course not found");
+            default -> throw new RuntimeException(noSeatsMessage);
+        };
+    }
+
+    private int enrolledOf(Course course) {
+        return course.getEnrolled() == null ? 0 : course.getEnrolled();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,225 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.client.AuthClient;
+import com.enrollment.course.model.Instructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process copy of the instructor list from auth-service, indexed by id, email and full name.
+ *
+ * The whole list is loaded with one call and refreshed in the background, so resolving the
+ * instructors of any number of courses costs at most one auth-service call. Once a copy is older
+ * than the refresh interval (the scheduled refresh failed or is late), lookups keep being served
+ * from it while a reload runs in the background; only a copy older than the TTL, which is
+ * several refresh intervals, makes lookups wait for a reload. A course whose
+ * instructor is not in the directory triggers a reload, but no more often than the configured
+ * minimum interval (also after failed loads), and the last good copy is kept while
+ * auth-service is unavailable.
+ */
+@Component
+@Slf4j
+public class InstructorDirectory {
+
+    private static final long NEVER = Long.MIN_VALUE / 2;
+
+    private final AuthClient authClient;
+    private final Clock clock;
+    private final long ttlMillis;
+    private final long refreshAfterMillis;
+    private final long minReloadMillis;
+    private final Object loadLock = new Object();
+    private final Executor reloadExecutor;
+    private final AtomicBoolean reloadQueued = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+    private volatile long lastAttemptAt = NEVER;
+
+    private final Counter loads;
+    private final Counter loadFailures;
+
+    @Autowired
+    public InstructorDirectory(AuthClient authClient,
+                               MeterRegistry meterRegistry,
+                               @Value("${course.instructor-directory.ttl:30m}") Duration ttl,
+                               @Value("${course.instructor-directory.refresh-interval:PT5M}") Duration refreshInterval,
+                               @Value("${course.instructor-directory.min-reload-interval:30s}") Duration minReloadInterval) {
+        this(authClient, meterRegistry, ttl, refreshInterval, minReloadInterval, Clock.systemUTC(),
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "instructor-directory-reload");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    InstructorDirectory(AuthClient authClient, MeterRegistry meterRegistry, Duration ttl, Duration refreshInterval,
+                        Duration minReloadInterval, Clock clock, Executor reloadExecutor) {
+        this.authClient = authClient;
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.refreshAfterMillis = refreshInterval.toMillis();
+        this.minReloadMillis = minReloadInterval.toMillis();
+        this.reloadExecutor = reloadExecutor;
+
+        this.loads = Counter.builder("course.instructor_directory.loads").tag("result", "success").register(meterRegistry);
+        this.loadFailures = Counter.builder("course.instructor_directory.loads").tag("result", "failure").register(meterRegistry);
+        Gauge.builder("course.instructor_directory.size", this, InstructorDirectory::size).register(meterRegistry);
+    }
+
+    /**
+     * Finds an instructor by id, email or "First Last" name, in that order.
+     */
+    public Optional<Instructor> find(String key) {
+        if (key == null || key.isBlank()) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot;
+        long age = current == null ? 0 : clock.millis() - current.loadedAt;
+        if (current == null || age >= ttlMillis) {
+            current = reload(current);
+        } else if (age >= refreshAfterMillis) {
+            reloadInBackground();
+        }
+        Instructor instructor = current == null ? null : current.lookup(key);
+        if (instructor == null) {
+            // Possibly an instructor added since the last load
+            current = reload(current);
+            instructor = current == null ? null : current.lookup(key);
+        }
+        return Optional.ofNullable(instructor);
+    }
+
+    @Scheduled(fixedDelayString = "${course.instructor-directory.refresh-interval:PT5M}",
+               initialDelayString = "${course.instructor-directory.refresh-interval:PT5M}")
+    public void refresh() {
+        synchronized (loadLock) {
+            load();
+        }
+    }
+
+    /**
+     * Drops the directory, e.g. after instructors changed in auth-service. The next lookup reloads it.
+     */
+    public void invalidate() {
+        synchronized (loadLock) {
+            snapshot = null;
+            lastAttemptAt = NEVER;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloadExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.byId.size();
+    }
+
+    /**
+     * Queues a reload unless one is queued already or the last attempt was too recent.
+     */
+    private void reloadInBackground() {
+        if (clock.millis() - lastAttemptAt < minReloadMillis || !reloadQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reloadExecutor.execute(() -> {
+                try {
+                    synchronized (loadLock) {
+                        if (clock.millis() - lastAttemptAt >= minReloadMillis) {
+                            load();
+                        }
+                    }
+                } finally {
+                    reloadQueued.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reloadQueued.set(false);
+        }
+    }
+
+    /**
+     * Reloads unless another thread already did since {@code seen} was read, or the last
+     * attempt was too recent.
+     */
+    private Snapshot reload(Snapshot seen) {
+        synchronized (loadLock) {
+            if (snapshot != seen || clock.millis() - lastAttemptAt < minReloadMillis) {
+                return snapshot;
+            }
+            load();
+            return snapshot;
+        }
+    }
+
+    private void load() {
+        lastAttemptAt = clock.millis();
+        try {
+            List<Instructor> instructors = authClient.getInstructors();
+            snapshot = new Snapshot(instructors == null ? List.of() : instructors, clock.millis());
+            loads.increment();
+            log.info("Loaded {} instructor(s) into the directory", snapshot.byId.size());
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            log.warn("Could not load instructors from auth-service{}: {}",
+                    snapshot == null ? "" : ", keeping the previous directory", e.getMessage());
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<String, Instructor> byId = new HashMap<>();
+        private final Map<String, Instructor> byEmail = new HashMap<>();
+        private final Map<String, Instructor> byFullName = new HashMap<>();
+        private final long loadedAt;
+
+        Snapshot(List<Instructor> instructors, long loadedAt) {
+            this.loadedAt = loadedAt;
+            for (Instructor instructor : instructors) {
+                if (instructor.getId() != null) {
+                    byId.put(instructor.getId(), instructor);
+                }
+                if (instructor.getEmail() != null) {
+                    byEmail.putIfAbsent(instructor.getEmail(), instructor);
+                }
+                if (instructor.getFirstName() != null && instructor.getLastName() != null) {
+                    byFullName.putIfAbsent(instructor.getFirstName() + " " + instructor.getLastName(), instructor);
+                }
+            }
+        }
+
+        Instructor lookup(String key) {
+            Instructor instructor = byId.get(key);
+            if (instructor == null) {
+                instructor = byEmail.get(key);
+            }
+            if (instructor == null) {
+                instructor = byFullName.get(key);
+            }
+            return instructor;
+        }
+    }
+}
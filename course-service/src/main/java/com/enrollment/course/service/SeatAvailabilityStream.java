@@ -0,0 +1,283 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.CatalogChanges;
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.SeatAvailability;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes seat availability changes to server-sent event subscribers.
+ *
+ * Changes are picked up from the catalog changes feed, so seat changes made through any endpoint
+ * and on any replica reach every subscriber, and changes that do not touch seat counts are
+ * dropped. Each poll is sent as one "seats" event holding the latest state of every course
+ * that changed, serialized once for all subscribers that are keeping up.
+ *
+ * Writers never wait for subscribers. Every subscriber has its own backlog, drained by a small
+ * sender pool one event at a time; a slow subscriber's backlog keeps only the latest state per
+ * course, so it costs at most one entry per course and catches up with a single event. A send
+ * that blocks for longer than the send timeout (a client that stopped reading) is given up: the
+ * subscriber is dropped and its sender thread interrupted, so a few stalled clients cannot tie up
+ * the sender pool for everyone else.
+ */
+@Component
+@Slf4j
+public class SeatAvailabilityStream {
+
+    static final int CHANGES_PER_POLL = 1000;
+
+    private final CourseService courseService;
+    private final ObjectMapper objectMapper;
+    private final Executor senders;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private final long sendTimeoutMillis;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Last known seat availability per course, the starting state for new subscribers
+    private final Map<String, SeatAvailability> seats = new ConcurrentHashMap<>();
+    private volatile long version;
+    private volatile boolean loaded;
+    private volatile Frame lastFrame;
+    private long lastSentAt = System.currentTimeMillis();
+
+    private final Counter events;
+    private final Counter dropped;
+
+    @Autowired
+    public SeatAvailabilityStream(CourseService courseService,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${course.seat-stream.sender-threads:8}") int senderThreads,
+                                  @Value("${course.seat-stream.timeout:30m}") Duration timeout,
+                                  @Value("${course.seat-stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+                                  @Value("${course.seat-stream.send-timeout:5s}") Duration sendTimeout) {
+        this(courseService, objectMapper, meterRegistry, Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "seat-stream-sender");
+            thread.setDaemon(true);
+            return thread;
+        }), timeout, heartbeatInterval, sendTimeout);
+    }
+
+    SeatAvailabilityStream(CourseService courseService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           Executor senders, Duration timeout, Duration heartbeatInterval, Duration sendTimeout) {
+        this.courseService = courseService;
+        this.objectMapper = objectMapper;
+        this.senders = senders;
+        this.timeoutMillis = timeout.toMillis();
+        this.heartbeatMillis = heartbeatInterval.toMillis();
+        this.sendTimeoutMillis = sendTimeout.toMillis();
+
+        Gauge.builder("course.seat_stream.subscribers", subscribers, List::size).register(meterRegistry);
+        this.events = Counter.builder("course.seat_stream.events").register(meterRegistry);
+        this.dropped = Counter.builder("course.seat_stream.dropped_subscribers").register(meterRegistry);
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        if (loaded) {
+            // Until the first poll after startup, the subscriber gets the full state from that poll
+            subscriber.enqueue(seats.values());
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedDelayString = "${course.seat-stream.poll-interval:PT0.25S}")
+    public void poll() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long stalledSince = System.currentTimeMillis() - sendTimeoutMillis;
+        subscribers.forEach(subscriber -> subscriber.dropIfStalled(stalledSince));
+        try {
+            Map<String, SeatAvailability> changed = new LinkedHashMap<>();
+            CatalogChanges changes;
+            do {
+                changes = courseService.getCatalogChanges(version, CHANGES_PER_POLL);
+                for (Course course : changes.getCourses()) {
+                    SeatAvailability current = SeatAvailability.of(course);
+                    if (!current.equals(seats.put(course.getId(), current))) {
+                        changed.put(course.getId(), current);
+                    }
+                }
+                for (String courseId : changes.getDeleted()) {
+                    if (seats.remove(courseId) != null) {
+                        changed.put(courseId, SeatAvailability.deleted(courseId));
+                    }
+                }
+                version = changes.getVersion();
+            } while (changes.isHasMore());
+            loaded = true;
+
+            long now = System.currentTimeMillis();
+            if (!changed.isEmpty()) {
+                List<SeatAvailability> deltas = new ArrayList<>(changed.values());
+                lastFrame = new Frame(deltas, serialize(deltas));
+                subscribers.forEach(subscriber -> subscriber.enqueue(deltas));
+                lastSentAt = now;
+            } else if (now - lastSentAt >= heartbeatMillis) {
+                // Lets idle connections notice a client that went away
+                subscribers.forEach(Subscriber::heartbeat);
+                lastSentAt = now;
+            }
+        } catch (Exception e) {
+            log.error("Seat stream poll failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        if (senders instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private String serialize(List<SeatAvailability> deltas) throws JsonProcessingException {
+        Frame frame = lastFrame;
+        if (frame != null && frame.deltas().equals(deltas)) {
+            return frame.json();
+        }
+        return objectMapper.writeValueAsString(deltas);
+    }
+
+    private record Frame(List<SeatAvailability> deltas, String json) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Map<String, SeatAvailability> backlog = new LinkedHashMap<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean heartbeatDue;
+        // The thread inside emitter.send and since when, guarded by the subscriber itself
+        private Thread sendingThread;
+        private long sendStartedAt;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enqueue(Collection<SeatAvailability> deltas) {
+            synchronized (backlog) {
+                deltas.forEach(delta -> backlog.put(delta.getCourseId(), delta));
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            synchronized (backlog) {
+                heartbeatDue = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    List<SeatAvailability> batch;
+                    boolean heartbeatOnly;
+                    synchronized (backlog) {
+                        if (backlog.isEmpty() && !heartbeatDue) {
+                            sending.set(false);
+                            return;
+                        }
+                        batch = new ArrayList<>(backlog.values());
+                        backlog.clear();
+                        heartbeatOnly = batch.isEmpty();
+                        heartbeatDue = false;
+                    }
+                    startSend();
+                    try {
+                        if (heartbeatOnly) {
+                            emitter.send(SseEmitter.event().comment("heartbeat"));
+                        } else {
+                            emitter.send(SseEmitter.event().name("seats").data(serialize(batch), MediaType.APPLICATION_JSON));
+                            events.increment();
+                        }
+                    } finally {
+                        endSend();
+                    }
+                }
+            } catch (Exception e) {
+                // Client went away or the connection broke; it reconnects and starts from the full state
+                close(e);
+            }
+        }
+
+        private synchronized void startSend() {
+            sendingThread = Thread.currentThread();
+            sendStartedAt = System.currentTimeMillis();
+        }
+
+        private synchronized void endSend() {
+            sendingThread = null;
+            if (closed.get()) {
+                // Do not carry the interrupt from dropIfStalled over to the next subscriber on this thread
+                Thread.interrupted();
+            }
+        }
+
+        /**
+         * Drops the subscriber if a send has been blocked since before {@code stalledSince}.
+         */
+        synchronized void dropIfStalled(long stalledSince) {
+            if (sendingThread == null || sendStartedAt >= stalledSince) {
+                return;
+            }
+            close(new IllegalStateException("Subscriber did not accept an event within " + sendTimeoutMillis + " ms"));
+            sendingThread.interrupt();
+        }
+
+        private void close(Exception e) {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                dropped.increment();
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.config.RequestDeadline;
+import com.enrollment.course.model.AppliedSeatOperation;
+import com.enrollment.course.model.Course;
+import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseRepositoryCustom.SeatCount;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * In-memory seat counts for the seat ledger mode ({@code course.seat-ledger.enabled}).
+ *
+ * Courses are spread over partitions by id. Each partition keeps capacities and enrolled counts
+ * in primitive arrays indexed by a dense per-partition slot, and is only ever changed by its own
+ * writer thread, so seat changes need neither locks nor database round trips. Every change is
+ * appended to the {@link SeatLedgerWal write-ahead log} and confirmed to the caller once the log
+ * entry is on disk. The changed counts are written back to MongoDB every snapshot interval, after
+ * which the log segments they cover are deleted; on startup the ledger is loaded from MongoDB and
+ * the remaining log is replayed on top.
+ *
+ * A change is applied in memory before its log entry is written, so later changes can build on
+ * it. A change the caller is told failed never stays applied: if its log write fails it is taken
+ * back, and if the caller stops waiting for it (op timeout or request deadline) it is taken back
+ * once it is logged. Taking a change back logs the corrected count. If the log cannot be written
+ * at all, the ledger refuses changes until the next checkpoint has saved its state to MongoDB
+ * and started the log over.
+ *
+ * The ledger owns the seat counts of every course, so only one course-service instance may run
+ * with it enabled. Seat counts read from MongoDB (catalog, changes feed) lag by up to the
+ * snapshot interval.
+ */
+@Component
+@ConditionalOnProperty(name = "course.seat-ledger.enabled", havingValue = "true")
+@Slf4j
+public class SeatLedger {
+
+    // Operation ids are remembered as long as the MongoDB path keeps them
+    static final long APPLIED_OPERATIONS_RETENTION_MILLIS = AppliedSeatOperation.RETENTION_PERIOD.toMillis();
+
+    public enum Status { APPLIED, DUPLICATE, NO_SEATS, NOT_FOUND }
+
+    /**
+     * Result of a seat change: the number of seats actually taken or given back, and the course
+     * with its seat counts after the change (null if the course is not in the ledger).
+     */
+    public record Outcome(Status status, int seats, Course course) {
+    }
+
+    private final CourseRepository courseRepository;
+    private final SeatLedgerWal wal;
+    private final Partition[] partitions;
+    private final long opTimeoutMillis;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final Timer checkpointTimer;
+
+    public SeatLedger(CourseRepository courseRepository,
+                      MeterRegistry meterRegistry,
+                      @Value("${course.seat-ledger.directory:./data/seat-ledger}") String directory,
+                      @Value("${course.seat-ledger.partitions:4}") int partitions,
+                      @Value("${course.seat-ledger.max-batch:512}") int maxBatch,
+                      @Value("${course.seat-ledger.op-timeout:5s}") Duration opTimeout) throws IOException {
+        this(courseRepository, meterRegistry, new SeatLedgerWal(Path.of(directory), maxBatch), partitions, opTimeout);
+    }
+
+    SeatLedger(CourseRepository courseRepository, MeterRegistry meterRegistry, SeatLedgerWal wal,
+               int partitions, Duration opTimeout) throws IOException {
+        this.courseRepository = courseRepository;
+        this.opTimeoutMillis = opTimeout.toMillis();
+        this.wal = wal;
+        this.partitions = new Partition[Math.max(1, partitions)];
+        for (int i = 0; i < this.partitions.length; i++) {
+            this.partitions[i] = new Partition(i);
+        }
+
+        DistributionSummary batchSize = DistributionSummary.builder("course.seat_ledger.wal.batch")
+            .description("Seat changes written per log fsync")
+            .register(meterRegistry);
+        wal.onBatchWritten(batchSize::record);
+        this.checkpointTimer = Timer.builder("course.seat_ledger.checkpoint").register(meterRegistry);
+
+        recover();
+    }
+
+    /**
+     * Takes up to {@code count} seats, as many as are left, closing the course when it becomes full.
+     * With an operation id the change is applied at most once per operation id.
+     */
+    public Outcome reserve(String courseId, String operationId, int count) {
+        return change(courseId, operationId, 1, partition -> partition.reserve(courseId, operationId, count));
+    }
+
+    /**
+     * Gives back up to {@code count} seats without going below zero, reopening the course when seats free up.
+     * With an operation id the change is applied at most once per operation id.
+     */
+    public Outcome release(String courseId, String operationId, int count) {
+        return change(courseId, operationId, -1, partition -> partition.release(courseId, operationId, count));
+    }
+
+    /**
+     * Adds a course to the ledger, or takes over the capacity and details of a course it already
+     * holds. The ledger keeps its own enrolled count for a course it already holds.
+     */
+    public void track(Course course) {
+        Partition partition = partitionOf(course.getId());
+        await(CompletableFuture.runAsync(() -> partition.track(course), partition.writer));
+    }
+
+    public void untrack(String courseId) {
+        Partition partition = partitionOf(courseId);
+        await(CompletableFuture.runAsync(() -> partition.untrack(courseId), partition.writer));
+    }
+
+    /**
+     * The course with its current seat counts, or empty if the ledger does not hold it.
+     */
+    public Optional<Course> current(String courseId) {
+        Partition partition = partitionOf(courseId);
+        return await(CompletableFuture.supplyAsync(() -> partition.current(courseId), partition.writer));
+    }
+
+    /**
+     * Writes the seat counts changed since the last checkpoint to MongoDB and deletes the log
+     * segments they cover. If the write fails the counts stay marked as changed and the segments
+     * are kept, so the next checkpoint (or a restart) picks them up again.
+     */
+    @Scheduled(fixedDelayString = "${course.seat-ledger.snapshot-interval:PT1S}")
+    public void checkpoint() {
+        checkpointLock.lock();
+        try {
+            checkpointTimer.record(() -> {
+                try {
+                    persist();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Seat ledger checkpoint failed: {}", e.getMessage());
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the counts back to MongoDB one last time. Changes that still come in afterwards are
+     * in the log and replayed on the next start.
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        checkpoint();
+        for (Partition partition : partitions) {
+            partition.writer.shutdown();
+        }
+        for (Partition partition : partitions) {
+            try {
+                partition.writer.awaitTermination(opTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        wal.close();
+    }
+
+    private void persist() throws IOException {
+        // A log that can no longer be written is not rotated; it is started over below instead
+        boolean logFailed = wal.isFailed();
+        // Every change in a sealed segment was applied in memory before it was written, so the
+        // dirty counts collected after the rotation include it
+        List<Path> sealed = logFailed ? List.of() : wal.rotate();
+        List<SeatCount> counts = new ArrayList<>();
+        for (Partition partition : partitions) {
+            counts.addAll(await(CompletableFuture.supplyAsync(partition::drainDirty, partition.writer)));
+        }
+
+        if (!counts.isEmpty()) {
+            long version = courseRepository.beginCatalogChange();
+            try {
+                courseRepository.saveSeatCounts(counts, version);
+            } catch (RuntimeException e) {
+                for (SeatCount count : counts) {
+                    Partition partition = partitionOf(count.courseId());
+                    partition.writer.execute(() -> partition.restoreDirty(count));
+                }
+                throw e;
+            } finally {
+                courseRepository.endCatalogChange(version);
+            }
+        }
+        wal.delete(sealed);
+        if (logFailed) {
+            // Everything the ledger holds is in MongoDB now, so none of the old log is needed
+            wal.restart();
+            log.info("Seat ledger log started over, the seat ledger accepts changes again");
+        }
+    }
+
+    private void recover() throws IOException {
+        for (Course course : courseRepository.findAll()) {
+            partitionOf(course.getId()).track(course);
+        }
+        Date since = new Date(System.currentTimeMillis() - APPLIED_OPERATIONS_RETENTION_MILLIS);
+        for (AppliedSeatOperation operation : courseRepository.findAppliedSeatOperations(since)) {
+            partitionOf(operation.getCourseId()).restoreApplied(operation);
+        }
+        int[] replayed = new int[1];
+        wal.replay(entry -> {
+            if (partitionOf(entry.courseId()).replay(entry)) {
+                replayed[0]++;
+            }
+        });
+        wal.open();
+        if (replayed[0] > 0) {
+            log.info("Seat ledger replayed {} logged seat change(s) not yet written to MongoDB", replayed[0]);
+        }
+    }
+
+    /**
+     * Runs the change on the course's partition and waits for it to be logged. {@code direction}
+     * is 1 for a change that takes seats and -1 for one that gives them back.
+     */
+    private Outcome change(String courseId, String operationId, int direction,
+                           Function<Partition, CompletableFuture<Outcome>> change) {
+        if (wal.isFailed()) {
+            throw new IllegalStateException("Seat ledger is unavailable after a log write failure");
+        }
+        Partition partition = partitionOf(courseId);
+        CompletableFuture<Outcome> pending = CompletableFuture.supplyAsync(() -> change.apply(partition), partition.writer)
+            .thenCompose(Function.identity());
+        try {
+            return await(pending);
+        } catch (RuntimeException e) {
+            // The caller is told the change failed, so it must not stay applied once it is logged
+            pending.thenAcceptAsync(outcome -> {
+                if (outcome.status() == Status.APPLIED) {
+                    partition.undo(courseId, operationId, direction * outcome.seats());
+                }
+            }, partition.writer);
+            throw e;
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        // Never wait longer than the caller is still willing to
+        long waitMillis = Math.min(opTimeoutMillis, RequestDeadline.remainingMillis());
+        try {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Seat ledger did not confirm the change in time");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Seat ledger change failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the seat ledger");
+        }
+    }
+
+    private Partition partitionOf(String courseId) {
+        return partitions[Math.floorMod(courseId.hashCode(), partitions.length)];
+    }
+
+    /**
+     * The seat state of one partition's courses. Only the partition's writer thread touches it
+     * (and the constructor, before the writer starts).
+     */
+    private class Partition {
+
+        private final ExecutorService writer;
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private int size;
+
+        private String[] ids = new String[16];
+        private int[] capacity = new int[16];
+        private int[] enrolled = new int[16];
+        private String[] status = new String[16];
+        private boolean[] dirty = new boolean[16];
+        private Course[] details = new Course[16];
+        // Operation ids applied within the retention period with when they were applied, oldest first
+        private final List<LinkedHashMap<String, Long>> applied = new ArrayList<>();
+        // Operation ids applied since the course's state was last written to MongoDB
+        private final List<List<String>> unsaved = new ArrayList<>();
+
+        Partition(int index) {
+            this.writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "seat-ledger-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        CompletableFuture<Outcome> reserve(String courseId, String operationId, int count) {
+            Integer slot = slots.get(courseId);
+            if (slot == null) {
+                return done(Status.NOT_FOUND, null);
+            }
+            if (operationId != null && applied.get(slot).containsKey(operationId)) {
+                return done(Status.DUPLICATE, course(slot));
+            }
+            int free = capacity[slot] - enrolled[slot];
+            if (free <= 0) {
+                return done(Status.NO_SEATS, course(slot));
+            }
+            int seats = Math.min(count, free);
+            enrolled[slot] += seats;
+            if (enrolled[slot] >= capacity[slot]) {
+                status[slot] = "closed";
+            }
+            return append(slot, operationId, seats);
+        }
+
+        CompletableFuture<Outcome> release(String courseId, String operationId, int count) {
+            Integer slot = slots.get(courseId);
+            if (slot == null) {
+                return done(Status.NOT_FOUND, null);
+            }
+            if (operationId != null && applied.get(slot).containsKey(operationId)) {
+                return done(Status.DUPLICATE, course(slot));
+            }
+            if (enrolled[slot] <= 0) {
+                return done(Status.NO_SEATS, course(slot));
+            }
+            int seats = Math.min(count, enrolled[slot]);
+            enrolled[slot] -= seats;
+            if (enrolled[slot] < capacity[slot]) {
+                status[slot] = "open";
+            }
+            return append(slot, operationId, -seats);
+        }
+
+        void track(Course course) {
+            Integer slot = slots.get(course.getId());
+            if (slot == null) {
+                slot = allocate(course.getId());
+                enrolled[slot] = course.getEnrolled() == null ? 0 : course.getEnrolled();
+                applied.set(slot, new LinkedHashMap<>());
+                unsaved.set(slot, new ArrayList<>());
+            } else {
+                // The course document was replaced; write the ledger's counts back over it
+                dirty[slot] = true;
+            }
+            capacity[slot] = course.getCapacity() == null ? 0 : course.getCapacity();
+            status[slot] = course.getStatus();
+            details[slot] = course;
+        }
+
+        void untrack(String courseId) {
+            Integer slot = slots.remove(courseId);
+            if (slot != null) {
+                ids[slot] = null;
+                details[slot] = null;
+                status[slot] = null;
+                dirty[slot] = false;
+                applied.set(slot, null);
+                unsaved.set(slot, null);
+                freeSlots.push(slot);
+            }
+        }
+
+        Optional<Course> current(String courseId) {
+            Integer slot = slots.get(courseId);
+            return slot == null ? Optional.empty() : Optional.of(course(slot));
+        }
+
+        /**
+         * Applies a log entry on top of the state loaded from MongoDB. Entries hold the counts
+         * after the change, so applying an entry MongoDB already reflects changes nothing.
+         */
+        boolean replay(SeatLedgerWal.Entry entry) {
+            Integer slot = slots.get(entry.courseId());
+            if (slot == null) {
+                // Deleted since
+                return false;
+            }
+            enrolled[slot] = entry.enrolled();
+            status[slot] = entry.status();
+            if (entry.operationId() != null && !applied.get(slot).containsKey(entry.operationId())) {
+                remember(slot, entry.operationId());
+            }
+            dirty[slot] = true;
+            return true;
+        }
+
+        List<SeatCount> drainDirty() {
+            List<SeatCount> counts = new ArrayList<>();
+            for (int slot = 0; slot < size; slot++) {
+                if (dirty[slot]) {
+                    dirty[slot] = false;
+                    counts.add(new SeatCount(ids[slot], enrolled[slot], status[slot], List.copyOf(unsaved.get(slot))));
+                    unsaved.get(slot).clear();
+                }
+            }
+            return counts;
+        }
+
+        /**
+         * Marks a course whose state could not be written as changed again, with the operation
+         * ids that were to be recorded with it.
+         */
+        void restoreDirty(SeatCount count) {
+            Integer slot = slots.get(count.courseId());
+            if (slot != null) {
+                dirty[slot] = true;
+                unsaved.get(slot).addAll(0, count.appliedSeatOperations());
+            }
+        }
+
+        /**
+         * Remembers an operation recorded in MongoDB before the ledger started.
+         */
+        void restoreApplied(AppliedSeatOperation operation) {
+            Integer slot = slots.get(operation.getCourseId());
+            if (slot != null) {
+                applied.get(slot).put(operation.getId(), operation.getAppliedAt().getTime());
+            }
+        }
+
+        /**
+         * Logs a change already applied in memory; {@code delta} is the number of seats taken
+         * (negative if given back). If the log write fails the change is taken back.
+         */
+        private CompletableFuture<Outcome> append(int slot, String operationId, int delta) {
+            String courseId = ids[slot];
+            if (operationId != null) {
+                remember(slot, operationId);
+            }
+            dirty[slot] = true;
+            Outcome outcome = new Outcome(Status.APPLIED, Math.abs(delta), course(slot));
+            return wal.append(courseId, operationId, enrolled[slot], status[slot])
+                .exceptionallyComposeAsync(error -> {
+                    undo(courseId, operationId, delta);
+                    return CompletableFuture.failedFuture(error);
+                }, writer)
+                .thenApply(written -> outcome);
+        }
+
+        /**
+         * Takes back a change of {@code delta} seats and forgets its operation id, so a retry
+         * applies it again. The corrected count is logged; if that fails too, the checkpoint
+         * still writes it to MongoDB.
+         */
+        void undo(String courseId, String operationId, int delta) {
+            Integer slot = slots.get(courseId);
+            if (slot == null) {
+                return;
+            }
+            enrolled[slot] = Math.max(0, enrolled[slot] - delta);
+            if (delta > 0 && enrolled[slot] < capacity[slot]) {
+                status[slot] = "open";
+            } else if (delta < 0 && enrolled[slot] >= capacity[slot]) {
+                status[slot] = "closed";
+            }
+            if (operationId != null) {
+                applied.get(slot).remove(operationId);
+                unsaved.get(slot).remove(operationId);
+            }
+            dirty[slot] = true;
+            wal.append(courseId, null, enrolled[slot], status[slot]);
+        }
+
+        private CompletableFuture<Outcome> done(Status result, Course course) {
+            return CompletableFuture.completedFuture(new Outcome(result, 0, course));
+        }
+
+        private void remember(int slot, String operationId) {
+            long now = System.currentTimeMillis();
+            LinkedHashMap<String, Long> operations = applied.get(slot);
+            operations.put(operationId, now);
+            unsaved.get(slot).add(operationId);
+            // Forget operations that are past retention, as MongoDB does
+            Iterator<Long> oldest = operations.values().iterator();
+            while (oldest.hasNext() && oldest.next() < now - APPLIED_OPERATIONS_RETENTION_MILLIS) {
+                oldest.remove();
+            }
+        }
+
+        private int allocate(String courseId) {
+            Integer free = freeSlots.poll();
+            int slot = free != null ? free : size++;
+            if (slot == ids.length) {
+                int length = ids.length * 2;
+                ids = Arrays.copyOf(ids, length);
+                capacity = Arrays.copyOf(capacity, length);
+                enrolled = Arrays.copyOf(enrolled, length);
+                status = Arrays.copyOf(status, length);
+                dirty = Arrays.copyOf(dirty, length);
+                details = Arrays.copyOf(details, length);
+            }
+            if (free == null) {
+                applied.add(null);
+                unsaved.add(null);
+            }
+            ids[slot] = courseId;
+            slots.put(courseId, slot);
+            return slot;
+        }
+
+        /**
+         * A copy of the course's details with its current seat counts.
+         */
+        private Course course(int slot) {
+            Course source = details[slot];
+            Course course = new Course();
+            course.setId(ids[slot]);
+            course.setCode(source.getCode());
+            course.setTitle(source.getTitle());
+            course.setDescription(source.getDescription());
+            course.setCredits(source.getCredits());
+            course.setSchedule(source.getSchedule());
+            course.setInstructorId(source.getInstructorId());
+            course.setInstructor(source.getInstructor());
+            course.setCatalogVersion(source.getCatalogVersion());
+            course.setCapacity(capacity[slot]);
+            course.setEnrolled(enrolled[slot]);
+            course.setStatus(status[slot]);
+            return course;
+        }
+    }
+}
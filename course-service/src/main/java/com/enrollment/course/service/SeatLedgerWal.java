@@ -0,0 +1,334 @@
+package com.enrollment.course.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of seat ledger changes, written with group commit.
+ *
+ * Appends are queued and a single flusher thread writes everything queued so far with one
+ * write and one fsync, then completes the appends' futures, so under load many changes share
+ * one fsync. Each entry holds the course's seat count after the change (not the delta), which
+ * makes replay idempotent. Entries are framed as {@code [length][crc32][payload]}; a torn entry
+ * at the end of the newest segment (a crash mid-write) is cut off during replay.
+ *
+ * The log is split into segments. {@link #rotate()} seals the current segment so that, once
+ * the ledger state is persisted to MongoDB, the sealed segments can be deleted.
+ *
+ * A failed write fails the appends of its batch and cuts off whatever part of the batch reached
+ * the file, so the log keeps going. Only if that cut fails too does the log stop taking entries,
+ * until {@link #restart()}.
+ */
+@Slf4j
+class SeatLedgerWal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_ENTRY_BYTES = 64 * 1024;
+
+    record Entry(long sequence, String courseId, String operationId, int enrolled, String status) {
+    }
+
+    private record Pending(ByteBuffer bytes, CompletableFuture<Void> written) {
+    }
+
+    private final Path directory;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong nextSequence = new AtomicLong(1);
+
+    private FileChannel segment;
+    private Path segmentPath;
+    private long segmentBytes;
+    private Thread flusher;
+    private volatile boolean closed;
+    private volatile boolean failed;
+    private Consumer<Integer> batchListener = batchSize -> { };
+
+    SeatLedgerWal(Path directory, int maxBatch) throws IOException {
+        this.directory = directory;
+        this.maxBatch = maxBatch;
+        Files.createDirectories(directory);
+    }
+
+    void onBatchWritten(Consumer<Integer> listener) {
+        this.batchListener = listener;
+    }
+
+    /**
+     * Feeds every entry of the existing segments, oldest first, to {@code consumer}.
+     * Must be called before {@link #open()}.
+     */
+    void replay(Consumer<Entry> consumer) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long size = channel.size();
+                while (position < size) {
+                    Entry entry = readEntry(channel, position, size);
+                    if (entry == null) {
+                        if (i < segments.size() - 1) {
+                            throw new IllegalStateException("Seat ledger log segment " + path + " is corrupt at byte " + position);
+                        }
+                        log.warn("Cutting off a torn seat ledger log entry at byte {} of {}", position, path);
+                        channel.truncate(position);
+                        channel.force(true);
+                        break;
+                    }
+                    consumer.accept(entry);
+                    nextSequence.set(Math.max(nextSequence.get(), entry.sequence() + 1));
+                    position = channel.position();
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment and the flusher thread.
+     */
+    synchronized void open() throws IOException {
+        startSegment();
+        flusher = new Thread(this::flushLoop, "seat-ledger-wal");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queues an entry. The future completes once the entry is on disk, or fails if the log can no longer be written.
+     */
+    CompletableFuture<Void> append(String courseId, String operationId, int enrolled, String status) {
+        if (failed || closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Seat ledger log is not writable"));
+        }
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        queue.add(new Pending(encode(new Entry(nextSequence.getAndIncrement(), courseId, operationId, enrolled, status)), written));
+        return written;
+    }
+
+    /**
+     * Seals the current segment, unless nothing was written to it yet, and continues in a new one.
+     * Returns every sealed segment, including those left over from before a restart.
+     */
+    synchronized List<Path> rotate() throws IOException {
+        if (segmentBytes > 0) {
+            startSegment();
+        }
+        return segments().stream().filter(path -> !path.equals(segmentPath)).toList();
+    }
+
+    void delete(List<Path> sealed) throws IOException {
+        for (Path path : sealed) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Writes what is still queued and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (flusher != null) {
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (segment != null) {
+                segment.close();
+            }
+        }
+    }
+
+    private void flushLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                write(batch);
+                batch.forEach(pending -> pending.written().complete(null));
+                batchListener.accept(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                // The ledger takes back the changes of failed appends
+                batch.forEach(pending -> pending.written().completeExceptionally(e));
+                if (failed) {
+                    log.error("Seat ledger log write failed, the seat ledger stops accepting changes: {}", e.getMessage());
+                    List<Pending> rest = new ArrayList<>();
+                    queue.drainTo(rest);
+                    rest.forEach(pending -> pending.written().completeExceptionally(e));
+                } else {
+                    log.error("Seat ledger log write failed, {} change(s) taken back: {}", batch.size(), e.getMessage());
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private synchronized void write(List<Pending> batch) throws IOException {
+        ByteBuffer[] buffers = batch.stream().map(Pending::bytes).toArray(ByteBuffer[]::new);
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+        }
+        try {
+            long remaining = total;
+            while (remaining > 0) {
+                remaining -= segment.write(buffers);
+            }
+            segment.force(false);
+            segmentBytes += total;
+        } catch (IOException | RuntimeException e) {
+            // Entries of the failed batch must not turn up on replay
+            try {
+                segment.truncate(segmentBytes);
+                segment.force(false);
+            } catch (IOException | RuntimeException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+                failed = true;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops every segment and starts over with an empty one, clearing a failure. Only safe once
+     * everything the log holds has been written to MongoDB.
+     */
+    synchronized void restart() throws IOException {
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.warn("Could not close the seat ledger log segment {}: {}", segmentPath, e.getMessage());
+            }
+            segment = null;
+        }
+        for (Path path : segments()) {
+            Files.deleteIfExists(path);
+        }
+        startSegment();
+        failed = false;
+    }
+
+    private void startSegment() throws IOException {
+        if (segment != null) {
+            segment.force(true);
+            segment.close();
+        }
+        segmentPath = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence.get(), SEGMENT_SUFFIX));
+        segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentBytes = segment.size();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    static ByteBuffer encode(Entry entry) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeLong(entry.sequence());
+            out.writeUTF(entry.courseId());
+            out.writeUTF(entry.operationId() == null ? "" : entry.operationId());
+            out.writeInt(entry.enrolled());
+            out.writeUTF(entry.status() == null ? "" : entry.status());
+            byte[] bytes = payload.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bytes.length);
+            buffer.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).flip();
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the entry at {@code position} and leaves the channel positioned after it,
+     * or returns null if the entry is incomplete or fails its checksum.
+     */
+    private static Entry readEntry(FileChannel channel, long position, long size) throws IOException {
+        if (size - position < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = readFully(channel, position, HEADER_BYTES);
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length <= 0 || length > MAX_ENTRY_BYTES || position + HEADER_BYTES + length > size) {
+            return null;
+        }
+        byte[] bytes = readFully(channel, position + HEADER_BYTES, length).array();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        channel.position(position + HEADER_BYTES + length);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long sequence = in.readLong();
+        String courseId = in.readUTF();
+        String operationId = in.readUTF();
+        int enrolled = in.readInt();
+        String status = in.readUTF();
+        return new Entry(sequence, courseId, operationId.isEmpty() ? null : operationId, enrolled, status.isEmpty() ? null : status);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of seat ledger log");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -3,6 +3,7 @@ package com.enrollment.course.controller;
 import com.enrollment.course.model.Course;
 import com.enrollment.course.service.CourseService;
 import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseTombstoneRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +13,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.TestPropertySource;
@@ -36,6 +38,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @Import(TestMongoConfig.class)
 @TestPropertySource(properties = {
     "jwt.secret=testsecret123456789012345678901234567890",
+    "course.indexes.create-on-startup=false",
+    "course.catalog-cache.l2.enabled=false",
     "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration,org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration"
 })
 class CourseControllerIntegrationTest {
@@ -52,6 +56,12 @@ class CourseControllerIntegrationTest {
     @MockBean
     private CourseRepository courseRepository;
 
+    @MockBean
+    private CourseTombstoneRepository courseTombstoneRepository;
+
+    @MockBean
+    private MongoTemplate mongoTemplate;
+
     private Course validCourse;
 
     @BeforeEach
@@ -232,4 +242,45 @@ class CourseControllerIntegrationTest {
 
         verify(courseService).decrementEnrollment("course123");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should not let students apply seat operations directly")
+    @WithMockUser(roles = "STUDENT")
+    void shouldRestrictSeatOperationsToServices() throws Exception {
+        mockMvc.perform(post("/api/courses/seats/apply")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"operationId\":\"op1\",\"courseId\":\"course123\",\"delta\":-1}]"))
+                .andExpect(status().isForbidden());
+
+        verify(courseService, never()).applySeatOperations(anyList());
+    }
+
+    @Test
+    @DisplayName("Should let services apply seat operations")
+    @WithMockUser(roles = "SERVICE")
+    void shouldAllowServicesToApplySeatOperations() throws Exception {
+        when(courseService.applySeatOperations(anyList())).thenReturn(List.of());
+
+        mockMvc.perform(post("/api/courses/seats/apply")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should not let students reserve or release seats in bulk")
+    @WithMockUser(roles = "STUDENT")
+    void shouldRestrictBulkSeatChangesToServices() throws Exception {
+        mockMvc.perform(post("/api/courses/seats/reserve")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"course123\":30}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/courses/seats/release")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"course123\":30}"))
+                .andExpect(status().isForbidden());
+
+        verify(courseService, never()).reserveSeats(anyMap());
+        verify(courseService, never()).releaseSeats(anyMap());
+    }
+}
@@ -1,7 +1,16 @@
 package com.enrollment.course.controller;
 
+import com.enrollment.course.model.CatalogChanges;
 import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CourseImportReport;
+import com.enrollment.course.model.CoursePage;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.model.CourseQuery;
+import com.enrollment.course.model.CourseSearchHit;
+import com.enrollment.course.service.CatalogResponseCache;
+import com.enrollment.course.service.CourseBulkTransfer;
 import com.enrollment.course.service.CourseService;
+import com.enrollment.course.service.SeatAvailabilityStream;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,11 +21,17 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.enrollment.course.config.TestSecurityConfig;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -40,6 +55,15 @@ class CourseControllerTest {
     @MockBean
     private CourseService courseService;
 
+    @MockBean
+    private CatalogResponseCache catalogResponseCache;
+
+    @MockBean
+    private SeatAvailabilityStream seatAvailabilityStream;
+
+    @MockBean
+    private CourseBulkTransfer courseBulkTransfer;
+
     private Course validCourse;
 
     @BeforeEach
@@ -54,6 +78,10 @@ class CourseControllerTest {
         validCourse.setEnrolled(0);
         validCourse.setStatus("open");
         validCourse.setInstructorId("instructor123");
+
+        // Serialize catalog views directly, as on a cache miss
+        when(catalogResponseCache.get(anyString(), anyLong(), any())).thenAnswer(invocation ->
+                objectMapper.writeValueAsBytes(invocation.<Supplier<?>>getArgument(2).get()));
     }
 
     @Test
@@ -88,6 +116,146 @@ class CourseControllerTest {
                 .andExpect(jsonPath("$.code").value("CS101"));
     }
 
+    @Test
+    @DisplayName("Should get courses in batch")
+    void shouldGetCoursesInBatch() throws Exception {
+        when(courseService.getCoursesByIds(List.of("course123", "course456"))).thenReturn(List.of(validCourse));
+
+        mockMvc.perform(post("/api/courses/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of("course123", "course456"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].code").value("CS101"));
+
+        verify(courseService).getCoursesByIds(List.of("course123", "course456"));
+    }
+
+    @Test
+    @DisplayName("Should reserve seats for several courses in one call")
+    void shouldReserveSeatsForSeveralCourses() throws Exception {
+        when(courseService.reserveSeats(Map.of("course123", 40))).thenReturn(Map.of("course123", 30));
+
+        mockMvc.perform(post("/api/courses/seats/reserve")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("course123", 40))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.course123").value(30));
+    }
+
+    @Test
+    @DisplayName("Should bind catalog filters and return the page")
+    void shouldGetCatalogPage() throws Exception {
+        when(courseService.getCatalogPage(any(CourseQuery.class))).thenReturn(new CoursePage(List.of(validCourse), "next"));
+
+        mockMvc.perform(get("/api/courses/catalog")
+                .param("status", "open")
+                .param("day", "Monday")
+                .param("codePrefix", "CS")
+                .param("sort", "title")
+                .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].code").value("CS101"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(courseService).getCatalogPage(argThat(query -> "open".equals(query.getStatus())
+                && "Monday".equals(query.getDay()) && "CS".equals(query.getCodePrefix())
+                && "title".equals(query.getSort()) && query.getLimit() == 10));
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an invalid catalog query")
+    void shouldReturn400ForInvalidCatalogQuery() throws Exception {
+        when(courseService.getCatalogPage(any(CourseQuery.class))).thenThrow(new IllegalArgumentException("Unsupported sort field: enrolled"));
+
+        mockMvc.perform(get("/api/courses/catalog").param("sort", "enrolled"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported sort field: enrolled"));
+    }
+
+    @Test
+    @DisplayName("Should search courses")
+    void shouldSearchCourses() throws Exception {
+        when(courseService.searchCourses("intro comp", 5))
+                .thenReturn(List.of(new CourseSearchHit("course123", "CS101", "Introduction to Computer Science", 3, 4.5)));
+
+        mockMvc.perform(get("/api/courses/search").param("q", "intro comp").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].code").value("CS101"))
+                .andExpect(jsonPath("$[0].score").value(4.5));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 when the catalog version has not changed")
+    void shouldReturn304WhenCatalogUnchanged() throws Exception {
+        when(courseService.getCatalogVersion()).thenReturn(42L);
+
+        mockMvc.perform(get("/api/courses").header("If-None-Match", "\"catalog-42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"catalog-42\""));
+
+        verify(courseService, never()).getAllCourses();
+    }
+
+    @Test
+    @DisplayName("Should open a seat availability event stream")
+    void shouldOpenSeatStream() throws Exception {
+        when(seatAvailabilityStream.subscribe()).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/courses/seats/stream"))
+                .andExpect(request().asyncStarted());
+
+        verify(seatAvailabilityStream).subscribe();
+    }
+
+    @Test
+    @DisplayName("Should import an NDJSON body and return the import report")
+    void shouldImportCourses() throws Exception {
+        CourseImportReport report = new CourseImportReport();
+        report.setReceived(2);
+        report.setInserted(2);
+        when(courseBulkTransfer.importCourses(any(), eq(CourseBulkTransfer.Format.NDJSON))).thenReturn(report);
+
+        mockMvc.perform(post("/api/courses/import")
+                .contentType("application/x-ndjson")
+                .content("{\"code\":\"CS101\"}\n{\"code\":\"CS102\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(2));
+    }
+
+    @Test
+    @DisplayName("Should stream the catalog export as CSV")
+    void shouldExportCourses() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class).write("code\r\nCS101\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(courseBulkTransfer).exportCourses(any(), eq(CourseBulkTransfer.Format.CSV));
+
+        MvcResult result = mockMvc.perform(get("/api/courses/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"courses.csv\""))
+                .andExpect(content().string("code\r\nCS101\r\n"));
+        mockMvc.perform(get("/api/courses/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should return changes since a catalog version")
+    void shouldReturnCatalogChanges() throws Exception {
+        when(courseService.getCatalogChanges(40L, null))
+                .thenReturn(new CatalogChanges(42L, List.of(validCourse), List.of("deleted1"), false));
+
+        mockMvc.perform(get("/api/courses/changes").param("since", "40"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(42))
+                .andExpect(jsonPath("$.courses[0].code").value("CS101"))
+                .andExpect(jsonPath("$.deleted[0]").value("deleted1"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
     @Test
     @DisplayName("Should return 404 when course not found")
     void shouldReturn404WhenCourseNotFound() throws Exception {
@@ -136,6 +304,27 @@ class CourseControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Should patch course and return 409 when capacity is below enrolled")
+    void shouldPatchCourse() throws Exception {
+        when(courseService.patchCourse(eq("course123"), any(CoursePatch.class))).thenReturn(validCourse);
+        when(courseService.patchCourse(eq("full123"), any(CoursePatch.class)))
+                .thenThrow(new IllegalStateException("Course capacity cannot be lower than the 30 students enrolled"));
+
+        mockMvc.perform(patch("/api/courses/course123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"description\":\"Updated\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value("CS101"));
+        mockMvc.perform(patch("/api/courses/full123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"capacity\":10}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Course capacity cannot be lower than the 30 students enrolled"));
+
+        verify(courseService).patchCourse(eq("course123"), argThat(patch -> "Updated".equals(patch.getDescription()) && patch.getCapacity() == null));
+    }
+
     @Test
     @DisplayName("Should delete course")
     void shouldDeleteCourse() throws Exception {
@@ -0,0 +1,248 @@
+package com.enrollment.course.controller;
+
+import com.enrollment.course.client.AuthClient;
+import com.enrollment.course.config.TestMongoConfig;
+import com.enrollment.course.model.AppliedSeatOperation;
+import com.enrollment.course.model.Course;
+import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseRepositoryCustom.SeatOperationStatus;
+import com.enrollment.course.service.CourseService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Stress tests for seat reservation against a real MongoDB.
+ * Fires hundreds of parallel enroll/unenroll calls at one course and verifies that
+ * no update is lost and the course is never overbooked.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+@Import(TestMongoConfig.class)
+@TestPropertySource(properties = {
+    "jwt.secret=QE5jUmZValhuMnI1dTh4L0E/RChHK0tiUGRTZ1ZrWXA=",
+    "eureka.client.enabled=false",
+    "spring.cloud.discovery.enabled=false"
+})
+class CourseSeatConcurrencyTest {
+
+    private static final int REQUESTS = 300;
+    private static final int THREADS = 64;
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.host", mongoDBContainer::getHost);
+        registry.add("spring.data.mongodb.port", () -> mongoDBContainer.getMappedPort(27017));
+        registry.add("spring.data.mongodb.database", () -> "course_service_concurrency_test");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @MockBean
+    private AuthClient authClient;
+
+    @AfterEach
+    void tearDown() {
+        courseRepository.deleteAll();
+        mongoTemplate.remove(new Query(), AppliedSeatOperation.class);
+    }
+
+    @Test
+    @DisplayName("Parallel enroll calls should never overbook a course")
+    void parallelEnrollCallsShouldNeverOverbook() throws Exception {
+        Course course = courseRepository.save(course("RUSH101", 100, 0));
+
+        int succeeded = runInParallel(REQUESTS, "/api/courses/" + course.getId() + "/enroll");
+
+        Course result = courseRepository.findById(course.getId()).orElseThrow();
+        assertEquals(100, succeeded);
+        assertEquals(100, result.getEnrolled());
+        assertEquals("closed", result.getStatus());
+    }
+
+    @Test
+    @DisplayName("Parallel enroll and drop calls should not lose updates")
+    void parallelEnrollAndDropCallsShouldNotLoseUpdates() throws Exception {
+        Course course = courseRepository.save(course("RUSH102", REQUESTS, 0));
+
+        int enrolled = runInParallel(REQUESTS, "/api/courses/" + course.getId() + "/enroll");
+        Course full = courseRepository.findById(course.getId()).orElseThrow();
+        assertEquals(REQUESTS, enrolled);
+        assertEquals(REQUESTS, full.getEnrolled());
+        assertEquals("closed", full.getStatus());
+
+        int dropped = runInParallel(REQUESTS + 50, "/api/courses/" + course.getId() + "/unenroll");
+        Course empty = courseRepository.findById(course.getId()).orElseThrow();
+        assertEquals(REQUESTS, dropped);
+        assertEquals(0, empty.getEnrolled());
+        assertEquals("open", empty.getStatus());
+    }
+
+    @Test
+    @DisplayName("Replacing a course should keep the seat operations it applied")
+    void replacingCourseShouldKeepAppliedSeatOperations() {
+        Course course = courseRepository.save(course("RUSH103", 10, 0));
+        courseRepository.applySeatOperation(course.getId(), "op1", 1);
+
+        Course replacement = course("RUSH103", 20, 1);
+        replacement.setTitle("Renamed");
+        courseService.updateCourse(course.getId(), replacement);
+
+        assertEquals(SeatOperationStatus.DUPLICATE, courseRepository.applySeatOperation(course.getId(), "op1", 1).status());
+        Course read = courseRepository.findCourseById(course.getId()).orElseThrow();
+        assertEquals("Renamed", read.getTitle());
+        assertEquals(20, read.getCapacity());
+        assertEquals(1, read.getEnrolled());
+        assertNull(read.getPendingSeatOperations());
+    }
+
+    @Test
+    @DisplayName("A seat operation applied but not confirmed should be confirmed by its retry, not applied again")
+    void retryShouldConfirmSeatOperationAppliedBeforeCrash() {
+        Course course = courseRepository.save(course("RUSH105", 10, 0));
+        // The first delivery claimed op1 and took the seat, then died before confirming it
+        mongoTemplate.insert(new AppliedSeatOperation("op1", course.getId(), false, new Date()));
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(course.getId())),
+                new Update().set("enrolled", 1).push("pendingSeatOperations", "op1"), Course.class);
+
+        assertEquals(SeatOperationStatus.DUPLICATE, courseRepository.applySeatOperation(course.getId(), "op1", 1).status());
+
+        Course read = mongoTemplate.findById(course.getId(), Course.class);
+        assertEquals(1, read.getEnrolled());
+        assertTrue(read.getPendingSeatOperations().isEmpty());
+        assertTrue(mongoTemplate.findById("op1", AppliedSeatOperation.class).isApplied());
+    }
+
+    @Test
+    @DisplayName("A claimed seat operation should only be taken over once its delivery has given up")
+    void staleClaimShouldBeTakenOver() {
+        Course course = courseRepository.save(course("RUSH106", 10, 0));
+        mongoTemplate.insert(new AppliedSeatOperation("op1", course.getId(), false, new Date()));
+        mongoTemplate.insert(new AppliedSeatOperation("op2", course.getId(), false, new Date(System.currentTimeMillis() - 120_000)));
+
+        assertEquals(SeatOperationStatus.IN_PROGRESS, courseRepository.applySeatOperation(course.getId(), "op1", 1).status());
+        assertEquals(SeatOperationStatus.APPLIED, courseRepository.applySeatOperation(course.getId(), "op2", 1).status());
+        assertEquals(1, courseRepository.findCourseById(course.getId()).orElseThrow().getEnrolled());
+    }
+
+    @Test
+    @DisplayName("Parallel deliveries of the same seat operations should take each seat once")
+    void parallelDeliveriesShouldApplyEachOperationOnce() throws Exception {
+        Course course = courseRepository.save(course("RUSH107", 100, 0));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> deliveries = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                String operationId = "op" + (i % 50);
+                deliveries.add(executor.submit(() -> courseRepository.applySeatOperation(course.getId(), operationId, 1)));
+            }
+            for (Future<?> delivery : deliveries) {
+                delivery.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(50, courseRepository.findCourseById(course.getId()).orElseThrow().getEnrolled());
+    }
+
+    @Test
+    @DisplayName("Seat changes should reach the catalog changes feed once they are stamped")
+    void seatChangesShouldReachChangesFeedOnceStamped() {
+        Course course = courseService.createCourse(course("RUSH104", 10, 0));
+        long before = courseService.getCatalogVersion();
+
+        courseService.incrementEnrollment(course.getId());
+        courseService.stampSeatChanges();
+
+        assertTrue(courseService.getCatalogVersion() > before);
+        List<Course> changed = courseService.getCatalogChanges(before, null).getCourses();
+        assertEquals(1, changed.size());
+        assertEquals(1, changed.get(0).getEnrolled());
+    }
+
+    private int runInParallel(int requests, String path) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int status = mockMvc.perform(post(path).with(user("enrollment-service").roles("STUDENT")))
+                            .andReturn().getResponse().getStatus();
+                    if (status == 200) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        assertEquals(400, status);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return succeeded.get();
+    }
+
+    private Course course(String code, int capacity, int enrolled) {
+        Course course = new Course();
+        course.setCode(code);
+        course.setTitle("Registration Rush");
+        course.setCredits(3);
+        course.setCapacity(capacity);
+        course.setEnrolled(enrolled);
+        course.setStatus("open");
+        return course;
+    }
+}
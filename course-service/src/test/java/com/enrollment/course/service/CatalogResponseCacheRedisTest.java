@@ -0,0 +1,88 @@
+package com.enrollment.course.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The shared (Redis) tier of the catalog cache against a real Redis.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CatalogResponseCacheRedisTest {
+
+    @Container
+    static GenericContainer<?> redisContainer = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(redisContainer.getHost(), redisContainer.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.getConnectionFactory().getConnection().serverCommands().flushAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    @DisplayName("Should keep one Redis entry per view, replaced by newer versions only")
+    void shouldKeepOneEntryPerView() {
+        // Arrange
+        CatalogResponseCache first = cache();
+        CatalogResponseCache second = cache();
+
+        // Act
+        first.get("all", 1, () -> List.of("v1"));
+        first.get("all", 3, () -> List.of("v3"));
+        second.get("all", 2, () -> List.of("v2"));
+
+        // Assert
+        Set<String> keys = redis.keys(CatalogResponseCache.KEY_PREFIX + "*");
+        assertEquals(Set.of(CatalogResponseCache.KEY_PREFIX + "all"), keys);
+        assertEquals("3", redis.opsForHash().get(CatalogResponseCache.KEY_PREFIX + "all", "version"));
+        assertTrue(redis.getExpire(CatalogResponseCache.KEY_PREFIX + "all") > 0);
+    }
+
+    @Test
+    @DisplayName("Should share a view between replicas at the same version")
+    void shouldShareViewAtSameVersion() {
+        cache().get("open", 5, () -> List.of("CS101"));
+
+        byte[] json = cache().get("open", 5, () -> fail("should come from Redis"));
+
+        assertEquals("[\"CS101\"]", new String(json, StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private CatalogResponseCache cache() {
+        ObjectProvider<RedisConnectionFactory> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(connectionFactory);
+        return new CatalogResponseCache(new ObjectMapper(), new SimpleMeterRegistry(), provider,
+                true, Duration.ofMinutes(10), Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,114 @@
+package com.enrollment.course.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CatalogResponseCacheTest {
+
+    private CatalogResponseCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        cache = new CatalogResponseCache(new ObjectMapper(), new SimpleMeterRegistry(), mock(ObjectProvider.class),
+                false, Duration.ofMinutes(10), Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofSeconds(30));
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should serve the serialized view from memory until the catalog version changes")
+    void shouldServeFromMemoryUntilVersionChanges() {
+        // Act
+        byte[] first = cache.get("all", 1, () -> List.of("CS" + loads.incrementAndGet()));
+        byte[] again = cache.get("all", 1, () -> List.of("CS" + loads.incrementAndGet()));
+        byte[] changed = cache.get("all", 2, () -> List.of("CS" + loads.incrementAndGet()));
+
+        // Assert
+        assertEquals("[\"CS1\"]", new String(first, StandardCharsets.UTF_8));
+        assertSame(first, again);
+        assertEquals("[\"CS2\"]", new String(changed, StandardCharsets.UTF_8));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should keep views apart")
+    void shouldKeepViewsApart() {
+        cache.get("all", 1, () -> List.of("all"));
+
+        byte[] open = cache.get("open", 1, () -> List.of("open"));
+
+        assertEquals("[\"open\"]", new String(open, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should rebuild a missing view once for concurrent requests")
+    void shouldRebuildOnceForConcurrentMisses() throws Exception {
+        // Arrange
+        int callers = 16;
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<byte[]>> results = new ArrayList<>();
+        try {
+            // Act
+            results.add(executor.submit(() -> cache.get("all", 7, () -> {
+                loading.countDown();
+                await(release);
+                return List.of("CS" + loads.incrementAndGet());
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get("all", 7, () -> List.of("CS" + loads.incrementAndGet()))));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            for (Future<byte[]> result : results) {
+                assertEquals("[\"CS1\"]", new String(result.get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should pass a failed rebuild on to the caller and retry on the next request")
+    void shouldNotCacheFailedRebuild() {
+        assertThrows(IllegalStateException.class, () -> cache.get("all", 3, () -> {
+            throw new IllegalStateException("MongoDB unavailable");
+        }));
+
+        byte[] json = cache.get("all", 3, () -> List.of("CS101"));
+
+        assertEquals("[\"CS101\"]", new String(json, StandardCharsets.UTF_8));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
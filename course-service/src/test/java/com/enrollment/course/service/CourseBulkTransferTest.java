@@ -0,0 +1,156 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CourseImportReport;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.model.Schedule;
+import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseRepositoryCustom.UpsertResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for NDJSON/CSV course import and export.
+ */
+@ExtendWith(MockitoExtension.class)
+class CourseBulkTransferTest {
+
+    @Mock
+    private CourseService courseService;
+
+    @Mock
+    private CourseRepository courseRepository;
+
+    private CourseBulkTransfer courseBulkTransfer;
+
+    @BeforeEach
+    void setUp() {
+        courseBulkTransfer = new CourseBulkTransfer(courseService, courseRepository, new ObjectMapper(), 2);
+    }
+
+    @Test
+    @DisplayName("Should import NDJSON in batches and report rejected rows by line")
+    void shouldImportNdjsonInBatches() throws Exception {
+        // Arrange
+        String body = """
+            {"code":"CS101","title":"Intro","capacity":30,"enrolled":12,"id":"ignored"}
+            {"code":"CS102","title":"Data Structures"}
+
+            {"title":"No code"}
+            {"code":"CS103",
+            {"code":"CS104","capacity":5}
+            """;
+        when(courseService.importCourses(anyList()))
+            .thenReturn(new UpsertResult(1, 1, Map.of()))
+            .thenReturn(new UpsertResult(0, 0, Map.of(0, "Course capacity cannot be lower than the students enrolled")));
+
+        // Act
+        CourseImportReport report = courseBulkTransfer.importCourses(stream(body), CourseBulkTransfer.Format.NDJSON);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CoursePatch>> batches = ArgumentCaptor.forClass(List.class);
+        verify(courseService, times(2)).importCourses(batches.capture());
+        assertEquals(List.of("CS101", "CS102"), batches.getAllValues().get(0).stream().map(CoursePatch::getCode).toList());
+        assertEquals(30, batches.getAllValues().get(0).get(0).getCapacity());
+
+        assertEquals(5, report.getReceived());
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getUpdated());
+        assertEquals(3, report.getRejected());
+        assertEquals(List.of(4L, 5L, 6L), report.getErrors().stream().map(CourseImportReport.RowError::getLine).toList());
+        assertEquals("Course code is required", report.getErrors().get(0).getMessage());
+        assertEquals("CS104", report.getErrors().get(2).getCode());
+    }
+
+    @Test
+    @DisplayName("Should import CSV with quoted values and report rows with invalid numbers")
+    void shouldImportCsv() throws Exception {
+        // Arrange
+        String body = "code,title,description,credits,days,room\r\n"
+            + "CS101,Intro,\"Covers loops, arrays and \"\"recursion\"\"\nover two lines\",3,Monday;Wednesday,Room 101\r\n"
+            + "CS102,Data Structures,,three,,\r\n";
+        when(courseService.importCourses(anyList())).thenReturn(new UpsertResult(1, 0, Map.of()));
+
+        // Act
+        CourseImportReport report = courseBulkTransfer.importCourses(stream(body), CourseBulkTransfer.Format.CSV);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CoursePatch>> batch = ArgumentCaptor.forClass(List.class);
+        verify(courseService).importCourses(batch.capture());
+        CoursePatch course = batch.getValue().get(0);
+        assertEquals("Covers loops, arrays and \"recursion\"\nover two lines", course.getDescription());
+        assertEquals(List.of("Monday", "Wednesday"), course.getSchedule().getDays());
+        assertEquals(3, course.getCredits());
+
+        assertEquals(1, report.getRejected());
+        assertEquals(4L, report.getErrors().get(0).getLine());
+        assertEquals("credits must be a whole number, got 'three'", report.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    @DisplayName("Should reject a CSV file with an unknown column before importing anything")
+    void shouldRejectUnknownCsvColumn() {
+        assertThrows(IllegalArgumentException.class, () ->
+            courseBulkTransfer.importCourses(stream("code,seats\r\nCS101,10\r\n"), CourseBulkTransfer.Format.CSV));
+        verifyNoInteractions(courseService);
+    }
+
+    @Test
+    @DisplayName("Should export CSV that imports back to the same courses")
+    void shouldExportCsvThatImportsBack() throws Exception {
+        // Arrange
+        Course course = new Course();
+        course.setCode("CS101");
+        course.setTitle("Intro, Part \"One\"");
+        course.setCredits(3);
+        course.setCapacity(30);
+        course.setEnrolled(12);
+        course.setStatus("open");
+        Schedule schedule = new Schedule();
+        schedule.setDays(List.of("Tuesday", "Thursday"));
+        schedule.setRoom("Room 7");
+        course.setSchedule(schedule);
+        when(courseRepository.streamAllByOrderByCodeAsc()).thenReturn(Stream.of(course));
+        when(courseService.importCourses(anyList())).thenReturn(new UpsertResult(0, 1, Map.of()));
+
+        // Act
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        courseBulkTransfer.exportCourses(exported, CourseBulkTransfer.Format.CSV);
+        CourseImportReport report = courseBulkTransfer.importCourses(
+            new ByteArrayInputStream(exported.toByteArray()), CourseBulkTransfer.Format.CSV);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CoursePatch>> batch = ArgumentCaptor.forClass(List.class);
+        verify(courseService).importCourses(batch.capture());
+        CoursePatch imported = batch.getValue().get(0);
+        assertEquals("Intro, Part \"One\"", imported.getTitle());
+        assertEquals(30, imported.getCapacity());
+        assertEquals(List.of("Tuesday", "Thursday"), imported.getSchedule().getDays());
+        assertEquals("Room 7", imported.getSchedule().getRoom());
+        assertEquals(0, report.getRejected());
+    }
+
+    private ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
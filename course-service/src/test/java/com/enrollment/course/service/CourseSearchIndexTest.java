@@ -0,0 +1,120 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CourseSearchHit;
+import com.enrollment.course.repository.CourseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CourseSearchIndexTest {
+
+    @Mock
+    private CourseRepository courseRepository;
+
+    private CourseSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new CourseSearchIndex(courseRepository, new SimpleMeterRegistry());
+        when(courseRepository.findAllCourses()).thenReturn(List.of(
+                course("1", "CS101", "Introduction to Computer Science", "Programming basics"),
+                course("2", "MATH201", "Linear Algebra", "Matrices for computer graphics"),
+                course("3", "CS220", "Computer Networks", "Protocols and the Internet")));
+        searchIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should autocomplete on word prefixes and require every term to match")
+    void shouldMatchPrefixesOfAllTerms() {
+        // Act
+        List<CourseSearchHit> hits = searchIndex.search("intro comp", 10);
+
+        // Assert
+        assertEquals(List.of("CS101"), codes(hits));
+        assertTrue(searchIndex.search("intro algebra", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should rank title matches above description matches, ignore case and accents, and find codes by their parts")
+    void shouldRankByField() {
+        // Act
+        List<CourseSearchHit> computer = searchIndex.search("computer", 10);
+        List<CourseSearchHit> byCode = searchIndex.search("cs 101", 10);
+
+        // Assert
+        assertEquals(List.of("CS101", "CS220", "MATH201"), codes(computer));
+        assertTrue(computer.get(0).getScore() > computer.get(2).getScore());
+        assertEquals(List.of("CS101"), codes(byCode));
+        assertEquals(List.of("CS101"), codes(searchIndex.search("ÍNTRO", 10)));
+    }
+
+    @Test
+    @DisplayName("Should reflect updates and deletes immediately")
+    void shouldUpdateIncrementally() {
+        // Arrange
+        List<CourseSearchHit> before = searchIndex.search("networks", 10);
+
+        // Act
+        searchIndex.index(course("3", "CS220", "Distributed Systems", null));
+        searchIndex.remove("1");
+
+        // Assert
+        assertEquals(List.of("CS220"), codes(before));
+        assertTrue(searchIndex.search("networks", 10).isEmpty());
+        assertEquals(List.of("CS220"), codes(searchIndex.search("distrib", 10)));
+        assertTrue(searchIndex.search("intro", 10).isEmpty());
+        assertEquals(2, searchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Should index a batch of courses in one step")
+    void shouldIndexBatch() {
+        // Act
+        searchIndex.index(List.of(
+                course("3", "CS220", "Computer Vision", null),
+                course("4", "CS330", "Computer Graphics", null),
+                course("5", "CS340", "Computer Architecture", null)));
+
+        // Assert
+        assertEquals(5, searchIndex.size());
+        assertTrue(searchIndex.search("networks", 10).isEmpty());
+        assertEquals(List.of("CS330", "CS340"), codes(searchIndex.search("cs3 computer", 10)));
+        assertEquals(List.of("CS220"), codes(searchIndex.search("vision", 10)));
+    }
+
+    @Test
+    @DisplayName("Should keep the current index when a rebuild fails")
+    void shouldKeepIndexWhenRebuildFails() {
+        when(courseRepository.findAllCourses()).thenThrow(new RuntimeException("MongoDB unavailable"));
+
+        searchIndex.rebuild();
+
+        assertEquals(3, searchIndex.size());
+        assertEquals(List.of("CS101"), codes(searchIndex.search("cs101", 10)));
+    }
+
+    private List<String> codes(List<CourseSearchHit> hits) {
+        return hits.stream().map(CourseSearchHit::getCode).toList();
+    }
+
+    private Course course(String id, String code, String title, String description) {
+        Course course = new Course();
+        course.setId(id);
+        course.setCode(code);
+        course.setTitle(title);
+        course.setDescription(description);
+        course.setCredits(3);
+        return course;
+    }
+}
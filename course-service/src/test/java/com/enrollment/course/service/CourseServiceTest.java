@@ -1,7 +1,21 @@
 package com.enrollment.course.service;
 
+import com.enrollment.course.config.RequestDeadline;
+import com.enrollment.course.model.CatalogChanges;
 import com.enrollment.course.model.Course;
+import com.enrollment.course.model.CoursePage;
+import com.enrollment.course.model.CoursePatch;
+import com.enrollment.course.model.CourseQuery;
+import com.enrollment.course.model.CourseTombstone;
+import com.enrollment.course.model.Instructor;
+import com.enrollment.course.model.SeatOperation;
+import com.enrollment.course.model.SeatOperationResult;
 import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseRepositoryCustom.CatalogPosition;
+import com.enrollment.course.repository.CourseRepositoryCustom.SeatOperationOutcome;
+import com.enrollment.course.repository.CourseRepositoryCustom.SeatOperationStatus;
+import com.enrollment.course.repository.CourseRepositoryCustom.UpsertResult;
+import com.enrollment.course.repository.CourseTombstoneRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -9,9 +23,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,6 +45,18 @@ class CourseServiceTest {
     @Mock
     private CourseRepository courseRepository;
 
+    @Mock
+    private InstructorDirectory instructorDirectory;
+
+    @Mock
+    private CourseSearchIndex courseSearchIndex;
+
+    @Mock
+    private CourseTombstoneRepository courseTombstoneRepository;
+
+    @Mock
+    private ObjectProvider<SeatLedger> seatLedger;
+
     @InjectMocks
     private CourseService courseService;
 
@@ -51,13 +80,13 @@ class CourseServiceTest {
     @DisplayName("Should get all courses")
     void shouldGetAllCourses() {
         List<Course> courses = Arrays.asList(testCourse);
-        when(courseRepository.findAll()).thenReturn(courses);
+        when(courseRepository.findAllCourses()).thenReturn(courses);
 
         List<Course> result = courseService.getAllCourses();
 
         assertEquals(1, result.size());
         assertEquals("CS101", result.get(0).getCode());
-        verify(courseRepository).findAll();
+        verify(courseRepository).findAllCourses();
     }
 
     @Test
@@ -80,13 +109,37 @@ class CourseServiceTest {
     @Test
     @DisplayName("Should get course by ID")
     void shouldGetCourseById() {
-        when(courseRepository.findById("course123")).thenReturn(Optional.of(testCourse));
+        when(courseRepository.findCourseById("course123")).thenReturn(Optional.of(testCourse));
 
         Optional<Course> result = courseService.getCourseById("course123");
 
         assertTrue(result.isPresent());
         assertEquals("CS101", result.get().getCode());
-        verify(courseRepository).findById("course123");
+        verify(courseRepository).findCourseById("course123");
+    }
+
+    @Test
+    @DisplayName("Should get courses by ids with a single deduplicated query")
+    void shouldGetCoursesByIds() {
+        Course otherCourse = new Course();
+        otherCourse.setId("course456");
+        otherCourse.setCode("CS201");
+        when(courseRepository.findByIdIn(List.of("course123", "course456")))
+                .thenReturn(Arrays.asList(testCourse, otherCourse));
+
+        List<Course> result = courseService.getCoursesByIds(Arrays.asList("course123", "course456", "course123"));
+
+        assertEquals(2, result.size());
+        verify(courseRepository, times(1)).findByIdIn(List.of("course123", "course456"));
+        verify(courseRepository, never()).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("Should return empty list for empty batch lookup")
+    void shouldReturnEmptyListForEmptyBatchLookup() {
+        assertTrue(courseService.getCoursesByIds(List.of()).isEmpty());
+
+        verify(courseRepository, never()).findByIdIn(any());
     }
 
     @Test
@@ -142,7 +195,7 @@ class CourseServiceTest {
     @DisplayName("Should update existing course")
     void shouldUpdateExistingCourse() {
         when(courseRepository.existsById("course123")).thenReturn(true);
-        when(courseRepository.save(any(Course.class))).thenReturn(testCourse);
+        when(courseRepository.replaceCourse(any(Course.class))).thenReturn(Optional.of(testCourse));
 
         Course updatedCourse = new Course();
         updatedCourse.setTitle("Advanced Computer Science");
@@ -152,7 +205,58 @@ class CourseServiceTest {
 
         assertNotNull(result);
         verify(courseRepository).existsById("course123");
-        verify(courseRepository).save(any(Course.class));
+        // Never a full save, which would drop the applied seat operations clients do not send
+        verify(courseRepository).replaceCourse(argThat(course -> "course123".equals(course.getId())));
+        verify(courseRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should report a course deleted during an update as not found")
+    void shouldReportCourseDeletedDuringUpdate() {
+        when(courseRepository.existsById("course123")).thenReturn(true);
+        when(courseRepository.replaceCourse(any(Course.class))).thenReturn(Optional.empty());
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> courseService.updateCourse("course123", new Course()));
+
+        assertEquals("Course not found", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should patch only the supplied fields with a single update")
+    void shouldPatchOnlySuppliedFields() {
+        // Arrange
+        CoursePatch patch = new CoursePatch();
+        patch.setDescription("Updated description");
+        when(courseRepository.patchCourse(eq("course123"), eq(patch), isNull(), anyLong())).thenReturn(Optional.of(testCourse));
+
+        // Act
+        Course result = courseService.patchCourse("course123", patch);
+
+        // Assert
+        assertEquals(testCourse, result);
+        verify(courseRepository, never()).existsById(any());
+        verify(courseRepository, never()).save(any());
+        verify(courseSearchIndex).index(testCourse);
+    }
+
+    @Test
+    @DisplayName("Should reject a patch that lowers capacity below the enrolled count")
+    void shouldRejectPatchLoweringCapacityBelowEnrolled() {
+        // Arrange
+        testCourse.setEnrolled(25);
+        CoursePatch patch = new CoursePatch();
+        patch.setCapacity(20);
+        when(courseRepository.patchCourse(eq("course123"), eq(patch), isNull(), anyLong())).thenReturn(Optional.empty());
+        when(courseRepository.findById("course123")).thenReturn(Optional.of(testCourse));
+
+        // Act
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+            () -> courseService.patchCourse("course123", patch));
+
+        // Assert
+        assertEquals("Course capacity cannot be lower than the 25 students enrolled", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> courseService.patchCourse("course123", new CoursePatch()));
     }
 
     @Test
@@ -179,47 +283,82 @@ class CourseServiceTest {
     @Test
     @DisplayName("Should increment enrollment when capacity available")
     void shouldIncrementEnrollmentWhenCapacityAvailable() {
-        testCourse.setEnrolled(10);
-        when(courseRepository.findById("course123")).thenReturn(Optional.of(testCourse));
-        when(courseRepository.save(any(Course.class))).thenReturn(testCourse);
+        testCourse.setEnrolled(11);
+        when(courseRepository.reserveSeat("course123")).thenReturn(Optional.of(testCourse));
 
         Course result = courseService.incrementEnrollment("course123");
 
         assertEquals(11, result.getEnrolled());
-        verify(courseRepository).save(argThat(course -> course.getEnrolled() == 11));
+        verify(courseRepository).reserveSeat("course123");
+        verify(courseRepository, never()).save(any());
     }
 
     @Test
     @DisplayName("Should throw exception when course is full")
     void shouldThrowExceptionWhenCourseFull() {
-        testCourse.setEnrolled(30); // At capacity
-        when(courseRepository.findById("course123")).thenReturn(Optional.of(testCourse));
+        when(courseRepository.reserveSeat("course123")).thenReturn(Optional.empty());
+        when(courseRepository.existsById("course123")).thenReturn(true);
 
-        assertThrows(RuntimeException.class, () -> {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             courseService.incrementEnrollment("course123");
         });
 
+        assertEquals("Course is full", exception.getMessage());
         verify(courseRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("Should throw exception when enrolling in non-existent course")
+    void shouldThrowExceptionWhenEnrollingInNonExistentCourse() {
+        when(courseRepository.reserveSeat("nonexistent")).thenReturn(Optional.empty());
+        when(courseRepository.existsById("nonexistent")).thenReturn(false);
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            courseService.incrementEnrollment("nonexistent");
+        });
+
+        assertEquals("Course not found", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should take seats from the seat ledger instead of MongoDB in seat ledger mode")
+    void shouldTakeSeatsFromSeatLedgerInLedgerMode() {
+        // Arrange
+        SeatLedger ledger = mock(SeatLedger.class);
+        when(seatLedger.getIfAvailable()).thenReturn(ledger);
+        testCourse.setEnrolled(11);
+        when(ledger.reserve("course123", null, 1)).thenReturn(new SeatLedger.Outcome(SeatLedger.Status.APPLIED, 1, testCourse));
+        when(ledger.reserve("full101", null, 1)).thenReturn(new SeatLedger.Outcome(SeatLedger.Status.NO_SEATS, 0, testCourse));
+
+        // Act
+        Course result = courseService.incrementEnrollment("course123");
+        RuntimeException full = assertThrows(RuntimeException.class, () -> courseService.incrementEnrollment("full101"));
+
+        // Assert
+        assertEquals(11, result.getEnrolled());
+        assertEquals("Course is full", full.getMessage());
+        verify(courseRepository, never()).reserveSeat(any());
+        verify(courseRepository, never()).beginCatalogChange();
+    }
+
     @Test
     @DisplayName("Should decrement enrollment")
     void shouldDecrementEnrollment() {
-        testCourse.setEnrolled(10);
-        when(courseRepository.findById("course123")).thenReturn(Optional.of(testCourse));
-        when(courseRepository.save(any(Course.class))).thenReturn(testCourse);
+        testCourse.setEnrolled(9);
+        when(courseRepository.releaseSeat("course123")).thenReturn(Optional.of(testCourse));
 
         Course result = courseService.decrementEnrollment("course123");
 
         assertEquals(9, result.getEnrolled());
-        verify(courseRepository).save(argThat(course -> course.getEnrolled() == 9));
+        verify(courseRepository).releaseSeat("course123");
+        verify(courseRepository, never()).save(any());
     }
 
     @Test
     @DisplayName("Should not decrement enrollment below zero")
     void shouldNotDecrementEnrollmentBelowZero() {
-        testCourse.setEnrolled(0);
-        when(courseRepository.findById("course123")).thenReturn(Optional.of(testCourse));
+        when(courseRepository.releaseSeat("course123")).thenReturn(Optional.empty());
+        when(courseRepository.existsById("course123")).thenReturn(true);
 
         assertThrows(RuntimeException.class, () -> {
             courseService.decrementEnrollment("course123");
@@ -256,24 +395,460 @@ class CourseServiceTest {
     @Test
     @DisplayName("Should handle concurrent enrollment updates")
     void shouldHandleConcurrentEnrollmentUpdates() {
-        // This test documents that proper concurrency control should be implemented
-        // In a real implementation, you might use optimistic locking with @Version
-        
-        testCourse.setEnrolled(29); // One spot left
-        when(courseRepository.findById("course123")).thenReturn(Optional.of(testCourse));
-        
-        // In a real scenario, two students trying to enroll simultaneously
-        // should result in only one successful enrollment
-        
-        // First enrollment succeeds
-        when(courseRepository.save(any(Course.class))).thenReturn(testCourse);
+        // The capacity check happens inside the atomic update (see CourseSeatConcurrencyTest),
+        // so the last seat can only be handed out once.
+        testCourse.setEnrolled(30);
+        testCourse.setStatus("closed");
+        when(courseRepository.reserveSeat("course123"))
+                .thenReturn(Optional.of(testCourse))
+                .thenReturn(Optional.empty());
+        when(courseRepository.existsById("course123")).thenReturn(true);
+
+        // First enrollment takes the last seat
         Course result = courseService.incrementEnrollment("course123");
         assertEquals(30, result.getEnrolled());
-        
+        assertEquals("closed", result.getStatus());
+
         // Second enrollment should fail due to capacity
-        testCourse.setEnrolled(30);
         assertThrows(RuntimeException.class, () -> {
             courseService.incrementEnrollment("course123");
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should grant only the seats a course has left in a batch reservation")
+    void shouldGrantOnlyRemainingSeatsInBatch() {
+        testCourse.setCapacity(30);
+        testCourse.setEnrolled(27);
+        when(courseRepository.reserveSeats(eq("course123"), eq(5))).thenReturn(Optional.of(testCourse));
+        when(courseRepository.reserveSeats(eq("full"), eq(2))).thenReturn(Optional.empty());
+
+        Map<String, Integer> granted = courseService.reserveSeats(Map.of("course123", 5, "full", 2));
+
+        assertEquals(3, granted.get("course123"));
+        assertEquals(0, granted.get("full"));
+    }
+
+    @Test
+    @DisplayName("Should not release more seats than are enrolled in a batch release")
+    void shouldNotReleaseMoreSeatsThanEnrolled() {
+        testCourse.setEnrolled(2);
+        when(courseRepository.releaseSeats(eq("course123"), eq(5))).thenReturn(Optional.of(testCourse));
+
+        Map<String, Integer> released = courseService.releaseSeats(Map.of("course123", 5));
+
+        assertEquals(2, released.get("course123"));
+    }
+
+    @Test
+    @DisplayName("Should apply seat operations and report retried ones as duplicates")
+    void shouldApplySeatOperationsOnce() {
+        when(courseRepository.applySeatOperation("course123", "op1", 1))
+                .thenReturn(new SeatOperationOutcome(SeatOperationStatus.APPLIED, testCourse))
+                .thenReturn(new SeatOperationOutcome(SeatOperationStatus.DUPLICATE, testCourse));
+
+        List<SeatOperationResult> first = courseService.applySeatOperations(List.of(new SeatOperation("op1", "course123", 1)));
+        List<SeatOperationResult> retry = courseService.applySeatOperations(List.of(new SeatOperation("op1", "course123", 1)));
+
+        assertEquals("applied", first.get(0).getStatus());
+        assertEquals("duplicate", retry.get(0).getStatus());
+        assertSame(testCourse, retry.get(0).getCourse());
+        verify(courseRepository, times(2)).applySeatOperation("course123", "op1", 1);
+    }
+
+    @Test
+    @DisplayName("Should leave out seat operations another delivery is still applying")
+    void shouldLeaveOutSeatOperationsInProgress() {
+        when(courseRepository.applySeatOperation("course123", "op1", 1))
+                .thenReturn(new SeatOperationOutcome(SeatOperationStatus.IN_PROGRESS, null));
+        when(courseRepository.applySeatOperation("course123", "op2", -1))
+                .thenReturn(new SeatOperationOutcome(SeatOperationStatus.APPLIED, testCourse));
+
+        List<SeatOperationResult> results = courseService.applySeatOperations(List.of(
+                new SeatOperation("op1", "course123", 1),
+                new SeatOperation("op2", "course123", -1)));
+
+        assertEquals(1, results.size());
+        assertEquals("op2", results.get(0).getOperationId());
+    }
+
+    @Test
+    @DisplayName("Should reject seat operations for full courses")
+    void shouldRejectSeatOperationForFullCourse() {
+        when(courseRepository.applySeatOperation("course123", "op1", 1))
+                .thenReturn(new SeatOperationOutcome(SeatOperationStatus.NO_SEATS, null));
+        when(courseRepository.existsById("course123")).thenReturn(true);
+
+        List<SeatOperationResult> results = courseService.applySeatOperations(List.of(
+                new SeatOperation("op1", "course123", 1),
+                new SeatOperation("op2", "course123", 5)));
+
+        assertEquals("rejected", results.get(0).getStatus());
+        assertEquals("Course is full", results.get(0).getError());
+        assertEquals("Invalid seat operation", results.get(1).getError());
+    }
+
+    @Test
+    @DisplayName("Should stop fetching instructors once the request deadline has passed")
+    void shouldStopFetchingInstructorsAfterDeadline() {
+        when(courseRepository.findAllCourses()).thenReturn(Arrays.asList(testCourse));
+        RequestDeadline.start(0);
+        try {
+            assertThrows(RequestDeadline.DeadlineExceededException.class, () -> courseService.getAllCourses());
+        } finally {
+            RequestDeadline.clear();
+        }
+        verifyNoInteractions(instructorDirectory);
+    }
+
+    @Test
+    @DisplayName("Should resolve instructors of all courses from the directory")
+    void shouldResolveInstructorsFromDirectory() {
+        Instructor instructor = new Instructor();
+        instructor.setId("instructor123");
+        instructor.setFirstName("Ada");
+        instructor.setLastName("Lovelace");
+        Course unknown = new Course();
+        unknown.setCode("CS999");
+        unknown.setInstructorId("nobody");
+        when(courseRepository.findAllCourses()).thenReturn(Arrays.asList(testCourse, unknown));
+        when(instructorDirectory.find("instructor123")).thenReturn(Optional.of(instructor));
+        when(instructorDirectory.find("nobody")).thenReturn(Optional.empty());
+
+        List<Course> result = courseService.getAllCourses();
+
+        assertEquals("Ada", result.get(0).getInstructor().getFirstName());
+        assertNull(result.get(1).getInstructor());
+        verify(courseRepository).setInstructorSnapshot(eq("instructor123"), eq(instructor), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should serve stored instructor snapshots without resolving instructors")
+    void shouldServeStoredInstructorSnapshots() {
+        Instructor snapshot = new Instructor();
+        snapshot.setId("instructor123");
+        snapshot.setFirstName("Ada");
+        testCourse.setInstructor(snapshot);
+        when(courseRepository.findByStatus("open")).thenReturn(Arrays.asList(testCourse));
+
+        List<Course> result = courseService.getOpenCourses();
+
+        assertEquals("Ada", result.get(0).getInstructor().getFirstName());
+        verifyNoInteractions(instructorDirectory);
+    }
+
+    @Test
+    @DisplayName("Should store an instructor snapshot when creating a course")
+    void shouldStoreInstructorSnapshotOnCreate() {
+        Instructor instructor = new Instructor();
+        instructor.setId("instructor123");
+        instructor.setFirstName("Ada");
+        when(instructorDirectory.find("instructor123")).thenReturn(Optional.of(instructor));
+        when(courseRepository.save(any(Course.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Course created = courseService.createCourse(testCourse);
+
+        assertSame(instructor, created.getInstructor());
+    }
+
+    @Test
+    @DisplayName("Should apply instructor profile changes to all of the instructor's courses")
+    void shouldApplyInstructorProfileChange() {
+        Instructor renamed = new Instructor();
+        renamed.setId("instructor123");
+        renamed.setFirstName("Ada");
+        renamed.setLastName("King");
+        when(courseRepository.updateInstructorSnapshot(eq(renamed), anyLong())).thenReturn(3L);
+
+        long updated = courseService.applyInstructorProfileChange(renamed);
+
+        assertEquals(3L, updated);
+        verify(instructorDirectory).invalidate();
+    }
+
+    @Test
+    @DisplayName("Should not take a catalog version when no instructor snapshot changed")
+    void shouldNotTakeCatalogVersionWhenSnapshotsAreCurrent() {
+        // Arrange
+        Instructor instructor = new Instructor();
+        instructor.setId("instructor123");
+        when(courseRepository.findDistinctInstructorIds()).thenReturn(List.of("instructor123"));
+        when(instructorDirectory.find("instructor123")).thenReturn(Optional.of(instructor));
+        when(courseRepository.hasStaleInstructorSnapshot("instructor123", instructor)).thenReturn(false);
+
+        // Act
+        courseService.syncInstructorSnapshots();
+
+        // Assert
+        verify(courseRepository, never()).beginCatalogChange();
+        verify(courseRepository, never()).setInstructorSnapshot(anyString(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should fix all stale instructor snapshots under one catalog version")
+    void shouldSyncStaleSnapshotsUnderOneCatalogVersion() {
+        // Arrange
+        Instructor first = new Instructor();
+        first.setId("instructor1");
+        Instructor second = new Instructor();
+        second.setId("instructor2");
+        Instructor current = new Instructor();
+        current.setId("instructor3");
+        when(courseRepository.findDistinctInstructorIds()).thenReturn(List.of("instructor1", "instructor2", "instructor3"));
+        when(instructorDirectory.find("instructor1")).thenReturn(Optional.of(first));
+        when(instructorDirectory.find("instructor2")).thenReturn(Optional.of(second));
+        when(instructorDirectory.find("instructor3")).thenReturn(Optional.of(current));
+        when(courseRepository.hasStaleInstructorSnapshot("instructor1", first)).thenReturn(true);
+        when(courseRepository.hasStaleInstructorSnapshot("instructor2", second)).thenReturn(true);
+        when(courseRepository.hasStaleInstructorSnapshot("instructor3", current)).thenReturn(false);
+        when(courseRepository.beginCatalogChange()).thenReturn(9L);
+
+        // Act
+        courseService.syncInstructorSnapshots();
+
+        // Assert
+        verify(courseRepository, times(1)).beginCatalogChange();
+        verify(courseRepository).setInstructorSnapshot("instructor1", first, 9L);
+        verify(courseRepository).setInstructorSnapshot("instructor2", second, 9L);
+        verify(courseRepository, never()).setInstructorSnapshot(eq("instructor3"), any(), anyLong());
+        verify(courseRepository).endCatalogChange(9L);
+    }
+
+    @Test
+    @DisplayName("Should return a catalog page with a cursor that continues after its last course")
+    void shouldReturnCatalogPageWithCursor() {
+        // Arrange
+        Course second = new Course();
+        second.setId("course456");
+        second.setCode("CS102");
+        second.setCredits(4);
+        Course third = new Course();
+        third.setId("course789");
+        third.setCode("CS103");
+        testCourse.setInstructorId(null);
+        CourseQuery query = new CourseQuery();
+        query.setSort("credits");
+        query.setDirection("DESC");
+        query.setLimit(2);
+        when(courseRepository.findCatalogPage(query, null, 3)).thenReturn(List.of(testCourse, second, third));
+
+        // Act
+        CoursePage page = courseService.getCatalogPage(query);
+
+        // Assert
+        assertEquals(List.of(testCourse, second), page.getItems());
+        assertNotNull(page.getNextCursor());
+
+        // Act
+        query.setCursor(page.getNextCursor());
+        when(courseRepository.findCatalogPage(eq(query), any(), eq(3))).thenReturn(List.of(third));
+        CoursePage next = courseService.getCatalogPage(query);
+
+        // Assert
+        assertEquals(List.of(third), next.getItems());
+        assertNull(next.getNextCursor());
+        verify(courseRepository).findCatalogPage(query, new CatalogPosition(4, "course456"), 3);
+    }
+
+    @Test
+    @DisplayName("Should cap the catalog page size")
+    void shouldCapCatalogPageSize() {
+        CourseQuery query = new CourseQuery();
+        query.setLimit(10_000);
+        when(courseRepository.findCatalogPage(query, null, CourseService.MAX_PAGE_SIZE + 1)).thenReturn(List.of());
+
+        CoursePage page = courseService.getCatalogPage(query);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown sort fields and cursors issued for another sort order")
+    void shouldRejectInvalidCatalogQueries() {
+        CourseQuery unknownSort = new CourseQuery();
+        unknownSort.setSort("enrolled");
+        assertThrows(IllegalArgumentException.class, () -> courseService.getCatalogPage(unknownSort));
+
+        CourseQuery garbageCursor = new CourseQuery();
+        garbageCursor.setCursor("%%%");
+        assertThrows(IllegalArgumentException.class, () -> courseService.getCatalogPage(garbageCursor));
+
+        CourseQuery byCode = new CourseQuery();
+        byCode.setLimit(1);
+        when(courseRepository.findCatalogPage(byCode, null, 2)).thenReturn(List.of(testCourse, new Course()));
+        testCourse.setInstructorId(null);
+        String cursor = courseService.getCatalogPage(byCode).getNextCursor();
+
+        CourseQuery byTitle = new CourseQuery();
+        byTitle.setSort("title");
+        byTitle.setCursor(cursor);
+        assertThrows(IllegalArgumentException.class, () -> courseService.getCatalogPage(byTitle));
+        verifyNoMoreInteractions(courseRepository);
+    }
+
+    @Test
+    @DisplayName("Should keep the search index in step with course writes")
+    void shouldUpdateSearchIndexOnWrites() {
+        // Arrange
+        when(courseRepository.save(any(Course.class))).thenReturn(testCourse);
+        when(courseRepository.existsById("course123")).thenReturn(true);
+        when(courseRepository.replaceCourse(testCourse)).thenReturn(Optional.of(testCourse));
+
+        // Act
+        courseService.createCourse(testCourse);
+        courseService.updateCourse("course123", testCourse);
+        courseService.deleteCourse("course123");
+
+        // Assert
+        verify(courseSearchIndex, times(2)).index(testCourse);
+        verify(courseSearchIndex).remove("course123");
+    }
+
+    @Test
+    @DisplayName("Should reject an import below the ledger's enrolled count and write the rest")
+    void shouldCheckImportCapacityAgainstSeatLedger() {
+        // Arrange
+        SeatLedger ledger = mock(SeatLedger.class);
+        when(seatLedger.getIfAvailable()).thenReturn(ledger);
+        CoursePatch shrunk = new CoursePatch();
+        shrunk.setCode("CS101");
+        shrunk.setCapacity(10);
+        CoursePatch added = new CoursePatch();
+        added.setCode("CS102");
+        added.setCapacity(30);
+        testCourse.setCode("CS101");
+        Course current = new Course();
+        current.setEnrolled(12);
+        when(courseRepository.findByCodeIn(List.of("CS101", "CS102"))).thenReturn(List.of(testCourse));
+        when(ledger.current("course123")).thenReturn(Optional.of(current));
+        when(courseRepository.beginCatalogChange()).thenReturn(5L);
+        when(courseRepository.upsertCourses(eq(List.of(added)), anyMap(), eq(5L)))
+            .thenReturn(new UpsertResult(0, 0, Map.of(0, "Course CS102 was changed by another write at the same time, import it again")));
+
+        // Act
+        UpsertResult result = courseService.importCourses(List.of(shrunk, added));
+
+        // Assert
+        assertEquals("Course capacity cannot be lower than the 12 students enrolled", result.errors().get(0));
+        assertEquals("Course CS102 was changed by another write at the same time, import it again", result.errors().get(1));
+    }
+
+    @Test
+    @DisplayName("Should stamp every course write with a catalog version and release it afterwards")
+    void shouldStampWritesWithCatalogVersion() {
+        // Arrange
+        when(courseRepository.beginCatalogChange()).thenReturn(7L);
+        when(courseRepository.save(any(Course.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Course created = courseService.createCourse(testCourse);
+
+        // Assert
+        assertEquals(7L, created.getCatalogVersion());
+        verify(courseRepository).endCatalogChange(7L);
+    }
+
+    @Test
+    @DisplayName("Should leave the catalog counter alone on seat changes and stamp them in one go later")
+    void shouldStampSeatChangesTogether() {
+        // Arrange
+        when(courseRepository.reserveSeat("course123")).thenReturn(Optional.of(testCourse));
+        when(courseRepository.releaseSeat("course123")).thenReturn(Optional.of(testCourse));
+        when(courseRepository.hasUnstampedSeatChanges()).thenReturn(true);
+        when(courseRepository.beginCatalogChange()).thenReturn(8L);
+
+        // Act
+        courseService.incrementEnrollment("course123");
+        courseService.decrementEnrollment("course123");
+        verify(courseRepository, never()).beginCatalogChange();
+        courseService.stampSeatChanges();
+
+        // Assert
+        verify(courseRepository).stampSeatChanges(8L);
+        verify(courseRepository).endCatalogChange(8L);
+    }
+
+    @Test
+    @DisplayName("Should not take a catalog version when no seats changed")
+    void shouldSkipStampingWithoutSeatChanges() {
+        when(courseRepository.hasUnstampedSeatChanges()).thenReturn(false);
+
+        courseService.stampSeatChanges();
+
+        verify(courseRepository, never()).beginCatalogChange();
+        verify(courseRepository, never()).stampSeatChanges(anyLong());
+    }
+
+    @Test
+    @DisplayName("Should record a tombstone when deleting a course")
+    void shouldRecordTombstoneOnDelete() {
+        when(courseRepository.beginCatalogChange()).thenReturn(12L);
+
+        courseService.deleteCourse("course123");
+
+        verify(courseRepository).deleteById("course123");
+        verify(courseTombstoneRepository).save(argThat(tombstone ->
+            tombstone.getId().equals("course123") && tombstone.getCatalogVersion() == 12L));
+        verify(courseRepository).endCatalogChange(12L);
+    }
+
+    @Test
+    @DisplayName("Should return changed and deleted courses up to the stable catalog version")
+    void shouldReturnCatalogChanges() {
+        // Arrange
+        testCourse.setInstructorId(null);
+        testCourse.setCatalogVersion(9L);
+        when(courseRepository.stableCatalogVersion()).thenReturn(10L);
+        when(courseRepository.findByCatalogVersionBetween(any(), any())).thenReturn(List.of(testCourse));
+        when(courseTombstoneRepository.findByCatalogVersionBetween(any(), any()))
+            .thenReturn(List.of(new CourseTombstone("gone", 6L, new Date())));
+
+        // Act
+        CatalogChanges changes = courseService.getCatalogChanges(5, null);
+
+        // Assert
+        assertEquals(10L, changes.getVersion());
+        assertEquals(List.of(testCourse), changes.getCourses());
+        assertEquals(List.of("gone"), changes.getDeleted());
+        assertFalse(changes.isHasMore());
+    }
+
+    @Test
+    @DisplayName("Should end a page of catalog changes between two versions")
+    void shouldCutCatalogChangesBetweenVersions() {
+        // Arrange
+        Course first = new Course();
+        first.setId("a");
+        first.setCatalogVersion(3L);
+        Course second = new Course();
+        second.setId("b");
+        second.setCatalogVersion(4L);
+        Course sameVersion = new Course();
+        sameVersion.setId("c");
+        sameVersion.setCatalogVersion(4L);
+        when(courseRepository.stableCatalogVersion()).thenReturn(20L);
+        when(courseRepository.findByCatalogVersionBetween(any(), any())).thenReturn(List.of(first, second, sameVersion));
+        when(courseTombstoneRepository.findByCatalogVersionBetween(any(), any())).thenReturn(List.of());
+
+        // Act
+        CatalogChanges changes = courseService.getCatalogChanges(0, 2);
+
+        // Assert
+        assertEquals(3L, changes.getVersion());
+        assertEquals(List.of(first), changes.getCourses());
+        assertTrue(changes.isHasMore());
+    }
+
+    @Test
+    @DisplayName("Should report no changes when the client is up to date")
+    void shouldReportNoChangesWhenUpToDate() {
+        when(courseRepository.stableCatalogVersion()).thenReturn(10L);
+
+        CatalogChanges changes = courseService.getCatalogChanges(10, null);
+
+        assertEquals(10L, changes.getVersion());
+        assertTrue(changes.getCourses().isEmpty());
+        verify(courseRepository, never()).findByCatalogVersionBetween(any(), any());
+    }
+}
@@ -0,0 +1,175 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.client.AuthClient;
+import com.enrollment.course.model.Instructor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for InstructorDirectory.
+ * Tests bulk loading, multi-key lookups and how often auth-service is called.
+ */
+@ExtendWith(MockitoExtension.class)
+class InstructorDirectoryTest {
+
+    @Mock
+    private AuthClient authClient;
+
+    private MutableClock clock;
+    private List<Runnable> backgroundReloads;
+    private InstructorDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-10T08:00:00Z"));
+        backgroundReloads = new ArrayList<>();
+        directory = new InstructorDirectory(authClient, new SimpleMeterRegistry(),
+                Duration.ofMinutes(30), Duration.ofMinutes(5), Duration.ofSeconds(30), clock, backgroundReloads::add);
+    }
+
+    @Test
+    @DisplayName("Should find instructors by id, email and full name with one load")
+    void shouldFindByAnyKeyWithOneLoad() {
+        // Arrange
+        when(authClient.getInstructors()).thenReturn(List.of(instructor("i1", "Ada", "Lovelace", "ada@test.com")));
+
+        // Act & Assert
+        assertEquals("i1", directory.find("i1").orElseThrow().getId());
+        assertEquals("i1", directory.find("ada@test.com").orElseThrow().getId());
+        assertEquals("i1", directory.find("Ada Lovelace").orElseThrow().getId());
+        verify(authClient, times(1)).getInstructors();
+    }
+
+    @Test
+    @DisplayName("Should reload for unknown instructors at most once per interval")
+    void shouldLimitReloadsForUnknownInstructors() {
+        // Arrange
+        when(authClient.getInstructors()).thenReturn(List.of(instructor("i1", "Ada", "Lovelace", "ada@test.com")));
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            directory.find("unknown-" + i);
+        }
+        clock.advance(Duration.ofSeconds(31));
+        directory.find("unknown-again");
+
+        // Assert
+        verify(authClient, times(2)).getInstructors();
+    }
+
+    @Test
+    @DisplayName("Should keep serving the last directory while auth-service is down")
+    void shouldKeepLastDirectoryWhenLoadFails() {
+        // Arrange
+        when(authClient.getInstructors())
+                .thenReturn(List.of(instructor("i1", "Ada", "Lovelace", "ada@test.com")))
+                .thenThrow(new RuntimeException("Connection refused"));
+        directory.find("i1");
+        clock.advance(Duration.ofMinutes(6));
+
+        // Act & Assert
+        assertTrue(directory.find("i1").isPresent());
+        runBackgroundReloads();
+        assertTrue(directory.find("i1").isPresent());
+        clock.advance(Duration.ofMinutes(30));
+        assertTrue(directory.find("i1").isPresent());
+        verify(authClient, times(3)).getInstructors();
+    }
+
+    @Test
+    @DisplayName("Should serve a copy past the refresh interval while one background reload runs")
+    void shouldServeStaleCopyWhileReloadingInBackground() {
+        // Arrange
+        when(authClient.getInstructors())
+                .thenReturn(List.of(instructor("i1", "Ada", "Lovelace", "ada@test.com")))
+                .thenReturn(List.of(instructor("i1", "Ada", "King", "ada@test.com")));
+        directory.find("i1");
+        clock.advance(Duration.ofMinutes(6));
+
+        // Act
+        String beforeReload = directory.find("i1").orElseThrow().getLastName();
+        directory.find("ada@test.com");
+        directory.find("Ada Lovelace");
+        runBackgroundReloads();
+
+        // Assert - only one reload was queued and nobody waited for it
+        assertEquals("Lovelace", beforeReload);
+        assertEquals("King", directory.find("i1").orElseThrow().getLastName());
+        verify(authClient, times(2)).getInstructors();
+    }
+
+    private void runBackgroundReloads() {
+        List<Runnable> queued = new ArrayList<>(backgroundReloads);
+        backgroundReloads.clear();
+        queued.forEach(Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Should reload on the next lookup after being invalidated")
+    void shouldReloadAfterInvalidate() {
+        // Arrange
+        when(authClient.getInstructors())
+                .thenReturn(List.of(instructor("i1", "Ada", "Lovelace", "ada@test.com")))
+                .thenReturn(List.of(instructor("i1", "Ada", "King", "ada@test.com")));
+        directory.find("i1");
+
+        // Act
+        directory.invalidate();
+
+        // Assert
+        assertEquals("King", directory.find("i1").orElseThrow().getLastName());
+        assertEquals(1, directory.size());
+    }
+
+    private Instructor instructor(String id, String firstName, String lastName, String email) {
+        Instructor instructor = new Instructor();
+        instructor.setId(id);
+        instructor.setFirstName(firstName);
+        instructor.setLastName(lastName);
+        instructor.setEmail(email);
+        return instructor;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.CatalogChanges;
+import com.enrollment.course.model.Course;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeatAvailabilityStreamTest {
+
+    @Mock
+    private CourseService courseService;
+
+    @Test
+    @DisplayName("Should push all courses first and afterwards only courses whose seats changed")
+    void shouldPushOnlySeatChanges() {
+        // Arrange
+        SeatAvailabilityStream stream = stream(Runnable::run);
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        stream.subscribe(emitter);
+        Course renamed = course("c1", 5, "open");
+        renamed.setTitle("Renamed");
+        when(courseService.getCatalogChanges(anyLong(), anyInt())).thenReturn(
+                changes(1, List.of(course("c1", 5, "open"), course("c2", 30, "closed")), List.of()),
+                changes(2, List.of(renamed), List.of()),
+                changes(3, List.of(course("c1", 6, "open")), List.of("c2")));
+
+        // Act
+        stream.poll();
+        stream.poll();
+        stream.poll();
+
+        // Assert
+        assertEquals(2, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("\"courseId\":\"c1\",\"enrolled\":5"));
+        assertTrue(emitter.events.get(0).contains("\"courseId\":\"c2\",\"enrolled\":30"));
+        assertTrue(emitter.events.get(1).contains("\"courseId\":\"c1\",\"enrolled\":6"));
+        assertTrue(emitter.events.get(1).contains("{\"courseId\":\"c2\",\"status\":\"deleted\"}"));
+        verify(courseService).getCatalogChanges(2L, SeatAvailabilityStream.CHANGES_PER_POLL);
+    }
+
+    @Test
+    @DisplayName("Should give a new subscriber the current state of every course")
+    void shouldSendCurrentStateToNewSubscriber() {
+        SeatAvailabilityStream stream = stream(Runnable::run);
+        stream.subscribe(new RecordingEmitter(null));
+        when(courseService.getCatalogChanges(anyLong(), anyInt()))
+                .thenReturn(changes(1, List.of(course("c1", 5, "open")), List.of()));
+        stream.poll();
+
+        RecordingEmitter late = new RecordingEmitter(null);
+        stream.subscribe(late);
+
+        assertEquals(1, late.events.size());
+        assertTrue(late.events.get(0).contains("\"courseId\":\"c1\",\"enrolled\":5"));
+    }
+
+    @Test
+    @DisplayName("Should not poll while nobody is subscribed")
+    void shouldNotPollWithoutSubscribers() {
+        stream(Runnable::run).poll();
+
+        verifyNoInteractions(courseService);
+    }
+
+    @Test
+    @DisplayName("Should coalesce changes for a slow subscriber without holding up the poller")
+    void shouldCoalesceChangesForSlowSubscriber() throws Exception {
+        // Arrange
+        ExecutorService senders = Executors.newSingleThreadExecutor();
+        try {
+            SeatAvailabilityStream stream = stream(senders);
+            CountDownLatch release = new CountDownLatch(1);
+            RecordingEmitter slow = new RecordingEmitter(release);
+            stream.subscribe(slow);
+            when(courseService.getCatalogChanges(anyLong(), anyInt())).thenReturn(
+                    changes(1, List.of(course("c1", 1, "open")), List.of()),
+                    changes(2, List.of(course("c1", 2, "open")), List.of()),
+                    changes(3, List.of(course("c1", 3, "open")), List.of()));
+
+            // Act
+            stream.poll();
+            assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+            stream.poll();
+            stream.poll();
+            release.countDown();
+
+            // Assert
+            senders.shutdown();
+            assertTrue(senders.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(2, slow.events.size());
+            assertTrue(slow.events.get(1).contains("\"enrolled\":3"));
+        } finally {
+            senders.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber that stops reading and free its sender for the others")
+    void shouldDropStalledSubscriber() throws Exception {
+        // Arrange
+        ExecutorService senders = Executors.newSingleThreadExecutor();
+        try {
+            SeatAvailabilityStream stream = stream(senders);
+            StalledEmitter stalled = new StalledEmitter();
+            RecordingEmitter healthy = new RecordingEmitter(null);
+            stream.subscribe(stalled);
+            stream.subscribe(healthy);
+            when(courseService.getCatalogChanges(anyLong(), anyInt())).thenReturn(
+                    changes(1, List.of(course("c1", 1, "open")), List.of()),
+                    changes(2, List.of(course("c1", 2, "open")), List.of()));
+
+            // Act
+            stream.poll();
+            assertTrue(stalled.sending.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            stream.poll();
+
+            // Assert
+            assertTrue(stalled.interrupted.await(5, TimeUnit.SECONDS));
+            senders.shutdown();
+            assertTrue(senders.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(1, stream.subscriberCount());
+            assertFalse(healthy.events.isEmpty());
+            assertTrue(healthy.events.get(healthy.events.size() - 1).contains("\"enrolled\":2"));
+        } finally {
+            senders.shutdownNow();
+        }
+    }
+
+    private SeatAvailabilityStream stream(Executor senders) {
+        return new SeatAvailabilityStream(courseService, new ObjectMapper(), new SimpleMeterRegistry(),
+                senders, Duration.ofMinutes(30), Duration.ofSeconds(15), Duration.ofMillis(100));
+    }
+
+    private CatalogChanges changes(long version, List<Course> courses, List<String> deleted) {
+        return new CatalogChanges(version, courses, deleted, false);
+    }
+
+    private Course course(String id, int enrolled, String status) {
+        Course course = new Course();
+        course.setId(id);
+        course.setCode(id.toUpperCase());
+        course.setEnrolled(enrolled);
+        course.setCapacity(30);
+        course.setStatus(status);
+        return course;
+    }
+
+    /**
+     * Captures sent events instead of writing them to a response; optionally blocks in send like a slow client.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sending.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining()));
+        }
+    }
+
+    /**
+     * A client that stopped reading: send blocks until the sender thread is interrupted.
+     */
+    private static class StalledEmitter extends SseEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IOException("Write interrupted");
+            }
+        }
+    }
+}
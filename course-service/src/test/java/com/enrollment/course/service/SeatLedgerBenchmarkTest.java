@@ -0,0 +1,145 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.Course;
+import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseTombstoneRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares enroll/drop throughput of the MongoDB seat path with the seat ledger against a real
+ * MongoDB. Both go through CourseService, so the MongoDB path includes its catalog version
+ * round trips. Run with {@code mvn test -Dtest=SeatLedgerBenchmarkTest -Dbenchmark=true}.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SeatLedgerBenchmarkTest {
+
+    private static final int COURSES = 50;
+    private static final int CAPACITY = 1000;
+    private static final int OPERATIONS = 20_000;
+    private static final int THREADS = 32;
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.host", mongoDBContainer::getHost);
+        registry.add("spring.data.mongodb.port", () -> mongoDBContainer.getMappedPort(27017));
+        registry.add("spring.data.mongodb.database", () -> "course_service_seat_benchmark");
+    }
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        courseRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Benchmark enroll/drop throughput of MongoDB and the seat ledger")
+    void benchmarkSeatPaths() throws Exception {
+        List<String> courseIds = seedCourses();
+        CourseService mongo = courseService(null);
+        run(mongo, courseIds, OPERATIONS / 10);
+        double mongoRate = run(mongo, courseIds, OPERATIONS);
+
+        SeatLedger ledger = new SeatLedger(courseRepository, new SimpleMeterRegistry(), directory.toString(), 4, 512, Duration.ofSeconds(5));
+        try {
+            CourseService ledgerService = courseService(ledger);
+            run(ledgerService, courseIds, OPERATIONS / 10);
+            double ledgerRate = run(ledgerService, courseIds, OPERATIONS);
+            ledger.checkpoint();
+
+            System.out.printf("Seat changes per second: MongoDB %.0f, seat ledger %.0f (%.1fx)%n",
+                mongoRate, ledgerRate, ledgerRate / mongoRate);
+        } finally {
+            ledger.shutdown();
+        }
+        // Every enroll was followed by a drop
+        courseRepository.findAll().forEach(course -> assertEquals(0, course.getEnrolled()));
+    }
+
+    /**
+     * Runs {@code operations} enroll/drop pairs spread over the courses and returns seat changes per second.
+     */
+    private double run(CourseService service, List<String> courseIds, int operations) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < operations; i++) {
+                String courseId = courseIds.get(i % courseIds.size());
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    service.incrementEnrollment(courseId);
+                    service.decrementEnrollment(courseId);
+                    return null;
+                }));
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            return operations * 2 / ((System.nanoTime() - began) / 1e9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CourseService courseService(SeatLedger ledger) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (ledger != null) {
+            beans.addBean("seatLedger", ledger);
+        }
+        return new CourseService(courseRepository, mock(InstructorDirectory.class), mock(CourseSearchIndex.class),
+            mock(CourseTombstoneRepository.class), beans.getBeanProvider(SeatLedger.class));
+    }
+
+    private List<String> seedCourses() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setCode("BENCH" + i);
+            course.setTitle("Seat Benchmark " + i);
+            course.setCapacity(CAPACITY);
+            course.setEnrolled(0);
+            course.setStatus("open");
+            ids.add(courseRepository.save(course).getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,278 @@
+package com.enrollment.course.service;
+
+import com.enrollment.course.model.AppliedSeatOperation;
+import com.enrollment.course.model.Course;
+import com.enrollment.course.repository.CourseRepository;
+import com.enrollment.course.repository.CourseRepositoryCustom.SeatCount;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the seat ledger, including recovery from the write-ahead log after a crash.
+ * A crash is simulated by starting a second ledger on the same directory without shutting
+ * down the first one.
+ */
+@ExtendWith(MockitoExtension.class)
+class SeatLedgerTest {
+
+    @Mock
+    private CourseRepository courseRepository;
+
+    @TempDir
+    Path directory;
+
+    private final List<SeatLedger> ledgers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(courseRepository.findAll()).thenReturn(List.of(course("course1", 2, 0)));
+        lenient().when(courseRepository.beginCatalogChange()).thenReturn(7L);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (SeatLedger ledger : ledgers) {
+            ledger.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should take seats up to capacity, close the course when full and reopen it on release")
+    void shouldTakeSeatsUpToCapacity() throws IOException {
+        // Arrange
+        SeatLedger ledger = start();
+
+        // Act
+        SeatLedger.Outcome first = ledger.reserve("course1", null, 1);
+        SeatLedger.Outcome rest = ledger.reserve("course1", null, 5);
+        SeatLedger.Outcome full = ledger.reserve("course1", null, 1);
+        SeatLedger.Outcome released = ledger.release("course1", null, 1);
+        SeatLedger.Outcome unknown = ledger.reserve("missing", null, 1);
+
+        // Assert
+        assertEquals(SeatLedger.Status.APPLIED, first.status());
+        assertEquals(1, rest.seats());
+        assertEquals("closed", rest.course().getStatus());
+        assertEquals(SeatLedger.Status.NO_SEATS, full.status());
+        assertEquals(1, released.course().getEnrolled());
+        assertEquals("open", released.course().getStatus());
+        assertEquals(SeatLedger.Status.NOT_FOUND, unknown.status());
+    }
+
+    @Test
+    @DisplayName("Should apply an operation id only once")
+    void shouldApplyOperationIdOnlyOnce() throws IOException {
+        // Arrange
+        SeatLedger ledger = start();
+
+        // Act
+        SeatLedger.Outcome applied = ledger.reserve("course1", "op-1", 1);
+        SeatLedger.Outcome retried = ledger.reserve("course1", "op-1", 1);
+
+        // Assert
+        assertEquals(SeatLedger.Status.APPLIED, applied.status());
+        assertEquals(SeatLedger.Status.DUPLICATE, retried.status());
+        assertEquals(1, retried.course().getEnrolled());
+    }
+
+    @Test
+    @DisplayName("Should recover confirmed seat changes and applied operation ids from the log after a crash")
+    void shouldRecoverFromLogAfterCrash() throws IOException {
+        // Arrange
+        SeatLedger crashed = start();
+        crashed.reserve("course1", "op-1", 1);
+        crashed.reserve("course1", null, 1);
+
+        // Act
+        SeatLedger recovered = start();
+
+        // Assert
+        Course course = recovered.current("course1").orElseThrow();
+        assertEquals(2, course.getEnrolled());
+        assertEquals("closed", course.getStatus());
+        assertEquals(SeatLedger.Status.DUPLICATE, recovered.release("course1", "op-1", 1).status());
+        verify(courseRepository, never()).saveSeatCounts(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should remember operation ids recorded in MongoDB before it started")
+    void shouldRememberOperationIdsRecordedInMongo() throws IOException {
+        // Arrange
+        when(courseRepository.findAppliedSeatOperations(any(Date.class)))
+                .thenReturn(List.of(new AppliedSeatOperation("op-1", "course1", true, new Date())));
+
+        // Act
+        SeatLedger ledger = start();
+
+        // Assert
+        assertEquals(SeatLedger.Status.DUPLICATE, ledger.reserve("course1", "op-1", 1).status());
+        assertEquals(0, ledger.current("course1").orElseThrow().getEnrolled());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    @DisplayName("Should record the operation ids of a failed checkpoint with the next one")
+    void shouldRecordOperationIdsOfFailedCheckpointWithNextOne() throws IOException {
+        // Arrange
+        SeatLedger ledger = start();
+        ledger.reserve("course1", "op-1", 1);
+        doThrow(new RuntimeException("MongoDB unavailable")).doNothing().when(courseRepository).saveSeatCounts(anyList(), anyLong());
+        ledger.checkpoint();
+        ledger.reserve("course1", "op-2", 1);
+
+        // Act
+        ledger.checkpoint();
+
+        // Assert
+        ArgumentCaptor<List<SeatCount>> counts = ArgumentCaptor.forClass(List.class);
+        verify(courseRepository, times(2)).saveSeatCounts(counts.capture(), eq(7L));
+        assertEquals(List.of(new SeatCount("course1", 2, "closed", List.of("op-1", "op-2"))), counts.getValue());
+    }
+
+    @Test
+    @DisplayName("Should cut off a torn log entry left by a crash during a write")
+    void shouldCutOffTornLogEntry() throws IOException {
+        // Arrange
+        SeatLedger crashed = start();
+        crashed.reserve("course1", null, 1);
+        Path segment = segments().get(segments().size() - 1);
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // Act
+        SeatLedger recovered = start();
+
+        // Assert
+        assertEquals(1, recovered.current("course1").orElseThrow().getEnrolled());
+        assertEquals(intact, Files.size(segment));
+        assertEquals(SeatLedger.Status.APPLIED, recovered.reserve("course1", null, 1).status());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    @DisplayName("Should write changed seat counts to MongoDB on checkpoint and delete the covered log")
+    void shouldWriteSeatCountsOnCheckpoint() throws IOException {
+        // Arrange
+        SeatLedger ledger = start();
+        ledger.reserve("course1", "op-1", 1);
+
+        // Act
+        ledger.checkpoint();
+        ledger.checkpoint();
+
+        // Assert
+        ArgumentCaptor<List<SeatCount>> counts = ArgumentCaptor.forClass(List.class);
+        verify(courseRepository).saveSeatCounts(counts.capture(), eq(7L));
+        verify(courseRepository).endCatalogChange(7L);
+        assertEquals(List.of(new SeatCount("course1", 1, "open", List.of("op-1"))), counts.getValue());
+        for (Path segment : segments()) {
+            assertEquals(0, Files.size(segment));
+        }
+    }
+
+    @Test
+    @DisplayName("Should take a change back when its log write fails, so a retry applies it again")
+    void shouldTakeBackChangeWhenLogWriteFails() throws IOException {
+        // Arrange
+        CompletableFuture<Void> failure = CompletableFuture.failedFuture(new IOException("Disk full"));
+        SeatLedger ledger = start(new SeatLedgerWal(directory, 64) {
+            private boolean failNext = true;
+
+            @Override
+            CompletableFuture<Void> append(String courseId, String operationId, int enrolled, String status) {
+                if (failNext) {
+                    failNext = false;
+                    return failure;
+                }
+                return super.append(courseId, operationId, enrolled, status);
+            }
+        }, Duration.ofSeconds(5));
+
+        // Act
+        assertThrows(RuntimeException.class, () -> ledger.reserve("course1", "op-1", 1));
+        SeatLedger.Outcome retried = ledger.reserve("course1", "op-1", 1);
+
+        // Assert
+        assertEquals(SeatLedger.Status.APPLIED, retried.status());
+        assertEquals(1, ledger.current("course1").orElseThrow().getEnrolled());
+    }
+
+    @Test
+    @DisplayName("Should take a change back once it is logged if the caller stopped waiting for it")
+    void shouldTakeBackChangeCallerGaveUpOn() throws Exception {
+        // Arrange
+        CompletableFuture<Void> diskStall = new CompletableFuture<>();
+        SeatLedger ledger = start(new SeatLedgerWal(directory, 64) {
+            @Override
+            CompletableFuture<Void> append(String courseId, String operationId, int enrolled, String status) {
+                CompletableFuture<Void> written = super.append(courseId, operationId, enrolled, status);
+                return diskStall.thenCompose(stalled -> written);
+            }
+        }, Duration.ofMillis(100));
+
+        // Act
+        assertThrows(RuntimeException.class, () -> ledger.reserve("course1", "op-1", 2));
+        diskStall.complete(null);
+
+        // Assert
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ledger.current("course1").orElseThrow().getEnrolled() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Course course = ledger.current("course1").orElseThrow();
+        assertEquals(0, course.getEnrolled());
+        assertEquals("open", course.getStatus());
+        assertEquals(SeatLedger.Status.APPLIED, ledger.reserve("course1", "op-1", 1).status());
+    }
+
+    private SeatLedger start(SeatLedgerWal wal, Duration opTimeout) throws IOException {
+        SeatLedger ledger = new SeatLedger(courseRepository, new SimpleMeterRegistry(), wal, 2, opTimeout);
+        ledgers.add(ledger);
+        return ledger;
+    }
+
+    private SeatLedger start() throws IOException {
+        SeatLedger ledger = new SeatLedger(courseRepository, new SimpleMeterRegistry(), directory.toString(), 2, 64, Duration.ofSeconds(5));
+        ledgers.add(ledger);
+        return ledger;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private Course course(String id, int capacity, int enrolled) {
+        Course course = new Course();
+        course.setId(id);
+        course.setCode(id.toUpperCase());
+        course.setCapacity(capacity);
+        course.setEnrolled(enrolled);
+        course.setStatus("open");
+        return course;
+    }
+}
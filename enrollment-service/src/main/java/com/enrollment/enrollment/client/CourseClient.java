@@ -1,17 +1,31 @@
 package com.enrollment.enrollment.client;
 
+import com.enrollment.enrollment.model.CatalogChanges;
 import com.enrollment.enrollment.model.Course;
+import com.enrollment.enrollment.model.SeatOperation;
+import com.enrollment.enrollment.model.SeatOperationResult;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @FeignClient(name = "course-service", configuration = com.enrollment.enrollment.config.FeignConfig.class)
 public interface CourseClient {
     @GetMapping("/api/courses/{id}")
     Course getCourse(@PathVariable String id);
 
+    @GetMapping("/api/courses/changes")
+    CatalogChanges getCatalogChanges(@RequestParam("since") long since, @RequestParam("limit") int limit);
+
+    @PostMapping("/api/courses/batch")
+    List<Course> getCourses(@RequestBody List<String> ids);
+
     @PostMapping("/api/courses/{id}/enroll")
     Course incrementEnrollment(@PathVariable String id);
 
     @PostMapping("/api/courses/{id}/unenroll")
     Course decrementEnrollment(@PathVariable String id);
+
+    @PostMapping("/api/courses/seats/apply")
+    List<SeatOperationResult> applySeatOperations(@RequestBody List<SeatOperation> operations);
 } 
\ No newline at end of file
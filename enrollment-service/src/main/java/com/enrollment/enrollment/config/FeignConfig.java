@@ -1,5 +1,6 @@
 package com.enrollment.enrollment.config;
 
+import com.enrollment.enrollment.security.JwtService;
 import feign.RequestInterceptor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,20 +12,38 @@ import jakarta.servlet.http.HttpServletRequest;
 @Configuration
 public class FeignConfig {
 
+    // Seat counts may only be changed by services, never directly by the users they act for
+    static final String SEAT_PATH_PREFIX = "/api/courses/seats/";
+
     @Bean
-    public RequestInterceptor requestInterceptor() {
+    public RequestInterceptor requestInterceptor(JwtService jwtService) {
         return requestTemplate -> {
             // Get the current request attributes
             ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            if (attributes != null) {
-                HttpServletRequest request = attributes.getRequest();
-                // Get the Authorization header from the current request
-                String authorization = request.getHeader("Authorization");
-                if (authorization != null) {
-                    // Add the Authorization header to the Feign request
-                    requestTemplate.header("Authorization", authorization);
-                }
+            if (requestTemplate.path().startsWith(SEAT_PATH_PREFIX) || attributes == null) {
+                // Background jobs such as the seat outbox run outside of any request and act as the service
+                requestTemplate.header("Authorization", "Bearer " + jwtService.generateServiceToken());
+                return;
+            }
+            HttpServletRequest request = attributes.getRequest();
+            // Get the Authorization header from the current request
+            String authorization = request.getHeader("Authorization");
+            if (authorization != null) {
+                // Add the Authorization header to the Feign request
+                requestTemplate.header("Authorization", authorization);
+            }
+        };
+    }
+
+    @Bean
+    public RequestInterceptor deadlineInterceptor() {
+        return requestTemplate -> {
+            if (!RequestDeadline.isSet()) {
+                return;
             }
+            // Don't start a call the original caller will no longer wait for
+            RequestDeadline.check(requestTemplate.method() + " " + requestTemplate.path());
+            requestTemplate.header(RequestDeadline.HEADER, String.valueOf(RequestDeadline.remainingMillis()));
         };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package com.enrollment.enrollment.config;
+
+import com.enrollment.enrollment.service.IdempotencyService;
+import com.enrollment.enrollment.service.IdempotencyService.IdempotencyConflictException;
+import com.enrollment.enrollment.service.IdempotencyService.Result;
+import com.enrollment.enrollment.service.IdempotencyService.StoredResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Adds Idempotency-Key support to the enroll and drop endpoints, which clients retry on timeouts.
+ *
+ * A retry carrying the same key gets the original response (marked with an
+ * Idempotent-Replayed header) without the enrollment being run again. Keys are scoped to the
+ * authenticated caller. Requests without the header are passed through unchanged.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyKeyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean enroll = "POST".equals(request.getMethod()) && "/api/enrollments".equals(path);
+        boolean drop = "DELETE".equals(request.getMethod())
+                && PATH_MATCHER.match("/api/enrollments/student/*/course/*", path);
+        return !enroll && !drop;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpServletRequest replayableRequest = new CachedBodyRequest(request, body);
+
+        Result result;
+        try {
+            result = idempotencyService.execute(callerOf(request) + ":" + key, hash(request, body), () -> {
+                ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+                chain.doFilter(replayableRequest, captured);
+                StoredResponse stored = new StoredResponse(captured.getStatus(), captured.getContentType(),
+                        new String(captured.getContentAsByteArray(), StandardCharsets.UTF_8));
+                captured.copyBodyToResponse();
+                return stored;
+            });
+        } catch (IdempotencyConflictException e) {
+            if (e.getStatus() == HttpStatus.CONFLICT) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            }
+            writeError(response, e.getStatus(), e.getMessage());
+            return;
+        } catch (IOException | ServletException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+
+        if (result.replayed()) {
+            StoredResponse stored = result.response();
+            response.setStatus(stored.status());
+            response.setHeader(REPLAYED_HEADER, "true");
+            if (stored.contentType() != null) {
+                response.setContentType(stored.contentType());
+            }
+            if (stored.body() != null && !stored.body().isEmpty()) {
+                response.getOutputStream().write(stored.body().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private String callerOf(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getName() != null) {
+            return authentication.getName();
+        }
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return authorization == null ? "anonymous" : "token-" + sha256(authorization.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String hash(HttpServletRequest request, byte[] body) {
+        byte[] target = (request.getMethod() + " " + request.getRequestURI() + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] combined = new byte[target.length + body.length];
+        System.arraycopy(target, 0, combined, 0, target.length);
+        System.arraycopy(body, 0, combined, target.length, body.length);
+        return sha256(combined);
+    }
+
+    private String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+
+    /**
+     * The body has to be read up front to fingerprint the request, so downstream gets a copy.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
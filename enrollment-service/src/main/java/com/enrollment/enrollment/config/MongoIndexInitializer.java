@@ -0,0 +1,59 @@
+package com.enrollment.enrollment.config;
+
+import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.IdempotencyRecord;
+import com.enrollment.enrollment.model.WaitlistEntry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the enrollment documents once the application has started.
+ *
+ * Every repository query is backed by one of these indexes, and the unique
+ * (studentId, courseId) index is what stops concurrent enroll calls from inserting
+ * duplicate enrollments. Creating an index that already exists is a no-op.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "enrollment.indexes.create-on-startup", havingValue = "true", matchIfMissing = true)
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Enrollment.class, WaitlistEntry.class, IdempotencyRecord.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        try {
+            for (Class<?> documentType : INDEXED_DOCUMENTS) {
+                IndexOperations indexOps = mongoTemplate.indexOps(documentType);
+                resolver.resolveIndexFor(documentType).forEach(index -> {
+                    try {
+                        indexOps.ensureIndex(index);
+                    } catch (DataAccessResourceFailureException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        // Most likely existing duplicates blocking a unique index; they have to be cleaned up by hand
+                        log.error("Could not create index {} on {}: {}", index.getIndexOptions().get("name"),
+                                mongoTemplate.getCollectionName(documentType), e.getMessage());
+                    }
+                });
+            }
+            log.info("Ensured indexes for {} collection(s)", INDEXED_DOCUMENTS.size());
+        } catch (DataAccessResourceFailureException e) {
+            log.error("MongoDB is unavailable, indexes were not created: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.enrollment.enrollment.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time budget of the request being handled on the current thread.
+ *
+ * The budget travels between services as the number of milliseconds left (rather than an
+ * absolute time) so that clock differences between hosts do not matter. Work that can no
+ * longer finish in time is skipped, since the caller has already given up on it.
+ */
+public final class RequestDeadline {
+
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static void start(long budgetMillis) {
+        DEADLINE_NANOS.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    public static boolean isSet() {
+        return DEADLINE_NANOS.get() != null;
+    }
+
+    /**
+     * Milliseconds left for the current request, or Long.MAX_VALUE outside of a request.
+     */
+    public static long remainingMillis() {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    public static boolean isExpired() {
+        return remainingMillis() == 0;
+    }
+
+    /**
+     * @throws DeadlineExceededException if the current request has run out of time
+     */
+    public static void check(String operation) {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Request deadline exceeded before " + operation);
+        }
+    }
+
+    public static class DeadlineExceededException extends RuntimeException {
+        public DeadlineExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.enrollment.enrollment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Starts the request's time budget from the X-Request-Timeout-Ms header, or from the default
+ * budget for requests coming from outside. Requests that arrive with no budget left are
+ * answered with 504 right away, before authentication or any other work.
+ *
+ * Admin bulk endpoints legitimately run far longer than a normal request, so they get the bulk
+ * budget instead: it is both their default and their upper bound.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private static final Set<String> BULK_ENDPOINTS = Set.of("POST /api/enrollments/batch");
+
+    private final ObjectMapper objectMapper;
+    private final long defaultTimeoutMillis;
+    private final long maxTimeoutMillis;
+    private final long bulkTimeoutMillis;
+
+    public RequestDeadlineFilter(ObjectMapper objectMapper,
+                                 @Value("${deadline.default-timeout:10s}") Duration defaultTimeout,
+                                 @Value("${deadline.max-timeout:30s}") Duration maxTimeout,
+                                 @Value("${deadline.bulk-timeout:5m}") Duration bulkTimeout) {
+        this.objectMapper = objectMapper;
+        this.defaultTimeoutMillis = defaultTimeout.toMillis();
+        this.maxTimeoutMillis = maxTimeout.toMillis();
+        this.bulkTimeoutMillis = bulkTimeout.toMillis();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean bulk = BULK_ENDPOINTS.contains(request.getMethod() + " " + request.getRequestURI());
+        long budget = budgetOf(request, bulk ? bulkTimeoutMillis : defaultTimeoutMillis);
+        if (budget <= 0) {
+            log.warn("Rejecting {} {}: caller's deadline already passed", request.getMethod(), request.getRequestURI());
+            writeTimeout(response, "Request deadline exceeded");
+            return;
+        }
+
+        RequestDeadline.start(Math.min(budget, bulk ? bulkTimeoutMillis : maxTimeoutMillis));
+        try {
+            chain.doFilter(request, response);
+        } catch (RequestDeadline.DeadlineExceededException e) {
+            log.warn("Abandoned {} {}: {}", request.getMethod(), request.getRequestURI(), e.getMessage());
+            if (!response.isCommitted()) {
+                writeTimeout(response, e.getMessage());
+            }
+        } catch (ServletException e) {
+            if (e.getCause() instanceof RequestDeadline.DeadlineExceededException deadline && !response.isCommitted()) {
+                log.warn("Abandoned {} {}: {}", request.getMethod(), request.getRequestURI(), deadline.getMessage());
+                writeTimeout(response, deadline.getMessage());
+                return;
+            }
+            throw e;
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    private long budgetOf(HttpServletRequest request, long defaultBudget) {
+        String header = request.getHeader(RequestDeadline.HEADER);
+        if (header == null || header.isBlank()) {
+            return defaultBudget;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return defaultBudget;
+        }
+    }
+
+    private void writeTimeout(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpStatus.GATEWAY_TIMEOUT.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+}
@@ -73,12 +73,16 @@ public class SecurityConfig {
             "Origin",
             "X-Requested-With",
             "Access-Control-Request-Method",
-            "Access-Control-Request-Headers"
+            "Access-Control-Request-Headers",
+            "Idempotency-Key",
+            "X-Request-Timeout-Ms"
         ));
         configuration.setExposedHeaders(Arrays.asList(
             "Authorization",
             "Access-Control-Allow-Origin",
-            "Access-Control-Allow-Credentials"
+            "Access-Control-Allow-Credentials",
+            "Retry-After",
+            "Idempotent-Replayed"
         ));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
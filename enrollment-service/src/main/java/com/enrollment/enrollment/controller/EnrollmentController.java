@@ -1,13 +1,18 @@
 package com.enrollment.enrollment.controller;
 
+import com.enrollment.enrollment.config.RequestDeadline;
+import com.enrollment.enrollment.model.BulkEnrollmentItem;
 import com.enrollment.enrollment.model.Enrollment;
 import com.enrollment.enrollment.service.EnrollmentService;
+import com.enrollment.enrollment.service.RegistrationWaitingRoom;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -23,10 +28,14 @@ import java.util.HashMap;
 public class EnrollmentController {
 
     private final EnrollmentService enrollmentService;
+    private final RegistrationWaitingRoom registrationWaitingRoom;
 
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    @Value("${enrollment.bulk.max-items:20000}")
+    private int maxBulkItems;
+
     @GetMapping
     @PreAuthorize("hasRole('STUDENT') or hasRole('Student') or hasRole('FACULTY') or hasRole('Faculty') or hasRole('INSTRUCTOR') or hasRole('ADMIN')")
     public ResponseEntity<List<Enrollment>> getStudentEnrollmentsFromToken(@RequestHeader("Authorization") String authHeader) {
@@ -65,7 +74,21 @@ public class EnrollmentController {
             String token = authHeader.substring(7); // Remove "Bearer " prefix
             String studentId = extractStudentId(token);
             
-            return ResponseEntity.ok(enrollmentService.enrollStudent(studentId, courseId));
+            // Wait in the course's line so a registration rush degrades into orderly waiting
+            try (RegistrationWaitingRoom.Permit permit = registrationWaitingRoom.admit(courseId)) {
+                return enrolled(enrollmentService.enrollStudent(studentId, courseId));
+            }
+        } catch (RegistrationWaitingRoom.AdmissionRejectedException e) {
+            Map<String, Object> queuedResponse = new HashMap<>();
+            queuedResponse.put("error", e.getMessage());
+            queuedResponse.put("queuePosition", e.getQueuePosition());
+            queuedResponse.put("retryAfterSeconds", e.getRetryAfterSeconds());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(queuedResponse);
+        } catch (RequestDeadline.DeadlineExceededException e) {
+            // Answered with 504 by RequestDeadlineFilter
+            throw e;
         } catch (Exception e) {
             e.printStackTrace(); // Log full stack trace for debugging
             System.err.println("Error in enrollStudentFromRequest: " + e.getMessage());
@@ -77,6 +100,14 @@ public class EnrollmentController {
         }
     }
 
+    /**
+     * 202 Accepted while the seat is not confirmed yet: the enrollment is recorded but may still be
+     * revoked, which the client sees through seatPending and, later, revocationReason.
+     */
+    private ResponseEntity<Enrollment> enrolled(Enrollment enrollment) {
+        return enrollment.isSeatPending() ? ResponseEntity.accepted().body(enrollment) : ResponseEntity.ok(enrollment);
+    }
+
     private String extractStudentId(String token) {
         Claims claims = Jwts.parserBuilder()
                 .setSigningKey(getSigningKey())
@@ -105,12 +136,25 @@ public class EnrollmentController {
             @PathVariable String studentId,
             @PathVariable String courseId) {
         try {
-            return ResponseEntity.ok(enrollmentService.enrollStudent(studentId, courseId));
+            return enrolled(enrollmentService.enrollStudent(studentId, courseId));
+        } catch (RequestDeadline.DeadlineExceededException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> enrollStudentsInBulk(@RequestBody List<BulkEnrollmentItem> items) {
+        if (items.size() > maxBulkItems) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "A batch may contain at most " + maxBulkItems + " enrollments");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        return ResponseEntity.ok(enrollmentService.enrollStudentsInBulk(items));
+    }
+
     @DeleteMapping("/student/{studentId}/course/{courseId}")
     @PreAuthorize("hasRole('ADMIN') or (hasRole('STUDENT') and #studentId == authentication.name) or (hasRole('Student') and #studentId == authentication.name)")
     public ResponseEntity<?> unenrollStudent(
@@ -0,0 +1,62 @@
+package com.enrollment.enrollment.controller;
+
+import com.enrollment.enrollment.model.WaitlistEntry;
+import com.enrollment.enrollment.service.WaitlistService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/enrollments/waitlist")
+@RequiredArgsConstructor
+public class WaitlistController {
+
+    private final WaitlistService waitlistService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('STUDENT') or hasRole('Student')")
+    public ResponseEntity<List<WaitlistEntry>> getMyWaitlist(Authentication authentication) {
+        return ResponseEntity.ok(waitlistService.getStudentWaitlist(authentication.getName()));
+    }
+
+    @GetMapping("/course/{courseId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('FACULTY') or hasRole('Faculty') or hasRole('INSTRUCTOR')")
+    public ResponseEntity<List<WaitlistEntry>> getCourseWaitlist(@PathVariable String courseId) {
+        return ResponseEntity.ok(waitlistService.getCourseWaitlist(courseId));
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('STUDENT') or hasRole('Student')")
+    public ResponseEntity<?> joinWaitlist(Authentication authentication, @RequestBody Map<String, Object> request) {
+        try {
+            Object courseId = request.get("courseId");
+            if (courseId == null) {
+                throw new RuntimeException("courseId is required");
+            }
+            return ResponseEntity.ok(waitlistService.joinWaitlist(authentication.getName(), courseId.toString()));
+        } catch (RuntimeException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @DeleteMapping("/{courseId}")
+    @PreAuthorize("hasRole('STUDENT') or hasRole('Student')")
+    public ResponseEntity<?> leaveWaitlist(Authentication authentication, @PathVariable String courseId) {
+        try {
+            waitlistService.leaveWaitlist(authentication.getName(), courseId);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+}
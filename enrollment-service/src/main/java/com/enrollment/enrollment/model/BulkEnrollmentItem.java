@@ -0,0 +1,13 @@
+package com.enrollment.enrollment.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollmentItem {
+    private String studentId;
+    private String courseId;
+}
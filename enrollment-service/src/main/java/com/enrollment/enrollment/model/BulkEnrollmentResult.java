@@ -0,0 +1,33 @@
+package com.enrollment.enrollment.model;
+
+import lombok.Data;
+
+@Data
+public class BulkEnrollmentResult {
+    private String studentId;
+    private String courseId;
+    // "enrolled" or "failed"
+    private String status;
+    private String enrollmentId;
+    private String error;
+
+    public static BulkEnrollmentResult enrolled(BulkEnrollmentItem item, String enrollmentId) {
+        BulkEnrollmentResult result = of(item, "enrolled");
+        result.setEnrollmentId(enrollmentId);
+        return result;
+    }
+
+    public static BulkEnrollmentResult failed(BulkEnrollmentItem item, String error) {
+        BulkEnrollmentResult result = of(item, "failed");
+        result.setError(error);
+        return result;
+    }
+
+    private static BulkEnrollmentResult of(BulkEnrollmentItem item, String status) {
+        BulkEnrollmentResult result = new BulkEnrollmentResult();
+        result.setStudentId(item.getStudentId());
+        result.setCourseId(item.getCourseId());
+        result.setStatus(status);
+        return result;
+    }
+}
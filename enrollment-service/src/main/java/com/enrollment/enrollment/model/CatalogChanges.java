@@ -0,0 +1,18 @@
+package com.enrollment.enrollment.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A page of course-service's catalog changes feed.
+ */
+@Data
+public class CatalogChanges {
+    // Pass as since on the next call
+    private long version;
+    private List<Course> courses;
+    private List<String> deleted;
+    // More changes are waiting beyond this version
+    private boolean hasMore;
+}
@@ -1,14 +1,28 @@
 package com.enrollment.enrollment.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 @Data
 @Document(collection = "enrollments")
+@CompoundIndexes({
+    // One enrollment document per student and course; also serves lookups by studentId alone
+    @CompoundIndex(name = "student_course_idx", def = "{'studentId': 1, 'courseId': 1}", unique = true),
+    @CompoundIndex(name = "student_status_idx", def = "{'studentId': 1, 'status': 1}"),
+    @CompoundIndex(name = "course_status_idx", def = "{'courseId': 1, 'status': 1}"),
+    @CompoundIndex(name = "email_course_idx", def = "{'studentEmail': 1, 'courseId': 1}"),
+    // Only enrollments with undelivered seat changes are indexed, which keeps outbox polling cheap
+    @CompoundIndex(name = "seat_outbox_idx", def = "{'pendingSeatChanges.nextAttemptAt': 1}", sparse = true)
+})
 public class Enrollment {
     @Id
     private String id;
@@ -21,4 +35,39 @@ public class Enrollment {
 
     @Transient
     private Course course;
+
+    // Outbox of seat changes not yet applied by course-service. Written in the same document
+    // update as the status change, so an enrollment change and its seat effect cannot diverge.
+    @JsonIgnore
+    private List<SeatChange> pendingSeatChanges;
+
+    // The reservation this enrollment's seat depends on, while it may still be rejected. Not set
+    // when the seat was handed over directly, e.g. from a dropped enrollment to the waitlist.
+    @JsonIgnore
+    private String seatOperationId;
+
+    // Set when a late seat rejection dropped this enrollment again, cleared when it is re-enrolled
+    private String revocationReason;
+
+    /**
+     * True while course-service has not confirmed the seat this enrollment depends on, e.g.
+     * because it could not be reached. The enrollment is revoked if the seat is later rejected.
+     */
+    public boolean isSeatPending() {
+        return seatOperationId != null && pendingSeatChanges != null
+            && pendingSeatChanges.stream().anyMatch(change -> seatOperationId.equals(change.getOperationId()));
+    }
+
+    public void addPendingSeatChange(SeatChange change) {
+        if (pendingSeatChanges == null) {
+            pendingSeatChanges = new ArrayList<>();
+        }
+        pendingSeatChanges.add(change);
+    }
+
+    public void removePendingSeatChange(SeatChange change) {
+        if (pendingSeatChanges != null) {
+            pendingSeatChanges.removeIf(pending -> pending.getOperationId().equals(change.getOperationId()));
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.enrollment.enrollment.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * The outcome of a request sent with an Idempotency-Key, kept so that retries of the same
+ * request get the original response back instead of running it again.
+ */
+@Data
+@Document(collection = "idempotency_records")
+public class IdempotencyRecord {
+    public static final String IN_PROGRESS = "in_progress";
+    public static final String COMPLETED = "completed";
+
+    // Caller + key, so two users can never see each other's responses
+    @Id
+    private String id;
+
+    // Hash of method, path and body; reusing a key for a different request is refused
+    private String requestHash;
+    private String status;
+
+    private int responseStatus;
+    private String contentType;
+    private String responseBody;
+
+    // While in progress, another instance may take the key over after this (e.g. the owner crashed)
+    private Date lockedUntil;
+    private Date createdAt = new Date();
+
+    @Indexed(name = "expires_at_ttl", expireAfter = "0s")
+    private Date expiresAt;
+}
@@ -0,0 +1,44 @@
+package com.enrollment.enrollment.model;
+
+import lombok.Data;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * A seat change that still has to be applied by course-service: {@code delta} is +1 to take
+ * a seat and -1 to give one back. Course-service applies each operation id at most once,
+ * no matter how often the change is delivered.
+ *
+ * The changes of one enrollment are delivered one at a time, in order. Only the first one has
+ * a {@code nextAttemptAt}; the ones queued behind it get theirs when it completes. Once a change
+ * has been sent ({@code sentAt} is set) it may have been applied even if no answer came back,
+ * so from then on it can only be completed, never withdrawn.
+ */
+@Data
+public class SeatChange {
+    private String operationId;
+    private int delta;
+    private Date createdAt;
+    private Date nextAttemptAt;
+    private Date sentAt;
+    private int attempts;
+    private String lastError;
+
+    public static SeatChange reserve() {
+        return of(1);
+    }
+
+    public static SeatChange release() {
+        return of(-1);
+    }
+
+    private static SeatChange of(int delta) {
+        SeatChange change = new SeatChange();
+        change.setOperationId(UUID.randomUUID().toString());
+        change.setDelta(delta);
+        change.setCreatedAt(new Date());
+        change.setNextAttemptAt(change.getCreatedAt());
+        return change;
+    }
+}
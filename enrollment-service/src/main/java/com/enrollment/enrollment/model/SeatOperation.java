@@ -0,0 +1,14 @@
+package com.enrollment.enrollment.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatOperation {
+    private String operationId;
+    private String courseId;
+    private int delta;
+}
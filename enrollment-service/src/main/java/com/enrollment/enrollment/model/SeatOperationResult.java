@@ -0,0 +1,16 @@
+package com.enrollment.enrollment.model;
+
+import lombok.Data;
+
+@Data
+public class SeatOperationResult {
+    // "applied", "duplicate" (applied by an earlier delivery) or "rejected"
+    private String status;
+    private String operationId;
+    private String error;
+    private Course course;
+
+    public boolean isRejected() {
+        return "rejected".equals(status);
+    }
+}
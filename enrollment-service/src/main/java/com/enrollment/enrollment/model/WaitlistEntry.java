@@ -0,0 +1,33 @@
+package com.enrollment.enrollment.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@Document(collection = "waitlist")
+@CompoundIndexes({
+    @CompoundIndex(name = "course_position_idx", def = "{'courseId': 1, 'position': 1}", unique = true),
+    @CompoundIndex(name = "student_course_idx", def = "{'studentId': 1, 'courseId': 1}", unique = true)
+})
+public class WaitlistEntry {
+    @Id
+    private String id;
+
+    private String courseId;
+    private String studentId;
+    // Monotonically increasing per course; the entry with the lowest position is next in line
+    private long position;
+    private Date joinedAt = new Date();
+    // Set while a promotion of this entry is in progress; other promotions skip the entry until then
+    private Date claimedUntil;
+
+    // 1-based place in line, computed when the entry is read
+    @Transient
+    private Long placeInLine;
+}
@@ -4,14 +4,17 @@ import com.enrollment.enrollment.model.Enrollment;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface EnrollmentRepository extends MongoRepository<Enrollment, String> {
+public interface EnrollmentRepository extends MongoRepository<Enrollment, String>, EnrollmentRepositoryCustom {
     List<Enrollment> findByStudentId(String studentId);
     List<Enrollment> findByCourseId(String courseId);
     Optional<Enrollment> findByStudentIdAndCourseId(String studentId, String courseId);
     List<Enrollment> findByStudentIdAndStatus(String studentId, String status);
     Optional<Enrollment> findByStudentEmailAndCourseId(String studentEmail, String courseId);
+    List<Enrollment> findByStudentIdInAndCourseIdIn(Collection<String> studentIds, Collection<String> courseIds);
+    long deleteByIdAndStatusAndSeatOperationId(String id, String status, String seatOperationId);
 } 
\ No newline at end of file
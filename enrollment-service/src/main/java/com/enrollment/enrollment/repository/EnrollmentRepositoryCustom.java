@@ -0,0 +1,99 @@
+package com.enrollment.enrollment.repository;
+
+import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.SeatChange;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface EnrollmentRepositoryCustom {
+
+    /**
+     * Writes all enrollments in one unordered bulk operation: enrollments without an id are
+     * inserted (and get their id assigned), existing ones have their status, enrollment date and
+     * seat changes set, but only while they are still dropped with nothing pending. Returns the
+     * error message of every failed write, including existing enrollments that no longer matched,
+     * keyed by its index in {@code enrollments}.
+     */
+    Map<Integer, String> bulkSave(List<Enrollment> enrollments);
+
+    /**
+     * Moves the enrollment from {@code fromStatus} to {@code toStatus} and appends {@code change}
+     * (if any) to its outbox in one conditional update, so concurrent requests cannot both make
+     * the same transition. Moving to "enrolled" also stamps the enrollment date and makes
+     * {@code change} the reservation the seat depends on (none if {@code change} is null). If other
+     * changes are still pending, {@code change} is queued behind them and its sent and next attempt
+     * times are cleared. Returns the updated enrollment, or null if it was not in {@code fromStatus}.
+     */
+    Enrollment changeStatus(String enrollmentId, String fromStatus, String toStatus, SeatChange change);
+
+    /**
+     * Moves the enrollment from {@code fromStatus} to {@code toStatus} and, in the same update,
+     * withdraws a pending change of {@code delta} that has not been sent yet, e.g. the reservation of
+     * an enrollment dropped before course-service ever saw it. Returns the updated enrollment, or
+     * null if it was not in {@code fromStatus} or had no such change.
+     */
+    Enrollment changeStatusWithdrawing(String enrollmentId, String fromStatus, String toStatus, int delta);
+
+    /**
+     * Takes back a reactivation whose reservation was claimed but never sent (e.g. the request ran
+     * out of time first): moves the enrollment from enrolled back to dropped and removes the
+     * reservation in one conditional update. Returns the updated enrollment, or null if the
+     * enrollment no longer depends on that reservation.
+     */
+    Enrollment undoReactivation(String enrollmentId, String reservationId);
+
+    /**
+     * Appends a change to the enrollment's outbox whatever its status.
+     */
+    void appendSeatChange(String enrollmentId, SeatChange change);
+
+    /**
+     * Withdraws a change that is first in the enrollment's outbox and has not been sent yet.
+     * Returns false if it was sent, completed or withdrawn in the meantime.
+     */
+    boolean withdrawSeatChange(String enrollmentId, String operationId);
+
+    /**
+     * Returns up to {@code limit} enrollments with a pending seat change that is due at {@code now},
+     * most overdue first.
+     */
+    List<Enrollment> findWithDueSeatChanges(Date now, int limit);
+
+    /**
+     * Claims the first pending change of up to {@code limit} enrollments that are due at {@code now}:
+     * marks it as sent and holds off other deliveries until {@code claimedUntil}. Returns the
+     * enrollments whose first change was claimed; changes withdrawn or claimed elsewhere in the
+     * meantime are left out.
+     */
+    List<Enrollment> claimDueSeatChanges(Date now, Date claimedUntil, int limit);
+
+    /**
+     * Removes a delivered seat change and makes the next one, if any, due. A rejected reservation
+     * also takes an unsent release queued behind it along, as that release would give back a seat
+     * that was never taken. Returns false if it was no longer pending, e.g. because another
+     * delivery completed it first.
+     */
+    boolean completeSeatChange(String enrollmentId, String operationId, boolean rejectedReservation);
+
+    /**
+     * Drops an enrollment whose seat depended on a reservation that course-service rejected and
+     * records why, so the student sees it was revoked. Returns false if the enrollment no longer
+     * depends on it (dropped, or enrolled again since).
+     */
+    boolean revokeEnrollment(String enrollmentId, String reservationId, String reason);
+
+    /**
+     * Records a failed delivery of a pending seat change and when to try it next.
+     */
+    void rescheduleSeatChange(String enrollmentId, String operationId, Date nextAttemptAt, String lastError);
+
+    /**
+     * Number of pending seat changes and the creation time of the oldest one (null if none are pending).
+     */
+    SeatOutboxStats getSeatOutboxStats();
+
+    record SeatOutboxStats(long pending, Date oldestCreatedAt) {
+    }
+}
@@ -0,0 +1,270 @@
+package com.enrollment.enrollment.repository;
+
+import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.SeatChange;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@RequiredArgsConstructor
+public class EnrollmentRepositoryImpl implements EnrollmentRepositoryCustom {
+
+    private static final String SEAT_CHANGES = "pendingSeatChanges";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Map<Integer, String> bulkSave(List<Enrollment> enrollments) {
+        Map<Integer, String> failures = new HashMap<>();
+        if (enrollments.isEmpty()) {
+            return failures;
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Enrollment.class);
+        List<Integer> updates = new ArrayList<>();
+        for (int i = 0; i < enrollments.size(); i++) {
+            Enrollment enrollment = enrollments.get(i);
+            if (enrollment.getId() == null) {
+                // Assigned up front so callers can report the id of every inserted enrollment
+                enrollment.setId(new ObjectId().toHexString());
+                bulkOps.insert(enrollment);
+            } else {
+                // Only a dropped enrollment with nothing pending, so a concurrent reactivation or drop is not overwritten
+                Criteria dropped = Criteria.where("_id").is(enrollment.getId()).and("status").is("dropped");
+                bulkOps.updateOne(new Query(new Criteria().andOperator(dropped, emptyOutbox())),
+                    new Update().set("status", enrollment.getStatus()).set("enrollmentDate", enrollment.getEnrollmentDate())
+                        .set(SEAT_CHANGES, enrollment.getPendingSeatChanges())
+                        .set("seatOperationId", enrollment.getSeatOperationId())
+                        .unset("revocationReason"));
+                updates.add(i);
+            }
+        }
+
+        BulkWriteResult result;
+        try {
+            result = bulkOps.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(error.getIndex(), ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY
+                    ? "Student is already enrolled in this course"
+                    : error.getMessage());
+            }
+        }
+
+        if (result.getMatchedCount() < updates.size()) {
+            // The bulk result only counts matches, so find out which enrollments were not ours to update
+            Map<String, Enrollment> current = new HashMap<>();
+            List<String> ids = updates.stream().map(i -> enrollments.get(i).getId()).toList();
+            mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), Enrollment.class)
+                .forEach(enrollment -> current.put(enrollment.getId(), enrollment));
+            for (int i : updates) {
+                Enrollment written = enrollments.get(i);
+                Enrollment found = current.get(written.getId());
+                if (found == null || !Objects.equals(found.getSeatOperationId(), written.getSeatOperationId())) {
+                    failures.putIfAbsent(i, found != null && !"dropped".equals(found.getStatus())
+                        ? "Student is already enrolled in this course"
+                        : "Enrollment was changed concurrently, please try again");
+                }
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public Enrollment changeStatus(String enrollmentId, String fromStatus, String toStatus, SeatChange change) {
+        Criteria current = Criteria.where("_id").is(enrollmentId).and("status").is(fromStatus);
+        if (change == null) {
+            return findAndModify(current, statusUpdate(toStatus, null));
+        }
+
+        Enrollment updated = findAndModify(new Criteria().andOperator(current, emptyOutbox()),
+            statusUpdate(toStatus, change).push(SEAT_CHANGES, change));
+        if (updated != null) {
+            return updated;
+        }
+        // Other changes are still pending; this one waits its turn
+        change.setSentAt(null);
+        change.setNextAttemptAt(null);
+        return armFirst(findAndModify(current, statusUpdate(toStatus, change).push(SEAT_CHANGES, change)));
+    }
+
+    @Override
+    public Enrollment changeStatusWithdrawing(String enrollmentId, String fromStatus, String toStatus, int delta) {
+        Criteria criteria = Criteria.where("_id").is(enrollmentId).and("status").is(fromStatus)
+            .and(SEAT_CHANGES).elemMatch(Criteria.where("delta").is(delta).and("sentAt").is(null));
+        Update update = new Update().set("status", toStatus).pull(SEAT_CHANGES, new Document("delta", delta).append("sentAt", null));
+        if ("enrolled".equals(toStatus)) {
+            update.set("enrollmentDate", new Date()).unset("revocationReason");
+        }
+        return armFirst(findAndModify(criteria, update));
+    }
+
+    @Override
+    public Enrollment undoReactivation(String enrollmentId, String reservationId) {
+        Criteria criteria = Criteria.where("_id").is(enrollmentId).and("status").is("enrolled").and("seatOperationId").is(reservationId);
+        Update update = new Update().set("status", "dropped").unset("seatOperationId")
+            .pull(SEAT_CHANGES, new Document("operationId", reservationId));
+        return armFirst(findAndModify(criteria, update));
+    }
+
+    @Override
+    public void appendSeatChange(String enrollmentId, SeatChange change) {
+        Criteria criteria = Criteria.where("_id").is(enrollmentId);
+        if (findAndModify(new Criteria().andOperator(criteria, emptyOutbox()), new Update().push(SEAT_CHANGES, change)) == null) {
+            change.setSentAt(null);
+            change.setNextAttemptAt(null);
+            armFirst(findAndModify(criteria, new Update().push(SEAT_CHANGES, change)));
+        }
+    }
+
+    @Override
+    public boolean withdrawSeatChange(String enrollmentId, String operationId) {
+        Criteria criteria = Criteria.where("_id").is(enrollmentId)
+            .and(SEAT_CHANGES + ".0.operationId").is(operationId)
+            .and(SEAT_CHANGES + ".0.sentAt").is(null);
+        return armFirst(findAndModify(criteria, new Update().pull(SEAT_CHANGES, new Document("operationId", operationId)))) != null;
+    }
+
+    @Override
+    public List<Enrollment> findWithDueSeatChanges(Date now, int limit) {
+        Query query = new Query(Criteria.where(SEAT_CHANGES + ".nextAttemptAt").lte(now))
+            .with(Sort.by(SEAT_CHANGES + ".nextAttemptAt"))
+            .limit(limit);
+        return mongoTemplate.find(query, Enrollment.class);
+    }
+
+    @Override
+    public List<Enrollment> claimDueSeatChanges(Date now, Date claimedUntil, int limit) {
+        List<String> enrollmentIds = new ArrayList<>();
+        List<String> operationIds = new ArrayList<>();
+        for (Enrollment enrollment : findWithDueSeatChanges(now, limit)) {
+            SeatChange first = firstSeatChange(enrollment);
+            if (first != null && first.getNextAttemptAt() != null && !first.getNextAttemptAt().after(now)) {
+                enrollmentIds.add(enrollment.getId());
+                operationIds.add(first.getOperationId());
+            }
+        }
+        if (enrollmentIds.isEmpty()) {
+            return List.of();
+        }
+
+        Update claim = new Update()
+            .min(SEAT_CHANGES + ".$[change].sentAt", now)
+            .set(SEAT_CHANGES + ".$[change].nextAttemptAt", claimedUntil)
+            .filterArray(Criteria.where("change.operationId").in(operationIds).and("change.nextAttemptAt").lte(now));
+        mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(enrollmentIds)), claim, Enrollment.class);
+
+        // Read back what was claimed; a change claimed by another instance has a different lease
+        List<Enrollment> claimed = new ArrayList<>();
+        for (Enrollment enrollment : mongoTemplate.find(new Query(Criteria.where("_id").in(enrollmentIds)), Enrollment.class)) {
+            SeatChange first = firstSeatChange(enrollment);
+            if (first != null && operationIds.contains(first.getOperationId()) && claimedUntil.equals(first.getNextAttemptAt())) {
+                claimed.add(enrollment);
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public boolean completeSeatChange(String enrollmentId, String operationId, boolean rejectedReservation) {
+        Query query = new Query(Criteria.where("_id").is(enrollmentId).and(SEAT_CHANGES + ".operationId").is(operationId));
+        Document completed = new Document("operationId", operationId);
+        if (rejectedReservation) {
+            completed = new Document("$or", List.of(completed, new Document("delta", -1).append("sentAt", null)));
+        }
+        return armFirst(mongoTemplate.findAndModify(query, new Update().pull(SEAT_CHANGES, completed),
+            FindAndModifyOptions.options().returnNew(true), Enrollment.class)) != null;
+    }
+
+    @Override
+    public boolean revokeEnrollment(String enrollmentId, String reservationId, String reason) {
+        Query query = new Query(Criteria.where("_id").is(enrollmentId).and("status").is("enrolled").and("seatOperationId").is(reservationId));
+        Update update = new Update().set("status", "dropped").set("revocationReason", reason).unset("seatOperationId");
+        return mongoTemplate.updateFirst(query, update, Enrollment.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public void rescheduleSeatChange(String enrollmentId, String operationId, Date nextAttemptAt, String lastError) {
+        Query query = new Query(Criteria.where("_id").is(enrollmentId).and(SEAT_CHANGES + ".operationId").is(operationId));
+        Update update = new Update()
+            .inc(SEAT_CHANGES + ".$.attempts", 1)
+            .set(SEAT_CHANGES + ".$.nextAttemptAt", nextAttemptAt)
+            .set(SEAT_CHANGES + ".$.lastError", lastError);
+        mongoTemplate.updateFirst(query, update, Enrollment.class);
+    }
+
+    private Enrollment findAndModify(Criteria criteria, Update update) {
+        return mongoTemplate.findAndModify(new Query(criteria), update, FindAndModifyOptions.options().returnNew(true), Enrollment.class);
+    }
+
+    /**
+     * Makes the first pending change due if it was queued behind one that is gone now.
+     */
+    private Enrollment armFirst(Enrollment enrollment) {
+        SeatChange first = enrollment == null ? null : firstSeatChange(enrollment);
+        if (first != null && first.getNextAttemptAt() == null) {
+            Query queued = new Query(Criteria.where("_id").is(enrollment.getId())
+                .and(SEAT_CHANGES + ".0.operationId").is(first.getOperationId())
+                .and(SEAT_CHANGES + ".0.nextAttemptAt").is(null));
+            Date now = new Date();
+            mongoTemplate.updateFirst(queued, new Update().set(SEAT_CHANGES + ".0.nextAttemptAt", now), Enrollment.class);
+            first.setNextAttemptAt(now);
+        }
+        return enrollment;
+    }
+
+    private static Update statusUpdate(String toStatus, SeatChange change) {
+        Update update = new Update().set("status", toStatus);
+        if ("enrolled".equals(toStatus)) {
+            update.set("enrollmentDate", new Date()).unset("revocationReason");
+            if (change != null && change.getDelta() > 0) {
+                update.set("seatOperationId", change.getOperationId());
+            } else {
+                update.unset("seatOperationId");
+            }
+        }
+        return update;
+    }
+
+    private static Criteria emptyOutbox() {
+        return new Criteria().orOperator(Criteria.where(SEAT_CHANGES).exists(false), Criteria.where(SEAT_CHANGES).size(0));
+    }
+
+    private static SeatChange firstSeatChange(Enrollment enrollment) {
+        List<SeatChange> changes = enrollment.getPendingSeatChanges();
+        return changes == null || changes.isEmpty() ? null : changes.get(0);
+    }
+
+    @Override
+    public SeatOutboxStats getSeatOutboxStats() {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where(SEAT_CHANGES + ".nextAttemptAt").exists(true)),
+            Aggregation.unwind(SEAT_CHANGES),
+            Aggregation.group().count().as("pending").min(SEAT_CHANGES + ".createdAt").as("oldest"));
+        Document stats = mongoTemplate.aggregate(aggregation, Enrollment.class, Document.class).getUniqueMappedResult();
+        if (stats == null) {
+            return new SeatOutboxStats(0, null);
+        }
+        return new SeatOutboxStats(((Number) stats.get("pending")).longValue(), stats.getDate("oldest"));
+    }
+}
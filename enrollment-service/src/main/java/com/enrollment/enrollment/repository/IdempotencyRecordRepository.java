@@ -0,0 +1,19 @@
+package com.enrollment.enrollment.repository;
+
+import com.enrollment.enrollment.model.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+@Repository
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String> {
+    long deleteByIdAndStatusAndLockedUntilBefore(String id, String status, Date now);
+
+    // Extends the lease of a request that is still running; 0 if the key was taken over or completed
+    @Query("{ '_id': ?0, 'requestHash': ?1, 'status': 'in_progress' }")
+    @Update("{ '$set': { 'lockedUntil': ?2 } }")
+    long renewLease(String id, String requestHash, Date lockedUntil);
+}
@@ -0,0 +1,20 @@
+package com.enrollment.enrollment.repository;
+
+import com.enrollment.enrollment.model.WaitlistEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistRepository extends MongoRepository<WaitlistEntry, String>, WaitlistRepositoryCustom {
+    List<WaitlistEntry> findByCourseIdOrderByPositionAsc(String courseId);
+    List<WaitlistEntry> findByStudentId(String studentId);
+    Optional<WaitlistEntry> findFirstByCourseIdOrderByPositionAsc(String courseId);
+    Optional<WaitlistEntry> findFirstByCourseIdOrderByPositionDesc(String courseId);
+    Optional<WaitlistEntry> findByCourseIdAndStudentId(String courseId, String studentId);
+    long countByCourseIdAndPositionLessThan(String courseId, long position);
+    long deleteByIdAndClaimedUntil(String id, Date claimedUntil);
+}
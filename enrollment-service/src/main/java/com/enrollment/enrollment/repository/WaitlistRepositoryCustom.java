@@ -0,0 +1,25 @@
+package com.enrollment.enrollment.repository;
+
+import com.enrollment.enrollment.model.WaitlistEntry;
+
+import java.util.Date;
+import java.util.List;
+
+public interface WaitlistRepositoryCustom {
+
+    /**
+     * Claims the first entry of the course's waitlist that is not claimed, or whose claim ran out
+     * at {@code now}, until {@code claimedUntil}. Returns the claimed entry, or null if there is none.
+     */
+    WaitlistEntry claimHead(String courseId, Date now, Date claimedUntil);
+
+    /**
+     * Gives up a claim made by {@link #claimHead}, unless it ran out and was taken over since.
+     */
+    void releaseClaim(String entryId, Date claimedUntil);
+
+    /**
+     * Ids of the courses anyone is waiting for.
+     */
+    List<String> findWaitlistedCourseIds();
+}
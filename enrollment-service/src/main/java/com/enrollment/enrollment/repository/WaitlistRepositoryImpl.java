@@ -0,0 +1,41 @@
+package com.enrollment.enrollment.repository;
+
+import com.enrollment.enrollment.model.WaitlistEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class WaitlistRepositoryImpl implements WaitlistRepositoryCustom {
+
+    private static final String CLAIMED_UNTIL = "claimedUntil";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public WaitlistEntry claimHead(String courseId, Date now, Date claimedUntil) {
+        Query query = new Query(Criteria.where("courseId").is(courseId)
+            .orOperator(Criteria.where(CLAIMED_UNTIL).is(null), Criteria.where(CLAIMED_UNTIL).lte(now)))
+            .with(Sort.by("position"));
+        return mongoTemplate.findAndModify(query, new Update().set(CLAIMED_UNTIL, claimedUntil),
+            FindAndModifyOptions.options().returnNew(true), WaitlistEntry.class);
+    }
+
+    @Override
+    public void releaseClaim(String entryId, Date claimedUntil) {
+        Query query = new Query(Criteria.where("_id").is(entryId).and(CLAIMED_UNTIL).is(claimedUntil));
+        mongoTemplate.updateFirst(query, new Update().unset(CLAIMED_UNTIL), WaitlistEntry.class);
+    }
+
+    @Override
+    public List<String> findWaitlistedCourseIds() {
+        return mongoTemplate.findDistinct(new Query(), "courseId", WaitlistEntry.class, String.class);
+    }
+}
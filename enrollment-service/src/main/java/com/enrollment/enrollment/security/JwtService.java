@@ -23,6 +23,8 @@ import java.util.function.Function;
 @Slf4j
 public class JwtService {
 
+    private static final long SERVICE_TOKEN_TTL_MILLIS = 5 * 60 * 1000;
+
     @Value("${jwt.secret}")
     private String secretKey;
 
@@ -54,6 +56,21 @@ public class JwtService {
         return buildToken(extraClaims, userDetails, jwtExpiration);
     }
 
+    /**
+     * Short-lived token identifying enrollment-service itself to other services, for calls that
+     * are not made on behalf of a user (or that users must not be able to make themselves).
+     */
+    public String generateServiceToken() {
+        return Jwts
+                .builder()
+                .setClaims(Map.of("roles", List.of("SERVICE")))
+                .setSubject("enrollment-service")
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + SERVICE_TOKEN_TTL_MILLIS))
+                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
     private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
         return Jwts
                 .builder()
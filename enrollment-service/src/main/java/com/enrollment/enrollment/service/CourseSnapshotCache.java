@@ -0,0 +1,175 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.model.Course;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded in-process cache of course snapshots fetched from course-service.
+ *
+ * Entries are fresh for the configured TTL. Expired entries are kept (until evicted
+ * by size or max staleness) so they can be served when course-service fails or the
+ * {@code basic} circuit breaker is open. Seat changes made through this service
+ * refresh the cached snapshot with the course returned by course-service; changes made
+ * elsewhere evict it as they come in through the catalog changes feed (see {@link WaitlistPromoter}).
+ */
+@Component
+@Slf4j
+public class CourseSnapshotCache {
+
+    static final String CIRCUIT_BREAKER_NAME = "basic";
+
+    private final CourseClient courseClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Clock clock;
+    private final long ttlMillis;
+    private final long maxStaleMillis;
+    private final int maxSize;
+    private final Map<String, Entry> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleHits;
+    private final Counter evictions;
+
+    @Autowired
+    public CourseSnapshotCache(CourseClient courseClient,
+                               CircuitBreakerRegistry circuitBreakerRegistry,
+                               MeterRegistry meterRegistry,
+                               @Value("${enrollment.course-cache.ttl:30s}") Duration ttl,
+                               @Value("${enrollment.course-cache.max-stale:1h}") Duration maxStale,
+                               @Value("${enrollment.course-cache.max-size:1000}") int maxSize) {
+        this(courseClient, circuitBreakerRegistry, meterRegistry, ttl, maxStale, maxSize, Clock.systemUTC());
+    }
+
+    CourseSnapshotCache(CourseClient courseClient,
+                        CircuitBreakerRegistry circuitBreakerRegistry,
+                        MeterRegistry meterRegistry,
+                        Duration ttl,
+                        Duration maxStale,
+                        int maxSize,
+                        Clock clock) {
+        this.courseClient = courseClient;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_NAME);
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.maxStaleMillis = maxStale.toMillis();
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CourseSnapshotCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("enrollment.course.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("enrollment.course.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.staleHits = Counter.builder("enrollment.course.cache.requests").tag("result", "stale").register(meterRegistry);
+        this.evictions = Counter.builder("enrollment.course.cache.evictions").register(meterRegistry);
+        Gauge.builder("enrollment.course.cache.size", this, CourseSnapshotCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the course snapshot for the given id, or null if course-service does not know it.
+     */
+    public Course getCourse(String courseId) {
+        List<Course> courses = getCourses(List.of(courseId));
+        return courses.isEmpty() ? null : courses.get(0);
+    }
+
+    /**
+     * Returns snapshots for the given course ids. Fresh entries are served locally and all
+     * remaining ids are resolved with a single batch call to course-service. If that call fails
+     * (or the circuit is open) stale entries are served instead; the failure is only rethrown
+     * when nothing at all can be served from the cache.
+     */
+    public List<Course> getCourses(Collection<String> courseIds) {
+        long now = clock.millis();
+        List<Course> result = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        Map<String, Course> stale = new LinkedHashMap<>();
+
+        synchronized (entries) {
+            for (String courseId : courseIds) {
+                Entry entry = entries.get(courseId);
+                if (entry != null && now - entry.fetchedAt < ttlMillis) {
+                    hits.increment();
+                    result.add(entry.course);
+                } else {
+                    misses.increment();
+                    missing.add(courseId);
+                    if (entry != null && now - entry.fetchedAt < maxStaleMillis) {
+                        stale.put(courseId, entry.course);
+                    }
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        try {
+            List<Course> fetched = circuitBreaker.executeSupplier(() -> courseClient.getCourses(missing));
+            if (fetched != null) {
+                fetched.forEach(this::put);
+                result.addAll(fetched);
+            }
+        } catch (RuntimeException e) {
+            if (stale.isEmpty() && result.isEmpty()) {
+                throw e;
+            }
+            log.warn("Course service unavailable, serving {} stale course snapshot(s): {}", stale.size(), e.getMessage());
+            staleHits.increment(stale.size());
+            result.addAll(stale.values());
+        }
+        return result;
+    }
+
+    /**
+     * Stores the latest snapshot of a course, e.g. the course returned after a seat change.
+     */
+    public void put(Course course) {
+        if (course == null || course.getId() == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(course.getId(), new Entry(course, clock.millis()));
+        }
+    }
+
+    public void invalidate(String courseId) {
+        synchronized (entries) {
+            entries.remove(courseId);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(Course course, long fetchedAt) {
+    }
+}
@@ -1,17 +1,32 @@
 package com.enrollment.enrollment.service;
 
 import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.config.RequestDeadline;
+import com.enrollment.enrollment.model.BulkEnrollmentItem;
+import com.enrollment.enrollment.model.BulkEnrollmentResult;
 import com.enrollment.enrollment.model.Course;
 import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.SeatChange;
+import com.enrollment.enrollment.model.SeatOperationResult;
+import com.enrollment.enrollment.model.WaitlistEntry;
 import com.enrollment.enrollment.repository.EnrollmentRepository;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,46 +35,57 @@ public class EnrollmentService {
 
     private final EnrollmentRepository enrollmentRepository;
     private final CourseClient courseClient;
+    private final CourseSnapshotCache courseSnapshotCache;
+    private final WaitlistService waitlistService;
+    private final SeatOutboxDispatcher seatOutboxDispatcher;
 
-    @CircuitBreaker(name = "basic")
     public List<Enrollment> getStudentEnrollments(String studentId) {
         // Get only enrolled (not dropped) enrollments
         List<Enrollment> enrollments = enrollmentRepository.findByStudentIdAndStatus(studentId, "enrolled");
-        
-        // Populate course details for each enrollment
-        return enrollments.stream().map(enrollment -> {
-            try {
-                Course course = courseClient.getCourse(enrollment.getCourseId());
-                enrollment.setCourse(course);
-                return enrollment;
-            } catch (Exception e) {
-                System.err.println("Error fetching course details for enrollment: " + e.getMessage());
-                if (e.getMessage().contains("Connection refused") || e.getMessage().contains("Connection timed out")) {
-                    throw new RuntimeException("Course service is currently unavailable. Please try again later.");
-                }
-                return enrollment;
-            }
-        }).collect(Collectors.toList());
+        return populateCourseDetails(enrollments);
     }
 
-    @CircuitBreaker(name = "basic")
     public List<Enrollment> getCourseEnrollments(String courseId) {
         List<Enrollment> enrollments = enrollmentRepository.findByCourseId(courseId);
-        
-        // Populate course details for each enrollment
-        return enrollments.stream().map(enrollment -> {
-            try {
-                Course course = courseClient.getCourse(enrollment.getCourseId());
-                enrollment.setCourse(course);
-                return enrollment;
-            } catch (Exception e) {
-                System.err.println("Error fetching course details for enrollment: " + e.getMessage());
-                if (e.getMessage().contains("Connection refused") || e.getMessage().contains("Connection timed out")) {
-                    throw new RuntimeException("Course service is currently unavailable. Please try again later.");
-                }
-                return enrollment;
+        return populateCourseDetails(enrollments);
+    }
+
+    /**
+     * Resolves the course details of all enrollments with a single batch lookup
+     * against the course snapshot cache, which only calls course-service for
+     * missing or expired entries and serves stale snapshots when it is down.
+     */
+    private List<Enrollment> populateCourseDetails(List<Enrollment> enrollments) {
+        List<String> courseIds = enrollments.stream()
+            .map(Enrollment::getCourseId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .collect(Collectors.toList());
+        if (courseIds.isEmpty()) {
+            return enrollments;
+        }
+
+        Map<String, Course> coursesById;
+        try {
+            List<Course> courses = courseSnapshotCache.getCourses(courseIds);
+            coursesById = courses == null ? Map.of() : courses.stream()
+                .filter(course -> course.getId() != null)
+                .collect(Collectors.toMap(Course::getId, Function.identity(), (first, second) -> first));
+        } catch (Exception e) {
+            System.err.println("Error fetching course details for enrollments: " + e.getMessage());
+            if (isConnectionFailure(e)) {
+                throw new RuntimeException("Course service is currently unavailable. Please try again later.");
             }
-        }).collect(Collectors.toList());
+            return enrollments;
+        }
+
+        enrollments.forEach(enrollment -> enrollment.setCourse(coursesById.get(enrollment.getCourseId())));
+        return enrollments;
+    }
+
+    private boolean isConnectionFailure(Exception e) {
+        String message = e.getMessage();
+        return message != null && (message.contains("Connection refused") || message.contains("Connection timed out"));
     }
 
     @CircuitBreaker(name = "basic")
@@ -77,14 +103,7 @@ public class EnrollmentService {
             // If enrollment exists but is dropped, reactivate it
             if ("dropped".equals(existingEnrollment.getStatus())) {
                 System.out.println("Reactivating previously dropped enrollment");
-                existingEnrollment.setStatus("enrolled");
-                existingEnrollment.setEnrollmentDate(new Date());
-                
-                // Increment course enrollment
-                courseClient.incrementEnrollment(courseId);
-                System.out.println("Incremented course enrollment count");
-                
-                Enrollment savedEnrollment = enrollmentRepository.save(existingEnrollment);
+                Enrollment savedEnrollment = reactivate(existingEnrollment);
                 System.out.println("Enrollment reactivated successfully: " + savedEnrollment.getId());
                 return savedEnrollment;
             } else {
@@ -97,7 +116,7 @@ public class EnrollmentService {
         System.out.println("No existing enrollment found, creating new enrollment");
         
         // Get course details and check if it's open
-        Course course = courseClient.getCourse(courseId);
+        Course course = courseSnapshotCache.getCourse(courseId);
         if (course == null) {
             System.out.println("Course not found: " + courseId);
             throw new RuntimeException("Course not found");
@@ -107,20 +126,169 @@ public class EnrollmentService {
             throw new RuntimeException("Course is not open for enrollment");
         }
 
-        // Create new enrollment
+        // Create new enrollment, written together with its seat reservation
+        SeatChange reservation = seatOutboxDispatcher.claimForImmediateDelivery(SeatChange.reserve());
         Enrollment enrollment = new Enrollment();
         enrollment.setStudentId(studentId);
         enrollment.setCourseId(courseId);
+        enrollment.addPendingSeatChange(reservation);
+        enrollment.setSeatOperationId(reservation.getOperationId());
 
-        // Increment course enrollment
-        courseClient.incrementEnrollment(courseId);
-        System.out.println("Incremented course enrollment count");
-
-        Enrollment savedEnrollment = enrollmentRepository.save(enrollment);
+        Enrollment savedEnrollment;
+        try {
+            savedEnrollment = enrollmentRepository.insert(enrollment);
+        } catch (DuplicateKeyException e) {
+            // A concurrent request for the same student and course won the unique (studentId, courseId) index
+            throw new RuntimeException("Student is already enrolled in this course");
+        }
+        reserveSeat(savedEnrollment, reservation, false);
         System.out.println("New enrollment created successfully: " + savedEnrollment.getId());
         return savedEnrollment;
     }
 
+    /**
+     * Enrolls many (studentId, courseId) pairs at once, e.g. when block-sectioning a cohort.
+     * All enrollments are written with one bulk write, each with its own seat reservation in the
+     * outbox, and the reservations are then delivered to course-service in batches. Enrollments
+     * whose reservation is rejected (the course filled up) are undone; reservations course-service
+     * cannot be reached for are retried by the outbox. Returns one result per item, in request order.
+     */
+    public List<BulkEnrollmentResult> enrollStudentsInBulk(List<BulkEnrollmentItem> items) {
+        System.out.println("Attempting bulk enrollment of " + items.size() + " item(s)");
+        BulkEnrollmentResult[] results = new BulkEnrollmentResult[items.size()];
+
+        List<Integer> candidates = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkEnrollmentItem item = items.get(i);
+            if (item == null || isBlank(item.getStudentId()) || isBlank(item.getCourseId())) {
+                results[i] = BulkEnrollmentResult.failed(item == null ? new BulkEnrollmentItem() : item, "studentId and courseId are required");
+            } else if (!seen.add(pairKey(item.getStudentId(), item.getCourseId()))) {
+                results[i] = BulkEnrollmentResult.failed(item, "Duplicate entry in batch");
+            } else {
+                candidates.add(i);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        Set<String> studentIds = new HashSet<>();
+        Set<String> courseIds = new HashSet<>();
+        candidates.forEach(i -> {
+            studentIds.add(items.get(i).getStudentId());
+            courseIds.add(items.get(i).getCourseId());
+        });
+
+        Map<String, Enrollment> existingByPair = enrollmentRepository.findByStudentIdInAndCourseIdIn(studentIds, courseIds).stream()
+            .collect(Collectors.toMap(e -> pairKey(e.getStudentId(), e.getCourseId()), Function.identity(), (first, second) -> first));
+
+        Map<String, Course> coursesById;
+        try {
+            coursesById = courseSnapshotCache.getCourses(courseIds).stream()
+                .collect(Collectors.toMap(Course::getId, Function.identity(), (first, second) -> first));
+        } catch (Exception e) {
+            System.err.println("Error fetching courses for bulk enrollment: " + e.getMessage());
+            candidates.forEach(i -> results[i] = BulkEnrollmentResult.failed(items.get(i), "Course service is currently unavailable. Please try again later."));
+            return Arrays.asList(results);
+        }
+
+        // Every enrollment is written together with its own seat reservation, so no seat is taken
+        // before the enrollment exists and none is lost if this request dies half way
+        List<Enrollment> toWrite = new ArrayList<>();
+        List<Integer> writeIndexes = new ArrayList<>();
+        Set<String> reactivatedIds = new HashSet<>();
+        for (int i : candidates) {
+            BulkEnrollmentItem item = items.get(i);
+            Enrollment existing = existingByPair.get(pairKey(item.getStudentId(), item.getCourseId()));
+            Course course = coursesById.get(item.getCourseId());
+            if (existing != null && !"dropped".equals(existing.getStatus())) {
+                results[i] = BulkEnrollmentResult.failed(item, "Student is already enrolled in this course");
+            } else if (course == null) {
+                results[i] = BulkEnrollmentResult.failed(item, "Course not found");
+            } else if (!"open".equals(course.getStatus())) {
+                results[i] = BulkEnrollmentResult.failed(item, "Course is not open for enrollment");
+            } else if (existing != null && existing.getPendingSeatChanges() != null && !existing.getPendingSeatChanges().isEmpty()) {
+                // Seat changes of an earlier drop are still pending; the reservation has to queue behind them
+                try {
+                    results[i] = BulkEnrollmentResult.enrolled(item, reactivate(existing).getId());
+                } catch (RuntimeException e) {
+                    results[i] = BulkEnrollmentResult.failed(item, e.getMessage());
+                }
+            } else {
+                SeatChange reservation = seatOutboxDispatcher.claimForImmediateDelivery(SeatChange.reserve());
+                Enrollment enrollment = existing != null ? existing : new Enrollment();
+                if (existing != null) {
+                    reactivatedIds.add(existing.getId());
+                }
+                enrollment.setStudentId(item.getStudentId());
+                enrollment.setCourseId(item.getCourseId());
+                enrollment.setStatus("enrolled");
+                enrollment.setEnrollmentDate(new Date());
+                enrollment.setPendingSeatChanges(new ArrayList<>(List.of(reservation)));
+                enrollment.setSeatOperationId(reservation.getOperationId());
+                toWrite.add(enrollment);
+                writeIndexes.add(i);
+            }
+        }
+        if (toWrite.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        Map<Integer, String> failures;
+        try {
+            failures = enrollmentRepository.bulkSave(toWrite);
+        } catch (Exception e) {
+            System.err.println("Error writing bulk enrollments: " + e.getMessage());
+            failures = new LinkedHashMap<>();
+            for (int j = 0; j < toWrite.size(); j++) {
+                failures.put(j, "Failed to save enrollment: " + e.getMessage());
+            }
+        }
+
+        // Enrollments that could not be written never took a seat; the rest have their reservations delivered
+        List<Enrollment> written = new ArrayList<>();
+        for (int j = 0; j < toWrite.size(); j++) {
+            int i = writeIndexes.get(j);
+            if (failures.containsKey(j)) {
+                results[i] = BulkEnrollmentResult.failed(items.get(i), failures.get(j));
+            } else {
+                results[i] = BulkEnrollmentResult.enrolled(items.get(i), toWrite.get(j).getId());
+                written.add(toWrite.get(j));
+            }
+        }
+
+        Map<String, SeatOperationResult> reserved = seatOutboxDispatcher.applyAllNow(written);
+        int enrolled = written.size();
+        for (int j = 0; j < toWrite.size(); j++) {
+            Enrollment enrollment = toWrite.get(j);
+            SeatOperationResult result = reserved.get(enrollment.getId());
+            if (failures.containsKey(j) || result == null || !result.isRejected()) {
+                // Reservations without a result stay in the outbox and are retried
+                continue;
+            }
+            // Only undone while the enrollment still depends on this reservation
+            if (reactivatedIds.contains(enrollment.getId())) {
+                enrollmentRepository.revokeEnrollment(enrollment.getId(), enrollment.getSeatOperationId(), result.getError());
+            } else {
+                enrollmentRepository.deleteByIdAndStatusAndSeatOperationId(enrollment.getId(), "enrolled", enrollment.getSeatOperationId());
+            }
+            results[writeIndexes.get(j)] = BulkEnrollmentResult.failed(items.get(writeIndexes.get(j)), result.getError());
+            enrolled--;
+        }
+
+        System.out.println("Bulk enrollment finished: " + enrolled + " of " + items.size() + " enrolled");
+        return Arrays.asList(results);
+    }
+
+    private static String pairKey(String studentId, String courseId) {
+        return studentId + "|" + courseId;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     @Transactional
     @CircuitBreaker(name = "basic")
     public void unenrollStudent(String studentId, String courseId) {
@@ -151,23 +319,202 @@ public class EnrollmentService {
             if ("dropped".equals(enrollment.getStatus())) {
                 throw new RuntimeException("Course is already dropped");
             }
-            
-            // Update enrollment status to dropped
-            enrollment.setStatus("dropped");
-            enrollmentRepository.save(enrollment);
-            System.out.println("Updated enrollment status to dropped");
 
-            // Decrement the course enrollment count
-            try {
-                courseClient.decrementEnrollment(courseId);
-                System.out.println("Decremented course enrollment count");
-            } catch (Exception e) {
-                System.err.println("Error updating course enrollment count: " + e.getMessage());
-                // Don't throw here as the enrollment is already updated
+            // A reservation course-service has not seen yet is simply withdrawn: there is no seat to give back
+            if (enrollmentRepository.changeStatusWithdrawing(enrollment.getId(), "enrolled", "dropped", 1) != null) {
+                System.out.println("Updated enrollment status to dropped, withdrew its unsent seat reservation");
+                return;
             }
+
+            // Otherwise the status change and the seat release are written in one conditional update and the
+            // release is delivered to course-service in the background; a concurrent drop finds the status changed
+            SeatChange release = SeatChange.release();
+            if (enrollmentRepository.changeStatus(enrollment.getId(), "enrolled", "dropped", release) == null) {
+                throw new RuntimeException("Course is already dropped");
+            }
+            System.out.println("Updated enrollment status to dropped");
+
+            // Hand the freed seat straight to the next student on the waitlist, if any
+            promoteFromWaitlist(courseId, enrollment.getId(), release);
         } catch (Exception e) {
             System.err.println("Error in unenrollStudent: " + e.getMessage());
             throw new RuntimeException("Failed to drop course: " + e.getMessage());
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Moves a dropped enrollment back to enrolled with one conditional update, so concurrent
+     * requests cannot both reactivate it. If the drop's seat release has not been sent yet it is
+     * withdrawn and the student simply keeps the seat; otherwise a new reservation is written with
+     * the status change and, unless other changes are still pending ahead of it, sent right away.
+     */
+    private Enrollment reactivate(Enrollment enrollment) {
+        Enrollment reactivated = enrollmentRepository.changeStatusWithdrawing(enrollment.getId(), "dropped", "enrolled", -1);
+        if (reactivated != null) {
+            System.out.println("Withdrew the unsent seat release of the dropped enrollment");
+            return reactivated;
+        }
+
+        SeatChange reservation = seatOutboxDispatcher.claimForImmediateDelivery(SeatChange.reserve());
+        reactivated = enrollmentRepository.changeStatus(enrollment.getId(), "dropped", "enrolled", reservation);
+        if (reactivated == null) {
+            throw new RuntimeException("Student is already enrolled in this course");
+        }
+        if (reservation.getSentAt() == null) {
+            System.out.println("Seat reservation queued behind pending seat changes for course " + reactivated.getCourseId());
+            return reactivated;
+        }
+        reserveSeat(reactivated, reservation, true);
+        return reactivated;
+    }
+
+    /**
+     * Asks course-service for the seat of an enrollment just written with {@code reservation}. If the
+     * course turns out to be full the enrollment is undone; if course-service cannot be reached the
+     * reservation stays in the outbox and is retried.
+     */
+    private void reserveSeat(Enrollment enrollment, SeatChange reservation, boolean reactivated) {
+        SeatOperationResult result;
+        try {
+            result = seatOutboxDispatcher.applyNow(enrollment, reservation);
+        } catch (RequestDeadline.DeadlineExceededException e) {
+            // The caller has given up and will see a timeout, so the enrollment must not stay behind.
+            // The reservation was never sent, so taking it back leaves the seat count untouched.
+            System.out.println("Request deadline exceeded, undoing enrollment " + enrollment.getId());
+            if (reactivated) {
+                enrollmentRepository.undoReactivation(enrollment.getId(), reservation.getOperationId());
+            } else {
+                enrollmentRepository.deleteByIdAndStatusAndSeatOperationId(enrollment.getId(), "enrolled", reservation.getOperationId());
+            }
+            throw e;
+        }
+        if (result == null) {
+            System.out.println("Course service unavailable, seat reservation queued for course " + enrollment.getCourseId());
+        } else if (result.isRejected()) {
+            System.out.println("Seat reservation rejected: " + result.getError());
+            // Only undone while the enrollment still depends on this reservation, e.g. not if it was dropped meanwhile
+            if (reactivated) {
+                enrollmentRepository.revokeEnrollment(enrollment.getId(), reservation.getOperationId(), result.getError());
+            } else {
+                enrollmentRepository.deleteByIdAndStatusAndSeatOperationId(enrollment.getId(), "enrolled", reservation.getOperationId());
+            }
+            throw new RuntimeException(result.getError());
+        } else {
+            System.out.println("Incremented course enrollment count");
+        }
+    }
+
+    /**
+     * Promotes the head of the course's waitlist into the seat given up by a dropped enrollment.
+     * While the drop's release has not been sent, it is withdrawn and the promoted student takes
+     * over the seat without touching the course's seat count. Once it is on its way, the promoted
+     * student gets a seat reservation of their own, sent right away as for {@link #promoteIntoFreeSeats};
+     * if it is rejected the promotion is undone and the student keeps their place in line. A waitlist
+     * entry only leaves the waitlist once its promotion is saved and its seat reserved.
+     */
+    private boolean promoteFromWaitlist(String courseId, String droppedEnrollmentId, SeatChange release) {
+        boolean handedOver = false;
+        boolean promoted = false;
+        try {
+            Optional<WaitlistEntry> next;
+            while (!promoted && (next = waitlistService.claimHead(courseId)).isPresent()) {
+                WaitlistEntry entry = next.get();
+                try {
+                    if (!handedOver) {
+                        handedOver = enrollmentRepository.withdrawSeatChange(droppedEnrollmentId, release.getOperationId());
+                    }
+                    SeatChange reservation = handedOver ? null : seatOutboxDispatcher.claimForImmediateDelivery(SeatChange.reserve());
+                    Promotion promotion = promote(entry.getStudentId(), courseId, reservation);
+                    // Confirmed with course-service before the entry leaves the waitlist; a rejection undoes the promotion
+                    if (promotion != null && reservation != null && reservation.getSentAt() != null) {
+                        reserveSeat(promotion.enrollment(), reservation, promotion.reactivated());
+                    }
+                    promoted = promotion != null;
+                } catch (RuntimeException e) {
+                    // Not promoted, so the student keeps their place in line
+                    waitlistService.release(entry);
+                    throw e;
+                }
+                // Promoted, or enrolled already; either way the student is no longer waiting
+                waitlistService.complete(entry);
+                if (promoted) {
+                    System.out.println("Promoted student " + entry.getStudentId() + " from the waitlist of course " + courseId);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error promoting from waitlist of course " + courseId + ": " + e.getMessage());
+        }
+        if (handedOver && !promoted) {
+            // Nobody took the seat over, so it goes back to course-service after all
+            enrollmentRepository.appendSeatChange(droppedEnrollmentId, SeatChange.release());
+        }
+        return promoted;
+    }
+
+    /**
+     * Fills up to {@code freeSeats} seats that came free without a drop, e.g. because the course's
+     * capacity was raised, from the head of its waitlist. Each promoted student's seat is reserved
+     * with course-service right away; once a reservation is rejected the course is full again and
+     * everyone else keeps waiting. Returns the number of students promoted.
+     */
+    public int promoteIntoFreeSeats(String courseId, int freeSeats) {
+        int promoted = 0;
+        while (promoted < freeSeats) {
+            Optional<WaitlistEntry> next = waitlistService.claimHead(courseId);
+            if (next.isEmpty()) {
+                break;
+            }
+            WaitlistEntry entry = next.get();
+            SeatChange reservation = seatOutboxDispatcher.claimForImmediateDelivery(SeatChange.reserve());
+            Promotion promotion;
+            try {
+                promotion = promote(entry.getStudentId(), courseId, reservation);
+                // A reservation queued behind other pending changes is left to the seat outbox
+                if (promotion != null && reservation.getSentAt() != null) {
+                    reserveSeat(promotion.enrollment(), reservation, promotion.reactivated());
+                }
+            } catch (RuntimeException e) {
+                // The promotion was taken back, so the student keeps their place in line
+                waitlistService.release(entry);
+                System.out.println("Stopped promoting from the waitlist of course " + courseId + ": " + e.getMessage());
+                break;
+            }
+            waitlistService.complete(entry);
+            if (promotion != null) {
+                promoted++;
+                System.out.println("Promoted student " + entry.getStudentId() + " from the waitlist of course " + courseId + " into a free seat");
+            }
+        }
+        return promoted;
+    }
+
+    private record Promotion(Enrollment enrollment, boolean reactivated) {
+    }
+
+    /**
+     * Enrolls a waitlisted student, with {@code reservation} if they need a seat of their own or
+     * without any if one was handed over. Returns null if the student is already enrolled.
+     */
+    private Promotion promote(String studentId, String courseId, SeatChange reservation) {
+        Optional<Enrollment> existing = enrollmentRepository.findByStudentIdAndCourseId(studentId, courseId);
+        if (existing.isPresent()) {
+            // Fails if the student already holds a seat, e.g. enrolled directly while the course was open
+            Enrollment reactivated = enrollmentRepository.changeStatus(existing.get().getId(), "dropped", "enrolled", reservation);
+            return reactivated == null ? null : new Promotion(reactivated, true);
+        }
+
+        Enrollment promoted = new Enrollment();
+        promoted.setStudentId(studentId);
+        promoted.setCourseId(courseId);
+        if (reservation != null) {
+            promoted.addPendingSeatChange(reservation);
+            promoted.setSeatOperationId(reservation.getOperationId());
+        }
+        try {
+            return new Promotion(enrollmentRepository.insert(promoted), false);
+        } catch (DuplicateKeyException e) {
+            // The student enrolled directly in the meantime
+            return null;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.model.IdempotencyRecord;
+import com.enrollment.enrollment.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a request at most once per idempotency key and remembers its response for a while.
+ *
+ * Duplicates arriving on this instance while the first request is still running wait for it
+ * and share its response. Across instances the key is claimed with an insert into
+ * idempotency_records, so a duplicate that reaches another instance mid-flight is told to
+ * retry shortly. Server errors are not remembered, so the client can retry them with the same key.
+ *
+ * The claim is a lease: while the request runs, its lease is renewed every third of the lease
+ * time, so only a request whose instance died (and stopped renewing) can have its key taken over.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository repository;
+    private final long ttlMillis;
+    private final long leaseMillis;
+    private final long inFlightWaitMillis;
+    private final Map<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-lease-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter executed;
+    private final Counter replayedFromStore;
+    private final Counter coalesced;
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              MeterRegistry meterRegistry,
+                              @Value("${enrollment.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${enrollment.idempotency.lease:30s}") Duration lease,
+                              @Value("${enrollment.idempotency.in-flight-wait:10s}") Duration inFlightWait) {
+        this.repository = repository;
+        this.ttlMillis = ttl.toMillis();
+        this.leaseMillis = lease.toMillis();
+        this.inFlightWaitMillis = inFlightWait.toMillis();
+
+        this.executed = Counter.builder("enrollment.idempotency.requests").tag("result", "executed").register(meterRegistry);
+        this.replayedFromStore = Counter.builder("enrollment.idempotency.requests").tag("result", "replayed").register(meterRegistry);
+        this.coalesced = Counter.builder("enrollment.idempotency.requests").tag("result", "coalesced").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        leaseRenewer.shutdownNow();
+    }
+
+    /**
+     * Returns the response for the key, running the action only if no earlier request with
+     * this key has completed or is still running.
+     *
+     * @throws IdempotencyConflictException if the key was used for a different request, or the
+     *         original request is still running on another instance
+     */
+    public Result execute(String key, String requestHash, Callable<StoredResponse> action) throws Exception {
+        CompletableFuture<Result> mine = new CompletableFuture<>();
+        CompletableFuture<Result> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return awaitInFlight(running, requestHash);
+        }
+
+        try {
+            Result result = executeOnce(key, requestHash, action);
+            mine.complete(result);
+            return result;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Result awaitInFlight(CompletableFuture<Result> running, String requestHash) throws Exception {
+        Result original;
+        try {
+            original = running.get(inFlightWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw IdempotencyConflictException.stillRunning();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IdempotencyConflictException conflict) {
+                throw conflict;
+            }
+            // The original request failed without a response worth sharing; let the client retry it
+            throw IdempotencyConflictException.stillRunning();
+        }
+        if (!original.requestHash().equals(requestHash)) {
+            throw IdempotencyConflictException.keyReused();
+        }
+        coalesced.increment();
+        return new Result(original.response(), requestHash, true);
+    }
+
+    private Result executeOnce(String key, String requestHash, Callable<StoredResponse> action) throws Exception {
+        Optional<IdempotencyRecord> completed = claim(key, requestHash);
+        if (completed.isPresent()) {
+            IdempotencyRecord record = completed.get();
+            replayedFromStore.increment();
+            return new Result(new StoredResponse(record.getResponseStatus(), record.getContentType(), record.getResponseBody()),
+                    requestHash, true);
+        }
+
+        StoredResponse response;
+        long renewEvery = Math.max(1, leaseMillis / 3);
+        ScheduledFuture<?> renewal = leaseRenewer.scheduleAtFixedRate(() -> renewLease(key, requestHash),
+                renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+        try {
+            response = action.call();
+        } catch (Exception e) {
+            repository.deleteById(key);
+            throw e;
+        } finally {
+            renewal.cancel(false);
+        }
+        executed.increment();
+
+        if (isFinal(response.status())) {
+            IdempotencyRecord record = newRecord(key, requestHash);
+            record.setStatus(IdempotencyRecord.COMPLETED);
+            record.setResponseStatus(response.status());
+            record.setContentType(response.contentType());
+            record.setResponseBody(response.body());
+            record.setLockedUntil(null);
+            repository.save(record);
+        } else {
+            repository.deleteById(key);
+        }
+        return new Result(response, requestHash, false);
+    }
+
+    /**
+     * Claims the key for this request. Returns the stored record if the request already completed.
+     */
+    private Optional<IdempotencyRecord> claim(String key, String requestHash) {
+        try {
+            repository.insert(newRecord(key, requestHash));
+            return Optional.empty();
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord existing = repository.findById(key).orElseThrow(IdempotencyConflictException::stillRunning);
+            if (!requestHash.equals(existing.getRequestHash())) {
+                throw IdempotencyConflictException.keyReused();
+            }
+            if (IdempotencyRecord.COMPLETED.equals(existing.getStatus())) {
+                return Optional.of(existing);
+            }
+            // Still running elsewhere, unless its owner stopped renewing the lease
+            if (repository.deleteByIdAndStatusAndLockedUntilBefore(key, IdempotencyRecord.IN_PROGRESS, new Date()) == 0) {
+                throw IdempotencyConflictException.stillRunning();
+            }
+            log.warn("Taking over idempotency key {} after its lease expired", key);
+            try {
+                repository.insert(newRecord(key, requestHash));
+                return Optional.empty();
+            } catch (DuplicateKeyException raced) {
+                throw IdempotencyConflictException.stillRunning();
+            }
+        }
+    }
+
+    private void renewLease(String key, String requestHash) {
+        try {
+            if (repository.renewLease(key, requestHash, new Date(System.currentTimeMillis() + leaseMillis)) == 0) {
+                log.warn("Lease on idempotency key {} was lost while its request was still running", key);
+            }
+        } catch (Exception e) {
+            // The next renewal may get through before the lease runs out
+            log.warn("Could not renew lease on idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private IdempotencyRecord newRecord(String key, String requestHash) {
+        long now = System.currentTimeMillis();
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(key);
+        record.setRequestHash(requestHash);
+        record.setStatus(IdempotencyRecord.IN_PROGRESS);
+        record.setLockedUntil(new Date(now + leaseMillis));
+        record.setExpiresAt(new Date(now + ttlMillis));
+        return record;
+    }
+
+    // Server errors and throttling are transient, so a retry with the same key should run again
+    private boolean isFinal(int status) {
+        return status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    public record StoredResponse(int status, String contentType, String body) {
+    }
+
+    public record Result(StoredResponse response, String requestHash, boolean replayed) {
+    }
+
+    @Getter
+    public static class IdempotencyConflictException extends RuntimeException {
+        private final HttpStatus status;
+
+        public IdempotencyConflictException(HttpStatus status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        static IdempotencyConflictException stillRunning() {
+            return new IdempotencyConflictException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still being processed. Please retry shortly.");
+        }
+
+        static IdempotencyConflictException keyReused() {
+            return new IdempotencyConflictException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "This Idempotency-Key was already used for a different request");
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.config.RequestDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for self-service enrollment requests.
+ *
+ * Each course gets a fair (FIFO) semaphore that limits how many enrollments for that course
+ * run at once, and a bounded number of callers that may wait for it. Callers that do not fit
+ * in the queue, or do not get a slot within the max wait, are rejected immediately with their
+ * queue position and a retry-after hint instead of holding a request thread until it times out.
+ *
+ * Every waiting caller holds a request thread, so the number of waiters across all courses is
+ * capped as well. A course's line only exists while someone is waiting in it or holding one of
+ * its slots, so course ids that are never used again do not accumulate.
+ */
+@Component
+@Slf4j
+public class RegistrationWaitingRoom {
+
+    private final int maxConcurrentPerCourse;
+    private final int maxQueuePerCourse;
+    private final int maxQueueTotal;
+    private final long maxWaitMillis;
+    private final Map<String, CourseLine> lines = new ConcurrentHashMap<>();
+
+    private final AtomicInteger totalWaiting = new AtomicInteger();
+    private final AtomicInteger totalActive = new AtomicInteger();
+    // Exponentially weighted average of how long an admitted enrollment holds its slot
+    private volatile double averageServiceMillis = 200;
+
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public RegistrationWaitingRoom(MeterRegistry meterRegistry,
+                                   @Value("${enrollment.waiting-room.max-concurrent-per-course:4}") int maxConcurrentPerCourse,
+                                   @Value("${enrollment.waiting-room.max-queue-per-course:25}") int maxQueuePerCourse,
+                                   @Value("${enrollment.waiting-room.max-queue-total:100}") int maxQueueTotal,
+                                   @Value("${enrollment.waiting-room.max-wait:2s}") Duration maxWait) {
+        this.maxConcurrentPerCourse = maxConcurrentPerCourse;
+        this.maxQueuePerCourse = maxQueuePerCourse;
+        this.maxQueueTotal = maxQueueTotal;
+        this.maxWaitMillis = maxWait.toMillis();
+
+        Gauge.builder("enrollment.waiting_room.queue.depth", totalWaiting, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("enrollment.waiting_room.active", totalActive, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("enrollment.waiting_room.lines", lines, Map::size).register(meterRegistry);
+        this.waitTimer = Timer.builder("enrollment.waiting_room.wait").publishPercentileHistogram().register(meterRegistry);
+        this.rejected = Counter.builder("enrollment.waiting_room.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Waits in the course's line for an enrollment slot. The returned permit must be closed
+     * once the enrollment has finished.
+     *
+     * @throws AdmissionRejectedException if the line is full or no slot frees up within the max wait
+     */
+    public Permit admit(String courseId) {
+        CourseLine line = enter(courseId);
+        try {
+            return admit(courseId, line);
+        } catch (RuntimeException e) {
+            leave(courseId);
+            throw e;
+        }
+    }
+
+    private Permit admit(String courseId, CourseLine line) {
+        long start = System.nanoTime();
+        boolean acquired = false;
+        int position = 0;
+        try {
+            // A free slot is taken without queueing; a zero timeout still respects callers already waiting
+            acquired = line.slots.tryAcquire(0, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                position = line.waiting.incrementAndGet();
+                int waitingTotal = totalWaiting.incrementAndGet();
+                try {
+                    if (position <= maxQueuePerCourse && waitingTotal <= maxQueueTotal) {
+                        // Never wait longer than the caller is still willing to
+                        long waitMillis = Math.min(maxWaitMillis, RequestDeadline.remainingMillis());
+                        acquired = line.slots.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+                    }
+                } finally {
+                    line.waiting.decrementAndGet();
+                    totalWaiting.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (!acquired) {
+            rejected.increment();
+            log.warn("Enrollment waiting room for course {} is saturated, rejecting caller at position {}", courseId, position);
+            throw new AdmissionRejectedException(position, retryAfterSeconds(position));
+        }
+        totalActive.incrementAndGet();
+        return new Permit(courseId, line, System.nanoTime());
+    }
+
+    public int getQueueDepth(String courseId) {
+        CourseLine line = lines.get(courseId);
+        return line == null ? 0 : line.waiting.get();
+    }
+
+    long retryAfterSeconds(int position) {
+        double batches = Math.ceil((double) position / maxConcurrentPerCourse);
+        return Math.max(1, (long) Math.ceil(batches * averageServiceMillis / 1000.0));
+    }
+
+    int getLineCount() {
+        return lines.size();
+    }
+
+    private void release(String courseId, CourseLine line, long admittedAt) {
+        long heldMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - admittedAt);
+        averageServiceMillis = 0.8 * averageServiceMillis + 0.2 * heldMillis;
+        totalActive.decrementAndGet();
+        line.slots.release();
+        leave(courseId);
+    }
+
+    /**
+     * Returns the course's line, creating it if needed, and registers the caller as one of its users.
+     */
+    private CourseLine enter(String courseId) {
+        return lines.compute(courseId, (id, line) -> {
+            CourseLine entered = line == null ? new CourseLine(maxConcurrentPerCourse) : line;
+            entered.users++;
+            return entered;
+        });
+    }
+
+    /**
+     * Unregisters a caller and drops the line once nobody is waiting in it or holding a slot.
+     */
+    private void leave(String courseId) {
+        lines.computeIfPresent(courseId, (id, line) -> --line.users == 0 ? null : line);
+    }
+
+    private static class CourseLine {
+        private final Semaphore slots;
+        private final AtomicInteger waiting = new AtomicInteger();
+        // Callers waiting for or holding a slot; only changed inside lines.compute, which locks the entry
+        private int users;
+
+        CourseLine(int permits) {
+            this.slots = new Semaphore(permits, true);
+        }
+    }
+
+    public class Permit implements AutoCloseable {
+        private final String courseId;
+        private final CourseLine line;
+        private final long admittedAt;
+        private boolean released;
+
+        private Permit(String courseId, CourseLine line, long admittedAt) {
+            this.courseId = courseId;
+            this.line = line;
+            this.admittedAt = admittedAt;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(courseId, line, admittedAt);
+            }
+        }
+    }
+
+    @Getter
+    public static class AdmissionRejectedException extends RuntimeException {
+        private final int queuePosition;
+        private final long retryAfterSeconds;
+
+        public AdmissionRejectedException(int queuePosition, long retryAfterSeconds) {
+            super("Registration is busy for this course. Please retry in " + retryAfterSeconds + " second(s).");
+            this.queuePosition = queuePosition;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.config.RequestDeadline;
+import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.SeatChange;
+import com.enrollment.enrollment.model.SeatOperation;
+import com.enrollment.enrollment.model.SeatOperationResult;
+import com.enrollment.enrollment.repository.EnrollmentRepository;
+import com.enrollment.enrollment.repository.EnrollmentRepositoryCustom.SeatOutboxStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the seat changes recorded in the enrollments' outbox to course-service.
+ *
+ * Due changes are sent in batches with one call per batch. Course-service applies each
+ * operation id at most once, so a change that is delivered twice (a retry after a timeout,
+ * or two instances picking up the same change) still changes the seat count only once.
+ * Failed deliveries are retried with exponential backoff.
+ *
+ * Only the first pending change of an enrollment is ever in flight, and it is claimed (marked
+ * as sent, with a lease) before it is sent. A release queued behind a reservation is therefore
+ * only sent once that reservation is known to have been applied.
+ */
+@Component
+@Slf4j
+public class SeatOutboxDispatcher {
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final CourseClient courseClient;
+    private final CourseSnapshotCache courseSnapshotCache;
+    private final int batchSize;
+    private final long maxBackoffMillis;
+    private final long claimTimeoutMillis;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter applied;
+    private final Counter duplicates;
+    private final Counter rejected;
+    private final Counter failed;
+
+    public SeatOutboxDispatcher(EnrollmentRepository enrollmentRepository,
+                                CourseClient courseClient,
+                                CourseSnapshotCache courseSnapshotCache,
+                                MeterRegistry meterRegistry,
+                                @Value("${enrollment.seat-outbox.batch-size:100}") int batchSize,
+                                @Value("${enrollment.seat-outbox.max-backoff:5m}") Duration maxBackoff,
+                                @Value("${enrollment.seat-outbox.claim-timeout:60s}") Duration claimTimeout) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.courseClient = courseClient;
+        this.courseSnapshotCache = courseSnapshotCache;
+        this.batchSize = batchSize;
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.claimTimeoutMillis = claimTimeout.toMillis();
+
+        Gauge.builder("enrollment.seat_outbox.pending", pending, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("enrollment.seat_outbox.lag", lagMillis, value -> value.get() / 1000.0)
+                .baseUnit("seconds")
+                .description("Age of the oldest seat change not yet applied by course-service")
+                .register(meterRegistry);
+        this.applied = Counter.builder("enrollment.seat_outbox.dispatched").tag("result", "applied").register(meterRegistry);
+        this.duplicates = Counter.builder("enrollment.seat_outbox.dispatched").tag("result", "duplicate").register(meterRegistry);
+        this.rejected = Counter.builder("enrollment.seat_outbox.dispatched").tag("result", "rejected").register(meterRegistry);
+        this.failed = Counter.builder("enrollment.seat_outbox.dispatched").tag("result", "failed").register(meterRegistry);
+    }
+
+    /**
+     * Marks a change that is about to be written as the first in its enrollment's outbox as
+     * claimed for {@link #applyNow}, so the background dispatcher leaves it alone meanwhile.
+     */
+    public SeatChange claimForImmediateDelivery(SeatChange change) {
+        Date now = new Date();
+        change.setSentAt(now);
+        change.setNextAttemptAt(new Date(now.getTime() + claimTimeoutMillis));
+        return change;
+    }
+
+    /**
+     * Delivers a single claimed change right away, e.g. the seat reservation of an enrollment
+     * request. A change that is applied or rejected is removed from the outbox and the caller
+     * handles a rejection itself. If course-service cannot be reached, the change stays pending
+     * for the next dispatch run and null is returned.
+     *
+     * @throws RequestDeadline.DeadlineExceededException if the request ran out of time before the
+     *         change was sent; the change stays claimed and the caller decides whether to withdraw it
+     */
+    public SeatOperationResult applyNow(Enrollment enrollment, SeatChange change) {
+        try {
+            List<SeatOperationResult> results = courseClient.applySeatOperations(List.of(toOperation(enrollment, change)));
+            SeatOperationResult result = results == null || results.isEmpty() ? null : results.get(0);
+            if (result == null) {
+                throw new IllegalStateException("No result returned for seat operation " + change.getOperationId());
+            }
+            complete(enrollment, change, result, false);
+            enrollment.removePendingSeatChange(change);
+            return result;
+        } catch (RequestDeadline.DeadlineExceededException e) {
+            // Refused before the call, so course-service never saw the change
+            throw e;
+        } catch (Exception e) {
+            log.warn("Seat change {} for course {} will be retried: {}", change.getOperationId(), enrollment.getCourseId(), e.getMessage());
+            reschedule(enrollment, change, e.getMessage());
+            return null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${enrollment.seat-outbox.poll-interval:PT1S}")
+    public void dispatchDue() {
+        try {
+            Date now = new Date();
+            List<Enrollment> claimed = enrollmentRepository.claimDueSeatChanges(now, new Date(now.getTime() + claimTimeoutMillis), batchSize);
+            if (claimed != null && !claimed.isEmpty()) {
+                dispatch(claimed, true);
+            }
+            updateLag();
+        } catch (Exception e) {
+            log.error("Seat outbox dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delivers the claimed first change of each enrollment right away, e.g. the seat reservations
+     * of a bulk enrollment, in batches of the dispatch batch size. As with {@link #applyNow}, a
+     * change that is applied or rejected is removed from the outbox and the caller handles a
+     * rejection itself; the results are returned keyed by enrollment id. Changes that could not be
+     * delivered, including those not sent because the request ran out of time, stay pending for
+     * the next dispatch run and have no result.
+     */
+    public Map<String, SeatOperationResult> applyAllNow(List<Enrollment> enrollments) {
+        Map<String, SeatOperationResult> results = new HashMap<>();
+        for (int from = 0; from < enrollments.size(); from += batchSize) {
+            results.putAll(dispatch(enrollments.subList(from, Math.min(from + batchSize, enrollments.size())), false));
+        }
+        for (Enrollment enrollment : enrollments) {
+            if (results.containsKey(enrollment.getId())) {
+                enrollment.removePendingSeatChange(enrollment.getPendingSeatChanges().get(0));
+            }
+        }
+        return results;
+    }
+
+    private Map<String, SeatOperationResult> dispatch(List<Enrollment> claimed, boolean revokeRejectedReservations) {
+        List<SeatOperation> operations = new ArrayList<>();
+        Map<String, Enrollment> enrollmentsByOperation = new HashMap<>();
+        Map<String, SeatChange> changesByOperation = new HashMap<>();
+        for (Enrollment enrollment : claimed) {
+            // Only the claimed first change; the rest of the outbox waits for its outcome
+            SeatChange change = enrollment.getPendingSeatChanges().get(0);
+            operations.add(toOperation(enrollment, change));
+            enrollmentsByOperation.put(change.getOperationId(), enrollment);
+            changesByOperation.put(change.getOperationId(), change);
+        }
+
+        Map<String, SeatOperationResult> completed = new HashMap<>();
+        List<SeatOperationResult> results;
+        try {
+            results = courseClient.applySeatOperations(operations);
+        } catch (Exception e) {
+            log.warn("Could not deliver {} seat change(s), will retry: {}", operations.size(), e.getMessage());
+            changesByOperation.forEach((operationId, change) ->
+                    reschedule(enrollmentsByOperation.get(operationId), change, e.getMessage()));
+            return completed;
+        }
+
+        if (results != null) {
+            for (SeatOperationResult result : results) {
+                SeatChange change = changesByOperation.remove(result.getOperationId());
+                if (change != null) {
+                    Enrollment enrollment = enrollmentsByOperation.get(result.getOperationId());
+                    complete(enrollment, change, result, revokeRejectedReservations);
+                    completed.put(enrollment.getId(), result);
+                }
+            }
+        }
+        // Anything course-service did not answer for is retried
+        changesByOperation.forEach((operationId, change) ->
+                reschedule(enrollmentsByOperation.get(operationId), change, "No result returned"));
+        return completed;
+    }
+
+    private void complete(Enrollment enrollment, SeatChange change, SeatOperationResult result, boolean revokeRejectedReservation) {
+        boolean rejectedReservation = result.isRejected() && change.getDelta() > 0;
+        if (!enrollmentRepository.completeSeatChange(enrollment.getId(), change.getOperationId(), rejectedReservation)) {
+            // Another delivery of the same change already completed it
+            return;
+        }
+        if (result.isRejected()) {
+            rejected.increment();
+            courseSnapshotCache.invalidate(enrollment.getCourseId());
+            if (rejectedReservation && revokeRejectedReservation) {
+                revokeEnrollment(enrollment, change, result.getError());
+            } else if (change.getDelta() < 0) {
+                log.warn("Seat release {} for course {} was rejected: {}", change.getOperationId(), enrollment.getCourseId(), result.getError());
+            }
+            return;
+        }
+
+        if ("duplicate".equals(result.getStatus())) {
+            duplicates.increment();
+        } else {
+            applied.increment();
+        }
+        courseSnapshotCache.put(result.getCourse());
+    }
+
+    /**
+     * A reservation that was delivered late (after course-service was unreachable) and found the
+     * course full cannot be honoured, so the enrollment is dropped again, unless it no longer
+     * depends on that reservation (dropped in the meantime, or enrolled again with another one).
+     */
+    private void revokeEnrollment(Enrollment enrollment, SeatChange reservation, String reason) {
+        if (enrollmentRepository.revokeEnrollment(enrollment.getId(), reservation.getOperationId(), reason)) {
+            log.warn("Revoked enrollment {} of student {} in course {}: {}",
+                    enrollment.getId(), enrollment.getStudentId(), enrollment.getCourseId(), reason);
+        }
+    }
+
+    private void reschedule(Enrollment enrollment, SeatChange change, String error) {
+        failed.increment();
+        long backoff = Math.min(maxBackoffMillis, 1000L << Math.min(change.getAttempts(), 20));
+        try {
+            enrollmentRepository.rescheduleSeatChange(enrollment.getId(), change.getOperationId(),
+                    new Date(System.currentTimeMillis() + backoff), error);
+        } catch (Exception e) {
+            log.error("Could not reschedule seat change {}: {}", change.getOperationId(), e.getMessage());
+        }
+    }
+
+    private void updateLag() {
+        SeatOutboxStats stats = enrollmentRepository.getSeatOutboxStats();
+        if (stats == null) {
+            return;
+        }
+        pending.set(stats.pending());
+        lagMillis.set(stats.oldestCreatedAt() == null ? 0 : Math.max(0, System.currentTimeMillis() - stats.oldestCreatedAt().getTime()));
+    }
+
+    private SeatOperation toOperation(Enrollment enrollment, SeatChange change) {
+        return new SeatOperation(change.getOperationId(), enrollment.getCourseId(), change.getDelta());
+    }
+}
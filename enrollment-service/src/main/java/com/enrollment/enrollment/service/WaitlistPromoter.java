@@ -0,0 +1,90 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.model.CatalogChanges;
+import com.enrollment.enrollment.model.Course;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Promotes waitlisted students into seats that come free without a drop, e.g. when a course's
+ * capacity is raised by a PATCH or an import.
+ *
+ * Follows course-service's catalog changes feed, which reports every course whose capacity or
+ * seat count changed, and fills the free seats of changed courses that have a waitlist. The first
+ * run reads the whole feed, so seats freed while this instance was down are filled as well.
+ * Changed and deleted courses are also evicted from the course snapshot cache, so edits made
+ * elsewhere show up here within one run instead of after the cache TTL.
+ */
+@Component
+@Slf4j
+public class WaitlistPromoter {
+
+    private final CourseClient courseClient;
+    private final WaitlistService waitlistService;
+    private final EnrollmentService enrollmentService;
+    private final CourseSnapshotCache courseSnapshotCache;
+    private final int pageSize;
+
+    private long catalogVersion;
+
+    public WaitlistPromoter(CourseClient courseClient,
+                            WaitlistService waitlistService,
+                            EnrollmentService enrollmentService,
+                            CourseSnapshotCache courseSnapshotCache,
+                            @Value("${enrollment.waitlist.changes-page-size:500}") int pageSize) {
+        this.courseClient = courseClient;
+        this.waitlistService = waitlistService;
+        this.enrollmentService = enrollmentService;
+        this.courseSnapshotCache = courseSnapshotCache;
+        this.pageSize = pageSize;
+    }
+
+    @Scheduled(fixedDelayString = "${enrollment.waitlist.promotion-interval:PT5S}")
+    public void promoteIntoFreeSeats() {
+        try {
+            Set<String> waitlisted = null;
+            CatalogChanges changes;
+            do {
+                changes = courseClient.getCatalogChanges(catalogVersion, pageSize);
+                evictChanged(changes);
+                if (changes.getCourses() != null && !changes.getCourses().isEmpty()) {
+                    if (waitlisted == null) {
+                        waitlisted = new HashSet<>(waitlistService.getWaitlistedCourseIds());
+                    }
+                    for (Course course : changes.getCourses()) {
+                        int freeSeats = freeSeats(course);
+                        if (freeSeats > 0 && waitlisted.contains(course.getId())) {
+                            enrollmentService.promoteIntoFreeSeats(course.getId(), freeSeats);
+                        }
+                    }
+                }
+                // Only moved on once the page is handled, so a failed run is repeated
+                catalogVersion = changes.getVersion();
+            } while (changes.isHasMore());
+        } catch (Exception e) {
+            log.warn("Waitlist promotion stopped at catalog version {}, will retry: {}", catalogVersion, e.getMessage());
+        }
+    }
+
+    private void evictChanged(CatalogChanges changes) {
+        if (changes.getCourses() != null) {
+            changes.getCourses().forEach(course -> courseSnapshotCache.invalidate(course.getId()));
+        }
+        if (changes.getDeleted() != null) {
+            changes.getDeleted().forEach(courseSnapshotCache::invalidate);
+        }
+    }
+
+    private static int freeSeats(Course course) {
+        if (course.getCapacity() == null || course.getEnrolled() == null) {
+            return 0;
+        }
+        return course.getCapacity() - course.getEnrolled();
+    }
+}
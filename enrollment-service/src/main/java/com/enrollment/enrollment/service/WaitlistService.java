@@ -0,0 +1,125 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.model.Course;
+import com.enrollment.enrollment.model.WaitlistEntry;
+import com.enrollment.enrollment.repository.EnrollmentRepository;
+import com.enrollment.enrollment.repository.WaitlistRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Ordered per-course waitlists. Students join a full course's waitlist once instead of
+ * retrying the enroll endpoint, and EnrollmentService hands each freed seat to the head
+ * of the line.
+ */
+@Service
+@RequiredArgsConstructor
+public class WaitlistService {
+
+    private static final int MAX_JOIN_ATTEMPTS = 5;
+    private static final Duration CLAIM_TIMEOUT = Duration.ofMinutes(1);
+
+    private final WaitlistRepository waitlistRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final CourseSnapshotCache courseSnapshotCache;
+
+    public WaitlistEntry joinWaitlist(String studentId, String courseId) {
+        System.out.println("Attempting to add student: " + studentId + " to waitlist of course: " + courseId);
+
+        enrollmentRepository.findByStudentIdAndCourseId(studentId, courseId)
+            .filter(enrollment -> "enrolled".equals(enrollment.getStatus()))
+            .ifPresent(enrollment -> {
+                throw new RuntimeException("Student is already enrolled in this course");
+            });
+        if (waitlistRepository.findByCourseIdAndStudentId(courseId, studentId).isPresent()) {
+            throw new RuntimeException("Student is already on the waitlist for this course");
+        }
+
+        Course course = courseSnapshotCache.getCourse(courseId);
+        if (course == null) {
+            throw new RuntimeException("Course not found");
+        }
+        if ("open".equals(course.getStatus())) {
+            throw new RuntimeException("Course still has open seats, enroll directly instead");
+        }
+
+        // The unique (courseId, position) index rejects concurrent joins that picked the same
+        // position; the loser simply retries with the next one.
+        for (int attempt = 0; attempt < MAX_JOIN_ATTEMPTS; attempt++) {
+            long position = waitlistRepository.findFirstByCourseIdOrderByPositionDesc(courseId)
+                .map(WaitlistEntry::getPosition)
+                .orElse(0L) + 1;
+
+            WaitlistEntry entry = new WaitlistEntry();
+            entry.setCourseId(courseId);
+            entry.setStudentId(studentId);
+            entry.setPosition(position);
+            entry.setJoinedAt(new Date());
+            try {
+                WaitlistEntry savedEntry = waitlistRepository.insert(entry);
+                System.out.println("Student added to waitlist at position: " + position);
+                return withPlaceInLine(savedEntry);
+            } catch (DuplicateKeyException e) {
+                if (waitlistRepository.findByCourseIdAndStudentId(courseId, studentId).isPresent()) {
+                    throw new RuntimeException("Student is already on the waitlist for this course");
+                }
+            }
+        }
+        throw new RuntimeException("Could not join the waitlist. Please try again later.");
+    }
+
+    public void leaveWaitlist(String studentId, String courseId) {
+        WaitlistEntry entry = waitlistRepository.findByCourseIdAndStudentId(courseId, studentId)
+            .orElseThrow(() -> new RuntimeException("Student is not on the waitlist for this course"));
+        waitlistRepository.delete(entry);
+    }
+
+    public List<WaitlistEntry> getStudentWaitlist(String studentId) {
+        return waitlistRepository.findByStudentId(studentId).stream()
+            .map(this::withPlaceInLine)
+            .collect(Collectors.toList());
+    }
+
+    public List<WaitlistEntry> getCourseWaitlist(String courseId) {
+        List<WaitlistEntry> entries = waitlistRepository.findByCourseIdOrderByPositionAsc(courseId);
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).setPlaceInLine((long) i + 1);
+        }
+        return entries;
+    }
+
+    /**
+     * Claims the head of the course's waitlist for a promotion. The entry keeps its place until the
+     * promotion is saved and {@link #complete} removes it; {@link #release} puts it back if the
+     * promotion fails, and the claim of an instance that stopped halfway runs out by itself.
+     * Concurrent promotions claim different entries.
+     */
+    public Optional<WaitlistEntry> claimHead(String courseId) {
+        Date now = new Date();
+        return Optional.ofNullable(waitlistRepository.claimHead(courseId, now, new Date(now.getTime() + CLAIM_TIMEOUT.toMillis())));
+    }
+
+    public void complete(WaitlistEntry claimed) {
+        waitlistRepository.deleteByIdAndClaimedUntil(claimed.getId(), claimed.getClaimedUntil());
+    }
+
+    public void release(WaitlistEntry claimed) {
+        waitlistRepository.releaseClaim(claimed.getId(), claimed.getClaimedUntil());
+    }
+
+    public List<String> getWaitlistedCourseIds() {
+        return waitlistRepository.findWaitlistedCourseIds();
+    }
+
+    private WaitlistEntry withPlaceInLine(WaitlistEntry entry) {
+        entry.setPlaceInLine(waitlistRepository.countByCourseIdAndPositionLessThan(entry.getCourseId(), entry.getPosition()) + 1);
+        return entry;
+    }
+}
@@ -0,0 +1,115 @@
+package com.enrollment.enrollment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RequestDeadlineFilter.
+ * Tests how the caller's time budget is picked up, enforced and cleared.
+ */
+class RequestDeadlineFilterTest {
+
+    private RequestDeadlineFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RequestDeadlineFilter(new ObjectMapper(), Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("Should reject a request whose caller has no time left")
+    void shouldRejectExhaustedBudget() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/enrollments");
+        request.addHeader(RequestDeadline.HEADER, "0");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicLong calls = new AtomicLong();
+
+        // Act
+        filter.doFilter(request, response, (req, res) -> calls.incrementAndGet());
+
+        // Assert
+        assertEquals(504, response.getStatus());
+        assertTrue(response.getContentAsString().contains("Request deadline exceeded"));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    @DisplayName("Should run the request within the caller's budget, capped at the maximum")
+    void shouldApplyCallersBudget() throws Exception {
+        // Arrange
+        MockHttpServletRequest small = new MockHttpServletRequest("GET", "/api/enrollments");
+        small.addHeader(RequestDeadline.HEADER, "1500");
+        MockHttpServletRequest huge = new MockHttpServletRequest("GET", "/api/enrollments");
+        huge.addHeader(RequestDeadline.HEADER, "600000");
+        AtomicLong remaining = new AtomicLong();
+        FilterChain chain = (req, res) -> remaining.set(RequestDeadline.remainingMillis());
+
+        // Act & Assert
+        filter.doFilter(small, new MockHttpServletResponse(), chain);
+        assertTrue(remaining.get() > 0 && remaining.get() <= 1500);
+
+        filter.doFilter(huge, new MockHttpServletResponse(), chain);
+        assertTrue(remaining.get() > 29_000 && remaining.get() <= 30_000);
+
+        assertFalse(RequestDeadline.isSet());
+    }
+
+    @Test
+    @DisplayName("Should use the default budget when no header is sent")
+    void shouldUseDefaultBudget() throws Exception {
+        // Arrange
+        AtomicLong remaining = new AtomicLong();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/enrollments"), new MockHttpServletResponse(),
+                (req, res) -> remaining.set(RequestDeadline.remainingMillis()));
+
+        // Assert
+        assertTrue(remaining.get() > 9_000 && remaining.get() <= 10_000);
+    }
+
+    @Test
+    @DisplayName("Should give the bulk enrollment endpoint the bulk budget")
+    void shouldUseBulkBudgetForBulkEnrollment() throws Exception {
+        // Arrange
+        MockHttpServletRequest bulk = new MockHttpServletRequest("POST", "/api/enrollments/batch");
+        MockHttpServletRequest bulkWithHeader = new MockHttpServletRequest("POST", "/api/enrollments/batch");
+        bulkWithHeader.addHeader(RequestDeadline.HEADER, "600000");
+        AtomicLong remaining = new AtomicLong();
+        FilterChain chain = (req, res) -> remaining.set(RequestDeadline.remainingMillis());
+
+        // Act & Assert
+        filter.doFilter(bulk, new MockHttpServletResponse(), chain);
+        assertTrue(remaining.get() > 299_000 && remaining.get() <= 300_000);
+
+        filter.doFilter(bulkWithHeader, new MockHttpServletResponse(), chain);
+        assertTrue(remaining.get() > 299_000 && remaining.get() <= 300_000);
+    }
+
+    @Test
+    @DisplayName("Should answer 504 when work is abandoned because the budget ran out")
+    void shouldAnswerTimeoutWhenWorkAbandoned() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/enrollments"), response, (req, res) -> {
+            throw new RequestDeadline.DeadlineExceededException("Request deadline exceeded before GET /api/courses");
+        });
+
+        // Assert
+        assertEquals(504, response.getStatus());
+        assertFalse(RequestDeadline.isSet());
+    }
+}
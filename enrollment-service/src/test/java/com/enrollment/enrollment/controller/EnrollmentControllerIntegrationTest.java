@@ -1,10 +1,15 @@
 package com.enrollment.enrollment.controller;
 
 import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.config.RequestDeadline;
 import com.enrollment.enrollment.config.TestMongoConfig;
 import com.enrollment.enrollment.model.Course;
 import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.SeatChange;
+import com.enrollment.enrollment.model.IdempotencyRecord;
+import com.enrollment.enrollment.repository.IdempotencyRecordRepository;
 import com.enrollment.enrollment.repository.EnrollmentRepository;
+import com.enrollment.enrollment.repository.WaitlistRepository;
 import com.enrollment.enrollment.service.EnrollmentService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Jwts;
@@ -19,6 +24,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -49,6 +56,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
     "jwt.secret=dGVzdHNlY3JldDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTIzNDU2Nzg5MDEyMzQ1Njc4OTA=",
     "jwt.expiration=86400000",
     "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration,org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration",
+    "enrollment.indexes.create-on-startup=false",
     "eureka.client.enabled=false",
     "spring.cloud.discovery.enabled=false"
 })
@@ -66,12 +74,21 @@ class EnrollmentControllerIntegrationTest {
     @MockBean
     private EnrollmentRepository enrollmentRepository;
     
+    @MockBean
+    private WaitlistRepository waitlistRepository;
+    
     @MockBean
     private CourseClient courseClient;
     
     @MockBean
     private DiscoveryClient discoveryClient;
 
+    @MockBean
+    private MongoTemplate mongoTemplate;
+
+    @MockBean
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
     private Enrollment sampleEnrollment;
     private Course sampleCourse;
     private String validJwtToken;
@@ -206,7 +223,45 @@ class EnrollmentControllerIntegrationTest {
                 .header("Authorization", validJwtToken)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seatPending").value(false));
+    }
+
+    @Test
+    @DisplayName("Should answer 202 while the seat of a new enrollment is not confirmed yet")
+    @WithMockUser(username = "student@test.com", roles = "STUDENT")
+    void shouldAcceptEnrollmentWithPendingSeat() throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        request.put("courseId", "course123");
+        SeatChange reservation = SeatChange.reserve();
+        sampleEnrollment.addPendingSeatChange(reservation);
+        sampleEnrollment.setSeatOperationId(reservation.getOperationId());
+
+        when(enrollmentService.enrollStudent(anyString(), eq("course123"))).thenReturn(sampleEnrollment);
+
+        mockMvc.perform(post("/api/enrollments")
+                .header("Authorization", validJwtToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.seatPending").value(true));
+    }
+
+    @Test
+    @DisplayName("Should answer 504 when enrolling runs out of time")
+    @WithMockUser(username = "student@test.com", roles = "STUDENT")
+    void shouldAnswerGatewayTimeoutWhenDeadlineExceeded() throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        request.put("courseId", "course123");
+
+        when(enrollmentService.enrollStudent(anyString(), eq("course123")))
+                .thenThrow(new RequestDeadline.DeadlineExceededException("Request deadline exceeded"));
+
+        mockMvc.perform(post("/api/enrollments")
+                .header("Authorization", validJwtToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isGatewayTimeout());
     }
 
     @Test
@@ -269,6 +324,37 @@ class EnrollmentControllerIntegrationTest {
         verify(enrollmentService).unenrollStudent("student@test.com", "course123");
     }
 
+    @Test
+    @DisplayName("Should replay a completed drop for a retried Idempotency-Key")
+    @WithMockUser(username = "student@test.com", roles = "STUDENT")
+    void shouldReplayRetriedDrop() throws Exception {
+        IdempotencyRecord completed = new IdempotencyRecord();
+        completed.setStatus(IdempotencyRecord.COMPLETED);
+        completed.setResponseStatus(200);
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecord.class)))
+                .thenReturn(completed)
+                .thenThrow(new DuplicateKeyException("duplicate"));
+        when(idempotencyRecordRepository.save(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord saved = invocation.getArgument(0);
+            completed.setId(saved.getId());
+            completed.setRequestHash(saved.getRequestHash());
+            return saved;
+        });
+        when(idempotencyRecordRepository.findById(anyString())).thenAnswer(invocation -> Optional.of(completed));
+
+        mockMvc.perform(delete("/api/enrollments/student/student@test.com/course/course123")
+                .header("Idempotency-Key", "drop-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        mockMvc.perform(delete("/api/enrollments/student/student@test.com/course/course123")
+                .header("Idempotency-Key", "drop-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        verify(enrollmentService, times(1)).unenrollStudent("student@test.com", "course123");
+    }
+
     @Test
     @DisplayName("Should prevent students from dropping others' courses")
     @WithMockUser(username = "student1@test.com", roles = "STUDENT")
@@ -1,8 +1,12 @@
 package com.enrollment.enrollment.controller;
 
+import com.enrollment.enrollment.model.BulkEnrollmentItem;
+import com.enrollment.enrollment.model.BulkEnrollmentResult;
 import com.enrollment.enrollment.model.Course;
 import com.enrollment.enrollment.model.Enrollment;
 import com.enrollment.enrollment.service.EnrollmentService;
+import com.enrollment.enrollment.service.IdempotencyService;
+import com.enrollment.enrollment.service.RegistrationWaitingRoom;
 import com.enrollment.enrollment.security.JwtAuthenticationFilter;
 import com.enrollment.enrollment.security.JwtService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -56,6 +60,12 @@ class EnrollmentControllerTest {
     @MockBean
     private EnrollmentService enrollmentService;
 
+    @MockBean
+    private RegistrationWaitingRoom registrationWaitingRoom;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @MockBean
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
@@ -177,6 +187,27 @@ class EnrollmentControllerTest {
         verify(enrollmentService).enrollStudent(anyString(), eq("course123"));
     }
 
+    @Test
+    @DisplayName("Should return queue position and retry hint when waiting room is full")
+    void shouldReturnRetryHintWhenWaitingRoomFull() throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        request.put("courseId", "course123");
+
+        when(registrationWaitingRoom.admit("course123"))
+                .thenThrow(new RegistrationWaitingRoom.AdmissionRejectedException(42, 3));
+
+        mockMvc.perform(post("/api/enrollments")
+                .header("Authorization", validJwtToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.queuePosition").value(42))
+                .andExpect(jsonPath("$.retryAfterSeconds").value(3));
+
+        verify(enrollmentService, never()).enrollStudent(anyString(), anyString());
+    }
+
     @Test
     @DisplayName("Should handle enrollment without course ID")
     void shouldHandleEnrollmentWithoutCourseId() throws Exception {
@@ -212,6 +243,26 @@ class EnrollmentControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("Should enroll students in bulk with per-item results")
+    void shouldEnrollStudentsInBulk() throws Exception {
+        List<BulkEnrollmentItem> items = List.of(
+                new BulkEnrollmentItem("student1", "course123"),
+                new BulkEnrollmentItem("student2", "course123"));
+        when(enrollmentService.enrollStudentsInBulk(items)).thenReturn(List.of(
+                BulkEnrollmentResult.enrolled(items.get(0), "enrollment1"),
+                BulkEnrollmentResult.failed(items.get(1), "Course is full")));
+
+        mockMvc.perform(post("/api/enrollments/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(items)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("enrolled"))
+                .andExpect(jsonPath("$[0].enrollmentId").value("enrollment1"))
+                .andExpect(jsonPath("$[1].status").value("failed"))
+                .andExpect(jsonPath("$[1].error").value("Course is full"));
+    }
+
     @Test
     @DisplayName("Should unenroll student")
     void shouldUnenrollStudent() throws Exception {
@@ -0,0 +1,192 @@
+package com.enrollment.enrollment.repository;
+
+import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.config.TestMongoConfig;
+import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.SeatChange;
+import com.enrollment.enrollment.model.WaitlistEntry;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query plan tests against a real MongoDB.
+ * Loads a large synthetic dataset, lets the application create its indexes on startup, runs the
+ * repository methods with the database profiler on and verifies that none of the queries they
+ * issue falls back to a collection scan.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Import(TestMongoConfig.class)
+@TestPropertySource(properties = {
+    "jwt.secret=QE5jUmZValhuMnI1dTh4L0E/RChHK0tiUGRTZ1ZrWXA=",
+    "eureka.client.enabled=false",
+    "spring.cloud.discovery.enabled=false"
+})
+class EnrollmentQueryPlanTest {
+
+    private static final int STUDENTS = 5_000;
+    private static final int COURSES = 200;
+    private static final int ENROLLMENTS_PER_STUDENT = 6;
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.host", mongoDBContainer::getHost);
+        registry.add("spring.data.mongodb.port", () -> mongoDBContainer.getMappedPort(27017));
+        registry.add("spring.data.mongodb.database", () -> "enrollment_service_query_plan_test");
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @MockBean
+    private CourseClient courseClient;
+
+    @MockBean
+    private DiscoveryClient discoveryClient;
+
+    @BeforeAll
+    void loadSyntheticData() {
+        List<Enrollment> enrollments = new ArrayList<>();
+        List<WaitlistEntry> waitlist = new ArrayList<>();
+        for (int student = 0; student < STUDENTS; student++) {
+            for (int i = 0; i < ENROLLMENTS_PER_STUDENT; i++) {
+                Enrollment enrollment = new Enrollment();
+                enrollment.setStudentId("student" + student);
+                enrollment.setStudentEmail("student" + student + "@test.com");
+                enrollment.setCourseId("course" + ((student + i * 31) % COURSES));
+                enrollment.setStatus(i % 5 == 0 ? "dropped" : "enrolled");
+                enrollments.add(enrollment);
+            }
+            if (student % 50 == 0) {
+                // A few enrollments with seat changes still waiting for course-service
+                enrollments.get(enrollments.size() - 1).addPendingSeatChange(SeatChange.release());
+            }
+            WaitlistEntry entry = new WaitlistEntry();
+            entry.setCourseId("course" + (student % COURSES));
+            entry.setStudentId("student" + student);
+            entry.setPosition(student / COURSES + 1);
+            entry.setJoinedAt(new Date());
+            waitlist.add(entry);
+        }
+        mongoTemplate.insert(enrollments, Enrollment.class);
+        mongoTemplate.insert(waitlist, WaitlistEntry.class);
+    }
+
+    @Test
+    @DisplayName("Enrollment repository queries should use an index")
+    void enrollmentQueriesShouldUseAnIndex() {
+        assertIndexed(profile(() -> {
+            enrollmentRepository.findByStudentId("student42");
+            enrollmentRepository.findByCourseId("course7");
+            enrollmentRepository.findByStudentIdAndCourseId("student42", "course42");
+            enrollmentRepository.findByStudentIdAndStatus("student42", "enrolled");
+            enrollmentRepository.findByStudentEmailAndCourseId("student42@test.com", "course42");
+            enrollmentRepository.findByStudentIdInAndCourseIdIn(Set.of("student1", "student2", "student3"), Set.of("course1", "course32", "course63"));
+        }), true);
+    }
+
+    @Test
+    @DisplayName("Seat outbox queries should use the sparse outbox index")
+    void seatOutboxQueriesShouldUseAnIndex() {
+        Date now = new Date();
+        // Sorting on the multikey nextAttemptAt always takes a sort stage, but only over the due changes
+        assertIndexed(profile(() -> {
+            assertFalse(enrollmentRepository.findWithDueSeatChanges(now, 100).isEmpty());
+            enrollmentRepository.getSeatOutboxStats();
+        }), false);
+    }
+
+    @Test
+    @DisplayName("Waitlist repository queries should use an index")
+    void waitlistQueriesShouldUseAnIndex() {
+        Date now = new Date();
+        assertIndexed(profile(() -> {
+            waitlistRepository.findByCourseIdOrderByPositionAsc("course7");
+            waitlistRepository.findFirstByCourseIdOrderByPositionAsc("course7");
+            waitlistRepository.findFirstByCourseIdOrderByPositionDesc("course7");
+            waitlistRepository.findByStudentId("student7");
+            waitlistRepository.findByCourseIdAndStudentId("course7", "student7");
+            waitlistRepository.countByCourseIdAndPositionLessThan("course7", 10L);
+            assertNotNull(waitlistRepository.claimHead("course8", now, new Date(now.getTime() + 60_000)));
+        }), true);
+    }
+
+    @Test
+    @DisplayName("Unique index should reject a second enrollment for the same student and course")
+    void uniqueIndexShouldRejectDuplicateEnrollment() {
+        Enrollment duplicate = new Enrollment();
+        duplicate.setStudentId("student1");
+        duplicate.setCourseId(enrollmentRepository.findByStudentId("student1").get(0).getCourseId());
+
+        assertThrows(DuplicateKeyException.class, () -> enrollmentRepository.save(duplicate));
+    }
+
+    /**
+     * Runs the repository calls with the database profiler on and returns the profiled operations
+     * on the enrollment and waitlist collections, with the plans MongoDB actually chose.
+     */
+    private List<Document> profile(Runnable repositoryCalls) {
+        MongoDatabase db = mongoTemplate.getDb();
+        db.runCommand(new Document("profile", 0));
+        db.getCollection("system.profile").drop();
+        db.runCommand(new Document("profile", 2));
+        try {
+            repositoryCalls.run();
+        } finally {
+            db.runCommand(new Document("profile", 0));
+        }
+        List<String> namespaces = List.of(db.getName() + ".enrollments", db.getName() + ".waitlist");
+        List<Document> operations = db.getCollection("system.profile")
+                .find(new Document("ns", new Document("$in", namespaces)).append("planSummary", new Document("$exists", true)))
+                .into(new ArrayList<>());
+        assertFalse(operations.isEmpty(), "No repository query was profiled");
+        return operations;
+    }
+
+    private void assertIndexed(List<Document> operations, boolean sortedByIndex) {
+        for (Document operation : operations) {
+            String planSummary = operation.getString("planSummary");
+            assertFalse(planSummary.contains("COLLSCAN"),
+                    () -> "Query falls back to a collection scan: " + operation.toJson());
+            if (sortedByIndex) {
+                assertNotEquals(Boolean.TRUE, operation.get("hasSortStage"),
+                        () -> "Query sorts in memory: " + operation.toJson());
+            }
+        }
+    }
+}
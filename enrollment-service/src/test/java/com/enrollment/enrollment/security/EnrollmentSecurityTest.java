@@ -4,6 +4,8 @@ import com.enrollment.enrollment.client.CourseClient;
 import com.enrollment.enrollment.model.Course;
 import com.enrollment.enrollment.model.Enrollment;
 import com.enrollment.enrollment.repository.EnrollmentRepository;
+import com.enrollment.enrollment.repository.IdempotencyRecordRepository;
+import com.enrollment.enrollment.repository.WaitlistRepository;
 import com.enrollment.enrollment.service.EnrollmentService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +36,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @TestPropertySource(properties = {
     "jwt.secret=testsecret123456789012345678901234567890",
     "spring.security.debug=true",
+    "enrollment.indexes.create-on-startup=false",
     "eureka.client.enabled=false",
     "spring.cloud.discovery.enabled=false"
 })
@@ -48,6 +51,12 @@ class EnrollmentSecurityTest {
     @MockBean
     private EnrollmentRepository enrollmentRepository;
 
+    @MockBean
+    private WaitlistRepository waitlistRepository;
+
+    @MockBean
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
     @MockBean
     private CourseClient courseClient;
     
@@ -0,0 +1,195 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.model.Course;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CourseSnapshotCache.
+ * Tests TTL expiry, size-based eviction, metrics and stale serving on failures.
+ */
+@ExtendWith(MockitoExtension.class)
+class CourseSnapshotCacheTest {
+
+    @Mock
+    private CourseClient courseClient;
+
+    private MutableClock clock;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private CourseSnapshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CourseSnapshotCache(courseClient, circuitBreakerRegistry, meterRegistry,
+                Duration.ofSeconds(30), Duration.ofHours(1), 2, clock);
+    }
+
+    @Test
+    @DisplayName("Should serve fresh entries from cache")
+    void shouldServeFreshEntriesFromCache() {
+        when(courseClient.getCourses(List.of("course1"))).thenReturn(List.of(course("course1", 5)));
+
+        cache.getCourse("course1");
+        Course result = cache.getCourse("course1");
+
+        assertEquals(5, result.getEnrolled());
+        verify(courseClient, times(1)).getCourses(anyList());
+        assertEquals(1.0, requests("hit"));
+        assertEquals(1.0, requests("miss"));
+    }
+
+    @Test
+    @DisplayName("Should only fetch missing ids in a batch lookup")
+    void shouldOnlyFetchMissingIds() {
+        cache.put(course("course1", 5));
+        when(courseClient.getCourses(List.of("course2"))).thenReturn(List.of(course("course2", 7)));
+
+        List<Course> result = cache.getCourses(List.of("course1", "course2"));
+
+        assertEquals(2, result.size());
+        verify(courseClient).getCourses(List.of("course2"));
+    }
+
+    @Test
+    @DisplayName("Should refetch entries after TTL expires")
+    void shouldRefetchAfterTtl() {
+        when(courseClient.getCourses(List.of("course1")))
+                .thenReturn(List.of(course("course1", 5)))
+                .thenReturn(List.of(course("course1", 6)));
+
+        cache.getCourse("course1");
+        clock.advance(Duration.ofSeconds(31));
+        Course result = cache.getCourse("course1");
+
+        assertEquals(6, result.getEnrolled());
+        verify(courseClient, times(2)).getCourses(anyList());
+    }
+
+    @Test
+    @DisplayName("Should serve stale entry when course service fails")
+    void shouldServeStaleEntryWhenCourseServiceFails() {
+        cache.put(course("course1", 5));
+        clock.advance(Duration.ofMinutes(5));
+        when(courseClient.getCourses(List.of("course1"))).thenThrow(new RuntimeException("Connection refused"));
+
+        Course result = cache.getCourse("course1");
+
+        assertEquals(5, result.getEnrolled());
+        assertEquals(1.0, requests("stale"));
+    }
+
+    @Test
+    @DisplayName("Should serve stale entry without calling course service when circuit is open")
+    void shouldServeStaleEntryWhenCircuitOpen() {
+        cache.put(course("course1", 5));
+        clock.advance(Duration.ofMinutes(5));
+        circuitBreakerRegistry.circuitBreaker(CourseSnapshotCache.CIRCUIT_BREAKER_NAME).transitionToOpenState();
+
+        Course result = cache.getCourse("course1");
+
+        assertEquals(5, result.getEnrolled());
+        verify(courseClient, never()).getCourses(anyList());
+    }
+
+    @Test
+    @DisplayName("Should rethrow failure when no stale entry is available")
+    void shouldRethrowWhenNothingCached() {
+        when(courseClient.getCourses(List.of("course1"))).thenThrow(new RuntimeException("Connection refused"));
+
+        assertThrows(RuntimeException.class, () -> cache.getCourse("course1"));
+    }
+
+    @Test
+    @DisplayName("Should not serve entries older than max staleness")
+    void shouldNotServeEntriesOlderThanMaxStale() {
+        cache.put(course("course1", 5));
+        clock.advance(Duration.ofHours(2));
+        when(courseClient.getCourses(List.of("course1"))).thenThrow(new RuntimeException("Connection refused"));
+
+        assertThrows(RuntimeException.class, () -> cache.getCourse("course1"));
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entry when full")
+    void shouldEvictLeastRecentlyUsedEntry() {
+        cache.put(course("course1", 1));
+        cache.put(course("course2", 2));
+        cache.getCourse("course1");
+        cache.put(course("course3", 3));
+
+        assertEquals(2, cache.size());
+        assertEquals(1.0, meterRegistry.get("enrollment.course.cache.evictions").counter().count());
+        when(courseClient.getCourses(List.of("course2"))).thenReturn(List.of(course("course2", 2)));
+        cache.getCourse("course2");
+        verify(courseClient).getCourses(List.of("course2"));
+    }
+
+    @Test
+    @DisplayName("Should refetch after invalidation")
+    void shouldRefetchAfterInvalidation() {
+        cache.put(course("course1", 5));
+        cache.invalidate("course1");
+        when(courseClient.getCourses(List.of("course1"))).thenReturn(List.of(course("course1", 6)));
+
+        assertEquals(6, cache.getCourse("course1").getEnrolled());
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("enrollment.course.cache.requests").tag("result", result).counter().count();
+    }
+
+    private Course course(String id, int enrolled) {
+        Course course = new Course();
+        course.setId(id);
+        course.setCode(id.toUpperCase());
+        course.setCapacity(30);
+        course.setEnrolled(enrolled);
+        course.setStatus("open");
+        return course;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package com.enrollment.enrollment.service;
 
 import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.config.RequestDeadline;
+import com.enrollment.enrollment.model.BulkEnrollmentItem;
+import com.enrollment.enrollment.model.BulkEnrollmentResult;
 import com.enrollment.enrollment.model.Course;
 import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.SeatChange;
+import com.enrollment.enrollment.model.SeatOperation;
+import com.enrollment.enrollment.model.SeatOperationResult;
+import com.enrollment.enrollment.model.WaitlistEntry;
 import com.enrollment.enrollment.repository.EnrollmentRepository;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -34,7 +47,11 @@ class EnrollmentServiceTest {
     @Mock
     private CourseClient courseClient;
 
-    @InjectMocks
+    @Mock
+    private WaitlistService waitlistService;
+
+    private CourseSnapshotCache courseSnapshotCache;
+
     private EnrollmentService enrollmentService;
 
     private Enrollment sampleEnrollment;
@@ -42,6 +59,13 @@ class EnrollmentServiceTest {
 
     @BeforeEach
     void setUp() {
+        courseSnapshotCache = new CourseSnapshotCache(courseClient, CircuitBreakerRegistry.ofDefaults(),
+                new SimpleMeterRegistry(), Duration.ofSeconds(30), Duration.ofHours(1), 100);
+        SeatOutboxDispatcher seatOutboxDispatcher = new SeatOutboxDispatcher(enrollmentRepository, courseClient,
+                courseSnapshotCache, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5), Duration.ofSeconds(60));
+        enrollmentService = new EnrollmentService(enrollmentRepository, courseClient, courseSnapshotCache,
+                waitlistService, seatOutboxDispatcher);
+
         // Setup sample course
         sampleCourse = new Course();
         sampleCourse.setId("course123");
@@ -68,7 +92,7 @@ class EnrollmentServiceTest {
         // Arrange
         List<Enrollment> enrollments = Arrays.asList(sampleEnrollment);
         when(enrollmentRepository.findByStudentIdAndStatus("student123", "enrolled")).thenReturn(enrollments);
-        when(courseClient.getCourse("course123")).thenReturn(sampleCourse);
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
 
         // Act
         List<Enrollment> result = enrollmentService.getStudentEnrollments("student123");
@@ -81,7 +105,42 @@ class EnrollmentServiceTest {
         assertEquals("CS101", result.get(0).getCourse().getCode());
 
         verify(enrollmentRepository).findByStudentIdAndStatus("student123", "enrolled");
-        verify(courseClient).getCourse("course123");
+        verify(courseClient).getCourses(List.of("course123"));
+        verify(courseClient, never()).getCourse(anyString());
+    }
+
+    @Test
+    @DisplayName("Should resolve course details with a single batch call")
+    void shouldResolveCourseDetailsWithSingleBatchCall() {
+        // Arrange
+        Enrollment secondEnrollment = new Enrollment();
+        secondEnrollment.setId("enrollment456");
+        secondEnrollment.setStudentId("student123");
+        secondEnrollment.setCourseId("course456");
+
+        Enrollment duplicateCourseEnrollment = new Enrollment();
+        duplicateCourseEnrollment.setId("enrollment789");
+        duplicateCourseEnrollment.setStudentId("student123");
+        duplicateCourseEnrollment.setCourseId("course123");
+
+        Course secondCourse = new Course();
+        secondCourse.setId("course456");
+        secondCourse.setCode("CS201");
+
+        List<Enrollment> enrollments = Arrays.asList(sampleEnrollment, secondEnrollment, duplicateCourseEnrollment);
+        when(enrollmentRepository.findByStudentIdAndStatus("student123", "enrolled")).thenReturn(enrollments);
+        when(courseClient.getCourses(List.of("course123", "course456"))).thenReturn(List.of(sampleCourse, secondCourse));
+
+        // Act
+        List<Enrollment> result = enrollmentService.getStudentEnrollments("student123");
+
+        // Assert
+        assertEquals(3, result.size());
+        assertEquals("CS101", result.get(0).getCourse().getCode());
+        assertEquals("CS201", result.get(1).getCourse().getCode());
+        assertEquals("CS101", result.get(2).getCourse().getCode());
+        verify(courseClient, times(1)).getCourses(anyList());
+        verify(courseClient, never()).getCourse(anyString());
     }
 
     @Test
@@ -90,7 +149,7 @@ class EnrollmentServiceTest {
         // Arrange
         List<Enrollment> enrollments = Arrays.asList(sampleEnrollment);
         when(enrollmentRepository.findByStudentIdAndStatus("student123", "enrolled")).thenReturn(enrollments);
-        when(courseClient.getCourse("course123"))
+        when(courseClient.getCourses(List.of("course123")))
                 .thenThrow(new RuntimeException("Connection refused"));
 
         // Act & Assert
@@ -106,7 +165,7 @@ class EnrollmentServiceTest {
         // Arrange
         List<Enrollment> enrollments = Arrays.asList(sampleEnrollment);
         when(enrollmentRepository.findByCourseId("course123")).thenReturn(enrollments);
-        when(courseClient.getCourse("course123")).thenReturn(sampleCourse);
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
 
         // Act
         List<Enrollment> result = enrollmentService.getCourseEnrollments("course123");
@@ -115,8 +174,10 @@ class EnrollmentServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals("course123", result.get(0).getCourseId());
+        assertEquals("CS101", result.get(0).getCourse().getCode());
 
         verify(enrollmentRepository).findByCourseId("course123");
+        verify(courseClient).getCourses(List.of("course123"));
     }
 
     @Test
@@ -125,9 +186,9 @@ class EnrollmentServiceTest {
         // Arrange
         when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
                 .thenReturn(Optional.empty());
-        when(courseClient.getCourse("course123")).thenReturn(sampleCourse);
-        when(enrollmentRepository.save(any(Enrollment.class))).thenReturn(sampleEnrollment);
-        when(courseClient.incrementEnrollment("course123")).thenReturn(sampleCourse);
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
+        when(enrollmentRepository.insert(any(Enrollment.class))).thenReturn(sampleEnrollment);
+        courseServiceApplies(sampleCourse);
 
         // Act
         Enrollment result = enrollmentService.enrollStudent("student123", "course123");
@@ -138,9 +199,111 @@ class EnrollmentServiceTest {
         assertEquals("student@test.com", result.getStudentId());  // The mock returns sampleEnrollment which has this studentId
         assertEquals("course123", result.getCourseId());
 
-        verify(courseClient).getCourse("course123");
-        verify(courseClient).incrementEnrollment("course123");
-        verify(enrollmentRepository).save(any(Enrollment.class));
+        verify(courseClient).getCourses(List.of("course123"));
+        verify(courseClient).applySeatOperations(argThat(operations ->
+            operations.size() == 1 && operations.get(0).getDelta() == 1 && "course123".equals(operations.get(0).getCourseId())
+        ));
+        verify(enrollmentRepository).insert(argThat((Enrollment enrollment) -> enrollment.getPendingSeatChanges().size() == 1
+            && enrollment.getPendingSeatChanges().get(0).getSentAt() != null
+            && enrollment.getPendingSeatChanges().get(0).getOperationId().equals(enrollment.getSeatOperationId())));
+    }
+
+    @Test
+    @DisplayName("Should not reserve a seat when a concurrent enrollment wins the unique index")
+    void shouldNotReserveSeatOnDuplicateEnrollment() {
+        // Arrange
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.empty());
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
+        when(enrollmentRepository.insert(any(Enrollment.class)))
+                .thenThrow(new DuplicateKeyException("student_course_idx"));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> enrollmentService.enrollStudent("student123", "course123"));
+        assertEquals("Student is already enrolled in this course", exception.getMessage());
+        verify(courseClient, never()).applySeatOperations(anyList());
+    }
+
+    @Test
+    @DisplayName("Should undo new enrollment when course service rejects the seat reservation")
+    void shouldUndoEnrollmentWhenReservationRejected() {
+        // Arrange
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.empty());
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
+        when(enrollmentRepository.insert(any(Enrollment.class))).thenReturn(sampleEnrollment);
+        when(enrollmentRepository.completeSeatChange(eq("enrollment123"), anyString(), eq(true))).thenReturn(true);
+        when(courseClient.applySeatOperations(anyList())).thenAnswer(invocation -> seatResults(invocation.getArgument(0), "rejected", null, "Course is full"));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> enrollmentService.enrollStudent("student123", "course123"));
+        assertEquals("Course is full", exception.getMessage());
+        // Only deleted while it still depends on the rejected reservation
+        verify(enrollmentRepository).deleteByIdAndStatusAndSeatOperationId(eq("enrollment123"), eq("enrolled"), anyString());
+    }
+
+    @Test
+    @DisplayName("Should undo a new enrollment when the request runs out of time before the seat is reserved")
+    void shouldUndoEnrollmentWhenDeadlineExceeded() {
+        // Arrange
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.empty());
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
+        when(enrollmentRepository.insert(any(Enrollment.class))).thenReturn(sampleEnrollment);
+        when(courseClient.applySeatOperations(anyList()))
+                .thenThrow(new RequestDeadline.DeadlineExceededException("Request deadline exceeded before POST /api/courses/seats/apply"));
+
+        // Act & Assert - the timeout reaches the caller instead of a queued enrollment
+        assertThrows(RequestDeadline.DeadlineExceededException.class,
+                () -> enrollmentService.enrollStudent("student123", "course123"));
+        verify(enrollmentRepository).deleteByIdAndStatusAndSeatOperationId(eq("enrollment123"), eq("enrolled"), anyString());
+        verify(enrollmentRepository, never()).rescheduleSeatChange(anyString(), anyString(), any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should undo a reactivation when the request runs out of time before the seat is reserved")
+    void shouldUndoReactivationWhenDeadlineExceeded() {
+        // Arrange
+        Enrollment droppedEnrollment = new Enrollment();
+        droppedEnrollment.setId("enrollment123");
+        droppedEnrollment.setStatus("dropped");
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(droppedEnrollment));
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("dropped"), eq("enrolled"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+        when(courseClient.applySeatOperations(anyList()))
+                .thenThrow(new RequestDeadline.DeadlineExceededException("Request deadline exceeded"));
+
+        // Act & Assert
+        assertThrows(RequestDeadline.DeadlineExceededException.class,
+                () -> enrollmentService.enrollStudent("student123", "course123"));
+        verify(enrollmentRepository).undoReactivation(eq("enrollment123"), anyString());
+    }
+
+    @Test
+    @DisplayName("Should keep seat reservation in the outbox when course service is unavailable")
+    void shouldQueueReservationWhenCourseServiceUnavailable() {
+        // Arrange
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.empty());
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
+        when(enrollmentRepository.insert(any(Enrollment.class))).thenAnswer(invocation -> {
+            Enrollment inserted = invocation.getArgument(0);
+            inserted.setId("enrollment123");
+            return inserted;
+        });
+        when(courseClient.applySeatOperations(anyList())).thenThrow(new RuntimeException("Connection refused"));
+
+        // Act
+        Enrollment result = enrollmentService.enrollStudent("student123", "course123");
+
+        // Assert - the reservation is retried by the dispatcher instead of failing the request
+        assertEquals("enrollment123", result.getId());
+        assertTrue(result.isSeatPending());
+        verify(enrollmentRepository).rescheduleSeatChange(eq("enrollment123"), anyString(), any(Date.class), eq("Connection refused"));
+        verify(enrollmentRepository, never()).deleteByIdAndStatusAndSeatOperationId(anyString(), anyString(), anyString());
     }
 
     @Test
@@ -155,17 +318,54 @@ class EnrollmentServiceTest {
 
         when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
                 .thenReturn(Optional.of(droppedEnrollment));
-        when(courseClient.incrementEnrollment("course123")).thenReturn(sampleCourse);
-        when(enrollmentRepository.save(any(Enrollment.class))).thenReturn(sampleEnrollment);
+        courseServiceApplies(sampleCourse);
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("dropped"), eq("enrolled"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+
+        // Act
+        Enrollment result = enrollmentService.enrollStudent("student123", "course123");
+
+        // Assert - the status change and the reservation are one conditional update
+        assertSame(sampleEnrollment, result);
+        verify(courseClient).applySeatOperations(anyList());
+        verify(enrollmentRepository, never()).save(any(Enrollment.class));
+    }
+
+    @Test
+    @DisplayName("Should keep the seat when reactivating before the drop's release was sent")
+    void shouldWithdrawUnsentReleaseOnReactivation() {
+        // Arrange
+        Enrollment droppedEnrollment = new Enrollment();
+        droppedEnrollment.setId("enrollment123");
+        droppedEnrollment.setStatus("dropped");
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(droppedEnrollment));
+        when(enrollmentRepository.changeStatusWithdrawing("enrollment123", "dropped", "enrolled", -1)).thenReturn(sampleEnrollment);
 
         // Act
         Enrollment result = enrollmentService.enrollStudent("student123", "course123");
 
         // Assert
-        assertNotNull(result);
-        assertEquals("enrolled", sampleEnrollment.getStatus());
-        verify(courseClient).incrementEnrollment("course123");
-        verify(enrollmentRepository).save(any(Enrollment.class));
+        assertSame(sampleEnrollment, result);
+        verify(enrollmentRepository, never()).changeStatus(anyString(), anyString(), anyString(), any());
+        verify(courseClient, never()).applySeatOperations(anyList());
+    }
+
+    @Test
+    @DisplayName("Should not reactivate twice when a concurrent request reactivated first")
+    void shouldNotReactivateTwice() {
+        // Arrange
+        Enrollment droppedEnrollment = new Enrollment();
+        droppedEnrollment.setId("enrollment123");
+        droppedEnrollment.setStatus("dropped");
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(droppedEnrollment));
+
+        // Act & Assert - the conditional update no longer finds the enrollment dropped
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> enrollmentService.enrollStudent("student123", "course123"));
+        assertEquals("Student is already enrolled in this course", exception.getMessage());
+        verify(courseClient, never()).applySeatOperations(anyList());
     }
 
     @Test
@@ -180,7 +380,7 @@ class EnrollmentServiceTest {
                 () -> enrollmentService.enrollStudent("student123", "course123"));
         
         assertEquals("Student is already enrolled in this course", exception.getMessage());
-        verify(courseClient, never()).incrementEnrollment(anyString());
+        verify(courseClient, never()).applySeatOperations(anyList());
     }
 
     @Test
@@ -189,7 +389,7 @@ class EnrollmentServiceTest {
         // Arrange
         when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
                 .thenReturn(Optional.empty());
-        when(courseClient.getCourse("course123")).thenReturn(null);
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of());
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class,
@@ -208,7 +408,7 @@ class EnrollmentServiceTest {
 
         when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
                 .thenReturn(Optional.empty());
-        when(courseClient.getCourse("course123")).thenReturn(closedCourse);
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(closedCourse));
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class,
@@ -223,16 +423,47 @@ class EnrollmentServiceTest {
         // Arrange
         when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
                 .thenReturn(Optional.of(sampleEnrollment));
-        when(enrollmentRepository.save(any(Enrollment.class))).thenReturn(sampleEnrollment);
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
 
         // Act
         assertDoesNotThrow(() -> enrollmentService.unenrollStudent("student123", "course123"));
 
-        // Assert
-        verify(enrollmentRepository).save(argThat(enrollment -> 
-            "dropped".equals(enrollment.getStatus())
-        ));
-        verify(courseClient).decrementEnrollment("course123");
+        // Assert - the seat release is written to the outbox together with the drop
+        verify(enrollmentRepository).changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"),
+            argThat(change -> change.getDelta() == -1));
+        verify(enrollmentRepository, never()).save(any(Enrollment.class));
+        verify(courseClient, never()).applySeatOperations(anyList());
+    }
+
+    @Test
+    @DisplayName("Should withdraw a reservation course service has not seen instead of releasing a seat")
+    void shouldWithdrawUnsentReservationOnDrop() {
+        // Arrange
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(sampleEnrollment));
+        when(enrollmentRepository.changeStatusWithdrawing("enrollment123", "enrolled", "dropped", 1)).thenReturn(sampleEnrollment);
+
+        // Act
+        enrollmentService.unenrollStudent("student123", "course123");
+
+        // Assert - no release is queued and there is no seat to hand to the waitlist
+        verify(enrollmentRepository, never()).changeStatus(anyString(), anyString(), anyString(), any());
+        verify(waitlistService, never()).claimHead(anyString());
+    }
+
+    @Test
+    @DisplayName("Should release the seat only once when two drops race")
+    void shouldReleaseSeatOnlyOnceForConcurrentDrops() {
+        // Arrange - the other drop changed the status between the read and the conditional update
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(sampleEnrollment));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> enrollmentService.unenrollStudent("student123", "course123"));
+        assertTrue(exception.getMessage().contains("Course is already dropped"));
+        verify(waitlistService, never()).claimHead(anyString());
     }
 
     @Test
@@ -244,14 +475,15 @@ class EnrollmentServiceTest {
                 .thenReturn(Optional.empty());
         when(enrollmentRepository.findByStudentEmailAndCourseId(studentEmail, "course123"))
                 .thenReturn(Optional.of(sampleEnrollment));
-        when(enrollmentRepository.save(any(Enrollment.class))).thenReturn(sampleEnrollment);
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
 
         // Act
         assertDoesNotThrow(() -> enrollmentService.unenrollStudent(studentEmail, "course123"));
 
         // Assert
         verify(enrollmentRepository).findByStudentEmailAndCourseId(studentEmail, "course123");
-        verify(courseClient).decrementEnrollment("course123");
+        verify(enrollmentRepository).changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class));
     }
 
     @Test
@@ -292,16 +524,402 @@ class EnrollmentServiceTest {
         // Arrange
         when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
                 .thenReturn(Optional.of(sampleEnrollment));
-        when(enrollmentRepository.save(any(Enrollment.class))).thenReturn(sampleEnrollment);
-        doThrow(new RuntimeException("Service unavailable"))
-                .when(courseClient).decrementEnrollment("course123");
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+        lenient().when(courseClient.applySeatOperations(anyList()))
+                .thenThrow(new RuntimeException("Service unavailable"));
 
         // Act - Should not throw exception even if course service fails
         assertDoesNotThrow(() -> enrollmentService.unenrollStudent("student123", "course123"));
 
         // Assert - Enrollment status should still be updated
-        verify(enrollmentRepository).save(argThat(enrollment -> 
-            "dropped".equals(enrollment.getStatus())
+        verify(enrollmentRepository).changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class));
+    }
+
+    @Test
+    @DisplayName("Should hand dropped seat to the head of the waitlist")
+    void shouldHandDroppedSeatToHeadOfWaitlist() {
+        // Arrange
+        WaitlistEntry head = new WaitlistEntry();
+        head.setId("entry1");
+        head.setCourseId("course123");
+        head.setStudentId("waiting456");
+        head.setPosition(1);
+
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(sampleEnrollment));
+        when(enrollmentRepository.findByStudentIdAndCourseId("waiting456", "course123"))
+                .thenReturn(Optional.empty());
+        when(waitlistService.claimHead("course123")).thenReturn(Optional.of(head));
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+        when(enrollmentRepository.withdrawSeatChange(eq("enrollment123"), anyString())).thenReturn(true);
+
+        // Act
+        enrollmentService.unenrollStudent("student123", "course123");
+
+        // Assert - the seat changes hands: the unsent release is withdrawn and the promoted student
+        // is enrolled without a reservation, so the course seat count is left untouched
+        verify(enrollmentRepository).insert(argThat((Enrollment enrollment) ->
+            "waiting456".equals(enrollment.getStudentId()) && "enrolled".equals(enrollment.getStatus())
+                && enrollment.getPendingSeatChanges() == null && enrollment.getSeatOperationId() == null
         ));
+        verify(enrollmentRepository, never()).appendSeatChange(anyString(), any());
+        verify(courseClient, never()).applySeatOperations(anyList());
+    }
+
+    @Test
+    @DisplayName("Should give a promoted student a reservation of their own once the release is on its way")
+    void shouldReserveForPromotedStudentWhenReleaseAlreadySent() {
+        // Arrange
+        WaitlistEntry head = new WaitlistEntry();
+        head.setCourseId("course123");
+        head.setStudentId("waiting456");
+        Enrollment previouslyDropped = new Enrollment();
+        previouslyDropped.setId("promoted1");
+        previouslyDropped.setStatus("dropped");
+
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(sampleEnrollment));
+        when(enrollmentRepository.findByStudentIdAndCourseId("waiting456", "course123"))
+                .thenReturn(Optional.of(previouslyDropped));
+        when(waitlistService.claimHead("course123")).thenReturn(Optional.of(head));
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+        when(enrollmentRepository.changeStatus(eq("promoted1"), eq("dropped"), eq("enrolled"), any(SeatChange.class)))
+                .thenReturn(previouslyDropped);
+        courseServiceApplies(sampleCourse);
+        when(enrollmentRepository.completeSeatChange(eq("promoted1"), anyString(), eq(false))).thenReturn(true);
+
+        // Act - withdrawSeatChange finds the release already claimed by the dispatcher
+        enrollmentService.unenrollStudent("student123", "course123");
+
+        // Assert - the reservation is confirmed with course-service before the entry leaves the waitlist
+        verify(enrollmentRepository).changeStatus(eq("promoted1"), eq("dropped"), eq("enrolled"),
+            argThat(change -> change.getDelta() == 1));
+        var order = inOrder(courseClient, waitlistService);
+        order.verify(courseClient).applySeatOperations(argThat(operations -> operations.get(0).getDelta() == 1));
+        order.verify(waitlistService).complete(head);
+    }
+
+    @Test
+    @DisplayName("Should keep a promoted student in line when their own reservation is rejected")
+    void shouldKeepWaitlistEntryWhenPromotedReservationRejected() {
+        // Arrange
+        WaitlistEntry head = new WaitlistEntry();
+        head.setId("entry1");
+        head.setCourseId("course123");
+        head.setStudentId("waiting456");
+
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(sampleEnrollment));
+        when(enrollmentRepository.findByStudentIdAndCourseId("waiting456", "course123"))
+                .thenReturn(Optional.empty());
+        when(waitlistService.claimHead("course123")).thenReturn(Optional.of(head));
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+        when(enrollmentRepository.insert(any(Enrollment.class))).thenAnswer(invocation -> {
+            Enrollment enrollment = invocation.getArgument(0);
+            enrollment.setId("promoted1");
+            return enrollment;
+        });
+        when(courseClient.applySeatOperations(anyList()))
+                .thenAnswer(invocation -> seatResults(invocation.getArgument(0), "rejected", null, "Course is full"));
+        when(enrollmentRepository.completeSeatChange(eq("promoted1"), anyString(), eq(true))).thenReturn(true);
+
+        // Act - withdrawSeatChange finds the release already claimed by the dispatcher
+        enrollmentService.unenrollStudent("student123", "course123");
+
+        // Assert - the promotion is undone and the student is back in line
+        verify(enrollmentRepository).deleteByIdAndStatusAndSeatOperationId(eq("promoted1"), eq("enrolled"), anyString());
+        verify(waitlistService).release(head);
+        verify(waitlistService, never()).complete(any());
+    }
+
+    @Test
+    @DisplayName("Should skip waitlisted students who are already enrolled")
+    void shouldSkipWaitlistedStudentsAlreadyEnrolled() {
+        // Arrange
+        WaitlistEntry head = new WaitlistEntry();
+        head.setCourseId("course123");
+        head.setStudentId("waiting456");
+        Enrollment alreadyEnrolled = new Enrollment();
+        alreadyEnrolled.setStudentId("waiting456");
+        alreadyEnrolled.setCourseId("course123");
+        alreadyEnrolled.setStatus("enrolled");
+
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(sampleEnrollment));
+        when(enrollmentRepository.findByStudentIdAndCourseId("waiting456", "course123"))
+                .thenReturn(Optional.of(alreadyEnrolled));
+        alreadyEnrolled.setId("enrollment456");
+        when(waitlistService.claimHead("course123")).thenReturn(Optional.of(head), Optional.empty());
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+        when(enrollmentRepository.withdrawSeatChange(eq("enrollment123"), anyString())).thenReturn(true);
+
+        // Act
+        enrollmentService.unenrollStudent("student123", "course123");
+
+        // Assert - nobody left to promote, so the seat is released after all
+        verify(enrollmentRepository).changeStatus(eq("enrollment456"), eq("dropped"), eq("enrolled"), isNull());
+        verify(enrollmentRepository).appendSeatChange(eq("enrollment123"), argThat(change -> change.getDelta() == -1));
+    }
+
+    @Test
+    @DisplayName("Should keep a waitlisted student in line when their promotion cannot be saved")
+    void shouldKeepWaitlistEntryWhenPromotionFails() {
+        // Arrange
+        WaitlistEntry head = new WaitlistEntry();
+        head.setId("entry1");
+        head.setCourseId("course123");
+        head.setStudentId("waiting456");
+
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(sampleEnrollment));
+        when(enrollmentRepository.findByStudentIdAndCourseId("waiting456", "course123"))
+                .thenReturn(Optional.empty());
+        when(waitlistService.claimHead("course123")).thenReturn(Optional.of(head));
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+        when(enrollmentRepository.withdrawSeatChange(eq("enrollment123"), anyString())).thenReturn(true);
+        when(enrollmentRepository.insert(any(Enrollment.class))).thenThrow(new RuntimeException("MongoDB unavailable"));
+
+        // Act
+        enrollmentService.unenrollStudent("student123", "course123");
+
+        // Assert - the entry goes back in line and the seat goes back to course-service
+        verify(waitlistService).release(head);
+        verify(waitlistService, never()).complete(any());
+        verify(enrollmentRepository).appendSeatChange(eq("enrollment123"), argThat(change -> change.getDelta() == -1));
+    }
+
+    @Test
+    @DisplayName("Should take waitlisted students off the waitlist only once their promotion is saved")
+    void shouldCompleteWaitlistEntryAfterPromotionSaved() {
+        // Arrange
+        WaitlistEntry head = new WaitlistEntry();
+        head.setId("entry1");
+        head.setCourseId("course123");
+        head.setStudentId("waiting456");
+
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.of(sampleEnrollment));
+        when(enrollmentRepository.findByStudentIdAndCourseId("waiting456", "course123"))
+                .thenReturn(Optional.empty());
+        when(waitlistService.claimHead("course123")).thenReturn(Optional.of(head));
+        when(enrollmentRepository.changeStatus(eq("enrollment123"), eq("enrolled"), eq("dropped"), any(SeatChange.class)))
+                .thenReturn(sampleEnrollment);
+        when(enrollmentRepository.withdrawSeatChange(eq("enrollment123"), anyString())).thenReturn(true);
+
+        // Act
+        enrollmentService.unenrollStudent("student123", "course123");
+
+        // Assert
+        var order = inOrder(enrollmentRepository, waitlistService);
+        order.verify(enrollmentRepository).insert(any(Enrollment.class));
+        order.verify(waitlistService).complete(head);
+        verify(waitlistService, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Should fill free seats from the waitlist until course service turns a reservation down")
+    void shouldPromoteIntoFreeSeatsUntilRejected() {
+        // Arrange
+        WaitlistEntry first = new WaitlistEntry();
+        first.setId("entry1");
+        first.setStudentId("waiting1");
+        WaitlistEntry second = new WaitlistEntry();
+        second.setId("entry2");
+        second.setStudentId("waiting2");
+
+        when(waitlistService.claimHead("course123")).thenReturn(Optional.of(first), Optional.of(second));
+        when(enrollmentRepository.findByStudentIdAndCourseId(anyString(), eq("course123"))).thenReturn(Optional.empty());
+        when(enrollmentRepository.insert(any(Enrollment.class))).thenAnswer(invocation -> {
+            Enrollment enrollment = invocation.getArgument(0);
+            enrollment.setId(enrollment.getStudentId() + "-enrollment");
+            return enrollment;
+        });
+        when(enrollmentRepository.completeSeatChange(anyString(), anyString(), anyBoolean())).thenReturn(true);
+        when(courseClient.applySeatOperations(anyList()))
+                .thenAnswer(invocation -> seatResults(invocation.getArgument(0), "applied", sampleCourse, null))
+                .thenAnswer(invocation -> seatResults(invocation.getArgument(0), "rejected", null, "Course is full"));
+
+        // Act
+        int promoted = enrollmentService.promoteIntoFreeSeats("course123", 3);
+
+        // Assert - the second promotion is taken back and that student keeps their place
+        assertEquals(1, promoted);
+        verify(waitlistService).complete(first);
+        verify(waitlistService).release(second);
+        verify(enrollmentRepository).deleteByIdAndStatusAndSeatOperationId(eq("waiting2-enrollment"), eq("enrolled"), anyString());
+        verify(waitlistService, times(2)).claimHead("course123");
+    }
+
+    @Test
+    @DisplayName("Should write a bulk enrollment in one go and deliver its seat reservations in one call")
+    void shouldEnrollStudentsInBulk() {
+        // Arrange
+        Enrollment dropped = new Enrollment();
+        dropped.setId("enrollment9");
+        dropped.setStudentId("student3");
+        dropped.setCourseId("course123");
+        dropped.setStatus("dropped");
+        List<BulkEnrollmentItem> items = List.of(
+                new BulkEnrollmentItem("student1", "course123"),
+                new BulkEnrollmentItem("student2", "course123"),
+                new BulkEnrollmentItem("student3", "course123"),
+                new BulkEnrollmentItem("student1", "course123"),
+                new BulkEnrollmentItem("student1", "unknown"));
+
+        when(enrollmentRepository.findByStudentIdInAndCourseIdIn(anyCollection(), anyCollection()))
+                .thenReturn(List.of(dropped));
+        when(courseClient.getCourses(anyList())).thenReturn(List.of(sampleCourse));
+        when(enrollmentRepository.bulkSave(anyList())).thenAnswer(invocation -> {
+            List<Enrollment> written = invocation.getArgument(0);
+            written.stream().filter(e -> e.getId() == null).forEach(e -> e.setId("new-" + e.getStudentId()));
+            return Map.of();
+        });
+        // Two seats left: the third reservation is rejected
+        when(courseClient.applySeatOperations(anyList())).thenAnswer(invocation -> {
+            List<SeatOperation> operations = invocation.getArgument(0);
+            List<SeatOperationResult> results = new ArrayList<>(seatResults(operations.subList(0, 2), "applied", sampleCourse, null));
+            results.addAll(seatResults(operations.subList(2, 3), "rejected", null, "Course is full"));
+            return results;
+        });
+        when(enrollmentRepository.completeSeatChange(anyString(), anyString(), anyBoolean())).thenReturn(true);
+
+        // Act
+        List<BulkEnrollmentResult> results = enrollmentService.enrollStudentsInBulk(items);
+
+        // Assert
+        assertEquals(5, results.size());
+        assertEquals("enrolled", results.get(0).getStatus());
+        assertEquals("new-student1", results.get(0).getEnrollmentId());
+        assertEquals("enrolled", results.get(1).getStatus());
+        assertEquals("Course is full", results.get(2).getError());
+        assertEquals("Duplicate entry in batch", results.get(3).getError());
+        assertEquals("Course not found", results.get(4).getError());
+        verify(courseClient, times(1)).applySeatOperations(anyList());
+        verify(enrollmentRepository).revokeEnrollment(eq("enrollment9"), anyString(), eq("Course is full"));
+        verify(enrollmentRepository, never()).deleteByIdAndStatusAndSeatOperationId(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should not reserve seats for bulk enrollments that fail to write")
+    void shouldNotReserveSeatsOfFailedBulkWrites() {
+        // Arrange
+        Enrollment dropped = new Enrollment();
+        dropped.setId("enrollment9");
+        dropped.setStudentId("student2");
+        dropped.setCourseId("course123");
+        dropped.setStatus("dropped");
+        List<BulkEnrollmentItem> items = List.of(
+                new BulkEnrollmentItem("student1", "course123"),
+                new BulkEnrollmentItem("student2", "course123"));
+
+        when(enrollmentRepository.findByStudentIdInAndCourseIdIn(anyCollection(), anyCollection()))
+                .thenReturn(List.of(dropped));
+        when(courseClient.getCourses(anyList())).thenReturn(List.of(sampleCourse));
+        when(enrollmentRepository.bulkSave(anyList()))
+                .thenReturn(Map.of(0, "Student is already enrolled in this course"));
+        courseServiceApplies(sampleCourse);
+        when(enrollmentRepository.completeSeatChange(anyString(), anyString(), anyBoolean())).thenReturn(true);
+
+        // Act
+        List<BulkEnrollmentResult> results = enrollmentService.enrollStudentsInBulk(items);
+
+        // Assert
+        assertEquals("failed", results.get(0).getStatus());
+        assertEquals("enrolled", results.get(1).getStatus());
+        assertEquals("enrollment9", results.get(1).getEnrollmentId());
+        verify(courseClient).applySeatOperations(argThat(operations -> operations.size() == 1));
+    }
+
+    @Test
+    @DisplayName("Should leave bulk seat reservations in the outbox when course service is unavailable")
+    void shouldQueueBulkReservationsWhenCourseServiceUnavailable() {
+        // Arrange
+        List<BulkEnrollmentItem> items = List.of(
+                new BulkEnrollmentItem("student1", "course123"),
+                new BulkEnrollmentItem("student2", "course123"));
+
+        when(enrollmentRepository.findByStudentIdInAndCourseIdIn(anyCollection(), anyCollection())).thenReturn(List.of());
+        when(courseClient.getCourses(anyList())).thenReturn(List.of(sampleCourse));
+        when(enrollmentRepository.bulkSave(anyList())).thenAnswer(invocation -> {
+            List<Enrollment> written = invocation.getArgument(0);
+            written.forEach(e -> e.setId("new-" + e.getStudentId()));
+            return Map.of();
+        });
+        when(courseClient.applySeatOperations(anyList())).thenThrow(new RuntimeException("Connection refused"));
+
+        // Act
+        List<BulkEnrollmentResult> results = enrollmentService.enrollStudentsInBulk(items);
+
+        // Assert - both enrolled, their reservations retried by the outbox
+        assertEquals("enrolled", results.get(0).getStatus());
+        assertEquals("enrolled", results.get(1).getStatus());
+        verify(enrollmentRepository).rescheduleSeatChange(eq("new-student1"), anyString(), any(Date.class), eq("Connection refused"));
+        verify(enrollmentRepository).rescheduleSeatChange(eq("new-student2"), anyString(), any(Date.class), eq("Connection refused"));
+        verify(enrollmentRepository, never()).completeSeatChange(anyString(), anyString(), anyBoolean());
+        verify(enrollmentRepository, never()).deleteByIdAndStatusAndSeatOperationId(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should serve cached course details without calling course service again")
+    void shouldServeCachedCourseDetails() {
+        // Arrange
+        List<Enrollment> enrollments = Arrays.asList(sampleEnrollment);
+        when(enrollmentRepository.findByStudentIdAndStatus("student123", "enrolled")).thenReturn(enrollments);
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
+
+        // Act
+        enrollmentService.getStudentEnrollments("student123");
+        List<Enrollment> result = enrollmentService.getStudentEnrollments("student123");
+
+        // Assert
+        assertEquals("CS101", result.get(0).getCourse().getCode());
+        verify(courseClient, times(1)).getCourses(anyList());
+    }
+
+    @Test
+    @DisplayName("Should refresh cached course snapshot after seat change")
+    void shouldRefreshCachedCourseAfterSeatChange() {
+        // Arrange
+        Course updatedCourse = new Course();
+        updatedCourse.setId("course123");
+        updatedCourse.setCode("CS101");
+        updatedCourse.setEnrolled(11);
+        updatedCourse.setStatus("open");
+
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123"))
+                .thenReturn(Optional.empty());
+        when(courseClient.getCourses(List.of("course123"))).thenReturn(List.of(sampleCourse));
+        courseServiceApplies(updatedCourse);
+        when(enrollmentRepository.insert(any(Enrollment.class))).thenReturn(sampleEnrollment);
+        when(enrollmentRepository.completeSeatChange(eq("enrollment123"), anyString(), eq(false))).thenReturn(true);
+
+        // Act
+        enrollmentService.enrollStudent("student123", "course123");
+
+        // Assert
+        assertEquals(11, courseSnapshotCache.getCourse("course123").getEnrolled());
+        verify(courseClient, times(1)).getCourses(anyList());
+    }
+
+    private void courseServiceApplies(Course course) {
+        when(courseClient.applySeatOperations(anyList()))
+                .thenAnswer(invocation -> seatResults(invocation.getArgument(0), "applied", course, null));
+    }
+
+    private List<SeatOperationResult> seatResults(List<SeatOperation> operations, String status, Course course, String error) {
+        return operations.stream().map(operation -> {
+            SeatOperationResult result = new SeatOperationResult();
+            result.setOperationId(operation.getOperationId());
+            result.setStatus(status);
+            result.setCourse(course);
+            result.setError(error);
+            return result;
+        }).collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.model.IdempotencyRecord;
+import com.enrollment.enrollment.repository.IdempotencyRecordRepository;
+import com.enrollment.enrollment.service.IdempotencyService.IdempotencyConflictException;
+import com.enrollment.enrollment.service.IdempotencyService.Result;
+import com.enrollment.enrollment.service.IdempotencyService.StoredResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for IdempotencyService.
+ * Tests replay of stored responses, coalescing of concurrent duplicates and key conflicts.
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String KEY = "student@example.com:key-1";
+    private static final String HASH = "hash-1";
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(repository, meterRegistry,
+                Duration.ofHours(24), Duration.ofSeconds(30), Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Should run the request and store its response")
+    void shouldRunAndStoreResponse() throws Exception {
+        // Act
+        Result result = idempotencyService.execute(KEY, HASH, () -> new StoredResponse(200, "application/json", "{\"id\":\"e1\"}"));
+
+        // Assert
+        assertFalse(result.replayed());
+        verify(repository).insert(argThat((IdempotencyRecord record) -> IdempotencyRecord.IN_PROGRESS.equals(record.getStatus())));
+        verify(repository).save(argThat(record ->
+            IdempotencyRecord.COMPLETED.equals(record.getStatus())
+                && record.getResponseStatus() == 200
+                && "{\"id\":\"e1\"}".equals(record.getResponseBody())
+                && record.getExpiresAt().after(new Date())
+        ));
+    }
+
+    @Test
+    @DisplayName("Should renew the lease while a request runs longer than the lease")
+    void shouldRenewLeaseWhileRunning() throws Exception {
+        // Arrange
+        IdempotencyService shortLease = new IdempotencyService(repository, meterRegistry,
+                Duration.ofHours(24), Duration.ofMillis(300), Duration.ofSeconds(5));
+        when(repository.renewLease(eq(KEY), eq(HASH), any(Date.class))).thenReturn(1L);
+
+        // Act
+        shortLease.execute(KEY, HASH, () -> {
+            Thread.sleep(450);
+            return new StoredResponse(200, "application/json", "{}");
+        });
+
+        // Assert - renewed every 100ms, and no more once the request completed
+        verify(repository, atLeast(2)).renewLease(eq(KEY), eq(HASH), argThat(until -> until.after(new Date())));
+        clearInvocations(repository);
+        Thread.sleep(250);
+        verify(repository, never()).renewLease(anyString(), anyString(), any(Date.class));
+        shortLease.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should replay a completed response without running the request again")
+    void shouldReplayCompletedResponse() throws Exception {
+        // Arrange
+        IdempotencyRecord stored = record(IdempotencyRecord.COMPLETED, HASH);
+        stored.setResponseStatus(400);
+        stored.setResponseBody("{\"error\":\"Course is full\"}");
+        when(repository.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("duplicate"));
+        when(repository.findById(KEY)).thenReturn(Optional.of(stored));
+        AtomicInteger runs = new AtomicInteger();
+
+        // Act
+        Result result = idempotencyService.execute(KEY, HASH, () -> {
+            runs.incrementAndGet();
+            return new StoredResponse(200, null, "");
+        });
+
+        // Assert
+        assertTrue(result.replayed());
+        assertEquals(400, result.response().status());
+        assertEquals("{\"error\":\"Course is full\"}", result.response().body());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    @DisplayName("Should coalesce concurrent duplicates onto the running request")
+    void shouldCoalesceConcurrentDuplicates() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<Result> first = executor.submit(() -> idempotencyService.execute(KEY, HASH, () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return new StoredResponse(200, "application/json", "{\"id\":\"e1\"}");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Result> duplicate = executor.submit(() -> idempotencyService.execute(KEY, HASH, () -> {
+                runs.incrementAndGet();
+                return new StoredResponse(200, "application/json", "{\"id\":\"e2\"}");
+            }));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            assertFalse(first.get(5, TimeUnit.SECONDS).replayed());
+            Result replayed = duplicate.get(5, TimeUnit.SECONDS);
+            assertTrue(replayed.replayed());
+            assertEquals("{\"id\":\"e1\"}", replayed.response().body());
+            assertEquals(1, runs.get());
+            assertEquals(1.0, meterRegistry.get("enrollment.idempotency.requests").tag("result", "coalesced").counter().count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse a key that was used for a different request")
+    void shouldRefuseKeyReusedForDifferentRequest() {
+        // Arrange
+        when(repository.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("duplicate"));
+        when(repository.findById(KEY)).thenReturn(Optional.of(record(IdempotencyRecord.COMPLETED, "other-hash")));
+
+        // Act & Assert
+        IdempotencyConflictException exception = assertThrows(IdempotencyConflictException.class, () ->
+            idempotencyService.execute(KEY, HASH, () -> new StoredResponse(200, null, ""))
+        );
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, exception.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should ask the client to retry while the request runs on another instance")
+    void shouldRejectWhileRunningElsewhere() {
+        // Arrange
+        when(repository.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("duplicate"));
+        when(repository.findById(KEY)).thenReturn(Optional.of(record(IdempotencyRecord.IN_PROGRESS, HASH)));
+        when(repository.deleteByIdAndStatusAndLockedUntilBefore(eq(KEY), eq(IdempotencyRecord.IN_PROGRESS), any(Date.class))).thenReturn(0L);
+
+        // Act & Assert
+        IdempotencyConflictException exception = assertThrows(IdempotencyConflictException.class, () ->
+            idempotencyService.execute(KEY, HASH, () -> new StoredResponse(200, null, ""))
+        );
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should not remember server errors so the client can retry with the same key")
+    void shouldNotStoreServerErrors() throws Exception {
+        // Act
+        Result result = idempotencyService.execute(KEY, HASH, () -> new StoredResponse(503, null, ""));
+
+        // Assert
+        assertEquals(503, result.response().status());
+        verify(repository).deleteById(KEY);
+        verify(repository, never()).save(any());
+    }
+
+    private IdempotencyRecord record(String status, String requestHash) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(KEY);
+        record.setStatus(status);
+        record.setRequestHash(requestHash);
+        record.setLockedUntil(new Date(System.currentTimeMillis() + 30_000));
+        return record;
+    }
+}
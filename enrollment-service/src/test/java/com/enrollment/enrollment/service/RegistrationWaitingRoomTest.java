@@ -0,0 +1,178 @@
+package com.enrollment.enrollment.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RegistrationWaitingRoom.
+ * Tests per-course concurrency limits, queue bounds, retry hints and metrics.
+ */
+class RegistrationWaitingRoomTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RegistrationWaitingRoom waitingRoom;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        waitingRoom = new RegistrationWaitingRoom(meterRegistry, 2, 1, 10, Duration.ofMillis(100));
+    }
+
+    @Test
+    @DisplayName("Should admit callers up to the per-course concurrency limit")
+    void shouldAdmitUpToConcurrencyLimit() {
+        RegistrationWaitingRoom.Permit first = waitingRoom.admit("course123");
+        RegistrationWaitingRoom.Permit second = waitingRoom.admit("course123");
+
+        RegistrationWaitingRoom.AdmissionRejectedException exception = assertThrows(
+                RegistrationWaitingRoom.AdmissionRejectedException.class,
+                () -> waitingRoom.admit("course123"));
+
+        assertEquals(1, exception.getQueuePosition());
+        assertTrue(exception.getRetryAfterSeconds() >= 1);
+        assertEquals(1.0, meterRegistry.get("enrollment.waiting_room.rejected").counter().count());
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    @DisplayName("Should not limit other courses when one course is saturated")
+    void shouldIsolateCourses() {
+        waitingRoom.admit("course123");
+        waitingRoom.admit("course123");
+
+        assertDoesNotThrow(() -> waitingRoom.admit("course456").close());
+    }
+
+    @Test
+    @DisplayName("Should admit waiting caller once a slot is released")
+    void shouldAdmitWaitingCallerWhenSlotReleased() throws Exception {
+        SimpleMeterRegistry slowRoomMeters = new SimpleMeterRegistry();
+        RegistrationWaitingRoom slowRoom = new RegistrationWaitingRoom(slowRoomMeters, 1, 10, 10, Duration.ofSeconds(5));
+        RegistrationWaitingRoom.Permit held = slowRoom.admit("course123");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch admitted = new CountDownLatch(1);
+        try {
+            Future<?> waiter = executor.submit(() -> {
+                slowRoom.admit("course123").close();
+                admitted.countDown();
+            });
+
+            waitUntil(() -> slowRoom.getQueueDepth("course123") == 1);
+            assertEquals(1.0, slowRoomMeters.get("enrollment.waiting_room.queue.depth").gauge().value());
+            held.close();
+
+            assertTrue(admitted.await(5, TimeUnit.SECONDS));
+            waiter.get(5, TimeUnit.SECONDS);
+            assertEquals(0, slowRoom.getQueueDepth("course123"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject immediately when the queue is full")
+    void shouldRejectImmediatelyWhenQueueFull() throws Exception {
+        RegistrationWaitingRoom slowRoom = new RegistrationWaitingRoom(new SimpleMeterRegistry(), 1, 1, 10, Duration.ofSeconds(5));
+        RegistrationWaitingRoom.Permit held = slowRoom.admit("course123");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> waiter = executor.submit(() -> slowRoom.admit("course123").close());
+            waitUntil(() -> slowRoom.getQueueDepth("course123") == 1);
+
+            long start = System.nanoTime();
+            RegistrationWaitingRoom.AdmissionRejectedException exception = assertThrows(
+                    RegistrationWaitingRoom.AdmissionRejectedException.class,
+                    () -> slowRoom.admit("course123"));
+
+            assertEquals(2, exception.getQueuePosition());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+            held.close();
+            waiter.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should record wait time for every admission attempt")
+    void shouldRecordWaitTime() {
+        waitingRoom.admit("course123").close();
+        waitingRoom.admit("course123").close();
+
+        assertEquals(2, meterRegistry.get("enrollment.waiting_room.wait").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should release the slot only once when a permit is closed twice")
+    void shouldReleaseSlotOnlyOnce() {
+        RegistrationWaitingRoom.Permit permit = waitingRoom.admit("course123");
+        permit.close();
+        permit.close();
+
+        waitingRoom.admit("course123");
+        waitingRoom.admit("course123");
+        assertThrows(RegistrationWaitingRoom.AdmissionRejectedException.class, () -> waitingRoom.admit("course123"));
+    }
+
+    @Test
+    @DisplayName("Should cap the number of waiting callers across all courses")
+    void shouldCapWaitersAcrossCourses() throws Exception {
+        RegistrationWaitingRoom slowRoom = new RegistrationWaitingRoom(new SimpleMeterRegistry(), 1, 10, 1, Duration.ofSeconds(5));
+        RegistrationWaitingRoom.Permit heldFirst = slowRoom.admit("course123");
+        RegistrationWaitingRoom.Permit heldSecond = slowRoom.admit("course456");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> waiter = executor.submit(() -> slowRoom.admit("course123").close());
+            waitUntil(() -> slowRoom.getQueueDepth("course123") == 1);
+
+            // Another course's line is empty, but the room already holds as many waiters as it allows
+            long start = System.nanoTime();
+            assertThrows(RegistrationWaitingRoom.AdmissionRejectedException.class, () -> slowRoom.admit("course456"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+            heldFirst.close();
+            waiter.get(5, TimeUnit.SECONDS);
+            heldSecond.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop a course's line once nobody waits in it or holds a slot")
+    void shouldDropIdleLines() {
+        RegistrationWaitingRoom.Permit first = waitingRoom.admit("course123");
+        RegistrationWaitingRoom.Permit second = waitingRoom.admit("course123");
+        assertThrows(RegistrationWaitingRoom.AdmissionRejectedException.class, () -> waitingRoom.admit("course123"));
+        waitingRoom.admit("no-such-course").close();
+        assertEquals(1, waitingRoom.getLineCount());
+
+        first.close();
+        assertEquals(1, waitingRoom.getLineCount());
+        second.close();
+        assertEquals(0, waitingRoom.getLineCount());
+        assertEquals(0.0, meterRegistry.get("enrollment.waiting_room.lines").gauge().value());
+    }
+
+    private void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,231 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.model.Course;
+import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.SeatChange;
+import com.enrollment.enrollment.model.SeatOperation;
+import com.enrollment.enrollment.model.SeatOperationResult;
+import com.enrollment.enrollment.repository.EnrollmentRepository;
+import com.enrollment.enrollment.repository.EnrollmentRepositoryCustom.SeatOutboxStats;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SeatOutboxDispatcher.
+ * Tests batched delivery, retries with backoff, late rejections and the lag metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+class SeatOutboxDispatcherTest {
+
+    @Mock
+    private EnrollmentRepository enrollmentRepository;
+
+    @Mock
+    private CourseClient courseClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SeatOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        CourseSnapshotCache courseSnapshotCache = new CourseSnapshotCache(courseClient, CircuitBreakerRegistry.ofDefaults(),
+                new SimpleMeterRegistry(), Duration.ofSeconds(30), Duration.ofHours(1), 100);
+        dispatcher = new SeatOutboxDispatcher(enrollmentRepository, courseClient, courseSnapshotCache,
+                meterRegistry, 100, Duration.ofMinutes(5), Duration.ofSeconds(60));
+    }
+
+    @Test
+    @DisplayName("Should deliver all due seat changes in one call and remove them once applied")
+    void shouldDeliverDueChangesInOneCall() {
+        // Arrange
+        Enrollment first = enrollment("enrollment1", "course1", SeatChange.release());
+        Enrollment second = enrollment("enrollment2", "course2", SeatChange.reserve());
+        when(enrollmentRepository.claimDueSeatChanges(any(Date.class), any(Date.class), eq(100))).thenReturn(List.of(first, second));
+        when(courseClient.applySeatOperations(anyList())).thenAnswer(invocation -> results(invocation.getArgument(0), "applied"));
+        when(enrollmentRepository.completeSeatChange(anyString(), anyString(), anyBoolean())).thenReturn(true);
+        when(enrollmentRepository.getSeatOutboxStats()).thenReturn(new SeatOutboxStats(0, null));
+
+        // Act
+        dispatcher.dispatchDue();
+
+        // Assert
+        verify(courseClient, times(1)).applySeatOperations(argThat(operations -> operations.size() == 2));
+        verify(enrollmentRepository).completeSeatChange("enrollment1", first.getPendingSeatChanges().get(0).getOperationId(), false);
+        verify(enrollmentRepository).completeSeatChange("enrollment2", second.getPendingSeatChanges().get(0).getOperationId(), false);
+        assertEquals(2.0, dispatched("applied"));
+    }
+
+    @Test
+    @DisplayName("Should reschedule seat changes with backoff when course service is unavailable")
+    void shouldRescheduleWhenCourseServiceUnavailable() {
+        // Arrange
+        SeatChange change = SeatChange.release();
+        change.setAttempts(3);
+        Enrollment enrollment = enrollment("enrollment1", "course1", change);
+        when(enrollmentRepository.claimDueSeatChanges(any(Date.class), any(Date.class), eq(100))).thenReturn(List.of(enrollment));
+        when(courseClient.applySeatOperations(anyList())).thenThrow(new RuntimeException("Connection refused"));
+        when(enrollmentRepository.getSeatOutboxStats()).thenReturn(new SeatOutboxStats(1, new Date(System.currentTimeMillis() - 60_000)));
+
+        // Act
+        long before = System.currentTimeMillis();
+        dispatcher.dispatchDue();
+
+        // Assert - 2^3 seconds after the third failed attempt
+        verify(enrollmentRepository).rescheduleSeatChange(eq("enrollment1"), eq(change.getOperationId()),
+                argThat(next -> next.getTime() >= before + 8_000 && next.getTime() <= System.currentTimeMillis() + 8_000),
+                eq("Connection refused"));
+        verify(enrollmentRepository, never()).completeSeatChange(anyString(), anyString(), anyBoolean());
+        assertEquals(1.0, meterRegistry.get("enrollment.seat_outbox.pending").gauge().value());
+        assertTrue(meterRegistry.get("enrollment.seat_outbox.lag").gauge().value() >= 60);
+    }
+
+    @Test
+    @DisplayName("Should treat an already applied seat change as delivered")
+    void shouldTreatDuplicateAsDelivered() {
+        // Arrange
+        Enrollment enrollment = enrollment("enrollment1", "course1", SeatChange.reserve());
+        when(enrollmentRepository.claimDueSeatChanges(any(Date.class), any(Date.class), eq(100))).thenReturn(List.of(enrollment));
+        when(courseClient.applySeatOperations(anyList())).thenAnswer(invocation -> results(invocation.getArgument(0), "duplicate"));
+        when(enrollmentRepository.completeSeatChange(anyString(), anyString(), anyBoolean())).thenReturn(true);
+
+        // Act
+        dispatcher.dispatchDue();
+
+        // Assert
+        verify(enrollmentRepository).completeSeatChange(eq("enrollment1"), anyString(), eq(false));
+        assertEquals(1.0, dispatched("duplicate"));
+        assertEquals(0.0, dispatched("applied"));
+    }
+
+    @Test
+    @DisplayName("Should revoke an enrollment whose late seat reservation finds the course full")
+    void shouldRevokeEnrollmentWhenLateReservationRejected() {
+        // Arrange
+        SeatChange reservation = SeatChange.reserve();
+        Enrollment enrollment = enrollment("enrollment1", "course1", reservation);
+        enrollment.setStatus("enrolled");
+        when(enrollmentRepository.claimDueSeatChanges(any(Date.class), any(Date.class), eq(100))).thenReturn(List.of(enrollment));
+        when(courseClient.applySeatOperations(anyList())).thenAnswer(invocation -> results(invocation.getArgument(0), "rejected"));
+        when(enrollmentRepository.completeSeatChange(anyString(), anyString(), anyBoolean())).thenReturn(true);
+
+        // Act
+        dispatcher.dispatchDue();
+
+        // Assert - the rejected reservation takes an unsent release behind it along, and the
+        // enrollment is only revoked while it still depends on that reservation
+        verify(enrollmentRepository).completeSeatChange("enrollment1", reservation.getOperationId(), true);
+        verify(enrollmentRepository).revokeEnrollment("enrollment1", reservation.getOperationId(), "Course is full");
+        verify(enrollmentRepository, never()).save(any(Enrollment.class));
+        assertEquals(1.0, dispatched("rejected"));
+    }
+
+    @Test
+    @DisplayName("Should only send the first pending change of an enrollment")
+    void shouldOnlySendFirstPendingChange() {
+        // Arrange
+        SeatChange first = SeatChange.reserve();
+        SeatChange queued = SeatChange.release();
+        Enrollment enrollment = enrollment("enrollment1", "course1", first);
+        enrollment.addPendingSeatChange(queued);
+        when(enrollmentRepository.claimDueSeatChanges(any(Date.class), any(Date.class), eq(100))).thenReturn(List.of(enrollment));
+        when(courseClient.applySeatOperations(anyList())).thenAnswer(invocation -> results(invocation.getArgument(0), "applied"));
+        when(enrollmentRepository.completeSeatChange(anyString(), anyString(), anyBoolean())).thenReturn(true);
+
+        // Act
+        dispatcher.dispatchDue();
+
+        // Assert - the release waits until the reservation's outcome is known
+        verify(courseClient).applySeatOperations(argThat(operations ->
+            operations.size() == 1 && operations.get(0).getOperationId().equals(first.getOperationId())
+        ));
+    }
+
+    @Test
+    @DisplayName("Should leave a change completed by another delivery alone")
+    void shouldIgnoreChangeCompletedElsewhere() {
+        // Arrange
+        Enrollment enrollment = enrollment("enrollment1", "course1", SeatChange.reserve());
+        when(enrollmentRepository.claimDueSeatChanges(any(Date.class), any(Date.class), eq(100))).thenReturn(List.of(enrollment));
+        when(courseClient.applySeatOperations(anyList())).thenAnswer(invocation -> results(invocation.getArgument(0), "rejected"));
+
+        // Act
+        dispatcher.dispatchDue();
+
+        // Assert
+        verify(enrollmentRepository, never()).revokeEnrollment(anyString(), anyString(), anyString());
+        assertEquals(0.0, dispatched("rejected"));
+    }
+
+    @Test
+    @DisplayName("Should deliver claimed changes right away in batches and leave rejected reservations to the caller")
+    void shouldApplyAllNowInBatches() {
+        // Arrange
+        dispatcher = new SeatOutboxDispatcher(enrollmentRepository, courseClient, mock(CourseSnapshotCache.class),
+                meterRegistry, 2, Duration.ofMinutes(5), Duration.ofSeconds(60));
+        List<Enrollment> enrollments = List.of(
+                enrollment("enrollment1", "course1", SeatChange.reserve()),
+                enrollment("enrollment2", "course1", SeatChange.reserve()),
+                enrollment("enrollment3", "course1", SeatChange.reserve()));
+        when(courseClient.applySeatOperations(anyList()))
+                .thenAnswer(invocation -> results(invocation.getArgument(0), "applied"))
+                .thenAnswer(invocation -> results(invocation.getArgument(0), "rejected"));
+        when(enrollmentRepository.completeSeatChange(anyString(), anyString(), anyBoolean())).thenReturn(true);
+
+        // Act
+        Map<String, SeatOperationResult> results = dispatcher.applyAllNow(enrollments);
+
+        // Assert
+        verify(courseClient, times(2)).applySeatOperations(anyList());
+        assertEquals("applied", results.get("enrollment2").getStatus());
+        assertTrue(results.get("enrollment3").isRejected());
+        verify(enrollmentRepository).completeSeatChange(eq("enrollment3"), anyString(), eq(true));
+        verify(enrollmentRepository, never()).revokeEnrollment(anyString(), anyString(), anyString());
+        assertTrue(enrollments.get(0).getPendingSeatChanges().isEmpty());
+    }
+
+    private double dispatched(String result) {
+        return meterRegistry.get("enrollment.seat_outbox.dispatched").tag("result", result).counter().count();
+    }
+
+    private Enrollment enrollment(String id, String courseId, SeatChange change) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setId(id);
+        enrollment.setStudentId("student-" + id);
+        enrollment.setCourseId(courseId);
+        enrollment.addPendingSeatChange(change);
+        return enrollment;
+    }
+
+    private List<SeatOperationResult> results(List<SeatOperation> operations, String status) {
+        return operations.stream().map(operation -> {
+            SeatOperationResult result = new SeatOperationResult();
+            result.setOperationId(operation.getOperationId());
+            result.setStatus(status);
+            if ("rejected".equals(status)) {
+                result.setError("Course is full");
+            } else {
+                Course course = new Course();
+                course.setId(operation.getCourseId());
+                result.setCourse(course);
+            }
+            return result;
+        }).toList();
+    }
+}
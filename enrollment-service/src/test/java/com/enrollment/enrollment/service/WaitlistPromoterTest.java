@@ -0,0 +1,119 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.client.CourseClient;
+import com.enrollment.enrollment.model.CatalogChanges;
+import com.enrollment.enrollment.model.Course;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for WaitlistPromoter.
+ * Tests following the catalog changes feed with a mocked course client.
+ */
+@ExtendWith(MockitoExtension.class)
+class WaitlistPromoterTest {
+
+    @Mock
+    private CourseClient courseClient;
+
+    @Mock
+    private WaitlistService waitlistService;
+
+    @Mock
+    private EnrollmentService enrollmentService;
+
+    @Mock
+    private CourseSnapshotCache courseSnapshotCache;
+
+    private WaitlistPromoter promoter;
+
+    @BeforeEach
+    void setUp() {
+        promoter = new WaitlistPromoter(courseClient, waitlistService, enrollmentService, courseSnapshotCache, 2);
+    }
+
+    @Test
+    @DisplayName("Should fill the free seats of changed courses that have a waitlist")
+    void shouldPromoteIntoSeatsOfChangedCourses() {
+        // Arrange - capacity raised on course1; course2 has free seats but nobody waiting; course3 is full
+        when(courseClient.getCatalogChanges(0L, 2))
+                .thenReturn(changes(7, true, course("course1", 40, 30), course("course2", 40, 10)));
+        when(courseClient.getCatalogChanges(7L, 2)).thenReturn(changes(9, false, course("course3", 30, 30)));
+        when(waitlistService.getWaitlistedCourseIds()).thenReturn(List.of("course1", "course3"));
+
+        // Act
+        promoter.promoteIntoFreeSeats();
+
+        // Assert
+        verify(enrollmentService).promoteIntoFreeSeats("course1", 10);
+        verifyNoMoreInteractions(enrollmentService);
+        verify(waitlistService, times(1)).getWaitlistedCourseIds();
+    }
+
+    @Test
+    @DisplayName("Should repeat a page that failed and continue the feed after a page that was handled")
+    void shouldResumeFromLastHandledVersion() {
+        // Arrange
+        when(courseClient.getCatalogChanges(0L, 2)).thenReturn(changes(5, false, course("course1", 40, 30)));
+        when(courseClient.getCatalogChanges(5L, 2)).thenReturn(changes(5, false));
+        when(waitlistService.getWaitlistedCourseIds()).thenReturn(List.of("course1"));
+        when(enrollmentService.promoteIntoFreeSeats("course1", 10))
+                .thenThrow(new RuntimeException("MongoDB unavailable"))
+                .thenReturn(10);
+
+        // Act
+        promoter.promoteIntoFreeSeats();
+        promoter.promoteIntoFreeSeats();
+        promoter.promoteIntoFreeSeats();
+
+        // Assert
+        verify(courseClient, times(2)).getCatalogChanges(0L, 2);
+        verify(courseClient).getCatalogChanges(5L, 2);
+        verify(enrollmentService, times(2)).promoteIntoFreeSeats("course1", 10);
+    }
+
+    @Test
+    @DisplayName("Should evict changed and deleted courses from the course snapshot cache")
+    void shouldEvictChangedAndDeletedCourses() {
+        // Arrange
+        CatalogChanges changes = changes(3, false, course("course1", 40, 40));
+        changes.setDeleted(List.of("course2"));
+        when(courseClient.getCatalogChanges(0L, 2)).thenReturn(changes);
+        when(waitlistService.getWaitlistedCourseIds()).thenReturn(List.of());
+
+        // Act
+        promoter.promoteIntoFreeSeats();
+
+        // Assert
+        verify(courseSnapshotCache).invalidate("course1");
+        verify(courseSnapshotCache).invalidate("course2");
+        verifyNoInteractions(enrollmentService);
+    }
+
+    private CatalogChanges changes(long version, boolean hasMore, Course... courses) {
+        CatalogChanges changes = new CatalogChanges();
+        changes.setVersion(version);
+        changes.setCourses(List.of(courses));
+        changes.setDeleted(List.of());
+        changes.setHasMore(hasMore);
+        return changes;
+    }
+
+    private Course course(String id, int capacity, int enrolled) {
+        Course course = new Course();
+        course.setId(id);
+        course.setCapacity(capacity);
+        course.setEnrolled(enrolled);
+        course.setStatus(enrolled < capacity ? "open" : "closed");
+        return course;
+    }
+}
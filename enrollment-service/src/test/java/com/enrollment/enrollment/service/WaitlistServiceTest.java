@@ -0,0 +1,185 @@
+package com.enrollment.enrollment.service;
+
+import com.enrollment.enrollment.model.Course;
+import com.enrollment.enrollment.model.Enrollment;
+import com.enrollment.enrollment.model.WaitlistEntry;
+import com.enrollment.enrollment.repository.EnrollmentRepository;
+import com.enrollment.enrollment.repository.WaitlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for WaitlistService.
+ * Tests joining, leaving and claiming the per-course waitlist with mocked repositories.
+ */
+@ExtendWith(MockitoExtension.class)
+class WaitlistServiceTest {
+
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @Mock
+    private EnrollmentRepository enrollmentRepository;
+
+    @Mock
+    private CourseSnapshotCache courseSnapshotCache;
+
+    @InjectMocks
+    private WaitlistService waitlistService;
+
+    private Course fullCourse;
+
+    @BeforeEach
+    void setUp() {
+        fullCourse = new Course();
+        fullCourse.setId("course123");
+        fullCourse.setCapacity(30);
+        fullCourse.setEnrolled(30);
+        fullCourse.setStatus("closed");
+    }
+
+    @Test
+    @DisplayName("Should append student to the end of the waitlist")
+    void shouldAppendStudentToEndOfWaitlist() {
+        // Arrange
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123")).thenReturn(Optional.empty());
+        when(waitlistRepository.findByCourseIdAndStudentId("course123", "student123")).thenReturn(Optional.empty());
+        when(courseSnapshotCache.getCourse("course123")).thenReturn(fullCourse);
+        when(waitlistRepository.findFirstByCourseIdOrderByPositionDesc("course123")).thenReturn(Optional.of(entry("other", 4)));
+        when(waitlistRepository.insert(any(WaitlistEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(waitlistRepository.countByCourseIdAndPositionLessThan("course123", 5L)).thenReturn(2L);
+
+        // Act
+        WaitlistEntry result = waitlistService.joinWaitlist("student123", "course123");
+
+        // Assert
+        assertEquals(5L, result.getPosition());
+        assertEquals(3L, result.getPlaceInLine());
+    }
+
+    @Test
+    @DisplayName("Should retry with the next position when a concurrent join takes it")
+    void shouldRetryWhenPositionTaken() {
+        // Arrange
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123")).thenReturn(Optional.empty());
+        when(waitlistRepository.findByCourseIdAndStudentId("course123", "student123")).thenReturn(Optional.empty());
+        when(courseSnapshotCache.getCourse("course123")).thenReturn(fullCourse);
+        when(waitlistRepository.findFirstByCourseIdOrderByPositionDesc("course123"))
+                .thenReturn(Optional.empty(), Optional.of(entry("other", 1)));
+        when(waitlistRepository.insert(any(WaitlistEntry.class)))
+                .thenThrow(new DuplicateKeyException("course_position_idx"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        WaitlistEntry result = waitlistService.joinWaitlist("student123", "course123");
+
+        // Assert
+        assertEquals(2L, result.getPosition());
+        verify(waitlistRepository, times(2)).insert(any(WaitlistEntry.class));
+    }
+
+    @Test
+    @DisplayName("Should reject waitlist join while the course is open")
+    void shouldRejectJoinWhenCourseOpen() {
+        // Arrange
+        fullCourse.setStatus("open");
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123")).thenReturn(Optional.empty());
+        when(waitlistRepository.findByCourseIdAndStudentId("course123", "student123")).thenReturn(Optional.empty());
+        when(courseSnapshotCache.getCourse("course123")).thenReturn(fullCourse);
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> waitlistService.joinWaitlist("student123", "course123"));
+        assertTrue(exception.getMessage().contains("open seats"));
+        verify(waitlistRepository, never()).insert(any(WaitlistEntry.class));
+    }
+
+    @Test
+    @DisplayName("Should reject waitlist join when student is already enrolled")
+    void shouldRejectJoinWhenAlreadyEnrolled() {
+        // Arrange
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStatus("enrolled");
+        when(enrollmentRepository.findByStudentIdAndCourseId("student123", "course123")).thenReturn(Optional.of(enrollment));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> waitlistService.joinWaitlist("student123", "course123"));
+        assertEquals("Student is already enrolled in this course", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should leave a claimed head on the waitlist until its promotion completes")
+    void shouldKeepClaimedHeadUntilCompleted() {
+        // Arrange
+        WaitlistEntry head = entry("student1", 1);
+        when(waitlistRepository.claimHead(eq("course123"), any(Date.class), any(Date.class))).thenAnswer(invocation -> {
+            head.setClaimedUntil(invocation.getArgument(2));
+            return head;
+        });
+
+        // Act
+        Optional<WaitlistEntry> claimed = waitlistService.claimHead("course123");
+
+        // Assert - claimed for a while, not removed
+        assertTrue(claimed.isPresent());
+        assertTrue(head.getClaimedUntil().after(new Date()));
+        verify(waitlistRepository, never()).delete(any(WaitlistEntry.class));
+        verify(waitlistRepository, never()).deleteByIdAndClaimedUntil(anyString(), any());
+
+        waitlistService.complete(claimed.get());
+        verify(waitlistRepository).deleteByIdAndClaimedUntil("student1-entry", head.getClaimedUntil());
+    }
+
+    @Test
+    @DisplayName("Should put a released entry back in line only while it still holds the claim")
+    void shouldReleaseOwnClaimOnly() {
+        // Arrange
+        WaitlistEntry claimed = entry("student1", 1);
+        claimed.setClaimedUntil(new Date(1_000L));
+
+        // Act
+        waitlistService.release(claimed);
+
+        // Assert
+        verify(waitlistRepository).releaseClaim("student1-entry", new Date(1_000L));
+    }
+
+    @Test
+    @DisplayName("Should number course waitlist entries by place in line")
+    void shouldNumberCourseWaitlistEntries() {
+        // Arrange
+        when(waitlistRepository.findByCourseIdOrderByPositionAsc("course123"))
+                .thenReturn(List.of(entry("student1", 3), entry("student2", 7)));
+
+        // Act
+        List<WaitlistEntry> result = waitlistService.getCourseWaitlist("course123");
+
+        // Assert
+        assertEquals(1L, result.get(0).getPlaceInLine());
+        assertEquals(2L, result.get(1).getPlaceInLine());
+    }
+
+    private WaitlistEntry entry(String studentId, long position) {
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setId(studentId + "-entry");
+        entry.setCourseId("course123");
+        entry.setStudentId(studentId);
+        entry.setPosition(position);
+        return entry;
+    }
+}